@@ -0,0 +1,165 @@
+package cz.martinendler.chess.engine;
+
+import cz.martinendler.chess.engine.board.Square;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Zero-overhead diagnostics of the engine hot paths (move validation, move execution)
+ * <p>
+ * The hot paths must NOT use a logger, because even a disabled debug call costs the evaluation
+ * of its arguments (e.g. {@code move.toDebugString()}). Instead, they record {@link Event events}:
+ * <pre>{@code
+ * if (Diagnostics.ENABLED) {
+ *     Diagnostics.record(Diagnostics.Event.NO_PIECE, from.ordinal(), to.ordinal());
+ * }
+ * }</pre>
+ * {@link #ENABLED} is a compile-time constant, so when it is {@code false} (the default),
+ * javac removes the whole guarded block and there is no trace of the diagnostics in the bytecode.
+ * To enable the diagnostics, change it to {@code true} and rebuild.
+ * <p>
+ * The events are stored in a fixed-size ring buffer of primitive longs (the oldest ones are overwritten),
+ * so recording does not allocate anything and it is safe to record from multiple threads.
+ * The buffer can be {@link #dump() dumped} on demand (e.g. after a failed perft).
+ */
+public class Diagnostics {
+
+	/**
+	 * The compile-time switch of the diagnostics
+	 */
+	public static final boolean ENABLED = false;
+
+	/**
+	 * The number of the events that the ring buffer holds (a power of two)
+	 */
+	public static final int CAPACITY = 1024;
+
+	/**
+	 * An event that can be recorded by a hot path
+	 */
+	public enum Event {
+
+		NO_PIECE("there is no piece on the from square"),
+		OPPONENTS_PIECE("player tries to move the opponent's piece"),
+		OWN_PIECE_CAPTURE("player cannot capture their own pieces"),
+		INVALID_PROMOTION("move.hasPromotion() != pawnPromoting"),
+		KING_TO_ATTACKED_SQUARE("king cannot be moved to a square that is currently under attack by the opposite side"),
+		KING_ATTACKED_BY_DIAGONAL_SLIDER("after this move, the king would be attacked by some of the other side's bishops and/or queens (diagonals)"),
+		KING_ATTACKED_BY_LINE_SLIDER("after this move, the king would be attacked by some of the other side's rooks and/or queens (ranks or files)"),
+		KING_ATTACKED_BY_KNIGHT("after this move, the king would be attacked by some of the other side's knights"),
+		KING_ATTACKED_BY_PAWN("after this move, the king would be attacked by some of the other side's pawns"),
+		EN_PASSANT_CAPTURE("did an en passant capture");
+
+		private final @NotNull String description;
+
+		Event(@NotNull String description) {
+			this.description = description;
+		}
+
+		public @NotNull String getDescription() {
+			return description;
+		}
+
+	}
+
+	/*
+	 * Layout of a ring buffer entry (bits from the least significant):
+	 *   0 -  7 from square (index)
+	 *   8 - 15 to square (index)
+	 *  16 - 23 event (ordinal + 1, 0 = empty entry)
+	 *  24 - 63 sequence number of the event
+	 */
+
+	private static final int MASK = CAPACITY - 1;
+
+	private static final Event[] events = Event.values();
+	private static final Square[] squares = Square.values();
+
+	private static final AtomicLongArray buffer = new AtomicLongArray(CAPACITY);
+	private static final AtomicLong count = new AtomicLong();
+
+	private Diagnostics() {
+		// we do not want Diagnostics to be instantiable
+	}
+
+	/**
+	 * Records the given event (it does not allocate anything)
+	 *
+	 * @param event the event
+	 * @param from  the from square index of the move the event belongs to
+	 * @param to    the to square index of the move the event belongs to
+	 */
+	public static void record(@NotNull Event event, int from, int to) {
+		long sequence = count.getAndIncrement();
+		buffer.set(
+			(int) sequence & MASK,
+			(sequence << 24) | ((long) (event.ordinal() + 1) << 16) | ((to & 0xFF) << 8) | (from & 0xFF)
+		);
+	}
+
+	/**
+	 * Gets the number of the events recorded since the last {@link #clear()}
+	 * (including the ones that were already overwritten)
+	 *
+	 * @return the number of the events
+	 */
+	public static long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Clears the ring buffer
+	 */
+	public static void clear() {
+		for (int i = 0; i < CAPACITY; i++) {
+			buffer.set(i, 0L);
+		}
+		count.set(0L);
+	}
+
+	/**
+	 * Formats the events that are currently in the ring buffer (the oldest first)
+	 *
+	 * @return the events, one line per event
+	 */
+	public static @NotNull List<String> dump() {
+
+		long end = count.get();
+		long start = Math.max(0L, end - CAPACITY);
+
+		List<String> lines = new ArrayList<>((int) (end - start));
+
+		for (long sequence = start; sequence < end; sequence++) {
+
+			long entry = buffer.get((int) sequence & MASK);
+
+			int event = (int) (entry >>> 16) & 0xFF;
+
+			// an empty entry or an entry that was already overwritten by a newer event
+			if (event == 0 || entry >>> 24 != sequence) {
+				continue;
+			}
+
+			int from = (int) entry & 0xFF;
+			int to = (int) (entry >>> 8) & 0xFF;
+
+			lines.add(
+				"#" + sequence + " " + describeSquare(from) + " -> " + describeSquare(to)
+					+ ": " + events[event - 1].getDescription()
+			);
+
+		}
+
+		return lines;
+
+	}
+
+	private static @NotNull String describeSquare(int index) {
+		return index < squares.length ? squares[index].getNotation() : "-";
+	}
+
+}
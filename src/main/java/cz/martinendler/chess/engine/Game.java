@@ -2,9 +2,12 @@ package cz.martinendler.chess.engine;
 
 import cz.martinendler.chess.engine.board.Board;
 import cz.martinendler.chess.engine.board.Square;
+import cz.martinendler.chess.engine.move.IntMoveList;
 import cz.martinendler.chess.engine.move.Move;
 import cz.martinendler.chess.engine.move.MoveConversionException;
+import cz.martinendler.chess.engine.move.MoveGenerator;
 import cz.martinendler.chess.engine.move.MoveLogEntry;
+import cz.martinendler.chess.engine.move.PackedMove;
 import cz.martinendler.chess.engine.move.SanUtils;
 import cz.martinendler.chess.engine.pieces.Piece;
 import cz.martinendler.chess.engine.pieces.PieceType;
@@ -34,14 +37,14 @@ public class Game {
 	private final @NotNull EnumMap<@NotNull Side, @NotNull Player> players;
 
 	/**
-	 * Boards history
-	 * Always holds: {@code boards.size() + 1 == moveLog.size()}
-	 * {@code boards.get(0)} --> starting board
-	 * {@code boards.get(1)} --> board AFTER move 0
-	 * {@code boards.get(2)} --> board AFTER move 1
-	 * {@code boards.get(N)} --> board AFTER move N-1
+	 * Boards history (packed moves with undo records and periodic checkpoints)
+	 * Always holds: {@code history.size() == moveLog.size()}
+	 * {@code history.getBoard(0)} --> starting board
+	 * {@code history.getBoard(1)} --> board AFTER move 0
+	 * {@code history.getBoard(2)} --> board AFTER move 1
+	 * {@code history.getBoard(N)} --> board AFTER move N-1
 	 */
-	private final @NotNull List<@NotNull Board> boards;
+	private final @NotNull GameHistory history;
 	/**
 	 * Moves history
 	 */
@@ -52,18 +55,25 @@ public class Game {
 	 */
 	private Board board;
 	/**
-	 * Legal moves for the {@link #board}
+	 * Legal moves for the {@link #board} (encoded using {@link PackedMove})
 	 */
-	private List<Move> legalMoves;
+	private final @NotNull IntMoveList legalMoves = new IntMoveList();
+	/**
+	 * Status of the {@link #board}
+	 */
+	private GameStatus status;
 	/**
 	 * Legal moves for the {@link #board}, indexed by from (i.e. origin) square
+	 * <p>
+	 * Together with {@link #promotionsOfSquare}, it forms a 64×64 from-to index of the legal moves,
+	 * so that the move validation, the promotion detection and the target highlighting are constant-time.
 	 */
 	private final long[] legalMovesOfSquare;
-
 	/**
-	 * Random number generator for {@link #doRandomMove()}
+	 * Legal pawn promotions for the {@link #board}, indexed by from (i.e. origin) square
+	 * (a subset of {@link #legalMovesOfSquare})
 	 */
-	private final Random random = new Random();
+	private final long[] promotionsOfSquare;
 
 	/**
 	 * Creates a new game from a given starting chess position
@@ -76,14 +86,14 @@ public class Game {
 		players.put(Side.WHITE, new Player("WHITE player"));
 		players.put(Side.BLACK, new Player("BLACK player"));
 
-		boards = new LinkedList<>();
-		moveLog = new LinkedList<>();
+		moveLog = new ArrayList<>();
 
 		board = new Board();
 		board.loadFromFen(fen);
-		boards.add(new Board(board));
+		history = new GameHistory(board);
 
 		legalMovesOfSquare = new long[Square.values().length];
+		promotionsOfSquare = new long[Square.values().length];
 
 		// sync legal moves cache
 		updateState();
@@ -96,14 +106,14 @@ public class Game {
 		players.put(Side.WHITE, new Player(game.tags.get("White")));
 		players.put(Side.BLACK, new Player(game.tags.get("Black")));
 
-		boards = new LinkedList<>();
-		moveLog = new LinkedList<>();
+		moveLog = new ArrayList<>();
 
 		board = new Board();
 		board.loadFromFen(game.resolveSetUpFEN());
-		boards.add(new Board(board));
+		history = new GameHistory(board);
 
 		legalMovesOfSquare = new long[Square.values().length];
+		promotionsOfSquare = new long[Square.values().length];
 
 		// tries to replay all moves in the PGN game
 		for (String sanMove : game.moves) {
@@ -116,33 +126,74 @@ public class Game {
 				throw new GameLoadingException("Game could not be loaded due to invalid moves");
 			}
 
-			moveLog.add(moveLogEntry);
-			boards.add(new Board(board));
+			logMove(moveLogEntry);
 
 		}
 
+		// sync legal moves cache
+		updateState();
+
 		if (getResult() != game.termination) {
 			log.info("getResult() {} != game.termination {}", getResult(), game.termination);
 		}
 
-		// sync legal moves cache
-		updateState();
-
 	}
 
 	/**
-	 * Computes {@link #legalMoves} and {@link #legalMovesOfSquare} for the current {@link #board}
+	 * Computes {@link #legalMoves}, {@link #legalMovesOfSquare}, {@link #promotionsOfSquare}
+	 * and {@link #status} for the current {@link #board}
 	 */
 	private void updateState() {
 
-		legalMoves = board.generateLegalMoves();
+		legalMoves.clear();
+		MoveGenerator.generateLegalMoves(board, legalMoves);
 
 		Arrays.fill(legalMovesOfSquare, 0L);
+		Arrays.fill(promotionsOfSquare, 0L);
+
+		for (int i = 0; i < legalMoves.size(); i++) {
+			int move = legalMoves.get(i);
+			long target = 1L << PackedMove.getTo(move);
+			legalMovesOfSquare[PackedMove.getFrom(move)] |= target;
+			if (PackedMove.getPromotion(move) != null) {
+				promotionsOfSquare[PackedMove.getFrom(move)] |= target;
+			}
+		}
+
+		status = computeStatus();
+
+	}
+
+	/**
+	 * Computes the status of the current {@link #board}
+	 * <p>
+	 * It reuses the already generated {@link #legalMoves}, the incrementally maintained material
+	 * and the position keys of the {@link #history}, so it does not rescan anything.
+	 *
+	 * @return the status
+	 */
+	private @NotNull GameStatus computeStatus() {
+
+		if (legalMoves.isEmpty()) {
+			return board.isKingAttacked() ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+		}
+
+		if (board.isInsufficientMaterial()) {
+			return GameStatus.INSUFFICIENT_MATERIAL;
+		}
 
-		for (Move move : legalMoves) {
-			legalMovesOfSquare[move.getFrom().ordinal()] |= move.getTo().getBitboard();
+		int halfMoveCounter = board.getHalfMoveCounter();
+
+		if (halfMoveCounter >= 100) {
+			return GameStatus.FIFTY_MOVE_RULE;
+		}
+
+		if (halfMoveCounter >= 4 && history.countRepetitions(halfMoveCounter) >= 3) {
+			return GameStatus.THREEFOLD_REPETITION;
 		}
 
+		return GameStatus.IN_PROGRESS;
+
 	}
 
 	/**
@@ -153,22 +204,51 @@ public class Game {
 	 * @return {@code true} iff the given move leads to a pawn promotion
 	 */
 	public boolean isPromotionMove(@NotNull Square from, @NotNull Square to) {
+		return (promotionsOfSquare[from.ordinal()] & to.getBitboard()) != 0L;
+	}
 
-		Optional<Move> move = legalMoves.stream()
-			.filter(m -> m.getFrom() == from && m.getTo() == to)
-			.findFirst();
+	/**
+	 * Checks if the given move is legal in the current board state
+	 *
+	 * @param from          the origin square
+	 * @param to            the target square
+	 * @param promotionType the promotion piece type (required iff the move is a pawn promotion)
+	 * @return {@code true} iff the given move is legal
+	 */
+	public boolean isLegalMove(@NotNull Square from, @NotNull Square to, @Nullable PieceType promotionType) {
 
-		if (move.isEmpty()) {
-			log.info("isPromotionMove: move.isEmpty() from={} to={}", from, to);
+		if ((legalMovesOfSquare[from.ordinal()] & to.getBitboard()) == 0L) {
 			return false;
 		}
 
-		return move.get().hasPromotion();
+		if (!isPromotionMove(from, to)) {
+			return promotionType == null;
+		}
+
+		return promotionType != null && promotionType != PieceType.PAWN && promotionType != PieceType.KING;
 
 	}
 
+	/**
+	 * Does the given move
+	 *
+	 * @param from          the origin square
+	 * @param to            the target square
+	 * @param promotionType the promotion piece type (required iff the move is a pawn promotion)
+	 * @return {@code true} iff the game was not over, the move was legal and it was done
+	 */
 	public boolean doMove(@NotNull Square from, @NotNull Square to, @Nullable PieceType promotionType) {
 
+		if (status.isOver()) {
+			log.info("doMove: the game is over ({})", status);
+			return false;
+		}
+
+		if (!isLegalMove(from, to, promotionType)) {
+			log.info("doMove: !isLegalMove({}, {}, {})", from, to, promotionType);
+			return false;
+		}
+
 		Piece promotion = null;
 
 		if (promotionType != null) {
@@ -177,11 +257,6 @@ public class Game {
 
 		Move move = new Move(from, to, promotion);
 
-		if (!legalMoves.contains(move)) {
-			log.info("doMove: !legalMoves.contains({})", move);
-			return false;
-		}
-
 		MoveLogEntry moveLogEntry = board.doMove(move, true);
 
 		if (moveLogEntry == null) {
@@ -189,8 +264,7 @@ public class Game {
 			return false;
 		}
 
-		moveLog.add(moveLogEntry);
-		boards.add(new Board(board));
+		logMove(moveLogEntry);
 
 		updateState();
 
@@ -198,31 +272,45 @@ public class Game {
 
 	}
 
-	public boolean doRandomMove() {
+	/**
+	 * Appends the given entry of the move that was just done on the {@link #board} to the {@link #moveLog}
+	 * and the {@link #history}
+	 * <p>
+	 * The SAN of the move is encoded only once it is needed for the first time
+	 * (from the position before the move that is rebuilt by the {@link #history}).
+	 *
+	 * @param moveLogEntry the move log entry
+	 */
+	private void logMove(@NotNull MoveLogEntry moveLogEntry) {
+
+		int ply = history.size();
 
-		if (legalMoves.size() == 0) {
-			return false;
-		}
+		moveLog.add(moveLogEntry);
+		history.push(moveLogEntry.getPackedMove(), moveLogEntry.getUndo(), board);
 
-		Move randomMove = legalMoves.get(random.nextInt(legalMoves.size()));
+		moveLogEntry.setSanEncoder(() -> SanUtils.encodeToSan(history.getBoard(ply), moveLogEntry.getMove()));
 
-		if (randomMove == null) {
-			return false;
-		}
+	}
 
-		MoveLogEntry moveLogEntry = board.doMove(randomMove, true);
+	/**
+	 * Does the given move (e.g. the best move found by a {@link cz.martinendler.chess.engine.search.Search})
+	 *
+	 * @param move the packed move
+	 * @return {@code true} iff the game was not over, the move was legal and it was done
+	 */
+	public boolean doMove(int move) {
 
-		if (moveLogEntry == null) {
-			log.error("doRandomMove: moveLogEntry == null, move={}", randomMove);
+		if (move == PackedMove.NONE || status.isOver()) {
 			return false;
 		}
 
-		moveLog.add(moveLogEntry);
-		boards.add(new Board(board));
-
-		updateState();
+		Piece promotion = PackedMove.getPromotion(move);
 
-		return true;
+		return doMove(
+			PackedMove.getFromSquare(move),
+			PackedMove.getToSquare(move),
+			promotion != null ? promotion.getPieceType() : null
+		);
 
 	}
 
@@ -237,10 +325,10 @@ public class Game {
 			return false;
 		}
 
-		MoveLogEntry lastMoveLogEntry = moveLog.remove(moveLog.size() - 1);
-		boards.remove(boards.size() - 1);
+		moveLog.remove(moveLog.size() - 1);
 
-		board = lastMoveLogEntry.getBoard();
+		// restore the state in place using the undo record
+		history.pop(board);
 
 		updateState();
 
@@ -272,6 +360,8 @@ public class Game {
 
 	/**
 	 * Gets the board that was immediately after N-th move
+	 * <p>
+	 * The returned board must not be modified and it is valid only until the next change of the history.
 	 *
 	 * @param moveIdx the move index
 	 * @return the board that was immediately after N-th move
@@ -279,15 +369,50 @@ public class Game {
 	 */
 	private @NotNull Board getSpecificBoard(int moveIdx) {
 
-		int boardIdx = moveIdx + 1;
+		int ply = moveIdx + 1;
 
-		if (boardIdx < 0 || boardIdx >= boards.size()) {
+		if (ply < 0 || ply > history.size()) {
 			throw new IllegalArgumentException(
 				"The given moveIdx " + moveIdx + " is out of the valid range [-1 ," + (moveLog.size() - 1) + "]"
 			);
 		}
 
-		return boards.get(boardIdx);
+		// the latest board does not have to be rebuilt
+		if (ply == history.size()) {
+			return board;
+		}
+
+		return history.getBoard(ply);
+
+	}
+
+	/**
+	 * Creates a copy of the current board state
+	 * (e.g. for a computer player that searches it in a background thread)
+	 *
+	 * @return the copy of the current board
+	 */
+	public @NotNull Board copyBoard() {
+		return new Board(board);
+	}
+
+	/**
+	 * Gets the keys of the positions before the current one that can still repeat
+	 * (i.e. since the last irreversible move, e.g. for a computer player that must detect repetitions of the game)
+	 *
+	 * @return the new array of the {@link Board#getZobristKey() position keys} (the oldest first)
+	 */
+	public @NotNull long[] getPositionKeys() {
+
+		int size = history.size();
+		int from = Math.max(0, size - board.getHalfMoveCounter());
+
+		long[] keys = new long[size - from];
+		for (int ply = from; ply < size; ply++) {
+			keys[ply - from] = history.getKey(ply);
+		}
+
+		return keys;
 
 	}
 
@@ -339,7 +464,7 @@ public class Game {
 	 * @return {@code true} iff there is a checkmate on the board
 	 */
 	public boolean isCheckMate() {
-		return board.isCheckMate();
+		return status == GameStatus.CHECKMATE;
 	}
 
 	/**
@@ -349,28 +474,28 @@ public class Game {
 	 * @return {@code true} iff there is a stalemate on the board
 	 */
 	public boolean isStaleMate() {
-		return board.isStaleMate();
+		return status == GameStatus.STALEMATE;
+	}
+
+	/**
+	 * Gets the status of the current board state
+	 * <p>
+	 * It is computed only once per ply (when the board state changes).
+	 *
+	 * @return the status
+	 */
+	public @NotNull GameStatus getStatus() {
+		return status;
 	}
 
 	/**
 	 * Gets the current game result as a {@link PgnGameTermination}
 	 *
 	 * @return the current game result, {@link PgnGameTermination#UNKNOWN} if this is an ongoing game without result
+	 * @see GameStatus#toTermination(Side)
 	 */
 	public PgnGameTermination getResult() {
-
-		if (isCheckMate()) {
-			return board.getSideToMove().isWhite()
-				? PgnGameTermination.BLACK_WINS
-				: PgnGameTermination.WHITE_WINS;
-		}
-
-		if (isStaleMate()) {
-			return PgnGameTermination.DRAWN_GAME;
-		}
-
-		return PgnGameTermination.UNKNOWN;
-
+		return status.toTermination(board.getSideToMove());
 	}
 
 	/**
@@ -435,7 +560,7 @@ public class Game {
 		PgnGame pgnGame = new PgnGame();
 
 		if (moveLog.size() > 0) {
-			pgnGame.setSetUpFEN(moveLog.get(0).getBoard().getFen());
+			pgnGame.setSetUpFEN(history.getBoard(0).getFen());
 		}
 
 		pgnGame.tags.put("White", getPlayer(Side.WHITE).getName());
@@ -0,0 +1,272 @@
+package cz.martinendler.chess.engine;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.move.PackedMove;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A compact history of the positions of a game
+ * <p>
+ * Each ply is stored only as a {@link PackedMove packed move}, its undo record
+ * (see {@link Board#makeMove(int)}) and the key of the resulting position, i.e. 20 bytes per ply, in array-backed storage.
+ * A full snapshot of the board (a checkpoint) is kept only every {@link #getCheckpointInterval() K} plies.
+ * A position after any ply is rebuilt from the nearest preceding checkpoint by replaying at most {@code K - 1} moves.
+ * <p>
+ * The last rebuilt position is cached, so repeated queries about the same ply
+ * (e.g. a piece on each of the 64 squares) cost nothing after the first one,
+ * and stepping forward through the game replays only one move per step.
+ */
+public class GameHistory {
+
+	/**
+	 * The default number of plies between two checkpoints
+	 */
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 16;
+
+	private final int checkpointInterval;
+
+	/**
+	 * The packed moves, {@code moves[i]} leads from the position after {@code i} plies to the position after {@code i + 1} plies
+	 */
+	private int[] moves;
+	/**
+	 * The undo records, {@code undos[i]} belongs to {@code moves[i]}
+	 */
+	private long[] undos;
+	/**
+	 * The rolling history of the position keys, {@code keys[i]} is the {@link Board#getZobristKey() key}
+	 * of the position after {@code i} plies (used to detect repetitions without rebuilding the positions)
+	 */
+	private long[] keys;
+	private int size;
+
+	/**
+	 * The checkpoints, {@code checkpoints[i]} is the position after {@code i * checkpointInterval} plies
+	 * (the boards of the removed checkpoints are kept and reused)
+	 */
+	private @NotNull Board[] checkpoints;
+
+	/**
+	 * The last rebuilt position (see {@link #getBoard(int)})
+	 */
+	private final @NotNull Board view = new Board();
+	/**
+	 * The ply of the {@link #view} ({@code -1} if the view is not valid)
+	 */
+	private int viewPly = -1;
+
+	/**
+	 * Creates a new history with the default checkpoint interval
+	 *
+	 * @param start the starting position (it is copied)
+	 */
+	public GameHistory(@NotNull Board start) {
+		this(start, DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+	/**
+	 * Creates a new history
+	 *
+	 * @param start              the starting position (it is copied)
+	 * @param checkpointInterval the number of plies between two checkpoints (at least 1)
+	 */
+	public GameHistory(@NotNull Board start, int checkpointInterval) {
+
+		if (checkpointInterval < 1) {
+			throw new IllegalArgumentException("checkpointInterval must be at least 1");
+		}
+
+		this.checkpointInterval = checkpointInterval;
+
+		moves = new int[64];
+		undos = new long[64];
+		keys = new long[65];
+		keys[0] = start.getZobristKey();
+		size = 0;
+
+		checkpoints = new Board[4];
+		checkpoints[0] = new Board(start);
+
+	}
+
+	/**
+	 * Gets the number of plies between two checkpoints
+	 *
+	 * @return the checkpoint interval
+	 */
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	/**
+	 * Gets the number of plies in this history
+	 *
+	 * @return the number of plies
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the move of the given ply
+	 *
+	 * @param ply the ply index in range [0, size - 1]
+	 * @return the packed move that was played from the position after {@code ply} plies
+	 */
+	public int getMove(int ply) {
+
+		if (ply < 0 || ply >= size) {
+			throw new IllegalArgumentException("The given ply " + ply + " is out of the valid range [0, " + (size - 1) + "]");
+		}
+
+		return moves[ply];
+
+	}
+
+	/**
+	 * Gets the position key after the given number of plies
+	 *
+	 * @param ply the number of plies in range [0, size] ({@code 0} = the starting position)
+	 * @return the {@link Board#getZobristKey() Zobrist key} of the position
+	 */
+	public long getKey(int ply) {
+
+		if (ply < 0 || ply > size) {
+			throw new IllegalArgumentException("The given ply " + ply + " is out of the valid range [0, " + size + "]");
+		}
+
+		return keys[ply];
+
+	}
+
+	/**
+	 * Counts how many times the last position occurred in this history (including the last one)
+	 * <p>
+	 * Only the positions with the same side to move since the last irreversible move
+	 * (a capture or a pawn move) are compared, because no earlier position can repeat.
+	 *
+	 * @param halfMoveCounter the {@link Board#getHalfMoveCounter() half-move counter} of the last position
+	 * @return the number of the occurrences (at least 1)
+	 * @see <a href="https://www.chessprogramming.org/Repetitions">Repetitions on CPW</a>
+	 */
+	public int countRepetitions(int halfMoveCounter) {
+
+		long key = keys[size];
+		int limit = Math.max(0, size - halfMoveCounter);
+		int count = 1;
+
+		for (int ply = size - 2; ply >= limit; ply -= 2) {
+			if (keys[ply] == key) {
+				count++;
+			}
+		}
+
+		return count;
+
+	}
+
+	/**
+	 * Appends a ply to this history
+	 *
+	 * @param move  the packed move
+	 * @param undo  the undo record of the move (returned by {@link Board#makeMove(int)})
+	 * @param after the position after the move (it is copied if a checkpoint is due)
+	 */
+	public void push(int move, long undo, @NotNull Board after) {
+
+		if (size == moves.length) {
+			moves = Arrays.copyOf(moves, size * 2);
+			undos = Arrays.copyOf(undos, size * 2);
+			keys = Arrays.copyOf(keys, size * 2 + 1);
+		}
+
+		moves[size] = move;
+		undos[size] = undo;
+		size++;
+		keys[size] = after.getZobristKey();
+
+		if (size % checkpointInterval == 0) {
+
+			int index = size / checkpointInterval;
+
+			if (index == checkpoints.length) {
+				checkpoints = Arrays.copyOf(checkpoints, index * 2);
+			}
+
+			if (checkpoints[index] == null) {
+				checkpoints[index] = new Board(after);
+			} else {
+				checkpoints[index].copyFrom(after);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Removes the last ply from this history and undoes its move on the given board
+	 *
+	 * @param board the board that is in the position after the last ply
+	 *              (after this method returns, it is in the position before the last ply)
+	 * @throws IllegalStateException if the history is empty
+	 */
+	public void pop(@NotNull Board board) {
+
+		if (size == 0) {
+			throw new IllegalStateException("The history is empty");
+		}
+
+		size--;
+
+		board.unmakeMove(moves[size], undos[size]);
+
+		if (viewPly > size) {
+			viewPly = -1;
+		}
+
+	}
+
+	/**
+	 * Gets the position after the given number of plies
+	 * <p>
+	 * The returned board is shared, it must not be modified and it is valid only until the next call
+	 * of any method of this history.
+	 *
+	 * @param ply the number of plies in range [0, size] ({@code 0} = the starting position)
+	 * @return the position after the given number of plies
+	 */
+	public @NotNull Board getBoard(int ply) {
+
+		if (ply < 0 || ply > size) {
+			throw new IllegalArgumentException("The given ply " + ply + " is out of the valid range [0, " + size + "]");
+		}
+
+		if (ply == viewPly) {
+			return view;
+		}
+
+		int checkpointPly = ply - ply % checkpointInterval;
+
+		int start;
+
+		if (viewPly >= checkpointPly && viewPly < ply) {
+			// continue from the current view (it is not before the nearest checkpoint)
+			start = viewPly;
+		} else {
+			view.copyFrom(checkpoints[checkpointPly / checkpointInterval]);
+			start = checkpointPly;
+		}
+
+		for (int i = start; i < ply; i++) {
+			view.makeMove(moves[i]);
+		}
+
+		viewPly = ply;
+
+		return view;
+
+	}
+
+}
@@ -0,0 +1,259 @@
+package cz.martinendler.chess.engine;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.move.Move;
+import cz.martinendler.chess.engine.move.MoveConversionException;
+import cz.martinendler.chess.engine.move.MoveGenerator;
+import cz.martinendler.chess.engine.move.MoveLogEntry;
+import cz.martinendler.chess.engine.move.PackedMove;
+import cz.martinendler.chess.engine.move.SanUtils;
+import cz.martinendler.chess.pgn.entity.PgnGame;
+import cz.martinendler.chess.pgn.entity.PgnGameTermination;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A lightweight bulk replay of PGN games
+ * <p>
+ * Unlike {@link Game#Game(PgnGame)}, it does not build any history objects
+ * (no {@link MoveLogEntry move log}, no SAN, no {@link GameHistory}).
+ * All games are replayed on a single mutable board using {@link Board#makeMove(int)}
+ * and each game produces only a compact {@link Result}.
+ * It is meant for loading large PGN databases (e.g. for indexing or statistics).
+ * <p>
+ * The replay keeps track of the number of the replayed games and plies and of the time spent,
+ * so the throughput can be reported (see {@link #getGamesPerSecond()}).
+ * <p>
+ * An instance is NOT thread-safe, use one instance per thread.
+ */
+public class GameReplay {
+
+	/**
+	 * A compact result of a replayed game
+	 */
+	public static class Result {
+
+		private final @NotNull String finalFen;
+		private final @NotNull int[] moves;
+		private final @NotNull PgnGameTermination termination;
+		private final @Nullable long[] keys;
+
+		private Result(
+			@NotNull String finalFen,
+			@NotNull int[] moves,
+			@NotNull PgnGameTermination termination,
+			@Nullable long[] keys
+		) {
+			this.finalFen = finalFen;
+			this.moves = moves;
+			this.termination = termination;
+			this.keys = keys;
+		}
+
+		/**
+		 * Gets the final position
+		 *
+		 * @return the final position in FEN format
+		 */
+		public @NotNull String getFinalFen() {
+			return finalFen;
+		}
+
+		/**
+		 * Gets the moves of the game
+		 *
+		 * @return the {@link PackedMove packed moves}, one per ply (the array must not be modified)
+		 */
+		public @NotNull int[] getMoves() {
+			return moves;
+		}
+
+		/**
+		 * Gets the number of plies of the game
+		 *
+		 * @return the number of plies
+		 */
+		public int getPlies() {
+			return moves.length;
+		}
+
+		/**
+		 * Gets the game termination
+		 * <p>
+		 * If the final position is a checkmate or a stalemate, the termination is determined from it
+		 * (the same way as {@link Game#getResult()}), otherwise it is the one from the PGN game
+		 * (e.g. a resignation or a draw by agreement).
+		 *
+		 * @return the game termination
+		 */
+		public @NotNull PgnGameTermination getTermination() {
+			return termination;
+		}
+
+		/**
+		 * Gets the position keys
+		 *
+		 * @return the {@link Board#getZobristKey() Zobrist keys}, {@code keys[i]} is the key of the position
+		 * after {@code i} plies (i.e. {@code getPlies() + 1} keys), or {@code null} if the keys were not requested
+		 * (the array must not be modified)
+		 */
+		public @Nullable long[] getKeys() {
+			return keys;
+		}
+
+	}
+
+	private final boolean withKeys;
+
+	/**
+	 * The single board that is reused for all the games
+	 */
+	private final @NotNull Board board = new Board();
+
+	/**
+	 * Reusable buffers, they are copied to the exact length for each result
+	 */
+	private int[] moves = new int[256];
+	private long[] keys;
+
+	private long games;
+	private long plies;
+	private long nanos;
+
+	/**
+	 * Creates a new replay
+	 *
+	 * @param withKeys whether to record one position key per ply (see {@link Result#getKeys()})
+	 */
+	public GameReplay(boolean withKeys) {
+		this.withKeys = withKeys;
+		this.keys = withKeys ? new long[257] : null;
+	}
+
+	/**
+	 * Replays the given game
+	 *
+	 * @param game the PGN game
+	 * @return the compact result
+	 * @throws MoveConversionException if a move cannot be decoded
+	 * @throws GameLoadingException    if a move is not legal
+	 */
+	public @NotNull Result replay(@NotNull PgnGame game) throws GameLoadingException, MoveConversionException {
+
+		long start = System.nanoTime();
+
+		board.loadFromFen(game.resolveSetUpFEN());
+
+		int size = game.moves.size();
+
+		if (moves.length < size) {
+			moves = new int[Math.max(size, moves.length * 2)];
+		}
+		if (withKeys) {
+			if (keys.length < size + 1) {
+				keys = new long[Math.max(size + 1, keys.length * 2)];
+			}
+			keys[0] = board.getZobristKey();
+		}
+
+		for (int ply = 0; ply < size; ply++) {
+
+			String san = game.moves.get(ply);
+
+			Move decoded = SanUtils.decodeSan(board, san, board.getSideToMove());
+			int move = PackedMove.fromMove(board, decoded);
+
+			if (!MoveGenerator.isPseudoLegal(board, move) || !board.isMoveLegal(move)) {
+				throw new GameLoadingException(
+					"Game could not be loaded due to an invalid move " + san + " (ply " + (ply + 1) + ")"
+				);
+			}
+
+			board.makeMove(move);
+
+			moves[ply] = move;
+			if (withKeys) {
+				keys[ply + 1] = board.getZobristKey();
+			}
+
+		}
+
+		Result result = new Result(
+			board.getFen(),
+			Arrays.copyOf(moves, size),
+			resolveTermination(game.termination),
+			withKeys ? Arrays.copyOf(keys, size + 1) : null
+		);
+
+		nanos += System.nanoTime() - start;
+		games++;
+		plies += size;
+
+		return result;
+
+	}
+
+	private @NotNull PgnGameTermination resolveTermination(@NotNull PgnGameTermination declared) {
+
+		if (board.isCheckMate()) {
+			return board.getSideToMove() == Side.WHITE
+				? PgnGameTermination.BLACK_WINS
+				: PgnGameTermination.WHITE_WINS;
+		}
+
+		if (board.isStaleMate()) {
+			return PgnGameTermination.DRAWN_GAME;
+		}
+
+		return declared;
+
+	}
+
+	/**
+	 * Gets the number of the games replayed successfully
+	 *
+	 * @return the number of the games
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * Gets the total number of the plies of the games replayed successfully
+	 *
+	 * @return the number of the plies
+	 */
+	public long getPlies() {
+		return plies;
+	}
+
+	/**
+	 * Gets the time spent replaying the games (successfully)
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * Gets the replay throughput
+	 *
+	 * @return the number of the games replayed per second ({@code 0} if nothing was replayed yet)
+	 */
+	public double getGamesPerSecond() {
+		return nanos == 0L ? 0.0 : games * 1_000_000_000.0 / nanos;
+	}
+
+	/**
+	 * Resets the statistics (the number of the games and plies and the time)
+	 */
+	public void resetStatistics() {
+		games = 0L;
+		plies = 0L;
+		nanos = 0L;
+	}
+
+}
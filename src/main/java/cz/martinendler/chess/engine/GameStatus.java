@@ -0,0 +1,96 @@
+package cz.martinendler.chess.engine;
+
+import cz.martinendler.chess.pgn.entity.PgnGameTermination;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A status of a game in its current position
+ * <p>
+ * It is computed once per ply by {@link Game} (see {@link Game#getStatus()}).
+ * The draws are adjudicated automatically (they do not have to be claimed).
+ *
+ * @see <a href="https://www.chessprogramming.org/Draw">Draw on CPW</a>
+ */
+public enum GameStatus {
+
+	/**
+	 * The game is not over yet
+	 */
+	IN_PROGRESS("in progress"),
+	/**
+	 * The side to move is checkmated
+	 */
+	CHECKMATE("checkmate"),
+	/**
+	 * The side to move is not in check, but it has no legal move
+	 */
+	STALEMATE("stalemate"),
+	/**
+	 * Neither side can checkmate (see {@link cz.martinendler.chess.engine.board.Board#isInsufficientMaterial()})
+	 */
+	INSUFFICIENT_MATERIAL("insufficient material"),
+	/**
+	 * No capture and no pawn move in the last fifty moves (of each side)
+	 *
+	 * @see <a href="https://www.chessprogramming.org/Fifty-move_Rule">Fifty-move Rule on CPW</a>
+	 */
+	FIFTY_MOVE_RULE("fifty-move rule"),
+	/**
+	 * The same position occurred for the third time
+	 *
+	 * @see <a href="https://www.chessprogramming.org/Repetitions">Repetitions on CPW</a>
+	 */
+	THREEFOLD_REPETITION("threefold repetition");
+
+	private final @NotNull String description;
+
+	GameStatus(@NotNull String description) {
+		this.description = description;
+	}
+
+	/**
+	 * Gets a human-readable description of this status
+	 *
+	 * @return the description
+	 */
+	public @NotNull String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Checks if the game is over
+	 *
+	 * @return {@code true} iff the game is over
+	 */
+	public boolean isOver() {
+		return this != IN_PROGRESS;
+	}
+
+	/**
+	 * Checks if the game is drawn
+	 *
+	 * @return {@code true} iff the game is over and nobody won
+	 */
+	public boolean isDraw() {
+		return this != IN_PROGRESS && this != CHECKMATE;
+	}
+
+	/**
+	 * Converts this status to a {@link PgnGameTermination}
+	 *
+	 * @param sideToMove the side to move in the position
+	 * @return the game termination, {@link PgnGameTermination#UNKNOWN} if the game is not over yet
+	 */
+	public @NotNull PgnGameTermination toTermination(@NotNull Side sideToMove) {
+
+		if (this == CHECKMATE) {
+			return sideToMove.isWhite()
+				? PgnGameTermination.BLACK_WINS
+				: PgnGameTermination.WHITE_WINS;
+		}
+
+		return isDraw() ? PgnGameTermination.DRAWN_GAME : PgnGameTermination.UNKNOWN;
+
+	}
+
+}
@@ -313,6 +313,53 @@ public class Bitboard {
 		}
 	}
 
+	/**
+	 * The slider attacks backend selected at startup
+	 * <p>
+	 * NOTE: It must be declared after all the tables above
+	 * as the backends use them during their construction.
+	 */
+	private static final @NotNull SliderAttacks sliderAttacks = SliderAttacks.Backend.fromSystemProperty().create();
+
+	/**
+	 * Squares strictly between two squares that lie on the same rank, file or diagonal
+	 * <p>
+	 * {@code squaresBetween[x][y]} is {@code 0L} if x and y are not aligned (or they are adjacent).
+	 * It is used for check evasions (interpositions) and for pins.
+	 */
+	private static final long[][] squaresBetween = new long[64][64];
+
+	/**
+	 * The whole line (rank, file or diagonal) through two squares
+	 * <p>
+	 * {@code squaresLine[x][y]} includes the squares x and y, it is {@code 0L} if x and y are not aligned.
+	 * A pinned piece can only move along the line through its king and itself.
+	 */
+	private static final long[][] squaresLine = new long[64][64];
+
+	static {
+		for (int x = 0; x < 64; x++) {
+			for (int y = 0; y < 64; y++) {
+
+				if (x == y) {
+					continue;
+				}
+
+				long bx = 1L << x;
+				long by = 1L << y;
+
+				if ((sliderAttacks.getRookAttacks(0L, x) & by) != 0L) {
+					squaresBetween[x][y] = sliderAttacks.getRookAttacks(by, x) & sliderAttacks.getRookAttacks(bx, y);
+					squaresLine[x][y] = (sliderAttacks.getRookAttacks(0L, x) & sliderAttacks.getRookAttacks(0L, y)) | bx | by;
+				} else if ((sliderAttacks.getBishopAttacks(0L, x) & by) != 0L) {
+					squaresBetween[x][y] = sliderAttacks.getBishopAttacks(by, x) & sliderAttacks.getBishopAttacks(bx, y);
+					squaresLine[x][y] = (sliderAttacks.getBishopAttacks(0L, x) & sliderAttacks.getBishopAttacks(0L, y)) | bx | by;
+				}
+
+			}
+		}
+	}
+
 	/**
 	 * Converts square to the corresponding bitboard
 	 *
@@ -401,6 +448,28 @@ public class Bitboard {
 		return bitsBetween[sq1][sq2] & bb;
 	}
 
+	/**
+	 * Gets the squares strictly between the two given squares
+	 *
+	 * @param sq1 the first square index
+	 * @param sq2 the second square index
+	 * @return the squares between or {@code 0L} if the squares do not lie on the same rank, file or diagonal
+	 */
+	public static long getSquaresBetween(int sq1, int sq2) {
+		return squaresBetween[sq1][sq2];
+	}
+
+	/**
+	 * Gets the whole line (rank, file or diagonal) through the two given squares
+	 *
+	 * @param sq1 the first square index
+	 * @param sq2 the second square index
+	 * @return the line (including the squares) or {@code 0L} if the squares do not lie on the same rank, file or diagonal
+	 */
+	public static long getLine(int sq1, int sq2) {
+		return squaresLine[sq1][sq2];
+	}
+
 	/**
 	 * Removes the least significant bit (LSB) of the given bitboard
 	 *
@@ -442,32 +511,13 @@ public class Bitboard {
 	}
 
 	/**
-	 * Gets slider attacks based on the attacks and occupancy mask
+	 * Gets the slider attacks backend that is used by this class
 	 *
-	 * @param attacks bitboard with possible attacks
-	 * @param mask    all occupied squares
-	 * @param index   index of the square where the attacking piece currently is
-	 * @return ???
-	 * @see <a href="https://www.chessprogramming.org/Sliding_Piece_Attacks">Sliding Piece Attacks on CPW</a>
+	 * @return the slider attacks backend
+	 * @see SliderAttacks.Backend#fromSystemProperty()
 	 */
-	private static long getSliderAttacks(long attacks, long mask, int index) {
-
-		long occ = mask & attacks;
-
-		if (occ == 0L) {
-			return attacks;
-		}
-
-		// TODO: How exactly does this work?
-		// TODO: Cover with tests.
-		long m = (1L << index) - 1L;
-		long lowerMask = occ & m;
-		long upperMask = occ & ~m;
-		int minor = lowerMask == 0L ? 0 : bitScanReverse(lowerMask);
-		int major = upperMask == 0L ? 63 : bitScanForward(upperMask);
-
-		return bitsBetween(attacks, minor, major);
-
+	public static @NotNull SliderAttacks getSliderAttacks() {
+		return sliderAttacks;
 	}
 
 	/**
@@ -478,11 +528,18 @@ public class Bitboard {
 	 * @return bishop attacks
 	 */
 	public static long getBishopAttacks(long mask, @NotNull Square square) {
-		// bishop is a sliding piece that can move along the diagonals and anti-diagonals
-		return (
-			getSliderAttacks(diagA1H8Attacks[square.ordinal()], mask, square.ordinal())
-				| getSliderAttacks(diagH1A8Attacks[square.ordinal()], mask, square.ordinal())
-		);
+		return sliderAttacks.getBishopAttacks(mask, square.ordinal());
+	}
+
+	/**
+	 * Gets the bishop attacks
+	 *
+	 * @param mask   the mask (all occupied squares)
+	 * @param square the index of the square where the bishop currently is
+	 * @return bishop attacks
+	 */
+	public static long getBishopAttacks(long mask, int square) {
+		return sliderAttacks.getBishopAttacks(mask, square);
 	}
 
 	/**
@@ -493,11 +550,18 @@ public class Bitboard {
 	 * @return rook attacks
 	 */
 	public static long getRookAttacks(long mask, @NotNull Square square) {
-		// rook is a sliding piece that can move along the ranks or files
-		return (
-			getSliderAttacks(fileAttacks[square.ordinal()], mask, square.ordinal())
-				| getSliderAttacks(rankAttacks[square.ordinal()], mask, square.ordinal())
-		);
+		return sliderAttacks.getRookAttacks(mask, square.ordinal());
+	}
+
+	/**
+	 * Gets the rook attacks
+	 *
+	 * @param mask   the mask (all occupied squares)
+	 * @param square the index of the square where the rook currently is
+	 * @return rook attacks
+	 */
+	public static long getRookAttacks(long mask, int square) {
+		return sliderAttacks.getRookAttacks(mask, square);
 	}
 
 	/**
@@ -512,6 +576,17 @@ public class Bitboard {
 		return getRookAttacks(mask, square) | getBishopAttacks(mask, square);
 	}
 
+	/**
+	 * Gets the queen attacks
+	 *
+	 * @param mask   the mask (all occupied squares)
+	 * @param square the index of the square where the queen currently is
+	 * @return queen attacks
+	 */
+	public static long getQueenAttacks(long mask, int square) {
+		return sliderAttacks.getRookAttacks(mask, square) | sliderAttacks.getBishopAttacks(mask, square);
+	}
+
 	/**
 	 * Gets a bitboard with attacked squares by the knight in the given square
 	 *
@@ -2,20 +2,20 @@ package cz.martinendler.chess.engine.board;
 
 import cz.martinendler.chess.engine.Castling;
 import cz.martinendler.chess.engine.CastlingRight;
+import cz.martinendler.chess.engine.Diagnostics;
 import cz.martinendler.chess.engine.Game;
 import cz.martinendler.chess.engine.Side;
 import cz.martinendler.chess.engine.move.Move;
+import cz.martinendler.chess.engine.move.LegalMoveGenerator;
 import cz.martinendler.chess.engine.move.MoveGenerator;
 import cz.martinendler.chess.engine.move.MoveLogEntry;
+import cz.martinendler.chess.engine.move.PackedMove;
 import cz.martinendler.chess.engine.pieces.Piece;
 import cz.martinendler.chess.engine.pieces.PieceType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
-import java.util.EnumMap;
 import java.util.List;
 
 /**
@@ -23,11 +23,55 @@ import java.util.List;
  */
 public class Board {
 
-	private static final Logger log = LoggerFactory.getLogger(Board.class);
-
 	public static final String STANDARD_STARTING_POSITION_FEN =
 		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
 
+	/*
+	 * Layout of the undo record returned by makeMove (bits from the least significant):
+	 *   0 -  3 captured piece (ordinal + 1, 0 = no capture)
+	 *        4 en passant capture flag
+	 *   5 -  8 castling rights (bitmask, see castlingRights)
+	 *   9 - 15 en passant square (index, 64 = none)
+	 *  16 - 22 en passant target square (index, 64 = none)
+	 *  23 - 54 half-move counter
+	 */
+
+	private static final int UNDO_CAPTURED_SHIFT = 0;
+	private static final long UNDO_EN_PASSANT_CAPTURE = 1L << 4;
+	private static final int UNDO_CASTLING_SHIFT = 5;
+	private static final int UNDO_EN_PASSANT_SHIFT = 9;
+	private static final int UNDO_EN_PASSANT_TARGET_SHIFT = 16;
+	private static final int UNDO_HALF_MOVE_COUNTER_SHIFT = 23;
+
+	private static final int NO_SQUARE = 64;
+
+	private static final Piece[] pieces = Piece.values();
+	private static final Square[] squares = Square.values();
+	private static final PieceType[] pieceTypes = PieceType.values();
+
+	/**
+	 * The values of the piece types used by the {@link #staticExchangeEvaluation(int)} (indexed by {@link PieceType#ordinal()}),
+	 * the king is worth more than all the other pieces together (so it is never captured in a sequence)
+	 */
+	private static final int[] exchangeValues = {100, 320, 330, 500, 900, 20_000};
+
+	/**
+	 * The castling rights bits of one side indexed by {@link CastlingRight} ordinal
+	 */
+	private static final int[] castlingRightToBits = new int[CastlingRight.values().length];
+	/**
+	 * The {@link CastlingRight} indexed by the castling rights bits of one side
+	 */
+	private static final CastlingRight[] castlingBitsToRight = new CastlingRight[4];
+
+	static {
+		for (CastlingRight right : CastlingRight.values()) {
+			int bits = (right.allows(Castling.KING_SIDE) ? 1 : 0) | (right.allows(Castling.QUEEN_SIDE) ? 2 : 0);
+			castlingRightToBits[right.ordinal()] = bits;
+			castlingBitsToRight[bits] = right;
+		}
+	}
+
 	// TODO: Should we use EnumMap or plain arrays
 	//       for bitboardOfSide, bitboardOfPiece and squareToPiece?
 	//       using EnumMap:
@@ -40,21 +84,26 @@ public class Board {
 	private final @NotNull long[] bitboardOfPiece;
 	private final @Nullable Piece[] squareToPiece;
 
-	private final @NotNull EnumMap<@NotNull Side, @NotNull CastlingRight> castlingRights;
+	/**
+	 * The castling rights of both sides as a bitmask (bits from the least significant):
+	 * WHITE's kingside, WHITE's queenside, BLACK's kingside, BLACK's queenside
+	 */
+	private int castlingRights;
 
 	private @NotNull Side sideToMove;
 
 	/**
-	 * The square of the pawn that could be captured via en passant
+	 * The index of the square of the pawn that could be captured via en passant
 	 * if the the other side's pawn moves to the {@link Board#enPassant} square
-	 * in the next immediate move.
+	 * in the next immediate move ({@link Board#NO_SQUARE} if there is no such pawn).
 	 */
-	private @Nullable Square enPassantTarget;
+	private int enPassantTarget;
 	/**
-	 * If the side-to-move's pawn moves to this square then the other side's pawn
-	 * that is on the {@link Board#enPassantTarget} square is captured via en passant.
+	 * If the side-to-move's pawn moves to this square (index) then the other side's pawn
+	 * that is on the {@link Board#enPassantTarget} square is captured via en passant
+	 * ({@link Board#NO_SQUARE} if the last move was not a pawn double push).
 	 */
-	private @Nullable Square enPassant;
+	private int enPassant;
 
 	/**
 	 * Move counter counts full-moves (1 full-move = WHITE's move + BLACK's move).
@@ -68,6 +117,61 @@ public class Board {
 	 */
 	private int halfMoveCounter;
 
+	/**
+	 * Zobrist key of this position, it is maintained incrementally
+	 *
+	 * @see Zobrist
+	 */
+	private long zobristKey;
+
+	/*
+	 * The check info of this position (used by givesCheck), it is computed lazily once per position
+	 * and invalidated whenever a piece is added or removed
+	 */
+
+	private boolean checkInfoValid;
+	/**
+	 * The other side's king square index ({@link Board#NO_SQUARE} if the king is not on the board)
+	 */
+	private int checkInfoKingSq;
+	/**
+	 * The squares from which a side-to-move's piece of the given type (ordinal) would attack the other side's king
+	 */
+	private final @NotNull long[] checkSquares = new long[PieceType.values().length];
+	/**
+	 * The side-to-move's pieces that block its own sliders' lines to the other side's king
+	 * (moving such a piece off the line gives a discovered check)
+	 */
+	private long discoveredCheckCandidates;
+
+	/*
+	 * The attack maps of this position, they are computed lazily once per position (for each side separately)
+	 * and invalidated whenever a piece is added or removed
+	 */
+
+	/**
+	 * The sides (bit = 1 << ordinal) whose {@link Board#attackedSquares} are valid
+	 */
+	private int attackedSquaresValid;
+	/**
+	 * The sides (bit = 1 << ordinal) whose {@link Board#attackCounts} are valid
+	 */
+	private int attackCountsValid;
+	/**
+	 * The squares attacked by the given side (ordinal)
+	 */
+	private final @NotNull long[] attackedSquares = new long[Side.values().length];
+	/**
+	 * The number of the given side's pieces that attack the given square ({@code side.ordinal() * 64 + square})
+	 */
+	private final @NotNull byte[] attackCounts = new byte[Side.values().length * 64];
+
+	/**
+	 * The preallocated swap list of the {@link #staticExchangeEvaluation(int)}
+	 * (one entry per capture, there cannot be more captures on one square than pieces on the board)
+	 */
+	private final @NotNull int[] exchangeGains = new int[Square.values().length / 2 + 1];
+
 	/**
 	 * Instantiates a new instance of {@link Board}
 	 * <p>
@@ -86,17 +190,17 @@ public class Board {
 		bitboardOfSide = new long[Side.values().length];
 		bitboardOfPiece = new long[Piece.values().length];
 		squareToPiece = new Piece[Square.values().length];
-		castlingRights = new EnumMap<>(Side.class);
-		castlingRights.put(Side.WHITE, CastlingRight.NONE);
-		castlingRights.put(Side.BLACK, CastlingRight.NONE);
+		castlingRights = 0;
 
 		sideToMove = Side.WHITE;
-		enPassantTarget = null;
-		enPassant = null;
+		enPassantTarget = NO_SQUARE;
+		enPassant = NO_SQUARE;
 
 		moveCounter = 1;
 		halfMoveCounter = 0;
 
+		zobristKey = 0L;
+
 	}
 
 	/**
@@ -104,17 +208,27 @@ public class Board {
 	 *
 	 * @param anotherBoard board to copy
 	 */
-	public Board(Board anotherBoard) {
-
-		// see Java Cloning: Copy Constructors vs. Cloning
-		//   https://dzone.com/articles/java-cloning-copy-constructor-vs-cloning
+	public Board(@NotNull Board anotherBoard) {
+		this();
+		copyFrom(anotherBoard);
+	}
 
+	/**
+	 * Overwrites the state of this board with the state of another {@link Board} instance
+	 * <p>
+	 * Unlike {@link Board#Board(Board)}, it does not allocate anything, so preallocated boards
+	 * can be reused (e.g. by search threads or by the game history).
+	 *
+	 * @param anotherBoard board to copy
+	 * @return this board
+	 */
+	public @NotNull Board copyFrom(@NotNull Board anotherBoard) {
 
-		bitboardOfSide = anotherBoard.bitboardOfSide.clone();
-		bitboardOfPiece = anotherBoard.bitboardOfPiece.clone();
-		squareToPiece = anotherBoard.squareToPiece.clone();
-		castlingRights = anotherBoard.castlingRights.clone();
+		System.arraycopy(anotherBoard.bitboardOfSide, 0, bitboardOfSide, 0, bitboardOfSide.length);
+		System.arraycopy(anotherBoard.bitboardOfPiece, 0, bitboardOfPiece, 0, bitboardOfPiece.length);
+		System.arraycopy(anotherBoard.squareToPiece, 0, squareToPiece, 0, squareToPiece.length);
 
+		castlingRights = anotherBoard.castlingRights;
 		sideToMove = anotherBoard.sideToMove;
 		enPassantTarget = anotherBoard.enPassantTarget;
 		enPassant = anotherBoard.enPassant;
@@ -122,6 +236,14 @@ public class Board {
 		moveCounter = anotherBoard.moveCounter;
 		halfMoveCounter = anotherBoard.halfMoveCounter;
 
+		zobristKey = anotherBoard.zobristKey;
+
+		checkInfoValid = false;
+		attackedSquaresValid = 0;
+		attackCountsValid = 0;
+
+		return this;
+
 	}
 
 	/**
@@ -217,7 +339,7 @@ public class Board {
 	 * @return the enPassantTarget square
 	 */
 	public @Nullable Square getEnPassantTarget() {
-		return enPassantTarget;
+		return enPassantTarget != NO_SQUARE ? squares[enPassantTarget] : null;
 	}
 
 	/**
@@ -229,7 +351,7 @@ public class Board {
 	 * @return the enPassant square
 	 */
 	public @Nullable Square getEnPassant() {
-		return enPassant;
+		return enPassant != NO_SQUARE ? squares[enPassant] : null;
 	}
 
 	/**
@@ -239,7 +361,18 @@ public class Board {
 	 * @return the castling right of the given side
 	 */
 	public @NotNull CastlingRight getCastlingRight(@NotNull Side side) {
-		return castlingRights.get(side);
+		return castlingBitsToRight[(castlingRights >>> (side.ordinal() << 1)) & 0x3];
+	}
+
+	/**
+	 * Gets the castling rights of both sides as a bitmask
+	 * <p>
+	 * The bits (from the least significant): WHITE's kingside, WHITE's queenside, BLACK's kingside, BLACK's queenside.
+	 *
+	 * @return the castling rights bitmask (0 - 15)
+	 */
+	public int getCastlingRights() {
+		return castlingRights;
 	}
 
 	/**
@@ -266,6 +399,73 @@ public class Board {
 		return halfMoveCounter;
 	}
 
+	/**
+	 * Gets the Zobrist key of this position
+	 * <p>
+	 * It covers the pieces, the side to move, the castling rights and the file of the en passant target
+	 * (only if an en passant capture is really possible), but NOT the move counters.
+	 *
+	 * @return the Zobrist key of this position
+	 * @see Zobrist
+	 */
+	public long getZobristKey() {
+		return zobristKey;
+	}
+
+	/**
+	 * Computes the Zobrist key of this position from scratch
+	 * <p>
+	 * It is used when a position is loaded and to verify the incrementally maintained key.
+	 *
+	 * @return the Zobrist key of this position
+	 * @see Board#getZobristKey()
+	 */
+	public long computeZobristKey() {
+
+		long key = 0L;
+
+		for (Square sq : Square.values()) {
+			Piece piece = squareToPiece[sq.ordinal()];
+			if (piece != null) {
+				key ^= Zobrist.getPieceKey(piece, sq);
+			}
+		}
+
+		key ^= Zobrist.getSideKey(sideToMove);
+		key ^= Zobrist.getCastlingRightKey(Side.WHITE, getCastlingRight(Side.WHITE));
+		key ^= Zobrist.getCastlingRightKey(Side.BLACK, getCastlingRight(Side.BLACK));
+
+		if (enPassantTarget != NO_SQUARE) {
+			key ^= Zobrist.getEnPassantKey(squares[enPassantTarget]);
+		}
+
+		return key;
+
+	}
+
+	/**
+	 * Checks that the incrementally maintained Zobrist key matches the key computed from scratch
+	 * <p>
+	 * It is meant to be used in assertions (i.e. only when assertions are enabled using {@code -ea}).
+	 *
+	 * @return {@code true} (so it can be used as {@code assert verifyZobristKey();})
+	 * @throws IllegalStateException when the keys do not match
+	 */
+	private boolean verifyZobristKey() {
+
+		long expected = computeZobristKey();
+
+		if (zobristKey != expected) {
+			throw new IllegalStateException(
+				"Zobrist key mismatch: incremental " + Long.toHexString(zobristKey)
+					+ " != from scratch " + Long.toHexString(expected) + " for " + getFen()
+			);
+		}
+
+		return true;
+
+	}
+
 	/**
 	 * Computes en passant target square from the en passant square
 	 *
@@ -321,6 +521,10 @@ public class Board {
 		bitboardOfPiece[piece.ordinal()] |= sq.getBitboard();
 		bitboardOfSide[piece.getPieceSide().ordinal()] |= sq.getBitboard();
 		squareToPiece[sq.ordinal()] = piece;
+		zobristKey ^= Zobrist.getPieceKey(piece, sq);
+		checkInfoValid = false;
+		attackedSquaresValid = 0;
+		attackCountsValid = 0;
 	}
 
 	/**
@@ -333,6 +537,23 @@ public class Board {
 		bitboardOfPiece[piece.ordinal()] ^= sq.getBitboard();
 		bitboardOfSide[piece.getPieceSide().ordinal()] ^= sq.getBitboard();
 		squareToPiece[sq.ordinal()] = null;
+		zobristKey ^= Zobrist.getPieceKey(piece, sq);
+		checkInfoValid = false;
+		attackedSquaresValid = 0;
+		attackCountsValid = 0;
+	}
+
+	/**
+	 * Sets the given side's castling right (and updates the Zobrist key)
+	 *
+	 * @param side  the side
+	 * @param right the castling right
+	 */
+	private void setCastlingRight(@NotNull Side side, @NotNull CastlingRight right) {
+		int shift = side.ordinal() << 1;
+		zobristKey ^= Zobrist.getCastlingRightKey(side, getCastlingRight(side));
+		castlingRights = (castlingRights & ~(0x3 << shift)) | (castlingRightToBits[right.ordinal()] << shift);
+		zobristKey ^= Zobrist.getCastlingRightKey(side, right);
 	}
 
 	/**
@@ -389,7 +610,9 @@ public class Board {
 				&& from.getFile() != to.getFile() // from and to files (columns) are different
 				&& capturedPiece == null // NO piece was captured on the destination (to) square
 		) {
-			log.info("movePiece: did an en passant capture");
+			if (Diagnostics.ENABLED) {
+				Diagnostics.record(Diagnostics.Event.EN_PASSANT_CAPTURE, from.ordinal(), to.ordinal());
+			}
 			// set the captured piece that was captured during en passant
 			capturedPiece = getPiece(getEnPassantTarget());
 			// captured piece MUST be explicitly removed
@@ -527,12 +750,123 @@ public class Board {
 	 * @return {@code true} if any of the given squares is attacked by the given side, {@code false} otherwise
 	 */
 	public boolean isSquareAttackedBy(@NotNull List<Square> squares, @NotNull Side side) {
-		for (Square sq : squares) {
-			if (squareAttackedBy(sq, side) != 0L) {
-				return true;
+		return isSquareAttackedBy(Bitboard.squareListToBB(squares), side);
+	}
+
+	/**
+	 * Checks if the given side's pieces can attack any of the given squares
+	 * <p>
+	 * It uses the given side's attack map (see {@link #getAttackedSquares(Side)}).
+	 *
+	 * @param squares the squares bitboard
+	 * @param side    the side
+	 * @return {@code true} if any of the given squares is attacked by the given side, {@code false} otherwise
+	 */
+	public boolean isSquareAttackedBy(long squares, @NotNull Side side) {
+		return (getAttackedSquares(side) & squares) != 0L;
+	}
+
+	/**
+	 * Gets the squares that are attacked by the given side's pieces (the attack map)
+	 * <p>
+	 * The pawns attack diagonally (en passant is not considered), the sliders are blocked by all pieces.
+	 * The squares occupied by the side's own pieces are included (they are defended).
+	 * <p>
+	 * The map is computed once per position and cached until the next change of the pieces,
+	 * so any number of questions about the attacked squares costs a single AND.
+	 *
+	 * @param side the side
+	 * @return the attacked squares
+	 * @see <a href="https://www.chessprogramming.org/Attack_and_Defend_Maps">Attack and Defend Maps on CPW</a>
+	 */
+	public long getAttackedSquares(@NotNull Side side) {
+
+		int bit = 1 << side.ordinal();
+
+		if ((attackedSquaresValid & bit) != 0) {
+			return attackedSquares[side.ordinal()];
+		}
+
+		long occupied = getBitboard();
+		long attacks = 0L;
+
+		for (PieceType type : PieceType.values()) {
+			long pieces = getBitboard(Piece.make(side, type));
+			while (pieces != 0L) {
+				int sq = Bitboard.bitScanForward(pieces);
+				pieces = Bitboard.removeLSB(pieces);
+				attacks |= getPieceAttacks(side, type, sq, occupied);
 			}
 		}
-		return false;
+
+		attackedSquares[side.ordinal()] = attacks;
+		attackedSquaresValid |= bit;
+
+		return attacks;
+
+	}
+
+	/**
+	 * Gets the number of the given side's pieces that attack the given square
+	 * <p>
+	 * Only the direct attacks are counted (a slider behind another one is not counted, no x-rays).
+	 * The counts of all squares are computed once per position and cached until the next change of the pieces.
+	 *
+	 * @param square the square
+	 * @param side   the side
+	 * @return the number of the attackers
+	 * @see #getAttackedSquares(Side)
+	 */
+	public int getAttackCount(@NotNull Square square, @NotNull Side side) {
+
+		int bit = 1 << side.ordinal();
+		int offset = side.ordinal() * 64;
+
+		if ((attackCountsValid & bit) == 0) {
+
+			Arrays.fill(attackCounts, offset, offset + 64, (byte) 0);
+
+			long occupied = getBitboard();
+
+			for (PieceType type : PieceType.values()) {
+				long pieces = getBitboard(Piece.make(side, type));
+				while (pieces != 0L) {
+					int sq = Bitboard.bitScanForward(pieces);
+					pieces = Bitboard.removeLSB(pieces);
+					long attacks = getPieceAttacks(side, type, sq, occupied);
+					while (attacks != 0L) {
+						attackCounts[offset + Bitboard.bitScanForward(attacks)]++;
+						attacks = Bitboard.removeLSB(attacks);
+					}
+				}
+			}
+
+			attackCountsValid |= bit;
+
+		}
+
+		return attackCounts[offset + square.ordinal()];
+
+	}
+
+	/**
+	 * Gets the squares attacked by the given piece
+	 *
+	 * @param side     the side of the piece
+	 * @param type     the type of the piece
+	 * @param sq       the square index of the piece
+	 * @param occupied the occupied squares
+	 * @return the attacked squares
+	 */
+	private static long getPieceAttacks(@NotNull Side side, @NotNull PieceType type, int sq, long occupied) {
+		return switch (type) {
+			case PAWN -> Bitboard.getPawnAttacks(side, squares[sq]);
+			case KNIGHT -> Bitboard.getKnightAttacks(squares[sq], ~0L);
+			case BISHOP -> Bitboard.getBishopAttacks(occupied, sq);
+			case ROOK -> Bitboard.getRookAttacks(occupied, sq);
+			case QUEEN -> Bitboard.getQueenAttacks(occupied, sq);
+			case KING -> Bitboard.getKingAttacks(squares[sq], ~0L);
+		};
 	}
 
 	/**
@@ -569,7 +903,196 @@ public class Board {
 			return false;
 		}
 
-		return squareAttackedBy(kingSquare, getSideToMove().flip()) != 0L;
+		Side other = getSideToMove().flip();
+
+		// the cached attack map answers it with a single AND (but it is not worth computing it just for this)
+		if ((attackedSquaresValid & (1 << other.ordinal())) != 0) {
+			return (attackedSquares[other.ordinal()] & kingSquare.getBitboard()) != 0L;
+		}
+
+		return squareAttackedBy(kingSquare, other) != 0L;
+
+	}
+
+	/**
+	 * Checks if the given move gives check to the other side's king (without making the move)
+	 * <p>
+	 * The direct checks are detected using the squares from which each piece type would attack the king,
+	 * the discovered checks using the side-to-move's pieces that block its own sliders' lines to the king.
+	 * Both are computed only once per position (and cached), so testing all the moves of a position is cheap.
+	 * Castling (the rook gives check), en passant (two pawns leave their squares)
+	 * and promotions (the new piece gives check) are handled separately.
+	 *
+	 * @param move the legal move encoded using {@link PackedMove}
+	 * @return {@code true} iff the other side's king is attacked after the move
+	 * @see <a href="https://www.chessprogramming.org/Checks_and_Pinned_Pieces_(Bitboards)">Checks and Pinned Pieces (Bitboards) on CPW</a>
+	 */
+	public boolean givesCheck(final int move) {
+
+		updateCheckInfo();
+
+		final int kingSq = checkInfoKingSq;
+
+		if (kingSq == NO_SQUARE) {
+			return false;
+		}
+
+		final int from = PackedMove.getFrom(move);
+		final int to = PackedMove.getTo(move);
+		final Piece movingPiece = squareToPiece[from];
+
+		if (movingPiece == null) {
+			return false;
+		}
+
+		final Side side = getSideToMove();
+		final long fromBB = 1L << from;
+		final long toBB = 1L << to;
+
+		if (PackedMove.isCastling(move)) {
+			Castling castling = findCastling(squares[from], squares[to]);
+			if (castling != null) {
+				Move rookMove = castling.getRookMove(side);
+				long rookFromBB = rookMove.getFrom().getBitboard();
+				long rookToBB = rookMove.getTo().getBitboard();
+				long occupied = (getBitboard() ^ fromBB ^ rookFromBB) | toBB | rookToBB;
+				return isKingAttackedBySliders(
+					kingSq,
+					occupied,
+					(getBitboard(Piece.make(side, PieceType.ROOK)) ^ rookFromBB) | rookToBB
+				);
+			}
+		}
+
+		if (PackedMove.isEnPassant(move)) {
+			// the captured pawn is on the same rank as the from square and on the same file as the to square
+			long capturedBB = 1L << ((from & ~7) | (to & 7));
+			long occupied = (getBitboard() ^ fromBB ^ capturedBB) | toBB;
+			return (checkSquares[PieceType.PAWN.ordinal()] & toBB) != 0L
+				|| isKingAttackedBySliders(kingSq, occupied, getBitboard(Piece.make(side, PieceType.ROOK)));
+		}
+
+		final Piece promotion = PackedMove.getPromotion(move);
+
+		if (promotion != null) {
+			// the pawn's from square is already empty when the promoted piece attacks
+			long occupied = (getBitboard() ^ fromBB) | toBB;
+			long attacks = switch (promotion.getPieceType()) {
+				case KNIGHT -> Bitboard.getKnightAttacks(squares[to], ~0L);
+				case BISHOP -> Bitboard.getBishopAttacks(occupied, to);
+				case ROOK -> Bitboard.getRookAttacks(occupied, to);
+				case QUEEN -> Bitboard.getQueenAttacks(occupied, to);
+				default -> 0L;
+			};
+			if ((attacks & (1L << kingSq)) != 0L) {
+				return true;
+			}
+		} else if ((checkSquares[movingPiece.getPieceType().ordinal()] & toBB) != 0L) {
+			// direct check
+			return true;
+		}
+
+		// discovered check (the piece leaves the line between the side's slider and the king)
+		return (discoveredCheckCandidates & fromBB) != 0L && (Bitboard.getLine(from, kingSq) & toBB) == 0L;
+
+	}
+
+	/**
+	 * Checks if the given move gives check to the other side's king (without making the move)
+	 *
+	 * @param move the legal move
+	 * @return {@code true} iff the other side's king is attacked after the move
+	 * @see Board#givesCheck(int)
+	 */
+	public boolean givesCheck(final @NotNull Move move) {
+		return givesCheck(PackedMove.fromMove(this, move));
+	}
+
+	/**
+	 * Checks if the side-to-move's sliders attack the other side's king on the given occupancy
+	 *
+	 * @param kingSq   the other side's king square index
+	 * @param occupied the occupied squares
+	 * @param rooks    the side-to-move's rooks (without the queens)
+	 * @return {@code true} iff the king is attacked by a slider
+	 */
+	private boolean isKingAttackedBySliders(int kingSq, long occupied, long rooks) {
+
+		Side side = getSideToMove();
+
+		long queens = getBitboard(Piece.make(side, PieceType.QUEEN));
+		long bishops = getBitboard(Piece.make(side, PieceType.BISHOP));
+
+		return (Bitboard.getRookAttacks(occupied, kingSq) & (rooks | queens)) != 0L
+			|| (Bitboard.getBishopAttacks(occupied, kingSq) & (bishops | queens)) != 0L;
+
+	}
+
+	/**
+	 * Computes the check info of this position (if it is not valid)
+	 *
+	 * @see Board#givesCheck(int)
+	 */
+	private void updateCheckInfo() {
+
+		if (checkInfoValid) {
+			return;
+		}
+
+		checkInfoValid = true;
+
+		Side side = getSideToMove();
+		Side other = side.flip();
+
+		long kingBB = getBitboard(Piece.make(other, PieceType.KING));
+
+		if (kingBB == 0L) {
+			checkInfoKingSq = NO_SQUARE;
+			return;
+		}
+
+		int kingSq = Bitboard.bitScanForward(kingBB);
+		Square king = squares[kingSq];
+
+		checkInfoKingSq = kingSq;
+
+		long occupied = getBitboard();
+		long bishopAttacks = Bitboard.getBishopAttacks(occupied, kingSq);
+		long rookAttacks = Bitboard.getRookAttacks(occupied, kingSq);
+
+		// a pawn attacks the king from the squares that the king would attack as a pawn of the other side
+		checkSquares[PieceType.PAWN.ordinal()] = Bitboard.getPawnAttacks(other, king);
+		checkSquares[PieceType.KNIGHT.ordinal()] = Bitboard.getKnightAttacks(king, ~0L);
+		checkSquares[PieceType.BISHOP.ordinal()] = bishopAttacks;
+		checkSquares[PieceType.ROOK.ordinal()] = rookAttacks;
+		checkSquares[PieceType.QUEEN.ordinal()] = bishopAttacks | rookAttacks;
+		checkSquares[PieceType.KING.ordinal()] = 0L;
+
+		long theirPieces = getBitboard(other);
+		long ourQueens = getBitboard(Piece.make(side, PieceType.QUEEN));
+
+		// the side's sliders that would attack the king if there were none of the side's pieces
+		long snipers = (
+			Bitboard.getRookAttacks(theirPieces, kingSq)
+				& (getBitboard(Piece.make(side, PieceType.ROOK)) | ourQueens)
+		) | (
+			Bitboard.getBishopAttacks(theirPieces, kingSq)
+				& (getBitboard(Piece.make(side, PieceType.BISHOP)) | ourQueens)
+		);
+
+		long candidates = 0L;
+
+		while (snipers != 0L) {
+			int sniperSq = Bitboard.bitScanForward(snipers);
+			snipers = Bitboard.removeLSB(snipers);
+			long blockers = Bitboard.getSquaresBetween(kingSq, sniperSq) & occupied;
+			// exactly one piece between (it must be the side's piece as the other side's pieces stop the attacks)
+			if (blockers != 0L && Bitboard.removeLSB(blockers) == 0L) {
+				candidates |= blockers;
+			}
+		}
+
+		discoveredCheckCandidates = candidates;
 
 	}
 
@@ -588,15 +1111,13 @@ public class Board {
 
 		// there is no piece on the from square
 		if (fromPiece == null) {
-			log.debug(
-				"isMoveLegal({}): false (there is no piece on the from square)",
-				move.toDebugString()
-			);
+			if (Diagnostics.ENABLED) {
+				Diagnostics.record(Diagnostics.Event.NO_PIECE, move.getFrom().ordinal(), move.getTo().ordinal());
+			}
 			return false;
 		}
 
 		final Side side = getSideToMove();
-		final Side otherSide = side.flip();
 		final PieceType fromType = fromPiece.getPieceType();
 		final Piece capturedPiece = getPiece(move.getTo());
 
@@ -604,19 +1125,17 @@ public class Board {
 
 			// player tries to move the opponent's piece
 			if (side != fromPiece.getPieceSide()) {
-				log.debug(
-					"isMoveLegal({}): false (player tries to move the opponent's piece)",
-					move.toDebugString()
-				);
+				if (Diagnostics.ENABLED) {
+					Diagnostics.record(Diagnostics.Event.OPPONENTS_PIECE, move.getFrom().ordinal(), move.getTo().ordinal());
+				}
 				return false;
 			}
 
 			// player cannot capture their own pieces
 			if (capturedPiece != null && fromPiece.getPieceSide() == capturedPiece.getPieceSide()) {
-				log.debug(
-					"isMoveLegal({}): false (player cannot capture their own pieces)",
-					move.toDebugString()
-				);
+				if (Diagnostics.ENABLED) {
+					Diagnostics.record(Diagnostics.Event.OWN_PIECE_CAPTURE, move.getFrom().ordinal(), move.getTo().ordinal());
+				}
 				return false;
 			}
 
@@ -625,10 +1144,9 @@ public class Board {
 			// pawn should be promoted but the promotion NOT set on the move
 			// or pawn should NOT be promoted but the promotion is set on the move
 			if (move.hasPromotion() != pawnPromoting) {
-				log.debug(
-					"isMoveLegal({}): false (move.hasPromotion() != pawnPromoting)",
-					move.toDebugString()
-				);
+				if (Diagnostics.ENABLED) {
+					Diagnostics.record(Diagnostics.Event.INVALID_PROMOTION, move.getFrom().ordinal(), move.getTo().ordinal());
+				}
 				return false;
 			}
 
@@ -653,7 +1171,7 @@ public class Board {
 
 					// if no squares (trough which the king moves during the castling) are attacked
 					// then this move is valid (no further checks are needed)
-					return !isSquareAttackedBy(castling.getSquares(side), side.flip());
+					return !isSquareAttackedBy(castling.getSquaresBB(side), side.flip());
 
 				}
 
@@ -661,32 +1179,70 @@ public class Board {
 
 		}
 
+		return leavesKingSafe(move.getFrom(), move.getTo(), fromType);
+
+	}
+
+	/**
+	 * Verifies if the packed move to be played leaves the resulting board in a legal position
+	 * <p>
+	 * It is the same check as {@link Board#isMoveLegal(Move, boolean)} without the full validation,
+	 * so the move must be pseudo-legal (e.g. generated by {@link MoveGenerator}).
+	 *
+	 * @param move the pseudo-legal move encoded using {@link PackedMove}
+	 * @return {@code true} iff the move is legal
+	 */
+	public boolean isMoveLegal(final int move) {
+
+		final Square from = PackedMove.getFromSquare(move);
+		final Piece fromPiece = getPiece(from);
+
+		// there is no piece on the from square
+		if (fromPiece == null) {
+			return false;
+		}
+
+		return leavesKingSafe(from, PackedMove.getToSquare(move), fromPiece.getPieceType());
+
+	}
+
+	/**
+	 * Checks that the move would not leave the side-to-move's king in check
+	 *
+	 * @param from     the from
+	 * @param to       the to
+	 * @param fromType the type of the moving piece
+	 * @return {@code true} iff the side-to-move's king is not attacked after the move
+	 */
+	private boolean leavesKingSafe(final @NotNull Square from, final @NotNull Square to, final @NotNull PieceType fromType) {
+
+		final Side side = getSideToMove();
+		final Side otherSide = side.flip();
+
 		// king cannot be moved to a square that is currently under attack by the opposite side
-		if (fromType == PieceType.KING && squareAttackedBy(move.getTo(), otherSide) != 0L) {
-			log.debug(
-				"isMoveLegal({}): false (king cannot be moved to a square"
-					+ "that is currently under attack by the opposite side)",
-				move.toDebugString()
-			);
+		if (fromType == PieceType.KING && squareAttackedBy(to, otherSide) != 0L) {
+			if (Diagnostics.ENABLED) {
+				Diagnostics.record(Diagnostics.Event.KING_TO_ATTACKED_SQUARE, from.ordinal(), to.ordinal());
+			}
 			return false;
 		}
 
 		// the code below checks that the move would not leave the side's king in check
 
 		// the square of the side's king after this move
-		Square kingSq = fromType == PieceType.KING ? move.getTo() : getKingSquare(side);
+		Square kingSq = fromType == PieceType.KING ? to : getKingSquare(side);
 
 		if (kingSq == null) {
 			throw new IllegalStateException(side.name() + "'s king not on board!");
 		}
 
-		long moveTo = move.getTo().getBitboard();
-		long moveFrom = move.getFrom().getBitboard();
+		long moveTo = to.getBitboard();
+		long moveFrom = from.getBitboard();
 
 		// en passant capture square
 		long ep = (
 			getEnPassantTarget() != null
-				&& move.getTo() == getEnPassant()
+				&& to == getEnPassant()
 				&& fromType == PieceType.PAWN
 		) ? getEnPassantTarget().getBitboard() : 0L;
 
@@ -702,11 +1258,9 @@ public class Board {
 
 		// after this move, the king would be attacked by some of the other side's bishops and/or queens (diagonals)
 		if (bishopsAndQueens != 0L && (Bitboard.getBishopAttacks(allPieces, kingSq) & bishopsAndQueens) != 0L) {
-			log.debug(
-				"isMoveLegal({}): false (after this move, the king would be attacked by some" +
-					"of the other side's bishops and/or queens (diagonals)",
-				move.toDebugString()
-			);
+			if (Diagnostics.ENABLED) {
+				Diagnostics.record(Diagnostics.Event.KING_ATTACKED_BY_DIAGONAL_SLIDER, from.ordinal(), to.ordinal());
+			}
 			return false;
 		}
 
@@ -719,11 +1273,9 @@ public class Board {
 
 		// after this move, the king would be attacked by some of the other side's bishops and/or queens (rank or files)
 		if (rooksAndQueens != 0L && (Bitboard.getRookAttacks(allPieces, kingSq) & rooksAndQueens) != 0L) {
-			log.debug(
-				"isMoveLegal({}): false (after this move, the king would be attacked by some" +
-					"of the other side's bishops and/or queens (rank or files)",
-				move.toDebugString()
-			);
+			if (Diagnostics.ENABLED) {
+				Diagnostics.record(Diagnostics.Event.KING_ATTACKED_BY_LINE_SLIDER, from.ordinal(), to.ordinal());
+			}
 			return false;
 		}
 
@@ -731,11 +1283,9 @@ public class Board {
 
 		// after this move, the king would be attacked by some of the other side's knights
 		if (knights != 0L && (Bitboard.getKnightAttacks(kingSq, allPieces) & knights) != 0L) {
-			log.debug(
-				"isMoveLegal({}): false (after this move, the king would be attacked by some" +
-					"of the other side's knights",
-				move.toDebugString()
-			);
+			if (Diagnostics.ENABLED) {
+				Diagnostics.record(Diagnostics.Event.KING_ATTACKED_BY_KNIGHT, from.ordinal(), to.ordinal());
+			}
 			return false;
 		}
 
@@ -743,11 +1293,9 @@ public class Board {
 
 		// after this move, the king would be attacked by some of the other side's pawns
 		if (pawns != 0L && (Bitboard.getPawnAttacks(side, kingSq) & pawns) != 0L) {
-			log.debug(
-				"isMoveLegal({}): false (after this move, the king would be attacked by some" +
-					"of the other side's pawns",
-				move.toDebugString()
-			);
+			if (Diagnostics.ENABLED) {
+				Diagnostics.record(Diagnostics.Event.KING_ATTACKED_BY_PAWN, from.ordinal(), to.ordinal());
+			}
 			return false;
 		}
 
@@ -778,10 +1326,15 @@ public class Board {
 
 		Side side = getSideToMove();
 
+		// this could happen if fullValidation == false
+		if (movingPiece.isOfType(PieceType.KING) && !move.isAllowedBy(getCastlingRight(side))) {
+			return null;
+		}
+
 		MoveLogEntry.MoveLogEntryBuilder moveLogEntryBuilder = new MoveLogEntry.MoveLogEntryBuilder()
-			.setBoard(new Board(this)) // copy the current state before the move
 			.setSide(side)
 			.setMove(move)
+			.setPackedMove(PackedMove.fromMove(this, move))
 			// the following will be set in by movePiece method:
 			// .setMovingPiece()
 			// .setCapturedPiece()
@@ -789,26 +1342,208 @@ public class Board {
 			// .setEnPassantMove()
 			;
 
+		moveLogEntryBuilder.setUndo(
+			applyMove(move.getFrom(), move.getTo(), move.getPromotion(), movingPiece, moveLogEntryBuilder)
+		);
+
+		return moveLogEntryBuilder.build();
+
+	}
+
+	/**
+	 * Executes the given move on this board without any validation
+	 * and without creating any objects
+	 * <p>
+	 * Unlike {@link Board#doMove(Move, boolean)}, it does not create a {@link MoveLogEntry}.
+	 * Instead, it returns a compact undo record that can be passed to {@link Board#unmakeMove(Move, long)}
+	 * to restore the state before the move in place. It is meant for search, perft and bulk replay
+	 * where the same board is used to traverse many positions.
+	 * <p>
+	 * The move MUST be legal in the current position (e.g. one of {@link Board#generateLegalMoves()}).
+	 * The Zobrist key is not stored in the record, it is restored incrementally by {@link Board#unmakeMove(Move, long)}.
+	 *
+	 * @param move the legal move
+	 * @return the undo record (the captured piece, the castling rights, the en passant state and the half-move counter)
+	 * @see Board#unmakeMove(Move, long)
+	 */
+	public long makeMove(final @NotNull Move move) {
+		return makeMove(move.getFrom(), move.getTo(), move.getPromotion());
+	}
+
+	/**
+	 * Executes the given packed move on this board without any validation
+	 * and without creating any objects
+	 *
+	 * @param move the legal move encoded using {@link PackedMove}
+	 * @return the undo record
+	 * @see Board#makeMove(Move)
+	 * @see Board#unmakeMove(int, long)
+	 */
+	public long makeMove(final int move) {
+		return makeMove(PackedMove.getFromSquare(move), PackedMove.getToSquare(move), PackedMove.getPromotion(move));
+	}
+
+	private long makeMove(@NotNull Square from, @NotNull Square to, @Nullable Piece promotion) {
+
+		Piece movingPiece = getPiece(from);
+
+		if (movingPiece == null) {
+			throw new IllegalArgumentException("There is no piece on the from square.");
+		}
+
+		return applyMove(from, to, promotion, movingPiece, null);
+
+	}
+
+	/**
+	 * Restores the state before the given move was made using {@link Board#makeMove(Move)}
+	 * <p>
+	 * The moves must be unmade in the reverse order in which they were made.
+	 *
+	 * @param move the move that was the last made move
+	 * @param undo the undo record that was returned by {@link Board#makeMove(Move)} for the move
+	 * @see Board#makeMove(Move)
+	 */
+	public void unmakeMove(final @NotNull Move move, final long undo) {
+		unmakeMove(move.getFrom(), move.getTo(), move.hasPromotion(), undo);
+	}
+
+	/**
+	 * Restores the state before the given packed move was made using {@link Board#makeMove(int)}
+	 *
+	 * @param move the move that was the last made move encoded using {@link PackedMove}
+	 * @param undo the undo record that was returned by {@link Board#makeMove(int)} for the move
+	 * @see Board#unmakeMove(Move, long)
+	 */
+	public void unmakeMove(final int move, final long undo) {
+		unmakeMove(PackedMove.getFromSquare(move), PackedMove.getToSquare(move), PackedMove.hasPromotion(move), undo);
+	}
+
+	private void unmakeMove(@NotNull Square from, @NotNull Square to, boolean promotion, long undo) {
+
+		Side side = sideToMove.flip();
+
+		sideToMove = side;
+		zobristKey ^= Zobrist.getSideKey(Side.BLACK);
+
+		if (side == Side.BLACK) {
+			moveCounter--;
+		}
+
+		halfMoveCounter = (int) (undo >>> UNDO_HALF_MOVE_COUNTER_SHIFT);
+
+		if (enPassantTarget != NO_SQUARE) {
+			zobristKey ^= Zobrist.getEnPassantKey(squares[enPassantTarget]);
+		}
+		enPassant = (int) (undo >>> UNDO_EN_PASSANT_SHIFT) & 0x7F;
+		enPassantTarget = (int) (undo >>> UNDO_EN_PASSANT_TARGET_SHIFT) & 0x7F;
+		if (enPassantTarget != NO_SQUARE) {
+			zobristKey ^= Zobrist.getEnPassantKey(squares[enPassantTarget]);
+		}
+
+		int castlingBits = (int) (undo >>> UNDO_CASTLING_SHIFT) & 0xF;
+		setCastlingRight(Side.WHITE, castlingBitsToRight[castlingBits & 0x3]);
+		setCastlingRight(Side.BLACK, castlingBitsToRight[castlingBits >>> 2]);
+
+		Piece piece = getPiece(to);
+
+		if (piece == null) {
+			throw new IllegalArgumentException("There is no piece on the to square.");
+		}
+
+		removePiece(piece, to);
+
+		Piece movingPiece = promotion ? Piece.make(side, PieceType.PAWN) : piece;
+
+		addPiece(movingPiece, from);
+
+		int captured = (int) (undo >>> UNDO_CAPTURED_SHIFT) & 0xF;
+
+		if (captured != 0) {
+			// the pawn captured via en passant was on the restored en passant target square
+			addPiece(
+				pieces[captured - 1],
+				(undo & UNDO_EN_PASSANT_CAPTURE) != 0L ? squares[enPassantTarget] : to
+			);
+		}
+
+		if (movingPiece.isOfType(PieceType.KING)) {
+			Castling castling = findCastling(from, to);
+			if (castling != null) {
+				Move rookMove = castling.getRookMove(side);
+				removePiece(Piece.make(side, PieceType.ROOK), rookMove.getTo());
+				addPiece(Piece.make(side, PieceType.ROOK), rookMove.getFrom());
+			}
+		}
+
+		assert verifyZobristKey();
+
+	}
+
+	/**
+	 * Finds the castling that corresponds to the given king move
+	 * <p>
+	 * A king can move by two files only when castling.
+	 *
+	 * @param from the king's origin square
+	 * @param to   the king's destination square
+	 * @return the castling or {@code null} if the king move is not a castling
+	 */
+	private static @Nullable Castling findCastling(@NotNull Square from, @NotNull Square to) {
+
+		int files = to.getFile().ordinal() - from.getFile().ordinal();
+
+		if (files == 2) {
+			return Castling.KING_SIDE;
+		}
+
+		if (files == -2) {
+			return Castling.QUEEN_SIDE;
+		}
+
+		return null;
+
+	}
+
+	/**
+	 * Applies the given move to this board (shared by {@link Board#doMove(Move, boolean)} and {@link Board#makeMove(Move)})
+	 *
+	 * @param from                the from
+	 * @param to                  the to
+	 * @param promotion           the promotion
+	 * @param movingPiece         the piece on the from square
+	 * @param moveLogEntryBuilder optional {@link MoveLogEntry} builder for storing details info about move
+	 * @return the undo record
+	 * @see Board#makeMove(Move)
+	 */
+	private long applyMove(
+		final @NotNull Square from,
+		final @NotNull Square to,
+		final @Nullable Piece promotion,
+		final @NotNull Piece movingPiece,
+		final @Nullable MoveLogEntry.MoveLogEntryBuilder moveLogEntryBuilder
+	) {
+
+		Side side = getSideToMove();
+
+		long undo = ((long) castlingRights << UNDO_CASTLING_SHIFT)
+			| ((long) enPassant << UNDO_EN_PASSANT_SHIFT)
+			| ((long) enPassantTarget << UNDO_EN_PASSANT_TARGET_SHIFT)
+			| ((long) halfMoveCounter << UNDO_HALF_MOVE_COUNTER_SHIFT);
+
 		// castling rules
 		if (movingPiece.isOfType(PieceType.KING)) {
 
-			Castling castling = move.getCastling();
+			Castling castling = findCastling(from, to);
 
 			// this move is a castling
 			if (castling != null) {
-
-				if (move.isAllowedBy(getCastlingRight(side))) {
-					movePiece(castling.getRookMove(side), null);
-				} else {
-					// this could happen if fullValidation == false
-					return null;
-				}
-
+				movePiece(castling.getRookMove(side), null);
 			}
 
 			// after the king's move the player looses castling right (if they has still any)
 			if (getCastlingRight(side) != CastlingRight.NONE) {
-				castlingRights.put(side, CastlingRight.NONE);
+				setCastlingRight(side, CastlingRight.NONE);
 			}
 
 		} else if (movingPiece.isOfType(PieceType.ROOK) && CastlingRight.NONE != getCastlingRight(side)) {
@@ -816,25 +1551,38 @@ public class Board {
 			final Move oo = Castling.KING_SIDE.getRookMove(side);
 			final Move ooo = Castling.QUEEN_SIDE.getRookMove(side);
 
-			if (move.getFrom() == oo.getFrom()) {
+			if (from == oo.getFrom()) {
 				// update castling right (kingside no longer possible)
 				if (CastlingRight.KING_AND_QUEEN_SIDE == getCastlingRight(side)) {
-					castlingRights.put(side, CastlingRight.QUEEN_SIDE);
+					setCastlingRight(side, CastlingRight.QUEEN_SIDE);
 				} else if (CastlingRight.KING_SIDE == getCastlingRight(side)) {
-					castlingRights.put(side, CastlingRight.NONE);
+					setCastlingRight(side, CastlingRight.NONE);
 				}
-			} else if (move.getFrom() == ooo.getFrom()) {
+			} else if (from == ooo.getFrom()) {
 				// update castling right (queenside no longer possible)
 				if (CastlingRight.KING_AND_QUEEN_SIDE == getCastlingRight(side)) {
-					castlingRights.put(side, CastlingRight.KING_SIDE);
+					setCastlingRight(side, CastlingRight.KING_SIDE);
 				} else if (CastlingRight.QUEEN_SIDE == getCastlingRight(side)) {
-					castlingRights.put(side, CastlingRight.NONE);
+					setCastlingRight(side, CastlingRight.NONE);
 				}
 			}
 
 		}
 
-		Piece capturedPiece = movePiece(move, moveLogEntryBuilder);
+		// the same condition as in movePiece
+		boolean enPassantCapture = movingPiece.isOfType(PieceType.PAWN)
+			&& enPassantTarget != NO_SQUARE
+			&& from.getFile() != to.getFile()
+			&& getPiece(to) == null;
+
+		Piece capturedPiece = movePiece(from, to, promotion, moveLogEntryBuilder);
+
+		if (capturedPiece != null) {
+			undo |= (long) (capturedPiece.ordinal() + 1) << UNDO_CAPTURED_SHIFT;
+			if (enPassantCapture) {
+				undo |= UNDO_EN_PASSANT_CAPTURE;
+			}
+		}
 
 		// if the side captured the other side's rook
 		// it might be needed to update the other side's castling right
@@ -843,19 +1591,19 @@ public class Board {
 			final Move oo = Castling.KING_SIDE.getRookMove(side.flip());
 			final Move ooo = Castling.QUEEN_SIDE.getRookMove(side.flip());
 
-			if (move.getTo() == oo.getFrom()) {
+			if (to == oo.getFrom()) {
 				// update the other side's castling right (kingside no longer possible)
 				if (CastlingRight.KING_AND_QUEEN_SIDE == getCastlingRight(side.flip())) {
-					castlingRights.put(side.flip(), CastlingRight.QUEEN_SIDE);
+					setCastlingRight(side.flip(), CastlingRight.QUEEN_SIDE);
 				} else if (CastlingRight.KING_SIDE == getCastlingRight(side.flip())) {
-					castlingRights.put(side.flip(), CastlingRight.NONE);
+					setCastlingRight(side.flip(), CastlingRight.NONE);
 				}
-			} else if (move.getTo() == ooo.getFrom()) {
+			} else if (to == ooo.getFrom()) {
 				// update the other side's castling right (queenside no longer possible)
 				if (CastlingRight.KING_AND_QUEEN_SIDE == getCastlingRight(side.flip())) {
-					castlingRights.put(side.flip(), CastlingRight.KING_SIDE);
+					setCastlingRight(side.flip(), CastlingRight.KING_SIDE);
 				} else if (CastlingRight.QUEEN_SIDE == getCastlingRight(side.flip())) {
-					castlingRights.put(side.flip(), CastlingRight.NONE);
+					setCastlingRight(side.flip(), CastlingRight.NONE);
 				}
 			}
 
@@ -870,24 +1618,29 @@ public class Board {
 		}
 
 		// reset en passant
-		enPassantTarget = null;
-		enPassant = null;
+		if (enPassantTarget != NO_SQUARE) {
+			zobristKey ^= Zobrist.getEnPassantKey(squares[enPassantTarget]);
+		}
+		enPassantTarget = NO_SQUARE;
+		enPassant = NO_SQUARE;
 
 		if (movingPiece.isOfType(PieceType.PAWN)) {
 
 			// compute information about possible en passant in the next immediate move
 			// if the pawn advanced two squares
-			if (Math.abs(move.getTo().getRank().ordinal() - move.getFrom().getRank().ordinal()) == 2) {
+			if (Math.abs(to.getRank().ordinal() - from.getRank().ordinal()) == 2) {
 				Piece otherPawn = Piece.make(side.flip(), PieceType.PAWN);
 				// en passant square would be the destination (to) square if the pawn advanced only one square
-				enPassant = findEnPassant(move.getTo(), side);
+				// (it lies halfway between the from and the to squares)
+				enPassant = (from.ordinal() + to.ordinal()) >>> 1;
 				if (
 					// if the opposite side has any pawns on the side-adjacent (side-neighbour) squares
-					hasPiece(otherPawn, move.getTo().getSideSquares())
+					hasPiece(otherPawn, to.getSideSquares())
 						// TODO: What does verifyNotPinnedPiece check?
-						&& verifyNotPinnedPiece(side, getEnPassant(), move.getTo())
+						&& verifyNotPinnedPiece(side, getEnPassant(), to)
 				) {
-					enPassantTarget = move.getTo();
+					enPassantTarget = to.ordinal();
+					zobristKey ^= Zobrist.getEnPassantKey(to);
 				}
 			}
 
@@ -902,8 +1655,11 @@ public class Board {
 		}
 
 		sideToMove = side.flip();
+		zobristKey ^= Zobrist.getSideKey(Side.BLACK);
 
-		return moveLogEntryBuilder.build();
+		assert verifyZobristKey();
+
+		return undo;
 
 	}
 
@@ -915,16 +1671,21 @@ public class Board {
 		Arrays.fill(bitboardOfSide, 0L);
 		Arrays.fill(bitboardOfPiece, 0L);
 		Arrays.fill(squareToPiece, null);
-		castlingRights.put(Side.WHITE, CastlingRight.NONE);
-		castlingRights.put(Side.BLACK, CastlingRight.NONE);
+		castlingRights = 0;
 
 		sideToMove = Side.WHITE;
-		enPassantTarget = null;
-		enPassant = null;
+		enPassantTarget = NO_SQUARE;
+		enPassant = NO_SQUARE;
 
 		moveCounter = 1;
 		halfMoveCounter = 0;
 
+		zobristKey = 0L;
+
+		checkInfoValid = false;
+		attackedSquaresValid = 0;
+		attackCountsValid = 0;
+
 	}
 
 	/**
@@ -958,48 +1719,248 @@ public class Board {
 	}
 
 	/**
-	 * Checks if there is a stalemate on the board
-	 * (i.e. side-to-move is not in check but has not legal move)
+	 * Counts the legal moves for the current board (without generating them)
 	 *
-	 * @return {@code true} iff there is a stalemate on the board
+	 * @return the number of legal moves
+	 * @see LegalMoveGenerator#countLegalMoves(Board)
 	 */
-	public boolean isStaleMate() {
+	public int countLegalMoves() {
+		return LegalMoveGenerator.countLegalMoves(this);
+	}
 
-		try {
-			if (!isKingAttacked()) {
-				List<Move> l = MoveGenerator.generateLegalMoves(this);
-				if (l.size() == 0) {
-					return true;
-				}
+	/**
+	 * Checks if the side to move has at least one legal move (it stops at the first legal move found)
+	 *
+	 * @return {@code true} iff there is at least one legal move
+	 * @see LegalMoveGenerator#hasAnyLegalMove(Board)
+	 */
+	public boolean hasAnyLegalMove() {
+		return LegalMoveGenerator.hasAnyLegalMove(this);
+	}
+
+	/**
+	 * Gets the mobility of the given side's pieces of the given type
+	 * <p>
+	 * The mobility is the number of the pseudo-legal target squares (pins and checks are not considered),
+	 * it is computed from the attack bitboards using popcounts. Pawns count their pushes and captures
+	 * (without en passant), kings do not count castling.
+	 *
+	 * @param side the side
+	 * @param type the piece type
+	 * @return the number of the target squares of all the pieces
+	 * @see <a href="https://www.chessprogramming.org/Mobility">Mobility on CPW</a>
+	 */
+	public int getMobility(@NotNull Side side, @NotNull PieceType type) {
+
+		long pieces = getBitboard(Piece.make(side, type));
+		long notOwn = ~getBitboard(side);
+		long enemies = getBitboard(side.flip());
+		long occupied = getBitboard();
+
+		int mobility = 0;
+
+		while (pieces != 0L) {
+
+			int sq = Bitboard.bitScanForward(pieces);
+			pieces = Bitboard.removeLSB(pieces);
+
+			long targets = switch (type) {
+				case PAWN -> Bitboard.getPawnMoves(side, squares[sq], occupied)
+					| (Bitboard.getPawnAttacks(side, squares[sq]) & enemies);
+				case KNIGHT -> Bitboard.getKnightAttacks(squares[sq], notOwn);
+				case BISHOP -> Bitboard.getBishopAttacks(occupied, sq) & notOwn;
+				case ROOK -> Bitboard.getRookAttacks(occupied, sq) & notOwn;
+				case QUEEN -> Bitboard.getQueenAttacks(occupied, sq) & notOwn;
+				case KING -> Bitboard.getKingAttacks(squares[sq], notOwn);
+			};
+
+			mobility += Long.bitCount(targets);
+
+		}
+
+		return mobility;
+
+	}
+
+	/**
+	 * Gets the total mobility of the given side (see {@link #getMobility(Side, PieceType)})
+	 *
+	 * @param side the side
+	 * @return the sum of the mobilities of all the piece types
+	 */
+	public int getMobility(@NotNull Side side) {
+		int mobility = 0;
+		for (PieceType type : PieceType.values()) {
+			mobility += getMobility(side, type);
+		}
+		return mobility;
+	}
+
+	/**
+	 * Gets the number of the given pieces on the board
+	 * <p>
+	 * The piece bitboards are updated incrementally by every move,
+	 * so the material count is only a population count (no board scan).
+	 *
+	 * @param piece the piece
+	 * @return the number of the pieces
+	 */
+	public int getPieceCount(@NotNull Piece piece) {
+		return Long.bitCount(bitboardOfPiece[piece.ordinal()]);
+	}
+
+	/**
+	 * Checks if neither side has sufficient material to checkmate
+	 * <p>
+	 * It recognizes the usual dead positions: king against king, king and a single minor piece against king
+	 * and kings with any number of bishops that are all on the squares of the same color.
+	 *
+	 * @return {@code true} iff there is insufficient material on the board
+	 * @see <a href="https://www.chessprogramming.org/Draw_Evaluation">Draw Evaluation on CPW</a>
+	 */
+	public boolean isInsufficientMaterial() {
+
+		for (Side side : Side.values()) {
+			if (
+				getPieceCount(Piece.make(side, PieceType.PAWN)) != 0
+					|| getPieceCount(Piece.make(side, PieceType.ROOK)) != 0
+					|| getPieceCount(Piece.make(side, PieceType.QUEEN)) != 0
+			) {
+				return false;
 			}
-		} catch (Exception e) {
-			throw new RuntimeException(e);
 		}
 
-		return false;
+		long knights = getBitboard(Piece.WHITE_KNIGHT) | getBitboard(Piece.BLACK_KNIGHT);
+		long bishops = getBitboard(Piece.WHITE_BISHOP) | getBitboard(Piece.BLACK_BISHOP);
+
+		if (Long.bitCount(knights | bishops) <= 1) {
+			return true;
+		}
+
+		return knights == 0L
+			&& ((bishops & Bitboard.lightSquaresBB) == 0L || (bishops & Bitboard.darkSquaresBB) == 0L);
 
 	}
 
 	/**
-	 * Checks if there is a checkmate on the board
+	 * Evaluates the sequence of the captures on the target square of the given move
+	 * <p>
+	 * The move is made first and then both sides alternately recapture on its target square,
+	 * each with its least valuable attacker. Each side may stop capturing whenever it is not favorable for it.
+	 * The attackers are recomputed (using {@link #squareAttackedBy(Square, Side, long)}) after each capture
+	 * with the capturing pieces removed from the occupancy, so the sliders that were hidden behind them
+	 * (x-rays) join the sequence. Only the material is counted, the pins and checks are ignored.
+	 * <p>
+	 * It does not change the board and it does not allocate anything.
 	 *
-	 * @return {@code true} iff there is a checkmate on the board
+	 * @param move the move encoded using {@link PackedMove} (usually a capture, any pseudo-legal move is accepted)
+	 * @return the material balance of the sequence in centipawns from the moving side's point of view
+	 * (negative if the move loses material)
+	 * @see <a href="https://www.chessprogramming.org/Static_Exchange_Evaluation">Static Exchange Evaluation on CPW</a>
+	 * @see <a href="https://www.chessprogramming.org/SEE_-_The_Swap_Algorithm">SEE - The Swap Algorithm on CPW</a>
 	 */
-	public boolean isCheckMate() {
+	public int staticExchangeEvaluation(final int move) {
+
+		int from = PackedMove.getFrom(move);
+		int to = PackedMove.getTo(move);
+		Square target = squares[to];
+
+		Piece moving = squareToPiece[from];
+
+		if (moving == null) {
+			throw new IllegalArgumentException("There is no piece on the from square.");
+		}
+
+		long occupied = getBitboard() ^ (1L << from);
+
+		int[] gains = exchangeGains;
+
+		if (PackedMove.isEnPassant(move)) {
+			gains[0] = exchangeValues[PieceType.PAWN.ordinal()];
+			occupied ^= 1L << enPassantTarget;
+		} else {
+			Piece captured = squareToPiece[to];
+			gains[0] = captured != null ? exchangeValues[captured.getPieceType().ordinal()] : 0;
+		}
 
-		try {
-			if (isKingAttacked()) {
-				final List<Move> l = MoveGenerator.generateLegalMoves(this);
-				if (l.size() == 0) {
-					return true;
+		// the value of the piece that stands on the target square (and can be captured next)
+		int onTarget = exchangeValues[moving.getPieceType().ordinal()];
+
+		Piece promotion = PackedMove.getPromotion(move);
+		if (promotion != null) {
+			onTarget = exchangeValues[promotion.getPieceType().ordinal()];
+			gains[0] += onTarget - exchangeValues[PieceType.PAWN.ordinal()];
+		}
+
+		Side side = moving.getPieceSide().flip();
+
+		long attackers = (squareAttackedBy(target, Side.WHITE, occupied) | squareAttackedBy(target, Side.BLACK, occupied))
+			& occupied;
+
+		int depth = 0;
+
+		while (true) {
+
+			long sideAttackers = attackers & bitboardOfSide[side.ordinal()];
+
+			if (sideAttackers == 0L) {
+				break;
+			}
+
+			// the least valuable attacker
+			long attacker = 0L;
+			int attackerType = 0;
+			for (PieceType type : pieceTypes) {
+				long bb = sideAttackers & bitboardOfPiece[Piece.make(side, type).ordinal()];
+				if (bb != 0L) {
+					attacker = bb & -bb;
+					attackerType = type.ordinal();
+					break;
 				}
 			}
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+
+			depth++;
+			// the gain of the side if it captures and the sequence stops afterwards
+			gains[depth] = onTarget - gains[depth - 1];
+
+			onTarget = exchangeValues[attackerType];
+			occupied ^= attacker;
+
+			// the removed attacker might have uncovered a slider behind it
+			attackers = (squareAttackedBy(target, Side.WHITE, occupied) | squareAttackedBy(target, Side.BLACK, occupied))
+				& occupied;
+
+			side = side.flip();
+
 		}
 
-		return false;
+		// each side captures only if it does not make its result worse
+		while (depth > 0) {
+			gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+			depth--;
+		}
+
+		return gains[0];
+
+	}
 
+	/**
+	 * Checks if there is a stalemate on the board
+	 * (i.e. side-to-move is not in check but has not legal move)
+	 *
+	 * @return {@code true} iff there is a stalemate on the board
+	 */
+	public boolean isStaleMate() {
+		return !isKingAttacked() && !hasAnyLegalMove();
+	}
+
+	/**
+	 * Checks if there is a checkmate on the board
+	 *
+	 * @return {@code true} iff there is a checkmate on the board
+	 */
+	public boolean isCheckMate() {
+		return isKingAttacked() && !hasAnyLegalMove();
 	}
 
 	// TODO
@@ -1198,41 +2159,47 @@ public class Board {
 
 		sideToMove = state.toLowerCase().charAt(0) == 'w' ? Side.WHITE : Side.BLACK;
 
+		CastlingRight whiteCastling;
+		CastlingRight blackCastling;
+
 		if (state.contains("KQ")) {
-			castlingRights.put(Side.WHITE, CastlingRight.KING_AND_QUEEN_SIDE);
+			whiteCastling = CastlingRight.KING_AND_QUEEN_SIDE;
 		} else if (state.contains("K")) {
-			castlingRights.put(Side.WHITE, CastlingRight.KING_SIDE);
+			whiteCastling = CastlingRight.KING_SIDE;
 		} else if (state.contains("Q")) {
-			castlingRights.put(Side.WHITE, CastlingRight.QUEEN_SIDE);
+			whiteCastling = CastlingRight.QUEEN_SIDE;
 		} else {
-			castlingRights.put(Side.WHITE, CastlingRight.NONE);
+			whiteCastling = CastlingRight.NONE;
 		}
 
 		if (state.contains("kq")) {
-			castlingRights.put(Side.BLACK, CastlingRight.KING_AND_QUEEN_SIDE);
+			blackCastling = CastlingRight.KING_AND_QUEEN_SIDE;
 		} else if (state.contains("k")) {
-			castlingRights.put(Side.BLACK, CastlingRight.KING_SIDE);
+			blackCastling = CastlingRight.KING_SIDE;
 		} else if (state.contains("q")) {
-			castlingRights.put(Side.BLACK, CastlingRight.QUEEN_SIDE);
+			blackCastling = CastlingRight.QUEEN_SIDE;
 		} else {
-			castlingRights.put(Side.BLACK, CastlingRight.NONE);
+			blackCastling = CastlingRight.NONE;
 		}
 
+		castlingRights = castlingRightToBits[whiteCastling.ordinal()] | (castlingRightToBits[blackCastling.ordinal()] << 2);
+
 		String[] flags = state.split(" ");
 
 		if (flags.length >= 3) {
 			String s = flags[2].toUpperCase().trim();
 			if (!s.equals("-")) {
 				Square ep = Square.valueOf(s);
-				enPassant = ep;
-				enPassantTarget = findEnPassantTarget(ep, sideToMove);
-				if (!(squareAttackedByPieceType(getEnPassant(), getSideToMove(), PieceType.PAWN) != 0 &&
-					verifyNotPinnedPiece(getSideToMove().flip(), getEnPassant(), getEnPassantTarget()))) {
-					enPassantTarget = null;
+				Square target = findEnPassantTarget(ep, sideToMove);
+				enPassant = ep.ordinal();
+				enPassantTarget = NO_SQUARE;
+				if (target != null && squareAttackedByPieceType(ep, getSideToMove(), PieceType.PAWN) != 0 &&
+					verifyNotPinnedPiece(getSideToMove().flip(), ep, target)) {
+					enPassantTarget = target.ordinal();
 				}
 			} else {
-				enPassant = null;
-				enPassantTarget = null;
+				enPassant = NO_SQUARE;
+				enPassantTarget = NO_SQUARE;
 			}
 			if (flags.length >= 4) {
 				halfMoveCounter = Integer.parseInt(flags[3]);
@@ -1242,6 +2209,38 @@ public class Board {
 			}
 		}
 
+		// the pieces keys were already added incrementally by addPiece,
+		// but the rest of the state was set directly, so compute the whole key from scratch
+		zobristKey = computeZobristKey();
+
+	}
+
+	/**
+	 * Checks if this board represents the same position as the given object
+	 * <p>
+	 * Two boards are equal iff they have the same pieces on the same squares, the same side to move,
+	 * the same castling rights and the same en passant target (i.e. the same Zobrist key and state).
+	 * The move counters are NOT compared. The Zobrist key is compared first, so in most cases
+	 * two different positions are told apart using one comparison.
+	 *
+	 * @param o the object to compare with
+	 * @return {@code true} iff the given object is a board with the same position
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		Board board = (Board) o;
+		return zobristKey == board.zobristKey
+			&& sideToMove == board.sideToMove
+			&& enPassantTarget == board.enPassantTarget
+			&& castlingRights == board.castlingRights
+			&& Arrays.equals(bitboardOfPiece, board.bitboardOfPiece);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(zobristKey);
 	}
 
 }
@@ -0,0 +1,64 @@
+package cz.martinendler.chess.engine.board;
+
+import static cz.martinendler.chess.engine.board.Bitboard.*;
+
+/**
+ * Slider attacks computed on the fly for each line (rank, file, diagonal, anti-diagonal)
+ * <p>
+ * It finds the nearest blockers below and above the slider's square on the line
+ * and takes all the bits between them. It needs no tables besides the line masks,
+ * but costs two bit scans per line. It is the original implementation
+ * and it is kept as the reference backend that the other backends are tested against.
+ *
+ * @see <a href="https://www.chessprogramming.org/Obstruction_Difference">Obstruction Difference on CPW</a>
+ */
+public class ObstructionDifferenceSliderAttacks implements SliderAttacks {
+
+	/**
+	 * Gets slider attacks based on the attacks and occupancy mask
+	 *
+	 * @param attacks line attacks (the line of the slider without its square)
+	 * @param mask    all occupied squares
+	 * @param index   index of the square where the attacking piece currently is
+	 * @return the attacks along the given line (including the squares of the first blockers)
+	 */
+	private static long getLineAttacks(long attacks, long mask, int index) {
+
+		long occ = mask & attacks;
+
+		if (occ == 0L) {
+			return attacks;
+		}
+
+		// the blockers below the slider (lowerMask) and above the slider (upperMask),
+		// the nearest ones are the MS1B of the lowerMask and the LS1B of the upperMask,
+		// attacks are then all the line bits between (and including) these two blockers
+		long m = (1L << index) - 1L;
+		long lowerMask = occ & m;
+		long upperMask = occ & ~m;
+		int minor = lowerMask == 0L ? 0 : bitScanReverse(lowerMask);
+		int major = upperMask == 0L ? 63 : bitScanForward(upperMask);
+
+		return bitsBetween(attacks, minor, major);
+
+	}
+
+	@Override
+	public long getBishopAttacks(long occupied, int square) {
+		// bishop is a sliding piece that can move along the diagonals and anti-diagonals
+		return (
+			getLineAttacks(diagA1H8Attacks[square], occupied, square)
+				| getLineAttacks(diagH1A8Attacks[square], occupied, square)
+		);
+	}
+
+	@Override
+	public long getRookAttacks(long occupied, int square) {
+		// rook is a sliding piece that can move along the ranks or files
+		return (
+			getLineAttacks(fileAttacks[square], occupied, square)
+				| getLineAttacks(rankAttacks[square], occupied, square)
+		);
+	}
+
+}
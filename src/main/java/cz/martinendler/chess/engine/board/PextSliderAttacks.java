@@ -0,0 +1,136 @@
+package cz.martinendler.chess.engine.board;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Slider attacks looked up in precomputed tables indexed by parallel bits extraction (PEXT)
+ * <p>
+ * The relevant occupancy bits are compressed into a dense index, so the tables have no gaps
+ * and no magic numbers are needed. {@code Long.compress} (which is compiled to the PEXT instruction
+ * on CPUs that support BMI2) is only available since Java 19. The project targets Java 15,
+ * so it is looked up at runtime and a portable bit-by-bit implementation is used when it is missing.
+ * Without the intrinsic this backend is slower than {@link MagicSliderAttacks}.
+ *
+ * @see <a href="https://www.chessprogramming.org/BMI2#PEXTBitboards">PEXT Bitboards on CPW</a>
+ */
+public class PextSliderAttacks implements SliderAttacks {
+
+	/**
+	 * {@code Long.compress(long, long)} if it is available in the running JVM, {@code null} otherwise
+	 */
+	private static final @Nullable MethodHandle compress = findCompress();
+
+	private final long[] bishopMasks = new long[64];
+	private final int[] bishopOffsets = new int[64];
+	private final long[] bishopTable;
+
+	private final long[] rookMasks = new long[64];
+	private final int[] rookOffsets = new int[64];
+	private final long[] rookTable;
+
+	/**
+	 * Creates a new instance and fills the attack tables
+	 */
+	public PextSliderAttacks() {
+
+		SliderAttacks reference = new ObstructionDifferenceSliderAttacks();
+
+		int bishopSize = 0;
+		int rookSize = 0;
+
+		for (int sq = 0; sq < 64; sq++) {
+			bishopMasks[sq] = MagicSliderAttacks.getBishopRelevantOccupancy(sq);
+			bishopOffsets[sq] = bishopSize;
+			bishopSize += 1 << Long.bitCount(bishopMasks[sq]);
+			rookMasks[sq] = MagicSliderAttacks.getRookRelevantOccupancy(sq);
+			rookOffsets[sq] = rookSize;
+			rookSize += 1 << Long.bitCount(rookMasks[sq]);
+		}
+
+		bishopTable = new long[bishopSize];
+		rookTable = new long[rookSize];
+
+		for (int sq = 0; sq < 64; sq++) {
+
+			long occ = 0L;
+			do {
+				bishopTable[bishopOffsets[sq] + (int) pext(occ, bishopMasks[sq])] = reference.getBishopAttacks(occ, sq);
+				occ = (occ - bishopMasks[sq]) & bishopMasks[sq];
+			} while (occ != 0L);
+
+			occ = 0L;
+			do {
+				rookTable[rookOffsets[sq] + (int) pext(occ, rookMasks[sq])] = reference.getRookAttacks(occ, sq);
+				occ = (occ - rookMasks[sq]) & rookMasks[sq];
+			} while (occ != 0L);
+
+		}
+
+	}
+
+	private static @Nullable MethodHandle findCompress() {
+		try {
+			return MethodHandles.publicLookup().findStatic(
+				Long.class, "compress", MethodType.methodType(long.class, long.class, long.class)
+			);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Checks if the hardware-backed {@code Long.compress} is used
+	 *
+	 * @return {@code true} iff the running JVM provides {@code Long.compress}
+	 */
+	public static boolean isIntrinsicAvailable() {
+		return compress != null;
+	}
+
+	/**
+	 * Parallel bits extraction
+	 * <p>
+	 * Gathers the bits of the value selected by the mask into the contiguous low-order bits of the result.
+	 *
+	 * @param value the value
+	 * @param mask  the mask
+	 * @return the extracted bits
+	 */
+	static long pext(long value, long mask) {
+
+		if (compress != null) {
+			try {
+				return (long) compress.invokeExact(value, mask);
+			} catch (Throwable e) {
+				throw new IllegalStateException("Long.compress failed", e);
+			}
+		}
+
+		long result = 0L;
+
+		for (long bit = 1L; mask != 0L; bit <<= 1) {
+			if ((value & mask & -mask) != 0L) {
+				result |= bit;
+			}
+			mask = Bitboard.removeLSB(mask);
+		}
+
+		return result;
+
+	}
+
+	@Override
+	public long getBishopAttacks(long occupied, int square) {
+		return bishopTable[bishopOffsets[square] + (int) pext(occupied, bishopMasks[square])];
+	}
+
+	@Override
+	public long getRookAttacks(long occupied, int square) {
+		return rookTable[rookOffsets[square] + (int) pext(occupied, rookMasks[square])];
+	}
+
+}
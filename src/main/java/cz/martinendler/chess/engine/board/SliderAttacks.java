@@ -0,0 +1,134 @@
+package cz.martinendler.chess.engine.board;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Supplier;
+
+/**
+ * A strategy for computing the attacks of the sliding pieces (bishops, rooks and queens)
+ * <p>
+ * The backend that is used by {@link Bitboard#getBishopAttacks(long, Square)}
+ * and {@link Bitboard#getRookAttacks(long, Square)} is chosen once at startup
+ * using the {@value SliderAttacks#BACKEND_PROPERTY} system property
+ * (one of {@code reference}, {@code magic}, {@code pext}, defaults to {@code magic}).
+ * For example: {@code -Dchess.sliderAttacks=pext}
+ *
+ * @see <a href="https://www.chessprogramming.org/Sliding_Piece_Attacks">Sliding Piece Attacks on CPW</a>
+ */
+public interface SliderAttacks {
+
+	/**
+	 * The name of the system property that selects the backend
+	 */
+	String BACKEND_PROPERTY = "chess.sliderAttacks";
+
+	/**
+	 * Gets the bishop attacks
+	 *
+	 * @param occupied all occupied squares
+	 * @param square   the index of the square where the bishop currently is
+	 * @return bishop attacks (including the squares of the first blockers)
+	 */
+	long getBishopAttacks(long occupied, int square);
+
+	/**
+	 * Gets the rook attacks
+	 *
+	 * @param occupied all occupied squares
+	 * @param square   the index of the square where the rook currently is
+	 * @return rook attacks (including the squares of the first blockers)
+	 */
+	long getRookAttacks(long occupied, int square);
+
+	/**
+	 * Available slider attacks backends
+	 */
+	enum Backend {
+
+		/**
+		 * Rays computed on the fly, see {@link ObstructionDifferenceSliderAttacks}
+		 */
+		REFERENCE("reference", ObstructionDifferenceSliderAttacks::new),
+
+		/**
+		 * Precomputed fancy-magic tables, see {@link MagicSliderAttacks}
+		 */
+		MAGIC("magic", MagicSliderAttacks::new),
+
+		/**
+		 * Precomputed tables indexed by parallel bits extraction, see {@link PextSliderAttacks}
+		 */
+		PEXT("pext", PextSliderAttacks::new);
+
+		private final @NotNull String name;
+		private final @NotNull Supplier<@NotNull SliderAttacks> factory;
+
+		Backend(@NotNull String name, @NotNull Supplier<@NotNull SliderAttacks> factory) {
+			this.name = name;
+			this.factory = factory;
+		}
+
+		/**
+		 * Gets the name of this backend as used in the {@value SliderAttacks#BACKEND_PROPERTY} system property
+		 *
+		 * @return the name of this backend
+		 */
+		public @NotNull String getName() {
+			return name;
+		}
+
+		/**
+		 * Creates a new instance of this backend
+		 *
+		 * @return a new instance of this backend
+		 */
+		public @NotNull SliderAttacks create() {
+			return factory.get();
+		}
+
+		/**
+		 * Gets backend by its name
+		 *
+		 * @param name the name
+		 * @return {@link Backend} or {@code null} if there is no backend with the given name
+		 * @see Backend#getName()
+		 */
+		public static @Nullable Backend fromName(@NotNull String name) {
+			for (Backend backend : values()) {
+				if (backend.name.equalsIgnoreCase(name)) {
+					return backend;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Gets the backend selected by the {@value SliderAttacks#BACKEND_PROPERTY} system property
+		 *
+		 * @return the selected backend, {@link Backend#MAGIC} if the property is not set
+		 * @throws IllegalArgumentException when the property value is not a valid backend name
+		 */
+		public static @NotNull Backend fromSystemProperty() {
+
+			String name = System.getProperty(BACKEND_PROPERTY);
+
+			if (name == null) {
+				return MAGIC;
+			}
+
+			Backend backend = fromName(name);
+
+			if (backend == null) {
+				throw new IllegalArgumentException(
+					"Invalid value '" + name + "' of the " + BACKEND_PROPERTY + " property"
+				);
+			}
+
+			return backend;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,132 @@
+package cz.martinendler.chess.engine.board;
+
+import cz.martinendler.chess.engine.CastlingRight;
+import cz.martinendler.chess.engine.Side;
+import cz.martinendler.chess.engine.pieces.Piece;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Zobrist hashing keys
+ * <p>
+ * A position key is the XOR of the keys of all its features (pieces on squares, side to move,
+ * castling rights and the file of the en passant target). Thanks to that, the key can be updated
+ * incrementally (a feature is XOR-ed in when it appears and XOR-ed out when it disappears).
+ * <p>
+ * The keys are generated by a fixed-seed generator, so position keys are stable between runs.
+ *
+ * @see <a href="https://www.chessprogramming.org/Zobrist_Hashing">Zobrist Hashing on CPW</a>
+ */
+public class Zobrist {
+
+	/**
+	 * Keys for pieces on squares, indexed by {@code [piece.ordinal()][square.ordinal()]}
+	 */
+	private static final long[][] pieceSquareKeys = new long[Piece.values().length][Square.values().length];
+	/**
+	 * Keys for castling rights, indexed by {@code [side.ordinal()][castlingRight.ordinal()]}
+	 * <p>
+	 * NOTE: The key for {@link CastlingRight#NONE} is {@code 0L}.
+	 */
+	private static final long[][] castlingRightKeys = new long[Side.values().length][CastlingRight.values().length];
+	/**
+	 * Keys for the en passant target file, indexed by {@code file.ordinal()}
+	 */
+	private static final long[] enPassantFileKeys = new long[File.values().length];
+	/**
+	 * Key that is XOR-ed in when {@link Side#BLACK} is to move
+	 */
+	private static final long blackToMoveKey;
+
+	static {
+
+		// SplitMix64
+		// see https://prng.di.unimi.it/splitmix64.c
+		long state = 0x5EED_C0FF_EE15_600DL;
+
+		for (long[] keys : pieceSquareKeys) {
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = splitMix64(state += 0x9E3779B97F4A7C15L);
+			}
+		}
+
+		for (long[] keys : castlingRightKeys) {
+			for (CastlingRight right : CastlingRight.values()) {
+				long key = splitMix64(state += 0x9E3779B97F4A7C15L);
+				keys[right.ordinal()] = right == CastlingRight.NONE ? 0L : key;
+			}
+		}
+
+		for (int i = 0; i < enPassantFileKeys.length; i++) {
+			enPassantFileKeys[i] = splitMix64(state += 0x9E3779B97F4A7C15L);
+		}
+
+		blackToMoveKey = splitMix64(state + 0x9E3779B97F4A7C15L);
+
+	}
+
+	private Zobrist() {
+		// we do not want Zobrist to be instantiable
+	}
+
+	private static long splitMix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Gets key for the given piece on the given square
+	 *
+	 * @param piece  the piece
+	 * @param square the square
+	 * @return the key
+	 */
+	public static long getPieceKey(@NotNull Piece piece, @NotNull Square square) {
+		return pieceSquareKeys[piece.ordinal()][square.ordinal()];
+	}
+
+	/**
+	 * Gets key for the given piece on the given square
+	 *
+	 * @param piece  the piece ordinal
+	 * @param square the square index
+	 * @return the key
+	 */
+	public static long getPieceKey(int piece, int square) {
+		return pieceSquareKeys[piece][square];
+	}
+
+	/**
+	 * Gets key for the given side's castling right
+	 *
+	 * @param side  the side
+	 * @param right the castling right
+	 * @return the key, {@code 0L} for {@link CastlingRight#NONE}
+	 */
+	public static long getCastlingRightKey(@NotNull Side side, @NotNull CastlingRight right) {
+		return castlingRightKeys[side.ordinal()][right.ordinal()];
+	}
+
+	/**
+	 * Gets key for the en passant target on the given square
+	 * <p>
+	 * Only the file matters, the rank is always given by the side to move.
+	 *
+	 * @param enPassantTarget the square of the pawn that can be captured via en passant
+	 * @return the key
+	 */
+	public static long getEnPassantKey(@NotNull Square enPassantTarget) {
+		return enPassantFileKeys[enPassantTarget.getFile().ordinal()];
+	}
+
+	/**
+	 * Gets key for the side to move
+	 *
+	 * @param side the side to move
+	 * @return the key, {@code 0L} for {@link Side#WHITE}
+	 */
+	public static long getSideKey(@NotNull Side side) {
+		return side.isBlack() ? blackToMoveKey : 0L;
+	}
+
+}
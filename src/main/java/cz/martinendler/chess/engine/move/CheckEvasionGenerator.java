@@ -0,0 +1,230 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.Side;
+import cz.martinendler.chess.engine.board.Bitboard;
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import cz.martinendler.chess.engine.pieces.Piece;
+import cz.martinendler.chess.engine.pieces.PieceType;
+import org.jetbrains.annotations.NotNull;
+
+import static cz.martinendler.chess.engine.board.Bitboard.bitScanForward;
+import static cz.martinendler.chess.engine.board.Bitboard.removeLSB;
+
+/**
+ * Generator of the legal moves when the side to move is in check (check evasions)
+ * <p>
+ * Instead of generating the moves of all the pieces and restricting them, it works backwards
+ * from the few squares that can resolve the check:
+ * <ol>
+ *     <li>the king moves to the squares that are not attacked (in double check, nothing else is possible)</li>
+ *     <li>the captures of the checking piece (the pieces that attack its square),
+ *     including an en passant capture of a checking pawn</li>
+ *     <li>the interpositions on the squares between a checking slider and the king
+ *     (the pieces that attack those squares and the pawns that can push there)</li>
+ * </ol>
+ * A pinned piece can never resolve a check (the pin line and the check line meet only at the king),
+ * so the pinned pieces are skipped completely.
+ *
+ * @see <a href="https://www.chessprogramming.org/Check_Evasions">Check Evasions on CPW</a>
+ */
+public class CheckEvasionGenerator {
+
+	private static final Square[] squares = Square.values();
+
+	private CheckEvasionGenerator() {
+		// we do not want CheckEvasionGenerator to be instantiable
+	}
+
+	/**
+	 * Generates the legal moves of the side to move that is in check
+	 * <p>
+	 * If the side to move is not in check (or has no king), no moves are generated.
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generateEvasions(@NotNull Board board, @NotNull IntMoveList moves) {
+
+		Side side = board.getSideToMove();
+
+		long kingBB = board.getBitboard(Piece.make(side, PieceType.KING));
+
+		if (kingBB == 0L) {
+			return;
+		}
+
+		int kingSq = bitScanForward(kingBB);
+
+		long checkers = board.squareAttackedBy(squares[kingSq], side.flip());
+
+		if (checkers == 0L) {
+			return;
+		}
+
+		generateEvasions(board, moves, kingSq, checkers);
+
+	}
+
+	/**
+	 * Generates the legal moves of the side to move that is in check
+	 *
+	 * @param board    the board
+	 * @param moves    the moves
+	 * @param kingSq   the side-to-move's king square index
+	 * @param checkers the pieces that give check (at least one)
+	 */
+	static void generateEvasions(@NotNull Board board, @NotNull IntMoveList moves, int kingSq, long checkers) {
+
+		Side side = board.getSideToMove();
+
+		long occupied = board.getBitboard();
+		long ourPieces = board.getBitboard(side);
+
+		MoveGenerator.addMoves(board, moves, kingSq, LegalMoveGenerator.getSafeKingTargets(board, kingSq, occupied, ourPieces));
+
+		// in double check, only the king can move
+		if (removeLSB(checkers) != 0L) {
+			return;
+		}
+
+		int checkerSq = bitScanForward(checkers);
+
+		// the pieces that can resolve the check (the king has been handled already)
+		long movable = ourPieces & ~LegalMoveGenerator.getPinnedPieces(board, kingSq) & ~(1L << kingSq);
+
+		long pawns = board.getBitboard(Piece.make(side, PieceType.PAWN)) & movable;
+
+		long between = Bitboard.getSquaresBetween(kingSq, checkerSq);
+
+		generateEnPassantEvasions(board, moves, pawns, checkerSq, between);
+
+		// capture the checker
+		long attackers = board.squareAttackedBy(squares[checkerSq], side) & movable;
+
+		while (attackers != 0L) {
+			int sourceIndex = bitScanForward(attackers);
+			attackers = removeLSB(attackers);
+			if ((pawns & (1L << sourceIndex)) != 0L) {
+				MoveGenerator.addPawnMoveWithPromotions(moves, side, sourceIndex, checkerSq, PackedMove.CAPTURE);
+			} else {
+				moves.add(PackedMove.encode(sourceIndex, checkerSq, PackedMove.CAPTURE));
+			}
+		}
+
+		// block the check (only a slider's check can be blocked)
+		while (between != 0L) {
+			int targetIndex = bitScanForward(between);
+			between = removeLSB(between);
+			generateInterpositions(board, moves, targetIndex, movable, pawns);
+		}
+
+	}
+
+	/**
+	 * Generates the en passant captures that resolve the check
+	 * <p>
+	 * An en passant capture can capture the checking pawn or block a check on the en passant square.
+	 * It can also uncover another check (along the rank of the two pawns), so it is verified
+	 * using {@link Board#isMoveLegal(int)}.
+	 *
+	 * @param board     the board
+	 * @param moves     the moves
+	 * @param pawns     the side-to-move's pawns that can move
+	 * @param checkerSq the checker square index
+	 * @param between   the squares between the checker and the king
+	 */
+	private static void generateEnPassantEvasions(
+		@NotNull Board board,
+		@NotNull IntMoveList moves,
+		long pawns,
+		int checkerSq,
+		long between
+	) {
+
+		Square epTarget = board.getEnPassantTarget();
+		Square ep = board.getEnPassant();
+
+		if (epTarget == null || ep == null) {
+			return;
+		}
+
+		if (epTarget.ordinal() != checkerSq && (between & ep.getBitboard()) == 0L) {
+			return;
+		}
+
+		long attackers = Bitboard.getPawnAttacks(board.getSideToMove().flip(), ep) & pawns;
+
+		while (attackers != 0L) {
+			int sourceIndex = bitScanForward(attackers);
+			attackers = removeLSB(attackers);
+			int move = PackedMove.encode(sourceIndex, ep.ordinal(), PackedMove.CAPTURE | PackedMove.EN_PASSANT);
+			if (board.isMoveLegal(move)) {
+				moves.add(move);
+			}
+		}
+
+	}
+
+	/**
+	 * Generates the moves to the given empty square (that blocks the check)
+	 *
+	 * @param board    the board
+	 * @param moves    the moves
+	 * @param targetSq the target square index
+	 * @param movable  the side-to-move's pieces that can move
+	 * @param pawns    the side-to-move's pawns that can move
+	 */
+	private static void generateInterpositions(
+		@NotNull Board board,
+		@NotNull IntMoveList moves,
+		int targetSq,
+		long movable,
+		long pawns
+	) {
+
+		Side side = board.getSideToMove();
+
+		long occupied = board.getBitboard();
+		long queens = board.getBitboard(Piece.make(side, PieceType.QUEEN));
+
+		long blockers = (
+			Bitboard.getKnightAttacks(squares[targetSq], board.getBitboard(Piece.make(side, PieceType.KNIGHT)))
+				| Bitboard.getBishopAttacks(occupied, targetSq) & (board.getBitboard(Piece.make(side, PieceType.BISHOP)) | queens)
+				| Bitboard.getRookAttacks(occupied, targetSq) & (board.getBitboard(Piece.make(side, PieceType.ROOK)) | queens)
+		) & movable;
+
+		while (blockers != 0L) {
+			int sourceIndex = bitScanForward(blockers);
+			blockers = removeLSB(blockers);
+			moves.add(PackedMove.encode(sourceIndex, targetSq, 0));
+		}
+
+		// the pawn pushes (the target square is empty)
+		int forward = side.isWhite() ? 8 : -8;
+		int singleSq = targetSq - forward;
+
+		if (singleSq < 0 || singleSq >= 64) {
+			return;
+		}
+
+		if ((pawns & (1L << singleSq)) != 0L) {
+			MoveGenerator.addPawnMoveWithPromotions(moves, side, singleSq, targetSq, 0);
+			return;
+		}
+
+		// the double push to the 4th (5th) rank over an empty square
+		long doublePushRank = side.isWhite() ? 0x00000000FF000000L : 0x000000FF00000000L;
+		int doubleSq = singleSq - forward;
+
+		if (
+			(doublePushRank & (1L << targetSq)) != 0L
+				&& (occupied & (1L << singleSq)) == 0L
+				&& (pawns & (1L << doubleSq)) != 0L
+		) {
+			moves.add(PackedMove.encode(doubleSq, targetSq, PackedMove.DOUBLE_PUSH));
+		}
+
+	}
+
+}
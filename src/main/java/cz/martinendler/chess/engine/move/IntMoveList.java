@@ -0,0 +1,152 @@
+package cz.martinendler.chess.engine.move;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A reusable list of moves encoded using {@link PackedMove}
+ * <p>
+ * It is backed by a primitive {@code int[]} array that is allocated once (and grows only if needed),
+ * so it can be cleared and filled again without creating any objects.
+ */
+public class IntMoveList {
+
+	/**
+	 * The maximum number of legal moves in any chess position is 218,
+	 * the capacity of 256 is enough for almost all pseudo-legal move lists too.
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private int[] moves;
+	private int size;
+
+	/**
+	 * Creates a new empty list with {@link IntMoveList#DEFAULT_CAPACITY}
+	 */
+	public IntMoveList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new empty list with the given initial capacity
+	 *
+	 * @param capacity the initial capacity
+	 */
+	public IntMoveList(int capacity) {
+		moves = new int[capacity];
+		size = 0;
+	}
+
+	/**
+	 * Appends the given move to the end of this list
+	 *
+	 * @param move the packed move
+	 */
+	public void add(int move) {
+		if (size == moves.length) {
+			moves = Arrays.copyOf(moves, moves.length * 2);
+		}
+		moves[size++] = move;
+	}
+
+	/**
+	 * Gets the move at the given index
+	 *
+	 * @param index the index, must be in range {@code [0, size())}
+	 * @return the packed move
+	 */
+	public int get(int index) {
+		return moves[index];
+	}
+
+	/**
+	 * Replaces the move at the given index
+	 *
+	 * @param index the index, must be in range {@code [0, size())}
+	 * @param move  the packed move
+	 */
+	public void set(int index, int move) {
+		moves[index] = move;
+	}
+
+	/**
+	 * Swaps the moves at the given indexes
+	 *
+	 * @param i the first index
+	 * @param j the second index
+	 */
+	public void swap(int i, int j) {
+		int tmp = moves[i];
+		moves[i] = moves[j];
+		moves[j] = tmp;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all the moves (the backing array is kept)
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Shrinks this list to the given size (removes the moves at the end)
+	 *
+	 * @param size the new size, must be in range {@code [0, size()]}
+	 */
+	public void truncate(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Checks if this list contains the given move (the flags are ignored)
+	 *
+	 * @param move the packed move
+	 * @return {@code true} iff this list contains a move with the same {@link PackedMove#getKey(int)}
+	 */
+	public boolean contains(int move) {
+		int key = PackedMove.getKey(move);
+		for (int i = 0; i < size; i++) {
+			if (PackedMove.getKey(moves[i]) == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Converts this list to a list of {@link Move} objects (in the same order)
+	 *
+	 * @return a new list of moves
+	 */
+	public @NotNull List<Move> toMoveList() {
+		List<Move> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(PackedMove.toMove(moves[i]));
+		}
+		return list;
+	}
+
+	@Override
+	public @NotNull String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(PackedMove.toDebugString(moves[i]));
+		}
+		return sb.append("]").toString();
+	}
+
+}
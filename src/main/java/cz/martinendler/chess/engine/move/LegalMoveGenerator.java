@@ -0,0 +1,448 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.Castling;
+import cz.martinendler.chess.engine.Side;
+import cz.martinendler.chess.engine.board.Bitboard;
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import cz.martinendler.chess.engine.pieces.Piece;
+import cz.martinendler.chess.engine.pieces.PieceType;
+import org.jetbrains.annotations.NotNull;
+
+import static cz.martinendler.chess.engine.board.Bitboard.bitScanForward;
+import static cz.martinendler.chess.engine.board.Bitboard.removeLSB;
+
+/**
+ * Generator of legal moves that does not need to verify each pseudo-legal move
+ * <p>
+ * The checkers and the pinned pieces are computed once per position. Then:
+ * <ul>
+ *     <li>in check, the moves are generated by {@link CheckEvasionGenerator}</li>
+ *     <li>a pinned piece can only move along the line through its king and itself</li>
+ *     <li>the king can only move to squares that are not attacked (the king itself is removed
+ *     from the occupancy, so it cannot step back along a slider's line)</li>
+ *     <li>castling is generated only when not in check, the squares the king passes through
+ *     must not be attacked (see {@link MoveGenerator#generateCastlingMove(Board, IntMoveList, Castling)})</li>
+ *     <li>en passant captures (that may uncover a check along the rank of the two pawns)
+ *     are rare, so they are verified using {@link Board#isMoveLegal(int)}</li>
+ * </ul>
+ * The moves are generated in the same order as by {@link MoveGenerator#generateLegalMovesByFiltering(Board, IntMoveList)}
+ * (except for the check evasions, they start with the king moves).
+ * <p>
+ * The moves can be also counted without generating them (see {@link #countLegalMoves(Board)}),
+ * in that case, the check is handled using a check mask (the checker and the squares between it and the king)
+ * that restricts the targets of the other pieces.
+ *
+ * @see <a href="https://www.chessprogramming.org/Move_Generation#Legal">Legal Move Generation on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Checks_and_Pinned_Pieces_(Bitboards)">Checks and Pinned Pieces on CPW</a>
+ */
+public class LegalMoveGenerator {
+
+	private static final Square[] squares = Square.values();
+
+	private LegalMoveGenerator() {
+		// we do not want LegalMoveGenerator to be instantiable
+	}
+
+	/**
+	 * Gets the side-to-move's pieces that are pinned to their king
+	 *
+	 * @param board  the board
+	 * @param kingSq the side-to-move's king square index
+	 * @return the pinned pieces
+	 */
+	public static long getPinnedPieces(@NotNull Board board, int kingSq) {
+
+		Side side = board.getSideToMove();
+		Side other = side.flip();
+
+		long occupied = board.getBitboard();
+		long theirPieces = board.getBitboard(other);
+		long theirQueens = board.getBitboard(Piece.make(other, PieceType.QUEEN));
+
+		// the other side's sliders that would attack the king if there were none of the side's pieces
+		long snipers = (
+			Bitboard.getRookAttacks(theirPieces, kingSq)
+				& (board.getBitboard(Piece.make(other, PieceType.ROOK)) | theirQueens)
+		) | (
+			Bitboard.getBishopAttacks(theirPieces, kingSq)
+				& (board.getBitboard(Piece.make(other, PieceType.BISHOP)) | theirQueens)
+		);
+
+		long pinned = 0L;
+
+		while (snipers != 0L) {
+			int sniperSq = bitScanForward(snipers);
+			snipers = removeLSB(snipers);
+			long blockers = Bitboard.getSquaresBetween(kingSq, sniperSq) & occupied;
+			// exactly one piece between (it must be the side's piece as the other side's pieces stop the attacks)
+			if (blockers != 0L && removeLSB(blockers) == 0L) {
+				pinned |= blockers;
+			}
+		}
+
+		return pinned;
+
+	}
+
+	/**
+	 * Generates legal moves (including captures)
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generateLegalMoves(@NotNull Board board, @NotNull IntMoveList moves) {
+
+		Side side = board.getSideToMove();
+		Side other = side.flip();
+
+		long kingBB = board.getBitboard(Piece.make(side, PieceType.KING));
+
+		if (kingBB == 0L) {
+			// no king, no checks and pins (it is not a valid chess position,
+			// but let the reference implementation decide what to do)
+			MoveGenerator.generateLegalMovesByFiltering(board, moves);
+			return;
+		}
+
+		int kingSq = bitScanForward(kingBB);
+
+		long occupied = board.getBitboard();
+		long ourPieces = board.getBitboard(side);
+
+		long checkers = board.squareAttackedBy(squares[kingSq], other);
+
+		if (checkers != 0L) {
+			CheckEvasionGenerator.generateEvasions(board, moves, kingSq, checkers);
+			return;
+		}
+
+		long pinned = getPinnedPieces(board, kingSq);
+
+		// the squares where the other pieces can move
+		long targets = ~ourPieces;
+
+		MoveGenerator.generatePawnCaptures(board, moves, board.getBitboard(other), pinned, kingSq, true);
+		MoveGenerator.generatePawnMoves(board, moves, targets, pinned, kingSq);
+		generatePieceMoves(board, moves, PieceType.KNIGHT, kingSq, pinned, targets);
+		generatePieceMoves(board, moves, PieceType.BISHOP, kingSq, pinned, targets);
+		generatePieceMoves(board, moves, PieceType.ROOK, kingSq, pinned, targets);
+		generatePieceMoves(board, moves, PieceType.QUEEN, kingSq, pinned, targets);
+
+		generateKingMoves(board, moves, kingSq, occupied, ourPieces);
+
+		MoveGenerator.generateCastlingMove(board, moves, Castling.KING_SIDE);
+		MoveGenerator.generateCastlingMove(board, moves, Castling.QUEEN_SIDE);
+
+	}
+
+	/**
+	 * Counts the legal moves without generating them
+	 * <p>
+	 * The targets are computed in the same way as by {@link #generateLegalMoves(Board, IntMoveList)},
+	 * but they are only counted using popcounts (a promotion counts as four moves).
+	 *
+	 * @param board the board
+	 * @return the number of legal moves
+	 */
+	public static int countLegalMoves(@NotNull Board board) {
+		return count(board, false);
+	}
+
+	/**
+	 * Checks if the side to move has at least one legal move
+	 * <p>
+	 * It stops as soon as a legal move is found. The king moves are checked first,
+	 * because when there is no king move, there is often no legal move at all (checkmate).
+	 *
+	 * @param board the board
+	 * @return {@code true} iff there is at least one legal move
+	 */
+	public static boolean hasAnyLegalMove(@NotNull Board board) {
+		return count(board, true) > 0;
+	}
+
+	/**
+	 * Counts the legal moves
+	 *
+	 * @param board the board
+	 * @param any   if {@code true}, it may return any positive number as soon as a legal move is found
+	 * @return the number of legal moves
+	 */
+	private static int count(@NotNull Board board, boolean any) {
+
+		Side side = board.getSideToMove();
+		Side other = side.flip();
+
+		long kingBB = board.getBitboard(Piece.make(side, PieceType.KING));
+
+		if (kingBB == 0L) {
+			// see generateLegalMoves
+			IntMoveList moves = new IntMoveList();
+			MoveGenerator.generateLegalMovesByFiltering(board, moves);
+			return moves.size();
+		}
+
+		int kingSq = bitScanForward(kingBB);
+
+		long occupied = board.getBitboard();
+		long ourPieces = board.getBitboard(side);
+
+		long checkers = board.squareAttackedBy(squares[kingSq], other);
+
+		int count = countKingMoves(board, kingSq, occupied, ourPieces);
+
+		// in double check, only the king can move
+		if ((any && count > 0) || (checkers != 0L && removeLSB(checkers) != 0L)) {
+			return count;
+		}
+
+		long pinned = getPinnedPieces(board, kingSq);
+
+		long targets = ~ourPieces;
+		if (checkers != 0L) {
+			targets &= checkers | Bitboard.getSquaresBetween(kingSq, bitScanForward(checkers));
+		}
+
+		count += countPieceMoves(board, PieceType.KNIGHT, kingSq, pinned, targets);
+		count += countPieceMoves(board, PieceType.BISHOP, kingSq, pinned, targets);
+		count += countPieceMoves(board, PieceType.ROOK, kingSq, pinned, targets);
+		count += countPieceMoves(board, PieceType.QUEEN, kingSq, pinned, targets);
+
+		if (any && count > 0) {
+			return count;
+		}
+
+		count += countPawnMoves(board, kingSq, pinned, targets);
+
+		if (checkers == 0L) {
+			if (MoveGenerator.isCastlingPossible(board, Castling.KING_SIDE)) {
+				count++;
+			}
+			if (MoveGenerator.isCastlingPossible(board, Castling.QUEEN_SIDE)) {
+				count++;
+			}
+		}
+
+		return count;
+
+	}
+
+	/**
+	 * Counts the pawn moves to the given targets, a move to the promotion rank counts as four moves
+	 *
+	 * @param targets       the target squares
+	 * @param promotionRank the promotion rank
+	 * @return the number of moves
+	 */
+	private static int countPawnTargets(long targets, long promotionRank) {
+		return Long.bitCount(targets & ~promotionRank) + 4 * Long.bitCount(targets & promotionRank);
+	}
+
+	private static int countPawnMoves(@NotNull Board board, int kingSq, long pinned, long targets) {
+
+		Side side = board.getSideToMove();
+
+		long pawns = board.getBitboard(Piece.make(side, PieceType.PAWN));
+		long occupied = board.getBitboard();
+		long empty = ~occupied;
+		long enemies = board.getBitboard(side.flip()) & targets;
+
+		long promotionRank = side.isWhite() ? MoveGenerator.RANK_8 : MoveGenerator.RANK_1;
+		int forward = side.isWhite() ? 8 : -8;
+		int left = side.isWhite() ? 7 : -9;
+		int right = side.isWhite() ? 9 : -7;
+
+		// the pawns that are not pinned (set-wise)
+		long free = pawns & ~pinned;
+
+		long singlePushes = MoveGenerator.shift(free, forward) & empty;
+		long doublePushes = MoveGenerator.shift(
+			singlePushes & (side.isWhite() ? MoveGenerator.RANK_3 : MoveGenerator.RANK_6),
+			forward
+		) & empty;
+
+		int count = countPawnTargets(singlePushes & targets, promotionRank)
+			+ Long.bitCount(doublePushes & targets)
+			+ countPawnTargets(MoveGenerator.shift(free & ~MoveGenerator.FILE_A, left) & enemies, promotionRank)
+			+ countPawnTargets(MoveGenerator.shift(free & ~MoveGenerator.FILE_H, right) & enemies, promotionRank);
+
+		// the pinned pawns can only move along the pin line
+		long pinnedPawns = pawns & pinned;
+
+		while (pinnedPawns != 0L) {
+
+			int sourceIndex = bitScanForward(pinnedPawns);
+			pinnedPawns = removeLSB(pinnedPawns);
+
+			long line = Bitboard.getLine(kingSq, sourceIndex);
+
+			count += countPawnTargets(
+				(Bitboard.getPawnMoves(side, squares[sourceIndex], occupied) & targets
+					| Bitboard.getPawnAttacks(side, squares[sourceIndex]) & enemies) & line,
+				promotionRank
+			);
+
+		}
+
+		// en passant captures are verified using Board.isMoveLegal(int) (see generateLegalMoves)
+		if (board.getEnPassantTarget() != null && board.getEnPassant() != null) {
+
+			int epSq = board.getEnPassant().ordinal();
+
+			// the pawns that attack the en passant square
+			long attackers = Bitboard.getPawnAttacks(side.flip(), board.getEnPassant()) & pawns;
+
+			while (attackers != 0L) {
+				int sourceIndex = bitScanForward(attackers);
+				attackers = removeLSB(attackers);
+				if (board.isMoveLegal(PackedMove.encode(sourceIndex, epSq, PackedMove.CAPTURE | PackedMove.EN_PASSANT))) {
+					count++;
+				}
+			}
+
+		}
+
+		return count;
+
+	}
+
+	private static int countPieceMoves(
+		@NotNull Board board,
+		@NotNull PieceType type,
+		int kingSq,
+		long pinned,
+		long targets
+	) {
+
+		long pieces = board.getBitboard(Piece.make(board.getSideToMove(), type));
+
+		if (type == PieceType.KNIGHT) {
+			// a pinned knight can never move
+			pieces &= ~pinned;
+		}
+
+		long occupied = board.getBitboard();
+
+		int count = 0;
+
+		while (pieces != 0L) {
+
+			int sourceIndex = bitScanForward(pieces);
+			pieces = removeLSB(pieces);
+
+			long attacks = switch (type) {
+				case KNIGHT -> Bitboard.getKnightAttacks(squares[sourceIndex], targets);
+				case BISHOP -> Bitboard.getBishopAttacks(occupied, sourceIndex);
+				case ROOK -> Bitboard.getRookAttacks(occupied, sourceIndex);
+				case QUEEN -> Bitboard.getQueenAttacks(occupied, sourceIndex);
+				default -> throw new IllegalArgumentException("Unsupported piece type " + type);
+			};
+
+			count += Long.bitCount(attacks & pinMask(sourceIndex, kingSq, pinned, targets));
+
+		}
+
+		return count;
+
+	}
+
+	private static int countKingMoves(@NotNull Board board, int kingSq, long occupied, long ourPieces) {
+		return Long.bitCount(getSafeKingTargets(board, kingSq, occupied, ourPieces));
+	}
+
+	/**
+	 * Restricts the targets of a pinned piece to the line through its king and itself
+	 *
+	 * @param sourceSq the piece's square index
+	 * @param kingSq   the king's square index
+	 * @param pinned   the pinned pieces
+	 * @param targets  the targets
+	 * @return the allowed targets
+	 */
+	private static long pinMask(int sourceSq, int kingSq, long pinned, long targets) {
+		return (pinned & (1L << sourceSq)) != 0L ? targets & Bitboard.getLine(kingSq, sourceSq) : targets;
+	}
+
+	private static void generatePieceMoves(
+		@NotNull Board board,
+		@NotNull IntMoveList moves,
+		@NotNull PieceType type,
+		int kingSq,
+		long pinned,
+		long targets
+	) {
+
+		long pieces = board.getBitboard(Piece.make(board.getSideToMove(), type));
+
+		if (type == PieceType.KNIGHT) {
+			// a pinned knight can never move
+			pieces &= ~pinned;
+		}
+
+		long occupied = board.getBitboard();
+
+		while (pieces != 0L) {
+
+			int sourceIndex = bitScanForward(pieces);
+			pieces = removeLSB(pieces);
+
+			long attacks = switch (type) {
+				case KNIGHT -> Bitboard.getKnightAttacks(squares[sourceIndex], targets);
+				case BISHOP -> Bitboard.getBishopAttacks(occupied, sourceIndex);
+				case ROOK -> Bitboard.getRookAttacks(occupied, sourceIndex);
+				case QUEEN -> Bitboard.getQueenAttacks(occupied, sourceIndex);
+				default -> throw new IllegalArgumentException("Unsupported piece type " + type);
+			};
+
+			MoveGenerator.addMoves(board, moves, sourceIndex, attacks & pinMask(sourceIndex, kingSq, pinned, targets));
+
+		}
+
+	}
+
+	private static void generateKingMoves(
+		@NotNull Board board,
+		@NotNull IntMoveList moves,
+		int kingSq,
+		long occupied,
+		long ourPieces
+	) {
+
+		MoveGenerator.addMoves(board, moves, kingSq, getSafeKingTargets(board, kingSq, occupied, ourPieces));
+
+	}
+
+	/**
+	 * Gets the squares where the side-to-move's king can legally move (without castling)
+	 *
+	 * @param board     the board
+	 * @param kingSq    the king square index
+	 * @param occupied  all the pieces
+	 * @param ourPieces the side-to-move's pieces
+	 * @return the safe target squares
+	 */
+	static long getSafeKingTargets(@NotNull Board board, int kingSq, long occupied, long ourPieces) {
+
+		Side other = board.getSideToMove().flip();
+
+		long attacks = Bitboard.getKingAttacks(squares[kingSq], ~ourPieces);
+
+		// the king must not be able to step back along the line of a slider that attacks it
+		long occupiedWithoutKing = occupied ^ (1L << kingSq);
+
+		long safe = 0L;
+
+		while (attacks != 0L) {
+			int targetIndex = bitScanForward(attacks);
+			attacks = removeLSB(attacks);
+			if (board.squareAttackedBy(squares[targetIndex], other, occupiedWithoutKing) == 0L) {
+				safe |= 1L << targetIndex;
+			}
+		}
+
+		return safe;
+
+	}
+
+}
@@ -9,7 +9,6 @@ import cz.martinendler.chess.engine.pieces.Piece;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.text.MessageFormat;
 import java.util.Objects;
 
 /**
@@ -202,10 +201,8 @@ public class Move {
 	 * @return debug string
 	 */
 	public @NotNull String toDebugString() {
-		return MessageFormat.format(
-			"{0} -> {1}{2}",
-			from.getNotation(), to.getNotation(), promotion != null ? " " + promotion.name() : ""
-		);
+		// plain concatenation (MessageFormat parses the pattern on every call)
+		return from.getNotation() + " -> " + to.getNotation() + (promotion != null ? " " + promotion.name() : "");
 	}
 
 	@Override
@@ -4,13 +4,11 @@ import cz.martinendler.chess.engine.Castling;
 import cz.martinendler.chess.engine.Side;
 import cz.martinendler.chess.engine.board.Bitboard;
 import cz.martinendler.chess.engine.board.Board;
-import cz.martinendler.chess.engine.board.Rank;
 import cz.martinendler.chess.engine.board.Square;
 import cz.martinendler.chess.engine.pieces.Piece;
 import cz.martinendler.chess.engine.pieces.PieceType;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.LinkedList;
 import java.util.List;
 
 import static cz.martinendler.chess.engine.board.Bitboard.bitScanForward;
@@ -18,36 +16,225 @@ import static cz.martinendler.chess.engine.board.Bitboard.removeLSB;
 
 /**
  * Generator of chess moves
+ * <p>
+ * The moves are generated as {@link PackedMove packed moves} into a reusable {@link IntMoveList}
+ * without creating any objects. The overloads that take a {@code List<Move>}
+ * are kept for the API boundaries (e.g. {@link cz.martinendler.chess.engine.Game}),
+ * they convert the generated packed moves to {@link Move} objects.
  */
 public class MoveGenerator {
 
+	static final long FILE_A = 0x0101010101010101L;
+	static final long FILE_H = 0x8080808080808080L;
+	static final long RANK_1 = 0x00000000000000FFL;
+	static final long RANK_3 = 0x0000000000FF0000L;
+	static final long RANK_6 = 0x0000FF0000000000L;
+	static final long RANK_8 = 0xFF00000000000000L;
+
 	private MoveGenerator() {
 		// we do not want MoveGenerator to be instantiable
 	}
 
 	/**
-	 * Generates pawn captures
+	 * Appends the given packed moves as {@link Move} objects to the given list
+	 *
+	 * @param moves       the moves
+	 * @param packedMoves the packed moves
+	 */
+	private static void addMoves(@NotNull List<Move> moves, @NotNull IntMoveList packedMoves) {
+		for (int i = 0; i < packedMoves.size(); i++) {
+			moves.add(PackedMove.toMove(packedMoves.get(i)));
+		}
+	}
+
+	/**
+	 * Adds moves from the given source square to all the given target squares
+	 *
+	 * @param board    the board
+	 * @param moves    the moves
+	 * @param sourceSq the source square index
+	 * @param targets  the target squares
+	 */
+	static void addMoves(@NotNull Board board, @NotNull IntMoveList moves, int sourceSq, long targets) {
+
+		long captures = board.getBitboard(board.getSideToMove().flip());
+
+		while (targets != 0L) {
+			int targetSq = bitScanForward(targets);
+			targets = removeLSB(targets);
+			moves.add(PackedMove.encode(
+				sourceSq,
+				targetSq,
+				(captures & (1L << targetSq)) != 0L ? PackedMove.CAPTURE : 0
+			));
+		}
+
+	}
+
+	/**
+	 * Generates pawn captures (including en passant captures and capture promotions)
+	 * <p>
+	 * The captures are generated set-wise, see {@link #generatePawnCaptures(Board, IntMoveList, long, long, int, boolean)}.
 	 *
 	 * @param board the board
 	 * @param moves the moves
 	 */
-	public static void generatePawnCaptures(@NotNull Board board, @NotNull List<Move> moves) {
+	public static void generatePawnCaptures(@NotNull Board board, @NotNull IntMoveList moves) {
+		generatePawnCaptures(board, moves, board.getBitboard(board.getSideToMove().flip()), 0L, 0, false);
+	}
+
+	/**
+	 * Generates pawn captures set-wise
+	 * <p>
+	 * The whole pawn bitboard is shifted to get all the captures to the left (towards the A file)
+	 * and then all the captures to the right (towards the H file). The moves are emitted by iterating
+	 * over the target squares (the source square is computed from the target square and the direction),
+	 * so the moves are ordered by the direction and then by the target square.
+	 *
+	 * @param board            the board
+	 * @param moves            the moves
+	 * @param targets          the allowed target squares (it does not restrict the en passant captures)
+	 * @param pinned           the pinned pawns (they can only capture along the line through their king)
+	 * @param kingSq           the side-to-move's king square index (used only if {@code pinned != 0})
+	 * @param verifyEnPassant  if {@code true}, the en passant captures are added only if they are legal
+	 * @see <a href="https://www.chessprogramming.org/Pawn_Attacks_(Bitboards)">Pawn Attacks (Bitboards) on CPW</a>
+	 */
+	static void generatePawnCaptures(
+		@NotNull Board board,
+		@NotNull IntMoveList moves,
+		long targets,
+		long pinned,
+		int kingSq,
+		boolean verifyEnPassant
+	) {
+
+		Side side = board.getSideToMove();
+
+		long pawns = board.getBitboard(Piece.make(side, PieceType.PAWN));
+
+		// the en passant square (only if the en passant capture is really possible)
+		long ep = board.getEnPassantTarget() != null && board.getEnPassant() != null
+			? board.getEnPassant().getBitboard()
+			: 0L;
+
+		int left = side.isWhite() ? 7 : -9;
+		int right = side.isWhite() ? 9 : -7;
+
+		addPawnCaptures(board, moves, shift(pawns & ~FILE_A, left), left, targets, ep, pinned, kingSq, verifyEnPassant);
+		addPawnCaptures(board, moves, shift(pawns & ~FILE_H, right), right, targets, ep, pinned, kingSq, verifyEnPassant);
+
+	}
+
+	/**
+	 * Adds pawn captures to the given attacked squares
+	 *
+	 * @param board           the board
+	 * @param moves           the moves
+	 * @param attacks         the squares attacked by the pawns in the given direction
+	 * @param delta           the direction ({@code target - source})
+	 * @param targets         the allowed target squares
+	 * @param ep              the en passant square (or {@code 0})
+	 * @param pinned          the pinned pawns
+	 * @param kingSq          the king square index
+	 * @param verifyEnPassant if {@code true}, the en passant captures are added only if they are legal
+	 */
+	private static void addPawnCaptures(
+		@NotNull Board board,
+		@NotNull IntMoveList moves,
+		long attacks,
+		int delta,
+		long targets,
+		long ep,
+		long pinned,
+		int kingSq,
+		boolean verifyEnPassant
+	) {
+
+		Side side = board.getSideToMove();
+
+		long bb = attacks & (targets | ep);
+
+		while (bb != 0L) {
+
+			int targetIndex = bitScanForward(bb);
+			bb = removeLSB(bb);
+
+			int sourceIndex = targetIndex - delta;
+
+			if ((ep & (1L << targetIndex)) != 0L) {
+				int move = PackedMove.encode(sourceIndex, targetIndex, PackedMove.CAPTURE | PackedMove.EN_PASSANT);
+				// en passant captures are verified on the position after the move
+				// (they can resolve a check by a pawn that is not on the target square
+				// and they can uncover a check along the rank of the two pawns)
+				if (!verifyEnPassant || board.isMoveLegal(move)) {
+					moves.add(move);
+				}
+				continue;
+			}
+
+			if (isPinnedAway(sourceIndex, targetIndex, pinned, kingSq)) {
+				continue;
+			}
+
+			addPawnMoveWithPromotions(moves, side, sourceIndex, targetIndex, PackedMove.CAPTURE);
+
+		}
+
+	}
+
+	/**
+	 * Checks if the move of a pinned piece leaves the line through its king
+	 *
+	 * @param sourceSq the source square index
+	 * @param targetSq the target square index
+	 * @param pinned   the pinned pieces
+	 * @param kingSq   the king square index
+	 * @return {@code true} iff the piece is pinned and the target is not on the pin line
+	 */
+	private static boolean isPinnedAway(int sourceSq, int targetSq, long pinned, int kingSq) {
+		return (pinned & (1L << sourceSq)) != 0L && (Bitboard.getLine(kingSq, sourceSq) & (1L << targetSq)) == 0L;
+	}
+
+	/**
+	 * Shifts the given bitboard by the given number of squares
+	 *
+	 * @param bb    the bitboard
+	 * @param delta the number of squares (positive towards the 8th rank, negative towards the 1st rank)
+	 * @return the shifted bitboard
+	 */
+	static long shift(long bb, int delta) {
+		return delta > 0 ? bb << delta : bb >>> -delta;
+	}
+
+	/**
+	 * Generates pawn captures one pawn at a time
+	 * <p>
+	 * It generates the same moves as {@link #generatePawnCaptures(Board, IntMoveList)} (in a different order),
+	 * it is kept as a reference implementation.
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generatePawnCapturesPerSquare(@NotNull Board board, @NotNull IntMoveList moves) {
 
 		Side side = board.getSideToMove();
 
 		long pieces = board.getBitboard(Piece.make(side, PieceType.PAWN));
 
+		// the en passant square (only if the en passant capture is really possible)
+		long ep = board.getEnPassantTarget() != null && board.getEnPassant() != null
+			? board.getEnPassant().getBitboard()
+			: 0L;
+
 		// iterate trough all side-to-move's pawn pieces on the board
 		while (pieces != 0L) {
 
 			int sourceIndex = bitScanForward(pieces);
 			pieces = removeLSB(pieces);
 
-			Square sourceSq = Square.fromIndex(sourceIndex);
-
 			long attacks = Bitboard.getPawnCaptures(
 				side,
-				sourceSq,
+				Square.fromIndex(sourceIndex),
 				board.getBitboard(),
 				board.getEnPassantTarget()
 			) & ~board.getBitboard(side);
@@ -58,21 +245,114 @@ public class MoveGenerator {
 			while (attacks != 0L) {
 				int targetIndex = bitScanForward(attacks);
 				attacks = removeLSB(attacks);
-				Square targetSq = Square.fromIndex(targetIndex);
-				addPawnMoveWithPromotions(moves, side, targetSq, sourceSq);
+				int flags = (ep & (1L << targetIndex)) != 0L
+					? PackedMove.CAPTURE | PackedMove.EN_PASSANT
+					: PackedMove.CAPTURE;
+				addPawnMoveWithPromotions(moves, side, sourceIndex, targetIndex, flags);
 			}
 
 		}
 
 	}
 
+	/**
+	 * Generates pawn captures
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generatePawnCaptures(@NotNull Board board, @NotNull List<Move> moves) {
+		IntMoveList packedMoves = new IntMoveList();
+		generatePawnCaptures(board, packedMoves);
+		addMoves(moves, packedMoves);
+	}
+
 	/**
 	 * Generates pawn moves (without captures)
+	 * <p>
+	 * The moves are generated set-wise, see {@link #generatePawnMoves(Board, IntMoveList, long, long, int)}.
 	 *
 	 * @param board the board
 	 * @param moves the moves
 	 */
-	public static void generatePawnMoves(Board board, List<Move> moves) {
+	public static void generatePawnMoves(@NotNull Board board, @NotNull IntMoveList moves) {
+		generatePawnMoves(board, moves, ~0L, 0L, 0);
+	}
+
+	/**
+	 * Generates pawn moves (without captures) set-wise
+	 * <p>
+	 * The whole pawn bitboard is shifted by one rank to get all the single pushes,
+	 * the single pushes to the 3rd (6th) rank are shifted once more to get all the double pushes.
+	 * The moves are ordered by the kind (single pushes first) and then by the target square.
+	 *
+	 * @param board   the board
+	 * @param moves   the moves
+	 * @param targets the allowed target squares
+	 * @param pinned  the pinned pawns (they can only move along the line through their king)
+	 * @param kingSq  the side-to-move's king square index (used only if {@code pinned != 0})
+	 * @see <a href="https://www.chessprogramming.org/Pawn_Pushes_(Bitboards)">Pawn Pushes (Bitboards) on CPW</a>
+	 */
+	static void generatePawnMoves(
+		@NotNull Board board,
+		@NotNull IntMoveList moves,
+		long targets,
+		long pinned,
+		int kingSq
+	) {
+
+		Side side = board.getSideToMove();
+
+		long pawns = board.getBitboard(Piece.make(side, PieceType.PAWN));
+		long empty = ~board.getBitboard();
+
+		int forward = side.isWhite() ? 8 : -8;
+
+		long singlePushes = shift(pawns, forward) & empty;
+		long doublePushes = shift(singlePushes & (side.isWhite() ? RANK_3 : RANK_6), forward) & empty;
+
+		addPawnPushes(moves, side, singlePushes & targets, forward, 0, pinned, kingSq);
+		addPawnPushes(moves, side, doublePushes & targets, 2 * forward, PackedMove.DOUBLE_PUSH, pinned, kingSq);
+
+	}
+
+	private static void addPawnPushes(
+		@NotNull IntMoveList moves,
+		@NotNull Side side,
+		long pushes,
+		int delta,
+		int flags,
+		long pinned,
+		int kingSq
+	) {
+
+		while (pushes != 0L) {
+
+			int targetIndex = bitScanForward(pushes);
+			pushes = removeLSB(pushes);
+
+			int sourceIndex = targetIndex - delta;
+
+			if (isPinnedAway(sourceIndex, targetIndex, pinned, kingSq)) {
+				continue;
+			}
+
+			addPawnMoveWithPromotions(moves, side, sourceIndex, targetIndex, flags);
+
+		}
+
+	}
+
+	/**
+	 * Generates pawn moves (without captures) one pawn at a time
+	 * <p>
+	 * It generates the same moves as {@link #generatePawnMoves(Board, IntMoveList)} (in a different order),
+	 * it is kept as a reference implementation.
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generatePawnMovesPerSquare(@NotNull Board board, @NotNull IntMoveList moves) {
 
 		Side side = board.getSideToMove();
 
@@ -84,58 +364,70 @@ public class MoveGenerator {
 			int sourceIndex = bitScanForward(pieces);
 			pieces = removeLSB(pieces);
 
-			Square sourceSq = Square.fromIndex(sourceIndex);
-
-			long attacks = Bitboard.getPawnMoves(side, sourceSq, board.getBitboard());
+			long attacks = Bitboard.getPawnMoves(side, Square.fromIndex(sourceIndex), board.getBitboard());
 
 			while (attacks != 0L) {
 				int targetIndex = bitScanForward(attacks);
 				attacks = removeLSB(attacks);
-				Square targetSq = Square.fromIndex(targetIndex);
-				addPawnMoveWithPromotions(moves, side, targetSq, sourceSq);
+				int flags = Math.abs(targetIndex - sourceIndex) == 16 ? PackedMove.DOUBLE_PUSH : 0;
+				addPawnMoveWithPromotions(moves, side, sourceIndex, targetIndex, flags);
 			}
 
 		}
 
 	}
 
+	/**
+	 * Generates pawn moves (without captures)
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generatePawnMoves(Board board, List<Move> moves) {
+		IntMoveList packedMoves = new IntMoveList();
+		generatePawnMoves(board, packedMoves);
+		addMoves(moves, packedMoves);
+	}
+
 	/**
 	 * Adds the side's pawn move together with possible promotions (if any are possible)
 	 *
 	 * @param moves    move list
 	 * @param side     side of the pawn whose move we are adding
-	 * @param targetSq the pawn's move target square
-	 * @param sourceSq the pawn's move source square
+	 * @param sourceSq the pawn's move source square index
+	 * @param targetSq the pawn's move target square index
+	 * @param flags    the move flags
 	 */
-	private static void addPawnMoveWithPromotions(
-		@NotNull List<Move> moves,
+	static void addPawnMoveWithPromotions(
+		@NotNull IntMoveList moves,
 		@NotNull Side side,
-		@NotNull Square targetSq,
-		@NotNull Square sourceSq
+		int sourceSq,
+		int targetSq,
+		int flags
 	) {
 
 		// the possible promotions for white pawn that moves to the 8th rank
-		if (side.isWhite() && Rank.RANK_8 == targetSq.getRank()) {
+		if (side.isWhite() && targetSq >= 56) {
 			// the possible promotions
-			moves.add(new Move(sourceSq, targetSq, Piece.WHITE_QUEEN));
-			moves.add(new Move(sourceSq, targetSq, Piece.WHITE_ROOK));
-			moves.add(new Move(sourceSq, targetSq, Piece.WHITE_BISHOP));
-			moves.add(new Move(sourceSq, targetSq, Piece.WHITE_KNIGHT));
+			moves.add(PackedMove.encode(sourceSq, targetSq, Piece.WHITE_QUEEN, flags));
+			moves.add(PackedMove.encode(sourceSq, targetSq, Piece.WHITE_ROOK, flags));
+			moves.add(PackedMove.encode(sourceSq, targetSq, Piece.WHITE_BISHOP, flags));
+			moves.add(PackedMove.encode(sourceSq, targetSq, Piece.WHITE_KNIGHT, flags));
 			return;
 		}
 
 		// the possible promotions for black pawn that moves to the 1st rank
-		if (side.isBlack() && Rank.RANK_1 == targetSq.getRank()) {
-			moves.add(new Move(sourceSq, targetSq, Piece.BLACK_QUEEN));
-			moves.add(new Move(sourceSq, targetSq, Piece.BLACK_ROOK));
-			moves.add(new Move(sourceSq, targetSq, Piece.BLACK_BISHOP));
-			moves.add(new Move(sourceSq, targetSq, Piece.BLACK_KNIGHT));
+		if (side.isBlack() && targetSq < 8) {
+			moves.add(PackedMove.encode(sourceSq, targetSq, Piece.BLACK_QUEEN, flags));
+			moves.add(PackedMove.encode(sourceSq, targetSq, Piece.BLACK_ROOK, flags));
+			moves.add(PackedMove.encode(sourceSq, targetSq, Piece.BLACK_BISHOP, flags));
+			moves.add(PackedMove.encode(sourceSq, targetSq, Piece.BLACK_KNIGHT, flags));
 			return;
 
 		}
 
 		// just the move itself as no promotions are possible
-		moves.add(new Move(sourceSq, targetSq, null));
+		moves.add(PackedMove.encode(sourceSq, targetSq, flags));
 
 	}
 
@@ -146,7 +438,7 @@ public class MoveGenerator {
 	 * @param moves the moves
 	 * @param mask  mask of allowed targets
 	 */
-	public static void generateKnightMoves(@NotNull Board board, @NotNull List<Move> moves, long mask) {
+	public static void generateKnightMoves(@NotNull Board board, @NotNull IntMoveList moves, long mask) {
 
 		Side side = board.getSideToMove();
 
@@ -154,24 +446,41 @@ public class MoveGenerator {
 
 		while (pieces != 0L) {
 
-			int knightIndex = bitScanForward(pieces);
+			int sourceIndex = bitScanForward(pieces);
 			pieces = removeLSB(pieces);
 
-			Square sourceSq = Square.fromIndex(knightIndex);
+			addMoves(board, moves, sourceIndex, Bitboard.getKnightAttacks(Square.fromIndex(sourceIndex), mask));
 
-			long attacks = Bitboard.getKnightAttacks(sourceSq, mask);
+		}
 
-			while (attacks != 0L) {
-				int attackIndex = bitScanForward(attacks);
-				attacks = removeLSB(attacks);
-				Square targetSq = Square.fromIndex(attackIndex);
-				moves.add(new Move(sourceSq, targetSq, null));
-			}
+	}
 
-		}
+	/**
+	 * Generates knight moves and captures
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generateKnightMoves(@NotNull Board board, @NotNull IntMoveList moves) {
+
+		// allowed targets are all squares that are empty or occupied by an opposite side's piece
+		generateKnightMoves(board, moves, ~board.getBitboard(board.getSideToMove()));
 
 	}
 
+	/**
+	 * Generates knight moves/captures on the target squares allowed in the mask argument
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 * @param mask  mask of allowed targets
+	 */
+	public static void generateKnightMoves(@NotNull Board board, @NotNull List<Move> moves, long mask) {
+		IntMoveList packedMoves = new IntMoveList();
+		generateKnightMoves(board, packedMoves, mask);
+		addMoves(moves, packedMoves);
+	}
+
 	/**
 	 * Generates knight moves and captures
 	 *
@@ -192,7 +501,7 @@ public class MoveGenerator {
 	 * @param moves the moves
 	 * @param mask  mask of allowed targets
 	 */
-	public static void generateBishopMoves(Board board, List<Move> moves, long mask) {
+	public static void generateBishopMoves(@NotNull Board board, @NotNull IntMoveList moves, long mask) {
 
 		Side side = board.getSideToMove();
 
@@ -203,19 +512,36 @@ public class MoveGenerator {
 			int sourceIndex = bitScanForward(pieces);
 			pieces = removeLSB(pieces);
 
-			Square sourceSq = Square.fromIndex(sourceIndex);
+			addMoves(board, moves, sourceIndex, Bitboard.getBishopAttacks(board.getBitboard(), sourceIndex) & mask);
 
-			long attacks = Bitboard.getBishopAttacks(board.getBitboard(), sourceSq) & mask;
+		}
 
-			while (attacks != 0L) {
-				int attackIndex = bitScanForward(attacks);
-				attacks = removeLSB(attacks);
-				Square targetSq = Square.fromIndex(attackIndex);
-				moves.add(new Move(sourceSq, targetSq, null));
-			}
+	}
 
-		}
+	/**
+	 * Generates bishop moves and captures
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generateBishopMoves(@NotNull Board board, @NotNull IntMoveList moves) {
 
+		// allowed targets are all squares that are empty or occupied by an opposite side's piece
+		generateBishopMoves(board, moves, ~board.getBitboard(board.getSideToMove()));
+
+	}
+
+	/**
+	 * Generates bishop moves/captures on the target squares allowed in mask argument
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 * @param mask  mask of allowed targets
+	 */
+	public static void generateBishopMoves(Board board, List<Move> moves, long mask) {
+		IntMoveList packedMoves = new IntMoveList();
+		generateBishopMoves(board, packedMoves, mask);
+		addMoves(moves, packedMoves);
 	}
 
 	/**
@@ -238,7 +564,7 @@ public class MoveGenerator {
 	 * @param moves the moves
 	 * @param mask  mask of allowed targets
 	 */
-	public static void generateRookMoves(@NotNull Board board, @NotNull List<Move> moves, long mask) {
+	public static void generateRookMoves(@NotNull Board board, @NotNull IntMoveList moves, long mask) {
 
 		Side side = board.getSideToMove();
 
@@ -249,21 +575,38 @@ public class MoveGenerator {
 			int sourceIndex = bitScanForward(pieces);
 			pieces = removeLSB(pieces);
 
-			Square sourceSq = Square.fromIndex(sourceIndex);
+			addMoves(board, moves, sourceIndex, Bitboard.getRookAttacks(board.getBitboard(), sourceIndex) & mask);
 
-			long attacks = Bitboard.getRookAttacks(board.getBitboard(), sourceSq) & mask;
+		}
 
-			while (attacks != 0L) {
-				int attackIndex = bitScanForward(attacks);
-				attacks = removeLSB(attacks);
-				Square targetSq = Square.fromIndex(attackIndex);
-				moves.add(new Move(sourceSq, targetSq, null));
-			}
+	}
 
-		}
+	/**
+	 * Generates rook moves and captures
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generateRookMoves(@NotNull Board board, @NotNull IntMoveList moves) {
+
+		// allowed targets are all squares that are empty or occupied by an opposite side's piece
+		generateRookMoves(board, moves, ~board.getBitboard(board.getSideToMove()));
 
 	}
 
+	/**
+	 * Generates rook moves/captures on the target squares allowed in mask param
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 * @param mask  mask of allowed targets
+	 */
+	public static void generateRookMoves(@NotNull Board board, @NotNull List<Move> moves, long mask) {
+		IntMoveList packedMoves = new IntMoveList();
+		generateRookMoves(board, packedMoves, mask);
+		addMoves(moves, packedMoves);
+	}
+
 	/**
 	 * Generates rook moves and captures
 	 *
@@ -284,7 +627,7 @@ public class MoveGenerator {
 	 * @param moves the moves
 	 * @param mask  mask of allowed targets
 	 */
-	public static void generateQueenMoves(@NotNull Board board, @NotNull List<Move> moves, long mask) {
+	public static void generateQueenMoves(@NotNull Board board, @NotNull IntMoveList moves, long mask) {
 
 		Side side = board.getSideToMove();
 
@@ -295,21 +638,38 @@ public class MoveGenerator {
 			int sourceIndex = bitScanForward(pieces);
 			pieces = removeLSB(pieces);
 
-			Square sourceSq = Square.fromIndex(sourceIndex);
+			addMoves(board, moves, sourceIndex, Bitboard.getQueenAttacks(board.getBitboard(), sourceIndex) & mask);
 
-			long attacks = Bitboard.getQueenAttacks(board.getBitboard(), sourceSq) & mask;
+		}
 
-			while (attacks != 0L) {
-				int attackIndex = bitScanForward(attacks);
-				attacks = removeLSB(attacks);
-				Square targetSq = Square.fromIndex(attackIndex);
-				moves.add(new Move(sourceSq, targetSq, null));
-			}
+	}
 
-		}
+	/**
+	 * Generates queen moves and captures
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generateQueenMoves(@NotNull Board board, @NotNull IntMoveList moves) {
+
+		// allowed targets are all squares that are empty or occupied by an opposite side's piece
+		generateQueenMoves(board, moves, ~board.getBitboard(board.getSideToMove()));
 
 	}
 
+	/**
+	 * Generates queen moves/captures on the target squares allowed in mask param
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 * @param mask  mask of allowed targets
+	 */
+	public static void generateQueenMoves(@NotNull Board board, @NotNull List<Move> moves, long mask) {
+		IntMoveList packedMoves = new IntMoveList();
+		generateQueenMoves(board, packedMoves, mask);
+		addMoves(moves, packedMoves);
+	}
+
 	/**
 	 * Generates queen moves and captures
 	 *
@@ -330,7 +690,7 @@ public class MoveGenerator {
 	 * @param moves the moves
 	 * @param mask  mask of allowed targets
 	 */
-	public static void generateKingMoves(Board board, List<Move> moves, long mask) {
+	public static void generateKingMoves(@NotNull Board board, @NotNull IntMoveList moves, long mask) {
 
 		Side side = board.getSideToMove();
 
@@ -341,21 +701,38 @@ public class MoveGenerator {
 			int sourceIndex = bitScanForward(pieces);
 			pieces = removeLSB(pieces);
 
-			Square sourceSq = Square.fromIndex(sourceIndex);
+			addMoves(board, moves, sourceIndex, Bitboard.getKingAttacks(Square.fromIndex(sourceIndex), mask));
 
-			long attacks = Bitboard.getKingAttacks(sourceSq, mask);
+		}
 
-			while (attacks != 0L) {
-				int attackIndex = bitScanForward(attacks);
-				attacks = removeLSB(attacks);
-				Square targetSq = Square.fromIndex(attackIndex);
-				moves.add(new Move(sourceSq, targetSq, null));
-			}
+	}
 
-		}
+	/**
+	 * Generates king moves and captures
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generateKingMoves(@NotNull Board board, @NotNull IntMoveList moves) {
+
+		// allowed targets are all squares that are empty or occupied by an opposite side's piece
+		generateKingMoves(board, moves, ~board.getBitboard(board.getSideToMove()));
 
 	}
 
+	/**
+	 * Generates king moves/captures on the target squares allowed in mask param
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 * @param mask  mask of allowed targets
+	 */
+	public static void generateKingMoves(Board board, List<Move> moves, long mask) {
+		IntMoveList packedMoves = new IntMoveList();
+		generateKingMoves(board, packedMoves, mask);
+		addMoves(moves, packedMoves);
+	}
+
 	/**
 	 * Generates king moves and captures
 	 *
@@ -372,40 +749,60 @@ public class MoveGenerator {
 	/**
 	 * Generates the given castling move
 	 * <p>
-	 * NOTE: This method is designed to be called from {@link MoveGenerator#generateCastlingMoves(Board board, List moves)}.
+	 * NOTE: This method is designed to be called from {@link MoveGenerator#generateCastlingMoves(Board board, IntMoveList moves)}
+	 * (or from {@link LegalMoveGenerator} that already knows that the king is not in check).
 	 *
 	 * @param board    the board
 	 * @param moves    the moves
 	 * @param castling the castling
 	 */
-	private static void generateCastlingMove(
+	static void generateCastlingMove(
 		@NotNull Board board,
-		@NotNull List<Move> moves,
+		@NotNull IntMoveList moves,
 		@NotNull Castling castling
 	) {
 
 		Side side = board.getSideToMove();
 
-		if (
-			// has the needed castling right
-			board.getCastlingRight(side).allows(castling)
-				// all squares in the path are empty
-				&& (board.getBitboard() & castling.getAllSquaresBB(side)) == 0L
-				// none of the king squares are attacked
-				&& !board.isSquareAttackedBy(castling.getSquares(side), side.flip())
-		) {
-			moves.add(castling.getKingMove(side));
+		if (isCastlingPossible(board, castling)) {
+			Move kingMove = castling.getKingMove(side);
+			moves.add(PackedMove.encode(
+				kingMove.getFrom().ordinal(),
+				kingMove.getTo().ordinal(),
+				PackedMove.CASTLING
+			));
 		}
 
 	}
 
+	/**
+	 * Checks if the given castling is possible (the check of the king itself is not checked)
+	 *
+	 * @param board    the board
+	 * @param castling the castling
+	 * @return {@code true} iff the side to move has the castling right, the path is empty
+	 * and none of the king squares are attacked
+	 */
+	static boolean isCastlingPossible(@NotNull Board board, @NotNull Castling castling) {
+
+		Side side = board.getSideToMove();
+
+		// has the needed castling right
+		return board.getCastlingRight(side).allows(castling)
+			// all squares in the path are empty
+			&& (board.getBitboard() & castling.getAllSquaresBB(side)) == 0L
+			// none of the king squares are attacked
+			&& !board.isSquareAttackedBy(castling.getSquaresBB(side), side.flip());
+
+	}
+
 	/**
 	 * Generates all castling moves
 	 *
 	 * @param board the board
 	 * @param moves the moves
 	 */
-	public static void generateCastlingMoves(@NotNull Board board, @NotNull List<Move> moves) {
+	public static void generateCastlingMoves(@NotNull Board board, @NotNull IntMoveList moves) {
 
 		// castling cannot be done when the king is in check
 		// (the king cannot escape the check via castling)
@@ -418,14 +815,25 @@ public class MoveGenerator {
 
 	}
 
+	/**
+	 * Generates all castling moves
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generateCastlingMoves(@NotNull Board board, @NotNull List<Move> moves) {
+		IntMoveList packedMoves = new IntMoveList();
+		generateCastlingMoves(board, packedMoves);
+		addMoves(moves, packedMoves);
+	}
+
 	/**
 	 * Generates all pseudo-legal moves (including captures)
 	 *
 	 * @param board the board
-	 * @return move list
+	 * @param moves the moves
 	 */
-	public static List<Move> generatePseudoLegalMoves(@NotNull Board board) {
-		List<Move> moves = new LinkedList<>();
+	public static void generatePseudoLegalMoves(@NotNull Board board, @NotNull IntMoveList moves) {
 		generatePawnCaptures(board, moves);
 		generatePawnMoves(board, moves);
 		generateKnightMoves(board, moves);
@@ -434,7 +842,34 @@ public class MoveGenerator {
 		generateQueenMoves(board, moves);
 		generateKingMoves(board, moves);
 		generateCastlingMoves(board, moves);
-		return moves;
+	}
+
+	/**
+	 * Generates all pseudo-legal moves (including captures)
+	 *
+	 * @param board the board
+	 * @return move list
+	 */
+	public static List<Move> generatePseudoLegalMoves(@NotNull Board board) {
+		IntMoveList packedMoves = new IntMoveList();
+		generatePseudoLegalMoves(board, packedMoves);
+		return packedMoves.toMoveList();
+	}
+
+	/**
+	 * Generates all pseudo-legal captures (ONLY captures)
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generatePseudoLegalCaptures(@NotNull Board board, @NotNull IntMoveList moves) {
+		long other = board.getBitboard(board.getSideToMove().flip());
+		generatePawnCaptures(board, moves);
+		generateKnightMoves(board, moves, other);
+		generateBishopMoves(board, moves, other);
+		generateRookMoves(board, moves, other);
+		generateQueenMoves(board, moves, other);
+		generateKingMoves(board, moves, other);
 	}
 
 	/**
@@ -444,15 +879,140 @@ public class MoveGenerator {
 	 * @return move list
 	 */
 	public static List<Move> generatePseudoLegalCaptures(@NotNull Board board) {
-		List<Move> moves = new LinkedList<>();
-		Side other = board.getSideToMove().flip();
-		generatePawnCaptures(board, moves);
-		generateKnightMoves(board, moves, board.getBitboard(other));
-		generateBishopMoves(board, moves, board.getBitboard(other));
-		generateRookMoves(board, moves, board.getBitboard(other));
-		generateQueenMoves(board, moves, board.getBitboard(other));
-		generateKingMoves(board, moves, board.getBitboard(other));
-		return moves;
+		IntMoveList packedMoves = new IntMoveList();
+		generatePseudoLegalCaptures(board, packedMoves);
+		return packedMoves.toMoveList();
+	}
+
+	/**
+	 * Checks if the given packed move is one of the pseudo-legal moves in the given position
+	 * <p>
+	 * It is used to validate moves that come from other positions (e.g. hash moves and killer moves)
+	 * without generating all the moves. The move must be encoded exactly as the generator would encode it
+	 * in the given position (including the flags).
+	 *
+	 * @param board the board
+	 * @param move  the packed move
+	 * @return {@code true} iff the move would be generated by {@link #generatePseudoLegalMoves(Board, IntMoveList)}
+	 */
+	public static boolean isPseudoLegal(@NotNull Board board, int move) {
+
+		if (move == PackedMove.NONE) {
+			return false;
+		}
+
+		Side side = board.getSideToMove();
+
+		int fromSq = PackedMove.getFrom(move);
+		int toSq = PackedMove.getTo(move);
+		Square from = Square.fromIndex(fromSq);
+
+		Piece piece = board.getPiece(from);
+
+		if (piece == null || piece.getPieceSide() != side) {
+			return false;
+		}
+
+		long own = board.getBitboard(side);
+		long occupied = board.getBitboard();
+		long target = 1L << toSq;
+
+		if ((own & target) != 0L) {
+			return false;
+		}
+
+		int flags = (board.getBitboard(side.flip()) & target) != 0L ? PackedMove.CAPTURE : 0;
+		Piece promotion = null;
+
+		long targets = switch (piece.getPieceType()) {
+			case PAWN -> (Bitboard.getPawnCaptures(side, from, occupied, board.getEnPassantTarget()) & ~own)
+				| Bitboard.getPawnMoves(side, from, occupied);
+			case KNIGHT -> Bitboard.getKnightAttacks(from, ~own);
+			case BISHOP -> Bitboard.getBishopAttacks(occupied, fromSq) & ~own;
+			case ROOK -> Bitboard.getRookAttacks(occupied, fromSq) & ~own;
+			case QUEEN -> Bitboard.getQueenAttacks(occupied, fromSq) & ~own;
+			case KING -> Bitboard.getKingAttacks(from, ~own);
+		};
+
+		if (piece.isOfType(PieceType.KING) && Math.abs(toSq - fromSq) == 2) {
+			// castling is validated the same way as it is generated (without allocating a move list)
+			if (move != PackedMove.encode(fromSq, toSq, PackedMove.CASTLING) || board.isKingAttacked()) {
+				return false;
+			}
+			Castling castling = toSq > fromSq ? Castling.KING_SIDE : Castling.QUEEN_SIDE;
+			return castling.getKingMove(side).getTo().ordinal() == toSq
+				&& castling.getKingMove(side).getFrom().ordinal() == fromSq
+				&& isCastlingPossible(board, castling);
+		}
+
+		if ((targets & target) == 0L) {
+			return false;
+		}
+
+		if (piece.isOfType(PieceType.PAWN)) {
+			if (board.getEnPassantTarget() != null && Square.fromIndex(toSq) == board.getEnPassant()) {
+				flags |= PackedMove.CAPTURE | PackedMove.EN_PASSANT;
+			} else if (Math.abs(toSq - fromSq) == 16) {
+				flags |= PackedMove.DOUBLE_PUSH;
+			}
+			if (toSq >= 56 || toSq < 8) {
+				promotion = PackedMove.getPromotion(move);
+				if (
+					promotion == null
+						|| promotion.getPieceSide() != side
+						|| promotion.isOfType(PieceType.PAWN)
+						|| promotion.isOfType(PieceType.KING)
+				) {
+					return false;
+				}
+			}
+		}
+
+		return move == PackedMove.encode(fromSq, toSq, promotion, flags);
+
+	}
+
+	/**
+	 * Generates legal moves (including captures)
+	 * <p>
+	 * The moves are generated directly by {@link LegalMoveGenerator} (in the same order
+	 * as by {@link MoveGenerator#generateLegalMovesByFiltering(Board, IntMoveList)},
+	 * except for the check evasions that are generated by {@link CheckEvasionGenerator}).
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generateLegalMoves(@NotNull Board board, @NotNull IntMoveList moves) {
+		LegalMoveGenerator.generateLegalMoves(board, moves);
+	}
+
+	/**
+	 * Generates legal moves (including captures) by filtering pseudo-legal moves
+	 * <p>
+	 * Each pseudo-legal move is checked using {@link Board#isMoveLegal(int)}.
+	 * The filtering is done in place (the order is kept). This is slower than
+	 * {@link MoveGenerator#generateLegalMoves(Board, IntMoveList)}, it is kept as a reference implementation.
+	 *
+	 * @param board the board
+	 * @param moves the moves
+	 */
+	public static void generateLegalMovesByFiltering(@NotNull Board board, @NotNull IntMoveList moves) {
+
+		int start = moves.size();
+
+		generatePseudoLegalMoves(board, moves);
+
+		int size = start;
+
+		for (int i = start; i < moves.size(); i++) {
+			int move = moves.get(i);
+			if (board.isMoveLegal(move)) {
+				moves.set(size++, move);
+			}
+		}
+
+		moves.truncate(size);
+
 	}
 
 	/**
@@ -464,9 +1024,9 @@ public class MoveGenerator {
 	 */
 	public static List<Move> generateLegalMoves(@NotNull Board board) throws MoveGeneratorException {
 		try {
-			List<Move> moves = generatePseudoLegalMoves(board);
-			moves.removeIf(move -> !board.isMoveLegal(move, false));
-			return moves;
+			IntMoveList packedMoves = new IntMoveList();
+			generateLegalMoves(board, packedMoves);
+			return packedMoves.toMoveList();
 		} catch (Exception e) {
 			throw new MoveGeneratorException("Couldn't generate Legal moves: ", e);
 		}
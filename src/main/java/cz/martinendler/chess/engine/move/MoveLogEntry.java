@@ -1,24 +1,18 @@
 package cz.martinendler.chess.engine.move;
 
 import cz.martinendler.chess.engine.Side;
-import cz.martinendler.chess.engine.board.Board;
 import cz.martinendler.chess.engine.board.Square;
 import cz.martinendler.chess.engine.pieces.Piece;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.function.Supplier;
+
 /**
  * A description of legal move with full state information
  */
 public class MoveLogEntry {
 
-	/**
-	 * The board state before the {@link MoveLogEntry#move} was executed
-	 * so that the move can be easily undone
-	 * (Although that could be done more efficiently than storing the whole board state.).
-	 */
-	private final @NotNull Board board;
-
 	/**
 	 * The side that played the {@link MoveLogEntry#move}
 	 */
@@ -29,6 +23,28 @@ public class MoveLogEntry {
 	 */
 	private final @NotNull Move move;
 
+	/**
+	 * The {@link MoveLogEntry#move} encoded using {@link PackedMove}
+	 */
+	private final int packedMove;
+
+	/**
+	 * The undo record of the {@link MoveLogEntry#move} so that the move can be undone in place
+	 * (see {@link cz.martinendler.chess.engine.board.Board#unmakeMove(int, long)})
+	 */
+	private final long undo;
+
+	/**
+	 * The {@link MoveLogEntry#move} in SAN ({@code null} until it is encoded by the {@link MoveLogEntry#sanEncoder})
+	 */
+	private @Nullable String san;
+
+	/**
+	 * Encodes the {@link MoveLogEntry#move} in SAN on the first access
+	 * (the encoding needs the board state before the move and it is needed only to display or export the move)
+	 */
+	private @Nullable Supplier<@NotNull String> sanEncoder;
+
 	/**
 	 * The piece that moved during the move
 	 */
@@ -52,12 +68,6 @@ public class MoveLogEntry {
 	 */
 	private final boolean enPassantMove;
 
-	private @Nullable String san;
-
-	public @NotNull Board getBoard() {
-		return board;
-	}
-
 	public @NotNull Side getSide() {
 		return side;
 	}
@@ -66,6 +76,14 @@ public class MoveLogEntry {
 		return move;
 	}
 
+	public int getPackedMove() {
+		return packedMove;
+	}
+
+	public long getUndo() {
+		return undo;
+	}
+
 	public @NotNull Piece getMovingPiece() {
 		return movingPiece;
 	}
@@ -82,28 +100,54 @@ public class MoveLogEntry {
 		return enPassantMove;
 	}
 
-	public @NotNull String getSan() {
+	/**
+	 * Gets the move in SAN (it is encoded on the first access)
+	 *
+	 * @return the move in SAN
+	 * @throws IllegalStateException when the SAN was neither given nor can be encoded
+	 */
+	public @NotNull String getSan() throws IllegalStateException {
 
 		if (san == null) {
-			san = SanUtils.encodeToSan(this);
+
+			if (sanEncoder == null) {
+				throw new IllegalStateException("sanEncoder must not be null");
+			}
+
+			san = sanEncoder.get();
+			sanEncoder = null;
+
 		}
 
 		return san;
 
 	}
 
+	/**
+	 * Sets the function that encodes the move in SAN on the first access
+	 *
+	 * @param sanEncoder the encoder (it is called at most once)
+	 */
+	public void setSanEncoder(@NotNull Supplier<@NotNull String> sanEncoder) {
+		this.sanEncoder = sanEncoder;
+	}
+
 	public MoveLogEntry(
-		@NotNull Board board,
 		@NotNull Side side,
 		@NotNull Move move,
+		int packedMove,
+		long undo,
+		@Nullable String san,
 		@NotNull Piece movingPiece,
 		@Nullable Piece capturedPiece,
 		@Nullable Square capturedSquare,
 		boolean enPassantMove
 	) {
-		this.board = board;
 		this.side = side;
 		this.move = move;
+		this.packedMove = packedMove;
+		this.undo = undo;
+		this.san = san;
 		this.movingPiece = movingPiece;
 		this.capturedPiece = capturedPiece;
 		this.capturedSquare = capturedSquare;
@@ -115,9 +159,11 @@ public class MoveLogEntry {
 	 */
 	public static class MoveLogEntryBuilder {
 
-		private @Nullable Board board;
 		private @Nullable Side side;
 		private @Nullable Move move;
+		private int packedMove;
+		private long undo;
+		private @Nullable String san;
 		private @Nullable Piece movingPiece;
 		private @Nullable Piece capturedPiece;
 		private @Nullable Square capturedSquare;
@@ -127,12 +173,30 @@ public class MoveLogEntry {
 
 		}
 
-		public @Nullable Board getBoard() {
-			return board;
+		public int getPackedMove() {
+			return packedMove;
+		}
+
+		public MoveLogEntryBuilder setPackedMove(int packedMove) {
+			this.packedMove = packedMove;
+			return this;
+		}
+
+		public long getUndo() {
+			return undo;
+		}
+
+		public MoveLogEntryBuilder setUndo(long undo) {
+			this.undo = undo;
+			return this;
+		}
+
+		public @Nullable String getSan() {
+			return san;
 		}
 
-		public MoveLogEntryBuilder setBoard(@Nullable Board board) {
-			this.board = board;
+		public MoveLogEntryBuilder setSan(@Nullable String san) {
+			this.san = san;
 			return this;
 		}
 
@@ -192,10 +256,6 @@ public class MoveLogEntry {
 
 		public MoveLogEntry build() throws IllegalStateException {
 
-			if (board == null) {
-				throw new IllegalStateException("board must not be null");
-			}
-
 			if (side == null) {
 				throw new IllegalStateException("board must not be null");
 			}
@@ -215,9 +275,11 @@ public class MoveLogEntry {
 			}
 
 			return new MoveLogEntry(
-				board,
 				side,
 				move,
+				packedMove,
+				undo,
+				san,
 				movingPiece,
 				capturedPiece,
 				capturedSquare,
@@ -0,0 +1,239 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.Side;
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.pieces.Piece;
+import cz.martinendler.chess.engine.pieces.PieceType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * The move ordering heuristics of a search (used by the {@link MovePicker})
+ * <p>
+ * The captures are ordered statically by MVV-LVA (see {@link #scoreCapture(Board, int)}).
+ * The quiet moves are ordered by the tables that are learned from the cutoffs during the search:
+ * <ul>
+ *     <li>killer moves: two quiet moves per ply that caused a cutoff in a sibling node</li>
+ *     <li>history: a butterfly table (side, from, to) of the quiet moves weighted by the depth of their cutoffs</li>
+ *     <li>countermoves: the quiet move that refuted the given previous move (indexed by its piece and target square)</li>
+ * </ul>
+ * All the tables are flat primitive arrays. They are kept between the searches (of the same game),
+ * but they are {@link #age() aged}, so the old knowledge fades out.
+ * <p>
+ * The quality of the ordering is measured by the first-move cutoff rate (the ratio of the cutoffs
+ * that were caused by the first searched move), see {@link #getFirstMoveCutoffRate()}.
+ * <p>
+ * An instance is NOT thread-safe, use one instance per search thread.
+ *
+ * @see <a href="https://www.chessprogramming.org/Move_Ordering">Move Ordering on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/MVV-LVA">MVV-LVA on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Killer_Heuristic">Killer Heuristic on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/History_Heuristic">History Heuristic on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Countermove_Heuristic">Countermove Heuristic on CPW</a>
+ */
+public class MoveOrdering {
+
+	private static final int PIECE_TYPES = PieceType.values().length;
+
+	/**
+	 * When a history score reaches this value, the whole table of the side is halved
+	 * (so the scores stay comparable and they never overflow)
+	 */
+	private static final int HISTORY_MAX = 1 << 20;
+
+	private final int maxPly;
+
+	/**
+	 * Two killer moves per ply, {@code killers[2 * ply]} is the most recent one
+	 */
+	private final @NotNull int[] killers;
+
+	/**
+	 * The butterfly history, indexed by {@code side * 4096 + from * 64 + to}
+	 */
+	private final @NotNull int[] history = new int[Side.values().length * 64 * 64];
+
+	/**
+	 * The countermoves, indexed by {@code piece * 64 + to} of the previous move
+	 */
+	private final @NotNull int[] counterMoves = new int[Piece.values().length * 64];
+
+	private long cutoffs;
+	private long firstMoveCutoffs;
+
+	/**
+	 * Creates new (empty) tables
+	 *
+	 * @param maxPly the maximum ply of the search (the killer moves are kept for plies 0 to {@code maxPly - 1})
+	 */
+	public MoveOrdering(int maxPly) {
+		this.maxPly = maxPly;
+		killers = new int[2 * maxPly];
+	}
+
+	/**
+	 * Computes the MVV-LVA ordering score of the given capture
+	 *
+	 * @param board the board
+	 * @param move  the capture
+	 * @return the score (the higher, the sooner the capture should be searched)
+	 * @see <a href="https://www.chessprogramming.org/MVV-LVA">MVV-LVA on CPW</a>
+	 */
+	public static int scoreCapture(@NotNull Board board, int move) {
+
+		Piece attacker = board.getPiece(PackedMove.getFromSquare(move));
+		Piece victim = PackedMove.isEnPassant(move) ? null : board.getPiece(PackedMove.getToSquare(move));
+
+		int victimOrdinal = victim != null ? victim.getPieceType().ordinal() : PieceType.PAWN.ordinal();
+		int attackerOrdinal = attacker != null ? attacker.getPieceType().ordinal() : PieceType.KING.ordinal();
+
+		return victimOrdinal * PIECE_TYPES + (PieceType.KING.ordinal() - attackerOrdinal);
+
+	}
+
+	/**
+	 * Gets a killer move of the given ply
+	 *
+	 * @param ply   the ply
+	 * @param index {@code 0} (the most recent one) or {@code 1}
+	 * @return the packed move or {@link PackedMove#NONE}
+	 */
+	public int getKiller(int ply, int index) {
+		return ply < maxPly ? killers[2 * ply + index] : PackedMove.NONE;
+	}
+
+	/**
+	 * Gets the history score of the given quiet move
+	 *
+	 * @param side the side that makes the move
+	 * @param move the packed move
+	 * @return the score (the higher, the more often the move caused a cutoff)
+	 */
+	public int getHistory(@NotNull Side side, int move) {
+		return history[(side.ordinal() << 12) | (PackedMove.getFrom(move) << 6) | PackedMove.getTo(move)];
+	}
+
+	/**
+	 * Gets the countermove of the given previous move
+	 *
+	 * @param board        the board (in the position after the previous move)
+	 * @param previousMove the previous move or {@link PackedMove#NONE}
+	 * @return the packed move or {@link PackedMove#NONE}
+	 */
+	public int getCounterMove(@NotNull Board board, int previousMove) {
+
+		if (previousMove == PackedMove.NONE) {
+			return PackedMove.NONE;
+		}
+
+		Piece piece = board.getPiece(PackedMove.getToSquare(previousMove));
+
+		return piece != null ? counterMoves[(piece.ordinal() << 6) | PackedMove.getTo(previousMove)] : PackedMove.NONE;
+
+	}
+
+	/**
+	 * Updates the tables after the given move caused a cutoff
+	 *
+	 * @param board        the board (in the position before the move)
+	 * @param ply          the ply
+	 * @param move         the move that caused the cutoff
+	 * @param previousMove the move that led to the position or {@link PackedMove#NONE}
+	 * @param depth        the remaining depth of the node
+	 * @param moveNumber   the number of the move in the order in which the moves were searched (starting from 1)
+	 */
+	public void recordCutoff(@NotNull Board board, int ply, int move, int previousMove, int depth, int moveNumber) {
+
+		cutoffs++;
+		if (moveNumber == 1) {
+			firstMoveCutoffs++;
+		}
+
+		// only the quiet moves are ordered dynamically
+		if (PackedMove.isCapture(move) || PackedMove.hasPromotion(move)) {
+			return;
+		}
+
+		if (ply < maxPly && killers[2 * ply] != move) {
+			killers[2 * ply + 1] = killers[2 * ply];
+			killers[2 * ply] = move;
+		}
+
+		int side = board.getSideToMove().ordinal();
+		int index = (side << 12) | (PackedMove.getFrom(move) << 6) | PackedMove.getTo(move);
+
+		history[index] += depth * depth;
+
+		if (history[index] >= HISTORY_MAX) {
+			for (int i = side << 12; i < (side + 1) << 12; i++) {
+				history[i] >>= 1;
+			}
+		}
+
+		if (previousMove != PackedMove.NONE) {
+			Piece piece = board.getPiece(PackedMove.getToSquare(previousMove));
+			if (piece != null) {
+				counterMoves[(piece.ordinal() << 6) | PackedMove.getTo(previousMove)] = move;
+			}
+		}
+
+	}
+
+	/**
+	 * Ages the tables before a new search
+	 * <p>
+	 * The history scores are halved. The killer moves are cleared, because the plies of the next search
+	 * correspond to different positions. The countermoves are kept (each one is simply overwritten
+	 * by a newer refutation of the same move and they are always validated before they are searched).
+	 */
+	public void age() {
+		for (int i = 0; i < history.length; i++) {
+			history[i] >>= 1;
+		}
+		Arrays.fill(killers, PackedMove.NONE);
+	}
+
+	/**
+	 * Clears all the tables and the statistics
+	 */
+	public void clear() {
+		Arrays.fill(killers, PackedMove.NONE);
+		Arrays.fill(history, 0);
+		Arrays.fill(counterMoves, PackedMove.NONE);
+		resetStatistics();
+	}
+
+	public void resetStatistics() {
+		cutoffs = 0L;
+		firstMoveCutoffs = 0L;
+	}
+
+	/**
+	 * Gets the number of the recorded cutoffs
+	 *
+	 * @return the number of the cutoffs since the last {@link #resetStatistics()}
+	 */
+	public long getCutoffs() {
+		return cutoffs;
+	}
+
+	/**
+	 * Gets the number of the recorded cutoffs caused by the first searched move
+	 *
+	 * @return the number of the first-move cutoffs since the last {@link #resetStatistics()}
+	 */
+	public long getFirstMoveCutoffs() {
+		return firstMoveCutoffs;
+	}
+
+	/**
+	 * Gets the ratio of the cutoffs caused by the first searched move (the higher, the better the ordering)
+	 *
+	 * @return the first-move cutoff rate (from 0 to 1)
+	 */
+	public double getFirstMoveCutoffRate() {
+		return cutoffs > 0 ? (double) firstMoveCutoffs / cutoffs : 0.0;
+	}
+
+}
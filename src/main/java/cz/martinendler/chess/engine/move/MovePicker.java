@@ -0,0 +1,414 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.Side;
+import cz.martinendler.chess.engine.board.Board;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Staged lazy iterator over the legal moves of a position in the priority order
+ * <p>
+ * The moves are returned in the following {@link Stage stages}:
+ * <ol>
+ *     <li>the hash move (a suggested move, e.g. the best move from a previous search)</li>
+ *     <li>captures (including capture promotions), the most valuable victim first
+ *     (the least valuable attacker first for the same victims)</li>
+ *     <li>promotions (without captures)</li>
+ *     <li>killer moves (quiet moves that caused a cutoff in a sibling position)</li>
+ *     <li>the countermove (the quiet move that refuted the previous move elsewhere)</li>
+ *     <li>the remaining quiet moves (the ones with the highest history scores first if the picker has a {@link MoveOrdering})</li>
+ * </ol>
+ * The moves of a stage are generated only when the previous stages are exhausted, so a consumer
+ * that stops early (e.g. on a cutoff) does not pay for the later stages. The moves are generated
+ * as pseudo-legal ones and the legality is checked only right before a move is returned.
+ * Each legal move is returned exactly once.
+ * <p>
+ * The board must not be changed while the picker is used (unless each change is undone
+ * before the next call of {@link #next()}).
+ * <p>
+ * A picker can be {@link #reset(int, int, int) reset} and reused for another position of the same board,
+ * so a search can keep one picker per ply and it does not have to allocate anything per node.
+ * It can also be {@link #resetCaptures() reset} to return only the captures (e.g. for a quiescence search).
+ *
+ * @see <a href="https://www.chessprogramming.org/Move_Generation#Staged_move_generation">Staged move generation on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Move_Ordering">Move Ordering on CPW</a>
+ */
+public class MovePicker {
+
+	/**
+	 * A stage of the {@link MovePicker}
+	 */
+	public enum Stage {
+		HASH_MOVE,
+		CAPTURES,
+		PROMOTIONS,
+		KILLERS,
+		COUNTER_MOVE,
+		QUIETS,
+		DONE,
+	}
+
+	/**
+	 * Only this number of the quiet moves with the highest history scores is returned first,
+	 * the rest is returned in the generation order (sorting all of them costs more than it saves,
+	 * because a cutoff by a late quiet move is rare)
+	 */
+	private static final int SORTED_QUIETS = 6;
+
+	private final @NotNull Board board;
+	private final @Nullable MoveOrdering ordering;
+	private int hashMove;
+	private int killer1;
+	private int killer2;
+	private int counterMove;
+
+	/**
+	 * The moves of the current stage
+	 */
+	private final @NotNull IntMoveList moves = new IntMoveList();
+
+	/**
+	 * The ordering scores of the captures and the quiet moves ({@code scores[i]} belongs to {@code moves.get(i)})
+	 */
+	private int[] scores = new int[IntMoveList.DEFAULT_CAPACITY];
+
+	/**
+	 * The pawn pushes that are generated together with the promotions and returned later among the quiet moves
+	 */
+	private final @NotNull IntMoveList pawnPushes = new IntMoveList(32);
+
+	private @NotNull Stage stage;
+	private boolean generated;
+	private int index;
+
+	private @NotNull Stage lastStage;
+
+	/**
+	 * {@code true} iff only the captures are returned (see {@link #resetCaptures()})
+	 */
+	private boolean capturesOnly;
+
+	/**
+	 * {@code true} iff the quiet moves of the current position have any history scores
+	 */
+	private boolean sortQuiets;
+
+	/**
+	 * Creates a new picker without any suggested moves
+	 *
+	 * @param board the board
+	 */
+	public MovePicker(@NotNull Board board) {
+		this(board, PackedMove.NONE, PackedMove.NONE, PackedMove.NONE);
+	}
+
+	/**
+	 * Creates a new picker without any suggested moves that orders the quiet moves using the given tables
+	 *
+	 * @param board    the board
+	 * @param ordering the ordering tables (the history scores of the quiet moves are used)
+	 */
+	public MovePicker(@NotNull Board board, @NotNull MoveOrdering ordering) {
+		this.board = board;
+		this.ordering = ordering;
+		reset(PackedMove.NONE, PackedMove.NONE, PackedMove.NONE);
+	}
+
+	/**
+	 * Creates a new picker
+	 * <p>
+	 * The suggested moves do not have to be valid in the position,
+	 * the ones that are not pseudo-legal or legal are ignored.
+	 *
+	 * @param board    the board
+	 * @param hashMove the packed move that is returned first or {@link PackedMove#NONE}
+	 * @param killer1  the first killer move or {@link PackedMove#NONE}
+	 * @param killer2  the second killer move or {@link PackedMove#NONE}
+	 */
+	public MovePicker(@NotNull Board board, int hashMove, int killer1, int killer2) {
+		this.board = board;
+		this.ordering = null;
+		reset(hashMove, killer1, killer2);
+	}
+
+	/**
+	 * Restarts this picker for the current position of the board
+	 * <p>
+	 * The suggested moves do not have to be valid in the position,
+	 * the ones that are not pseudo-legal or legal are ignored.
+	 *
+	 * @param hashMove the packed move that is returned first or {@link PackedMove#NONE}
+	 * @param killer1  the first killer move or {@link PackedMove#NONE}
+	 * @param killer2  the second killer move or {@link PackedMove#NONE}
+	 */
+	public void reset(int hashMove, int killer1, int killer2) {
+		reset(hashMove, killer1, killer2, PackedMove.NONE);
+	}
+
+	/**
+	 * Restarts this picker for the current position of the board
+	 * <p>
+	 * The suggested moves do not have to be valid in the position,
+	 * the ones that are not pseudo-legal or legal are ignored.
+	 *
+	 * @param hashMove    the packed move that is returned first or {@link PackedMove#NONE}
+	 * @param killer1     the first killer move or {@link PackedMove#NONE}
+	 * @param killer2     the second killer move or {@link PackedMove#NONE}
+	 * @param counterMove the countermove of the previous move or {@link PackedMove#NONE}
+	 */
+	public void reset(int hashMove, int killer1, int killer2, int counterMove) {
+		this.hashMove = hashMove;
+		this.killer1 = killer1;
+		this.killer2 = killer2 != killer1 ? killer2 : PackedMove.NONE;
+		this.counterMove = counterMove != killer1 && counterMove != killer2 ? counterMove : PackedMove.NONE;
+		stage = Stage.HASH_MOVE;
+		generated = false;
+		index = 0;
+		lastStage = Stage.HASH_MOVE;
+		capturesOnly = false;
+	}
+
+	/**
+	 * Restarts this picker for the current position of the board so that it returns only the captures
+	 * (including the capture promotions and en passant) in the MVV-LVA order
+	 */
+	public void resetCaptures() {
+		hashMove = PackedMove.NONE;
+		killer1 = PackedMove.NONE;
+		killer2 = PackedMove.NONE;
+		counterMove = PackedMove.NONE;
+		stage = Stage.CAPTURES;
+		generated = false;
+		index = 0;
+		lastStage = Stage.CAPTURES;
+		capturesOnly = true;
+	}
+
+	/**
+	 * Gets the stage of the move that was returned by the last call of {@link #next()}
+	 *
+	 * @return the stage ({@link Stage#DONE} when there are no more moves)
+	 */
+	public @NotNull Stage getStage() {
+		return lastStage;
+	}
+
+	/**
+	 * Gets the next legal move
+	 *
+	 * @return the packed move or {@link PackedMove#NONE} when there are no more moves
+	 */
+	public int next() {
+
+		while (true) {
+
+			switch (stage) {
+
+				case HASH_MOVE -> {
+					// the next call continues with the captures
+					enterStage(Stage.CAPTURES);
+					if (MoveGenerator.isPseudoLegal(board, hashMove) && board.isMoveLegal(hashMove)) {
+						lastStage = Stage.HASH_MOVE;
+						return hashMove;
+					}
+				}
+
+				case CAPTURES -> {
+					if (!generated) {
+						generateCaptures();
+					}
+					while (index < moves.size()) {
+						selectBest(index);
+						int move = moves.get(index++);
+						if (move != hashMove && board.isMoveLegal(move)) {
+							lastStage = stage;
+							return move;
+						}
+					}
+					enterStage(capturesOnly ? Stage.DONE : Stage.PROMOTIONS);
+				}
+
+				case PROMOTIONS -> {
+					if (!generated) {
+						generatePromotions();
+					}
+					while (index < moves.size()) {
+						int move = moves.get(index++);
+						if (move != hashMove && board.isMoveLegal(move)) {
+							lastStage = stage;
+							return move;
+						}
+					}
+					enterStage(Stage.KILLERS);
+				}
+
+				case KILLERS -> {
+					while (index < 2) {
+						int move = index++ == 0 ? killer1 : killer2;
+						if (
+							move != hashMove
+								&& !PackedMove.isCapture(move)
+								&& !PackedMove.hasPromotion(move)
+								&& MoveGenerator.isPseudoLegal(board, move)
+								&& board.isMoveLegal(move)
+						) {
+							lastStage = stage;
+							return move;
+						}
+					}
+					enterStage(Stage.COUNTER_MOVE);
+				}
+
+				case COUNTER_MOVE -> {
+					enterStage(Stage.QUIETS);
+					if (
+						counterMove != hashMove
+							&& !PackedMove.isCapture(counterMove)
+							&& !PackedMove.hasPromotion(counterMove)
+							&& MoveGenerator.isPseudoLegal(board, counterMove)
+							&& board.isMoveLegal(counterMove)
+					) {
+						lastStage = Stage.COUNTER_MOVE;
+						return counterMove;
+					}
+				}
+
+				case QUIETS -> {
+					if (!generated) {
+						generateQuiets();
+					}
+					while (index < moves.size()) {
+						if (sortQuiets && index < SORTED_QUIETS) {
+							selectBest(index);
+						}
+						int move = moves.get(index++);
+						if (
+							move != hashMove && move != killer1 && move != killer2 && move != counterMove
+								&& board.isMoveLegal(move)
+						) {
+							lastStage = stage;
+							return move;
+						}
+					}
+					enterStage(Stage.DONE);
+				}
+
+				case DONE -> {
+					lastStage = Stage.DONE;
+					return PackedMove.NONE;
+				}
+
+			}
+
+		}
+
+	}
+
+	private void enterStage(@NotNull Stage next) {
+		stage = next;
+		generated = false;
+		index = 0;
+	}
+
+	private void generateCaptures() {
+
+		moves.clear();
+		MoveGenerator.generatePseudoLegalCaptures(board, moves);
+
+		ensureScoresCapacity();
+
+		for (int i = 0; i < moves.size(); i++) {
+			scores[i] = MoveOrdering.scoreCapture(board, moves.get(i));
+		}
+
+		generated = true;
+
+	}
+
+	private void ensureScoresCapacity() {
+		if (scores.length < moves.size()) {
+			scores = new int[moves.size()];
+		}
+	}
+
+	/**
+	 * Moves the move with the highest score to the given position (a step of selection sort)
+	 *
+	 * @param start the position
+	 */
+	private void selectBest(int start) {
+
+		int best = start;
+
+		for (int i = start + 1; i < moves.size(); i++) {
+			if (scores[i] > scores[best]) {
+				best = i;
+			}
+		}
+
+		if (best != start) {
+			moves.swap(start, best);
+			int score = scores[start];
+			scores[start] = scores[best];
+			scores[best] = score;
+		}
+
+	}
+
+	private void generatePromotions() {
+
+		pawnPushes.clear();
+		MoveGenerator.generatePawnMoves(board, pawnPushes);
+
+		moves.clear();
+
+		// split the pawn pushes to the promotions (returned now) and the other pushes (returned later)
+		int size = 0;
+		for (int i = 0; i < pawnPushes.size(); i++) {
+			int move = pawnPushes.get(i);
+			if (PackedMove.hasPromotion(move)) {
+				moves.add(move);
+			} else {
+				pawnPushes.set(size++, move);
+			}
+		}
+		pawnPushes.truncate(size);
+
+		generated = true;
+
+	}
+
+	private void generateQuiets() {
+
+		long empty = ~board.getBitboard();
+
+		moves.clear();
+
+		for (int i = 0; i < pawnPushes.size(); i++) {
+			moves.add(pawnPushes.get(i));
+		}
+
+		MoveGenerator.generateKnightMoves(board, moves, empty);
+		MoveGenerator.generateBishopMoves(board, moves, empty);
+		MoveGenerator.generateRookMoves(board, moves, empty);
+		MoveGenerator.generateQueenMoves(board, moves, empty);
+		MoveGenerator.generateKingMoves(board, moves, empty);
+		MoveGenerator.generateCastlingMoves(board, moves);
+
+		sortQuiets = false;
+
+		if (ordering != null) {
+			ensureScoresCapacity();
+			Side side = board.getSideToMove();
+			for (int i = 0; i < moves.size(); i++) {
+				int score = ordering.getHistory(side, moves.get(i));
+				scores[i] = score;
+				sortQuiets |= score != 0;
+			}
+		}
+
+		generated = true;
+
+	}
+
+}
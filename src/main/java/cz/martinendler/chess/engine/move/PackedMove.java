@@ -0,0 +1,202 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import cz.martinendler.chess.engine.pieces.Piece;
+import cz.martinendler.chess.engine.pieces.PieceType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Helpers for moves packed into a primitive {@code int}
+ * <p>
+ * The layout (bits from the least significant):
+ * <ul>
+ *     <li>0 - 5 the from square index</li>
+ *     <li>6 - 11 the to square index</li>
+ *     <li>12 - 15 the promotion piece ({@code ordinal + 1}, {@code 0} = no promotion)</li>
+ *     <li>16 - 19 the flags ({@link PackedMove#CAPTURE}, {@link PackedMove#CASTLING},
+ *     {@link PackedMove#EN_PASSANT}, {@link PackedMove#DOUBLE_PUSH})</li>
+ * </ul>
+ * The lower 16 bits (see {@link PackedMove#getKey(int)}) identify the move the same way
+ * as {@link Move#equals(Object)} does. The flags are only a cached information about the move
+ * in the position it was generated for.
+ * <p>
+ * Packed moves are used by the allocation-free {@link MoveGenerator} overloads (together with {@link IntMoveList}).
+ * {@link Move} objects should only be created at the API boundaries using {@link PackedMove#toMove(int)}.
+ *
+ * @see <a href="https://www.chessprogramming.org/Encoding_Moves">Encoding Moves on CPW</a>
+ */
+public class PackedMove {
+
+	/**
+	 * A value that is never a valid move (from and to squares are the same)
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * The move captures a piece (including en passant)
+	 */
+	public static final int CAPTURE = 1 << 16;
+	/**
+	 * The move is a king's castling move
+	 */
+	public static final int CASTLING = 1 << 17;
+	/**
+	 * The move is an en passant capture
+	 */
+	public static final int EN_PASSANT = 1 << 18;
+	/**
+	 * The move is a pawn's two squares advance
+	 */
+	public static final int DOUBLE_PUSH = 1 << 19;
+
+	private static final int SQUARE_MASK = 0x3F;
+	private static final int TO_SHIFT = 6;
+	private static final int PROMOTION_SHIFT = 12;
+	private static final int KEY_MASK = 0xFFFF;
+
+	private static final Square[] squares = Square.values();
+	private static final Piece[] pieces = Piece.values();
+
+	private PackedMove() {
+		// we do not want PackedMove to be instantiable
+	}
+
+	/**
+	 * Encodes a move
+	 *
+	 * @param from      the from square index
+	 * @param to        the to square index
+	 * @param promotion the promotion piece or {@code null}
+	 * @param flags     the flags
+	 * @return the packed move
+	 */
+	public static int encode(int from, int to, @Nullable Piece promotion, int flags) {
+		return from
+			| (to << TO_SHIFT)
+			| (promotion != null ? (promotion.ordinal() + 1) << PROMOTION_SHIFT : 0)
+			| flags;
+	}
+
+	/**
+	 * Encodes a move without promotion
+	 *
+	 * @param from  the from square index
+	 * @param to    the to square index
+	 * @param flags the flags
+	 * @return the packed move
+	 */
+	public static int encode(int from, int to, int flags) {
+		return from | (to << TO_SHIFT) | flags;
+	}
+
+	/**
+	 * Encodes the given move (including the flags that are computed for the given board)
+	 *
+	 * @param board the board where the move is to be played
+	 * @param move  the move
+	 * @return the packed move
+	 */
+	public static int fromMove(@NotNull Board board, @NotNull Move move) {
+
+		Square from = move.getFrom();
+		Square to = move.getTo();
+		Piece movingPiece = board.getPiece(from);
+
+		int flags = 0;
+
+		if (board.getPiece(to) != null) {
+			flags |= CAPTURE;
+		}
+
+		if (movingPiece != null && movingPiece.isOfType(PieceType.PAWN)) {
+			if (board.getEnPassantTarget() != null && to == board.getEnPassant()) {
+				flags |= CAPTURE | EN_PASSANT;
+			} else if (Math.abs(to.getRank().ordinal() - from.getRank().ordinal()) == 2) {
+				flags |= DOUBLE_PUSH;
+			}
+		}
+
+		if (movingPiece != null && movingPiece.isOfType(PieceType.KING) && move.isCastling()) {
+			flags |= CASTLING;
+		}
+
+		return encode(from.ordinal(), to.ordinal(), move.getPromotion(), flags);
+
+	}
+
+	/**
+	 * Creates a {@link Move} from the given packed move
+	 *
+	 * @param move the packed move
+	 * @return the move
+	 */
+	public static @NotNull Move toMove(int move) {
+		return new Move(getFromSquare(move), getToSquare(move), getPromotion(move));
+	}
+
+	/**
+	 * Gets the key that identifies the move regardless of the flags
+	 *
+	 * @param move the packed move
+	 * @return the lower 16 bits of the packed move
+	 */
+	public static int getKey(int move) {
+		return move & KEY_MASK;
+	}
+
+	public static int getFrom(int move) {
+		return move & SQUARE_MASK;
+	}
+
+	public static int getTo(int move) {
+		return (move >>> TO_SHIFT) & SQUARE_MASK;
+	}
+
+	public static @NotNull Square getFromSquare(int move) {
+		return squares[move & SQUARE_MASK];
+	}
+
+	public static @NotNull Square getToSquare(int move) {
+		return squares[(move >>> TO_SHIFT) & SQUARE_MASK];
+	}
+
+	public static @Nullable Piece getPromotion(int move) {
+		int promotion = (move >>> PROMOTION_SHIFT) & 0xF;
+		return promotion != 0 ? pieces[promotion - 1] : null;
+	}
+
+	public static boolean hasPromotion(int move) {
+		return ((move >>> PROMOTION_SHIFT) & 0xF) != 0;
+	}
+
+	public static boolean isCapture(int move) {
+		return (move & CAPTURE) != 0;
+	}
+
+	public static boolean isCastling(int move) {
+		return (move & CASTLING) != 0;
+	}
+
+	public static boolean isEnPassant(int move) {
+		return (move & EN_PASSANT) != 0;
+	}
+
+	public static boolean isDoublePush(int move) {
+		return (move & DOUBLE_PUSH) != 0;
+	}
+
+	/**
+	 * Converts to debug string
+	 *
+	 * @param move the packed move
+	 * @return debug string (the same as {@link Move#toDebugString()})
+	 */
+	public static @NotNull String toDebugString(int move) {
+		Piece promotion = getPromotion(move);
+		return getFromSquare(move).getNotation() + " -> " + getToSquare(move).getNotation()
+			+ (promotion != null ? " " + promotion.name() : "");
+	}
+
+}
@@ -35,18 +35,24 @@ public class SanUtils {
 
 	/**
 	 * Adds check/mate annotation to the SAN move
+	 * <p>
+	 * The check is detected without making the move (see {@link Board#givesCheck(int)}),
+	 * only a checking move is made and unmade (in place) to find out whether it is a mate.
 	 *
-	 * @param board the current state of the board
+	 * @param board the state of the board before the move (it is restored before the method returns)
+	 * @param move  the move
 	 * @param san   string builder of the SAN move
 	 */
-	private static void addCheckFlag(@NotNull Board board, @NotNull StringBuilder san) {
+	private static void addCheckFlag(@NotNull Board board, @NotNull Move move, @NotNull StringBuilder san) {
 
-		if (board.isKingAttacked()) {
-			if (board.isCheckMate()) {
-				san.append("#");
-			} else {
-				san.append("+");
-			}
+		int packedMove = PackedMove.fromMove(board, move);
+
+		if (board.givesCheck(packedMove)) {
+			long undo = board.makeMove(packedMove);
+			// no list of the legal moves is needed, it stops at the first legal move
+			boolean mate = !board.hasAnyLegalMove();
+			board.unmakeMove(packedMove, undo);
+			san.append(mate ? "#" : "+");
 		}
 
 	}
@@ -83,58 +89,67 @@ public class SanUtils {
 	}
 
 	/**
-	 * Encodes the given move log entry to SAN notation
+	 * Encodes the given move to SAN notation
 	 *
-	 * @param moveLogEntry the move log entry
+	 * @param board the state of the board before the move
+	 * @param move  the legal move
 	 * @return the encoded move in SAN notation
-	 * @throws MoveConversionException if the given move is not legal for the current board state
+	 * @throws MoveConversionException if there is no piece on the from square of the given move
 	 */
-	protected static String encodeToSan(
-		final @NotNull MoveLogEntry moveLogEntry
+	public static String encodeToSan(
+		final @NotNull Board board,
+		final @NotNull Move move
 	) throws MoveConversionException {
-		return encode(moveLogEntry, Notation.SAN);
+		return encode(board, move, Notation.SAN);
 	}
 
 	/**
-	 * Encodes the given move log entry to FAN notation
+	 * Encodes the given move to FAN notation
 	 *
-	 * @param moveLogEntry the move log entry
+	 * @param board the state of the board before the move
+	 * @param move  the legal move
 	 * @return the encoded move in FAN notation
-	 * @throws MoveConversionException if the given move is not legal for the current board state
+	 * @throws MoveConversionException if there is no piece on the from square of the given move
 	 */
 	public static String encodeToFan(
-		final @NotNull MoveLogEntry moveLogEntry
+		final @NotNull Board board,
+		final @NotNull Move move
 	) throws MoveConversionException {
-		return encode(moveLogEntry, Notation.FAN);
+		return encode(board, move, Notation.FAN);
 	}
 
 	/**
-	 * Encodes the given move log entry to SAN/FAN notation
+	 * Encodes the given move to SAN/FAN notation
 	 *
-	 * @param moveLogEntry the move log entry
-	 * @param notation     the notation
+	 * @param board    the state of the board before the move
+	 * @param move     the legal move
+	 * @param notation the notation
 	 * @return the encoded move in SAN/FAN notation
-	 * @throws MoveConversionException if the given move is not legal for the current board state
+	 * @throws MoveConversionException if there is no piece on the from square of the given move
 	 */
 	protected static String encode(
-		final @NotNull MoveLogEntry moveLogEntry,
+		final @NotNull Board board,
+		final @NotNull Move move,
 		final @NotNull Notation notation
 	) throws MoveConversionException {
 
-		StringBuilder san = new StringBuilder();
+		Piece piece = board.getPiece(move.getFrom());
 
-		Piece piece = moveLogEntry.getMovingPiece();
+		if (piece == null) {
+			throw new MoveConversionException("There is no piece on the from square of " + move.toDebugString());
+		}
+
+		StringBuilder san = new StringBuilder();
 
 		if (piece.isOfType(PieceType.KING)) {
 
-			Castling castling = moveLogEntry.getMove().getCastling();
+			Castling castling = move.getCastling();
 
 			if (castling != null) {
 
 				san.append(castling.getNotation());
 
-				// TODO
-				// addCheckFlag(board, san);
+				addCheckFlag(board, move, san);
 
 				return san.toString();
 
@@ -144,7 +159,7 @@ public class SanUtils {
 
 		// normal pawn move (not pawn attack)
 		boolean pawnMove = piece.isOfType(PieceType.PAWN)
-			&& moveLogEntry.getMove().getFrom().getFile() == moveLogEntry.getMove().getTo().getFile();
+			&& move.getFrom().getFile() == move.getTo().getFile();
 
 		boolean ambiguityResolved = false;
 
@@ -155,53 +170,51 @@ public class SanUtils {
 
 		if (!pawnMove) {
 			// resolving ambiguous move
-			long amb = moveLogEntry.getBoard().squareAttackedByPieceType(
-				moveLogEntry.getMove().getTo(),
-				moveLogEntry.getBoard().getSideToMove(),
+			long amb = board.squareAttackedByPieceType(
+				move.getTo(),
+				board.getSideToMove(),
 				piece.getPieceType()
 			);
-			amb &= ~moveLogEntry.getMove().getFrom().getBitboard();
+			amb &= ~move.getFrom().getBitboard();
 			if (amb != 0L) {
 				List<Square> fromList = Bitboard.bbToSquareList(amb);
 				for (Square from : fromList) {
-					if (!moveLogEntry.getBoard().isMoveLegal(
-						new Move(from, moveLogEntry.getMove().getTo()), false)
+					if (!board.isMoveLegal(
+						new Move(from, move.getTo()), false)
 					) {
 						amb ^= from.getBitboard();
 					}
 				}
 			}
 			if (amb != 0L) {
-				if ((Bitboard.getFileBB(moveLogEntry.getMove().getFrom()) & amb) == 0L) {
-					san.append(moveLogEntry.getMove().getFrom().getFile().getNotation().toLowerCase());
-				} else if ((Bitboard.getRankBB(moveLogEntry.getMove().getFrom()) & amb) == 0L) {
-					san.append(moveLogEntry.getMove().getFrom().getRank().getNotation().toLowerCase());
+				if ((Bitboard.getFileBB(move.getFrom()) & amb) == 0L) {
+					san.append(move.getFrom().getFile().getNotation().toLowerCase());
+				} else if ((Bitboard.getRankBB(move.getFrom()) & amb) == 0L) {
+					san.append(move.getFrom().getRank().getNotation().toLowerCase());
 				} else {
-					san.append(moveLogEntry.getMove().getFrom().toString().toLowerCase());
+					san.append(move.getFrom().toString().toLowerCase());
 				}
 				ambiguityResolved = true;
 			}
 		}
 
 
-		Piece captured = moveLogEntry.getCapturedPiece();
-		boolean isCapture = captured != null;
+		boolean isCapture = PackedMove.isCapture(PackedMove.fromMove(board, move));
 		if (isCapture) {
 			if (!ambiguityResolved
 				&& piece.getPieceType().equals(PieceType.PAWN)
 			) {
-				san.append(moveLogEntry.getMove().getFrom().getFile().getNotation().toLowerCase());
+				san.append(move.getFrom().getFile().getNotation().toLowerCase());
 			}
 			san.append("x");
 		}
-		san.append(moveLogEntry.getMove().getTo().toString().toLowerCase());
-		if (moveLogEntry.getMove().getPromotion() != null) {
+		san.append(move.getTo().toString().toLowerCase());
+		if (move.getPromotion() != null) {
 			san.append("=");
-			san.append(moveLogEntry.getMove().getPromotion().getNotation(notation));
+			san.append(move.getPromotion().getNotation(notation));
 		}
 
-		// TODO
-		// addCheckFlag(board, san);
+		addCheckFlag(board, move, san);
 
 		return san.toString();
 
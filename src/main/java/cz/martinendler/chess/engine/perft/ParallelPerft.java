@@ -0,0 +1,307 @@
+package cz.martinendler.chess.engine.perft;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.move.IntMoveList;
+import cz.martinendler.chess.engine.move.MoveGenerator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel {@link Perft} using a {@link ForkJoinPool}
+ * <p>
+ * The tree is split at the root moves ({@code splitDepth = 1}) or at the first two plies ({@code splitDepth = 2}).
+ * Each subtree is counted by a separate task that works on its own copy of the board,
+ * so the tasks do not share any mutable state (except for the statistics). The node counts are summed,
+ * so the result does not depend on the order in which the tasks are executed.
+ * <p>
+ * Optionally, all the tasks can share one {@link PerftHashTable}.
+ */
+public class ParallelPerft {
+
+	private ParallelPerft() {
+		// we do not want ParallelPerft to be instantiable
+	}
+
+	/**
+	 * Statistics of one worker thread
+	 */
+	public static class ThreadStats {
+
+		private long nodes;
+		private long busyNanos;
+		private int tasks;
+
+		private synchronized void add(long nodes, long busyNanos) {
+			this.nodes += nodes;
+			this.busyNanos += busyNanos;
+			this.tasks++;
+		}
+
+		public synchronized long getNodes() {
+			return nodes;
+		}
+
+		/**
+		 * Gets the time the thread spent counting the nodes
+		 *
+		 * @return the time in nanoseconds
+		 */
+		public synchronized long getBusyNanos() {
+			return busyNanos;
+		}
+
+		/**
+		 * Gets the number of subtrees the thread counted
+		 *
+		 * @return the number of tasks
+		 */
+		public synchronized int getTasks() {
+			return tasks;
+		}
+
+		/**
+		 * Gets the nodes per second of this thread (while it was busy)
+		 *
+		 * @return the nodes per second
+		 */
+		public synchronized double getNps() {
+			return busyNanos > 0 ? nodes * 1_000_000_000.0 / busyNanos : 0.0;
+		}
+
+	}
+
+	/**
+	 * The result of a parallel perft run
+	 */
+	public static class Result {
+
+		private final long nodes;
+		private final long elapsedNanos;
+		private final int parallelism;
+		private final @NotNull Map<String, ThreadStats> threads;
+
+		private Result(long nodes, long elapsedNanos, int parallelism, @NotNull Map<String, ThreadStats> threads) {
+			this.nodes = nodes;
+			this.elapsedNanos = elapsedNanos;
+			this.parallelism = parallelism;
+			this.threads = threads;
+		}
+
+		public long getNodes() {
+			return nodes;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public int getParallelism() {
+			return parallelism;
+		}
+
+		/**
+		 * Gets the statistics of the worker threads
+		 *
+		 * @return the thread names (sorted) mapped to their statistics
+		 */
+		public @NotNull Map<String, ThreadStats> getThreads() {
+			return threads;
+		}
+
+		/**
+		 * Gets the total nodes per second (using the wall-clock time)
+		 *
+		 * @return the nodes per second
+		 */
+		public double getNps() {
+			return elapsedNanos > 0 ? nodes * 1_000_000_000.0 / elapsedNanos : 0.0;
+		}
+
+	}
+
+	/**
+	 * Counts the leaf nodes of the legal move tree of the given depth in parallel
+	 *
+	 * @param board       the board (it is not modified)
+	 * @param depth       the depth
+	 * @param parallelism the number of worker threads
+	 * @param splitDepth  the number of plies that are split into tasks (1 or 2)
+	 * @return the result
+	 */
+	public static @NotNull Result perft(@NotNull Board board, int depth, int parallelism, int splitDepth) {
+		return perft(board, depth, parallelism, splitDepth, null);
+	}
+
+	/**
+	 * Counts the leaf nodes of the legal move tree of the given depth in parallel
+	 *
+	 * @param board       the board (it is not modified)
+	 * @param depth       the depth
+	 * @param parallelism the number of worker threads
+	 * @param splitDepth  the number of plies that are split into tasks (1 or 2)
+	 * @param table       the hash table shared by all the tasks or {@code null} to count without hashing
+	 * @return the result
+	 */
+	public static @NotNull Result perft(
+		@NotNull Board board,
+		int depth,
+		int parallelism,
+		int splitDepth,
+		@Nullable PerftHashTable table
+	) {
+
+		if (depth < 0) {
+			throw new IllegalArgumentException("depth must be non-negative");
+		}
+
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+
+		if (splitDepth < 1 || splitDepth > 2) {
+			throw new IllegalArgumentException("splitDepth must be 1 or 2");
+		}
+
+		Map<String, ThreadStats> threads = new ConcurrentHashMap<>();
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		long start = System.nanoTime();
+
+		long nodes;
+
+		try {
+			// there must be at least one ply below the split, otherwise there is nothing to parallelize
+			int split = Math.min(splitDepth, depth - 1);
+			if (split < 1) {
+				nodes = table != null
+					? Perft.perft(new Board(board), depth, table)
+					: Perft.perft(new Board(board), depth);
+			} else {
+				nodes = pool.invoke(new SplitTask(new Board(board), depth, split, table, threads));
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		long elapsed = System.nanoTime() - start;
+
+		return new Result(nodes, elapsed, parallelism, Collections.unmodifiableMap(new TreeMap<>(threads)));
+
+	}
+
+	/**
+	 * Makes each legal move on a copy of the board and counts the subtrees in subtasks
+	 */
+	private static class SplitTask extends RecursiveTask<Long> {
+
+		private final @NotNull Board board;
+		private final int depth;
+		private final int split;
+		private final @Nullable PerftHashTable table;
+		private final @NotNull Map<String, ThreadStats> threads;
+
+		/**
+		 * @param board   the board owned by this task
+		 * @param depth   the remaining depth
+		 * @param split   the remaining plies to split (at least 1)
+		 * @param table   the shared hash table (optional)
+		 * @param threads the statistics
+		 */
+		private SplitTask(
+			@NotNull Board board,
+			int depth,
+			int split,
+			@Nullable PerftHashTable table,
+			@NotNull Map<String, ThreadStats> threads
+		) {
+			this.board = board;
+			this.depth = depth;
+			this.split = split;
+			this.table = table;
+			this.threads = threads;
+		}
+
+		@Override
+		protected Long compute() {
+
+			IntMoveList moves = new IntMoveList();
+			MoveGenerator.generateLegalMoves(board, moves);
+
+			List<RecursiveTask<Long>> tasks = new ArrayList<>(moves.size());
+
+			for (int i = 0; i < moves.size(); i++) {
+				Board child = new Board(board);
+				child.makeMove(moves.get(i));
+				tasks.add(
+					split > 1
+						? new SplitTask(child, depth - 1, split - 1, table, threads)
+						: new CountTask(child, depth - 1, table, threads)
+				);
+			}
+
+			long nodes = 0L;
+
+			for (RecursiveTask<Long> task : invokeAll(tasks)) {
+				nodes += task.join();
+			}
+
+			return nodes;
+
+		}
+
+	}
+
+	/**
+	 * Counts one subtree sequentially
+	 */
+	private static class CountTask extends RecursiveTask<Long> {
+
+		private final @NotNull Board board;
+		private final int depth;
+		private final @Nullable PerftHashTable table;
+		private final @NotNull Map<String, ThreadStats> threads;
+
+		private CountTask(
+			@NotNull Board board,
+			int depth,
+			@Nullable PerftHashTable table,
+			@NotNull Map<String, ThreadStats> threads
+		) {
+			this.board = board;
+			this.depth = depth;
+			this.table = table;
+			this.threads = threads;
+		}
+
+		@Override
+		protected Long compute() {
+
+			long start = System.nanoTime();
+
+			IntMoveList[] lists = Perft.createMoveLists(depth);
+
+			long nodes = table != null
+				? Perft.perft(board, depth, lists, table)
+				: Perft.perft(board, depth, lists);
+
+			threads
+				.computeIfAbsent(Thread.currentThread().getName(), name -> new ThreadStats())
+				.add(nodes, System.nanoTime() - start);
+
+			return nodes;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,203 @@
+package cz.martinendler.chess.engine.perft;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.move.IntMoveList;
+import cz.martinendler.chess.engine.move.Move;
+import cz.martinendler.chess.engine.move.MoveGenerator;
+import cz.martinendler.chess.engine.move.PackedMove;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Performance test (perft) of the move generation
+ * <p>
+ * Perft counts all the leaf nodes of the legal move tree of the given depth.
+ * The counts are compared with the well-known values to verify the move generator
+ * (and {@link Board#makeMove(int)} / {@link Board#unmakeMove(int, long)}), the time gives
+ * the move generation speed.
+ * <p>
+ * The board is traversed in place using make/unmake and the moves are generated into preallocated
+ * {@link IntMoveList lists} (one per ply), so no objects are created during the traversal.
+ * The last ply is not made at all, the number of legal moves is used instead (bulk counting,
+ * see {@link Board#countLegalMoves()}).
+ * Optionally, the node counts of the subtrees can be cached in a {@link PerftHashTable}.
+ *
+ * @see <a href="https://www.chessprogramming.org/Perft">Perft on CPW</a>
+ */
+public class Perft {
+
+	private Perft() {
+		// we do not want Perft to be instantiable
+	}
+
+	/**
+	 * Creates move lists for the given depth (one list per ply)
+	 *
+	 * @param depth the depth
+	 * @return the move lists
+	 */
+	static @NotNull IntMoveList[] createMoveLists(int depth) {
+		IntMoveList[] lists = new IntMoveList[Math.max(depth, 1)];
+		for (int i = 0; i < lists.length; i++) {
+			lists[i] = new IntMoveList();
+		}
+		return lists;
+	}
+
+	/**
+	 * Counts the leaf nodes of the legal move tree of the given depth
+	 * <p>
+	 * The board is modified during the computation, but it is restored before this method returns.
+	 *
+	 * @param board the board
+	 * @param depth the depth
+	 * @return the number of leaf nodes
+	 */
+	public static long perft(@NotNull Board board, int depth) {
+
+		if (depth < 0) {
+			throw new IllegalArgumentException("depth must be non-negative");
+		}
+
+		return perft(board, depth, createMoveLists(depth));
+
+	}
+
+	/**
+	 * Counts the leaf nodes of the legal move tree of the given depth
+	 *
+	 * @param board the board
+	 * @param depth the depth
+	 * @param lists the move lists (at least {@code depth} lists)
+	 * @return the number of leaf nodes
+	 */
+	static long perft(@NotNull Board board, int depth, @NotNull IntMoveList[] lists) {
+
+		if (depth == 0) {
+			return 1L;
+		}
+
+		// bulk counting (the moves are only counted, they are not generated)
+		if (depth == 1) {
+			return board.countLegalMoves();
+		}
+
+		IntMoveList moves = lists[depth - 1];
+		moves.clear();
+		MoveGenerator.generateLegalMoves(board, moves);
+
+		long nodes = 0L;
+
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			long undo = board.makeMove(move);
+			nodes += perft(board, depth - 1, lists);
+			board.unmakeMove(move, undo);
+		}
+
+		return nodes;
+
+	}
+
+	/**
+	 * Counts the leaf nodes of the legal move tree of the given depth using the given hash table
+	 * <p>
+	 * The node counts of the subtrees (of depth 2 and more) are stored in the table,
+	 * so the transposed subtrees are counted only once. The table can be shared by multiple threads.
+	 * <p>
+	 * The board is modified during the computation, but it is restored before this method returns.
+	 *
+	 * @param board the board
+	 * @param depth the depth
+	 * @param table the hash table
+	 * @return the number of leaf nodes
+	 */
+	public static long perft(@NotNull Board board, int depth, @NotNull PerftHashTable table) {
+
+		if (depth < 0) {
+			throw new IllegalArgumentException("depth must be non-negative");
+		}
+
+		return perft(board, depth, createMoveLists(depth), table);
+
+	}
+
+	/**
+	 * Counts the leaf nodes of the legal move tree of the given depth using the given hash table
+	 *
+	 * @param board the board
+	 * @param depth the depth
+	 * @param lists the move lists (at least {@code depth} lists)
+	 * @param table the hash table
+	 * @return the number of leaf nodes
+	 */
+	static long perft(@NotNull Board board, int depth, @NotNull IntMoveList[] lists, @NotNull PerftHashTable table) {
+
+		// the bulk counting is cheaper than a probe
+		if (depth < 2) {
+			return perft(board, depth, lists);
+		}
+
+		long key = board.getZobristKey();
+
+		long nodes = table.probe(key, depth);
+
+		if (nodes >= 0L) {
+			return nodes;
+		}
+
+		IntMoveList moves = lists[depth - 1];
+		moves.clear();
+		MoveGenerator.generateLegalMoves(board, moves);
+
+		nodes = 0L;
+
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			long undo = board.makeMove(move);
+			nodes += perft(board, depth - 1, lists, table);
+			board.unmakeMove(move, undo);
+		}
+
+		table.store(key, depth, nodes);
+
+		return nodes;
+
+	}
+
+	/**
+	 * Counts the leaf nodes of the legal move tree of the given depth for each of the root moves
+	 * <p>
+	 * It is used to find bugs in the move generator by comparing the counts with another move generator.
+	 *
+	 * @param board the board
+	 * @param depth the depth (at least 1)
+	 * @return the root moves (in the order they were generated) mapped to their node counts
+	 */
+	public static @NotNull Map<Move, Long> divide(@NotNull Board board, int depth) {
+
+		if (depth < 1) {
+			throw new IllegalArgumentException("depth must be at least 1");
+		}
+
+		IntMoveList[] lists = createMoveLists(depth);
+
+		IntMoveList moves = new IntMoveList();
+		MoveGenerator.generateLegalMoves(board, moves);
+
+		Map<Move, Long> result = new LinkedHashMap<>();
+
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			long undo = board.makeMove(move);
+			result.put(PackedMove.toMove(move), perft(board, depth - 1, lists));
+			board.unmakeMove(move, undo);
+		}
+
+		return result;
+
+	}
+
+}
@@ -0,0 +1,233 @@
+package cz.martinendler.chess.engine.perft;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.move.Move;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command line interface for {@link Perft} (it does not start JavaFX)
+ * <p>
+ * Usage:
+ * <pre>
+ * mvn compile exec:java -Dexec.mainClass=cz.martinendler.chess.engine.perft.PerftCli \
+ *   [-Dexec.args="[--depth N] [--position NAME]... [--fen FEN] [--divide] [--threads N] [--split-depth N] [--hash MB]"]
+ * </pre>
+ * Without any arguments, all the {@link PerftPosition standard positions} are run using their default depths
+ * and the node counts are compared with the expected ones. The exit code is {@code 1} if any count does not match.
+ */
+public class PerftCli {
+
+	private static final String USAGE = String.join(
+		System.lineSeparator(),
+		"usage: PerftCli [--depth N] [--position NAME]... [--fen FEN] [--divide] [--threads N] [--split-depth N] [--hash MB]",
+		"  --depth N        the perft depth (defaults to the position's default depth, 5 for --fen)",
+		"  --position NAME  run only the given standard position (can be repeated)",
+		"  --fen FEN        run a custom position (no expected count)",
+		"  --divide         print the node counts for each root move",
+		"  --threads N      run a parallel perft using N threads (0 = all available processors)",
+		"  --split-depth N  the number of plies split into parallel tasks (1 or 2, defaults to 2)",
+		"  --hash MB        cache the subtree node counts in a hash table of the given size (shared by all threads)",
+		"positions: " + String.join(", ", positionNames())
+	);
+
+	private PerftCli() {
+		// we do not want PerftCli to be instantiable
+	}
+
+	private static @NotNull List<String> positionNames() {
+		List<String> names = new ArrayList<>();
+		for (PerftPosition position : PerftPosition.values()) {
+			names.add(position.name());
+		}
+		return names;
+	}
+
+	public static void main(String[] args) {
+
+		int depth = -1;
+		boolean divide = false;
+		int threads = 1;
+		int splitDepth = 2;
+		int hashMb = 0;
+		String fen = null;
+		List<PerftPosition> positions = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--depth" -> depth = Integer.parseInt(args[++i]);
+					case "--position" -> positions.add(PerftPosition.valueOf(args[++i].toUpperCase(Locale.ROOT)));
+					case "--fen" -> fen = args[++i];
+					case "--divide" -> divide = true;
+					case "--threads" -> threads = Integer.parseInt(args[++i]);
+					case "--split-depth" -> splitDepth = Integer.parseInt(args[++i]);
+					case "--hash" -> hashMb = Integer.parseInt(args[++i]);
+					case "--help", "-h" -> {
+						System.out.println(USAGE);
+						return;
+					}
+					default -> throw new IllegalArgumentException("unknown argument " + args[i]);
+				}
+			}
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println("Invalid arguments: " + e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+
+		if (divide && threads > 1) {
+			System.err.println("--divide is not supported together with --threads");
+			System.exit(2);
+			return;
+		}
+
+		Runner runner = new Runner(divide, threads, splitDepth, hashMb > 0 ? new PerftHashTable(hashMb) : null);
+
+		boolean ok = true;
+
+		if (fen != null) {
+			Board board = new Board();
+			board.loadFromFen(fen);
+			ok = runner.run("FEN", board, depth > 0 ? depth : 5, -1L);
+		}
+
+		if (fen == null && positions.isEmpty()) {
+			positions.addAll(List.of(PerftPosition.values()));
+		}
+
+		for (PerftPosition position : positions) {
+			int d = depth > 0 ? depth : position.getDefaultDepth();
+			ok &= runner.run(position.name(), position.createBoard(), d, position.getExpectedNodes(d));
+		}
+
+		if (!ok) {
+			System.exit(1);
+		}
+
+	}
+
+	/**
+	 * Runs perft in the mode given by the command line arguments and prints the results
+	 */
+	private static class Runner {
+
+		private final boolean divide;
+		private final int threads;
+		private final int splitDepth;
+		private final @Nullable PerftHashTable table;
+
+		private Runner(boolean divide, int threads, int splitDepth, @Nullable PerftHashTable table) {
+			this.divide = divide;
+			this.threads = threads;
+			this.splitDepth = splitDepth;
+			this.table = table;
+		}
+
+		/**
+		 * Runs perft (or divide) on the given board and prints the result
+		 *
+		 * @param name     the position name
+		 * @param board    the board
+		 * @param depth    the depth
+		 * @param expected the expected node count or {@code -1} if it is not known
+		 * @return {@code false} iff the node count does not match the expected count
+		 */
+		private boolean run(@NotNull String name, @NotNull Board board, int depth, long expected) {
+
+			if (table != null) {
+				// each position is counted from scratch
+				table.clear();
+			}
+
+			long start = System.nanoTime();
+
+			long nodes;
+			ParallelPerft.Result parallel = null;
+
+			if (divide) {
+				nodes = 0L;
+				for (Map.Entry<Move, Long> entry : Perft.divide(board, depth).entrySet()) {
+					System.out.println(toUci(entry.getKey()) + ": " + entry.getValue());
+					nodes += entry.getValue();
+				}
+			} else if (threads > 1) {
+				parallel = ParallelPerft.perft(board, depth, threads, splitDepth, table);
+				nodes = parallel.getNodes();
+			} else if (table != null) {
+				nodes = Perft.perft(board, depth, table);
+			} else {
+				nodes = Perft.perft(board, depth);
+			}
+
+			long elapsed = System.nanoTime() - start;
+
+			boolean ok = expected < 0 || nodes == expected;
+
+			System.out.printf(
+				Locale.ROOT,
+				"%-16s depth %d  nodes %,15d  %-22s %,10d ms  %8.2f M nps%n",
+				name,
+				depth,
+				nodes,
+				expected < 0 ? "" : (ok ? "OK" : String.format(Locale.ROOT, "FAIL (expected %,d)", expected)),
+				elapsed / 1_000_000L,
+				nodes / (elapsed / 1_000.0)
+			);
+
+			if (table != null && !divide) {
+				System.out.printf(
+					Locale.ROOT,
+					"  hash %,d entries  probes %,15d  hits %,15d  hit rate %6.2f %%  fill %6.2f %%%n",
+					table.getCapacity(),
+					table.getProbes(),
+					table.getHits(),
+					table.getHitRate() * 100,
+					table.getFill() * 100
+				);
+			}
+
+			if (parallel != null) {
+				for (Map.Entry<String, ParallelPerft.ThreadStats> entry : parallel.getThreads().entrySet()) {
+					ParallelPerft.ThreadStats stats = entry.getValue();
+					System.out.printf(
+						Locale.ROOT,
+						"  %-30s tasks %,6d  nodes %,15d  busy %,10d ms  %8.2f M nps%n",
+						entry.getKey(),
+						stats.getTasks(),
+						stats.getNodes(),
+						stats.getBusyNanos() / 1_000_000L,
+						stats.getNps() / 1_000_000.0
+					);
+				}
+			}
+
+			return ok;
+
+		}
+
+	}
+
+	/**
+	 * Converts the given move to the UCI notation (that is used by other engines' divide output)
+	 *
+	 * @param move the move
+	 * @return the move in UCI notation (e.g. {@code e2e4}, {@code a7a8q})
+	 */
+	static @NotNull String toUci(@NotNull Move move) {
+		return move.getFrom().getNotation()
+			+ move.getTo().getNotation()
+			+ (move.getPromotion() != null ? move.getPromotion().getFenNotation().toLowerCase(Locale.ROOT) : "");
+	}
+
+}
@@ -0,0 +1,176 @@
+package cz.martinendler.chess.engine.perft;
+
+import cz.martinendler.chess.engine.board.Board;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size hash table that maps (position key, depth) to the perft node count
+ * <p>
+ * The table can be shared by multiple threads without any locking. Each entry consists of two longs:
+ * the data (the node count and the depth) and the position key XOR-ed with the data.
+ * A probe accepts an entry only if the key computed back from both the longs matches,
+ * so an entry that was torn by a concurrent store (one long from one store, one long from another)
+ * is treated as a miss. A wrong count can therefore be returned only in the case of a real key collision.
+ * <p>
+ * Each key maps to exactly one slot. A store replaces the entry if it is empty or if the new depth is
+ * greater or equal to the stored one (replace-by-depth), because deeper entries save more work.
+ *
+ * @see <a href="https://www.chessprogramming.org/Perft#Hashing">Perft Hashing on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Shared_Hash_Table#Lockless">Lockless Shared Hash Table on CPW</a>
+ */
+public class PerftHashTable {
+
+	/**
+	 * Size of one entry in bytes
+	 */
+	public static final int ENTRY_SIZE = 2 * Long.BYTES;
+
+	private static final int DEPTH_BITS = 8;
+	private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+	/**
+	 * Entries, {@code [2 * i]} is the key XOR data, {@code [2 * i + 1]} is the data
+	 * (the node count shifted by {@link #DEPTH_BITS} OR the depth)
+	 */
+	private final long[] entries;
+	private final long indexMask;
+
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder stores = new LongAdder();
+
+	/**
+	 * Creates a new table
+	 *
+	 * @param sizeInMb the maximum size of the table in megabytes,
+	 *                 the number of entries is rounded down to a power of two
+	 */
+	public PerftHashTable(int sizeInMb) {
+
+		if (sizeInMb < 1) {
+			throw new IllegalArgumentException("sizeInMb must be at least 1");
+		}
+
+		long count = Long.highestOneBit(((long) sizeInMb << 20) / ENTRY_SIZE);
+
+		// the array must be indexable by int
+		count = Math.min(count, 1L << 29);
+
+		entries = new long[(int) (2 * count)];
+		indexMask = count - 1;
+
+	}
+
+	/**
+	 * Gets the number of entries
+	 *
+	 * @return the number of entries
+	 */
+	public int getCapacity() {
+		return entries.length / 2;
+	}
+
+	/**
+	 * Looks up the node count of the given position and depth
+	 *
+	 * @param key   the position key (see {@link Board#getZobristKey()})
+	 * @param depth the depth
+	 * @return the node count or {@code -1} if it is not stored
+	 */
+	public long probe(long key, int depth) {
+
+		probes.increment();
+
+		int index = (int) (key & indexMask) << 1;
+
+		long data = entries[index + 1];
+		long check = entries[index];
+
+		if (data != 0L && (check ^ data) == key && (data & DEPTH_MASK) == depth) {
+			hits.increment();
+			return data >>> DEPTH_BITS;
+		}
+
+		return -1L;
+
+	}
+
+	/**
+	 * Stores the node count of the given position and depth
+	 *
+	 * @param key   the position key (see {@link Board#getZobristKey()})
+	 * @param depth the depth (1 to 255)
+	 * @param nodes the node count (less than 2^56)
+	 */
+	public void store(long key, int depth, long nodes) {
+
+		int index = (int) (key & indexMask) << 1;
+
+		long stored = entries[index + 1];
+
+		if (stored != 0L && (stored & DEPTH_MASK) > depth) {
+			return;
+		}
+
+		long data = (nodes << DEPTH_BITS) | depth;
+
+		entries[index] = key ^ data;
+		entries[index + 1] = data;
+
+		stores.increment();
+
+	}
+
+	/**
+	 * Removes all the entries and resets the statistics
+	 * <p>
+	 * It must not be called while the table is in use.
+	 */
+	public void clear() {
+		Arrays.fill(entries, 0L);
+		probes.reset();
+		hits.reset();
+		stores.reset();
+	}
+
+	public long getProbes() {
+		return probes.sum();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getStores() {
+		return stores.sum();
+	}
+
+	/**
+	 * Gets the ratio of the probes that found the node count
+	 *
+	 * @return the hit rate (from 0 to 1)
+	 */
+	public double getHitRate() {
+		long p = getProbes();
+		return p > 0 ? (double) getHits() / p : 0.0;
+	}
+
+	/**
+	 * Gets the ratio of the used entries (estimated from the first 1000 entries)
+	 *
+	 * @return the ratio of the used entries (from 0 to 1)
+	 */
+	public double getFill() {
+		int sample = Math.min(1000, getCapacity());
+		int used = 0;
+		for (int i = 0; i < sample; i++) {
+			if (entries[2 * i + 1] != 0L) {
+				used++;
+			}
+		}
+		return (double) used / sample;
+	}
+
+}
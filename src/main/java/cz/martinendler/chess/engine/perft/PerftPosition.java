@@ -0,0 +1,124 @@
+package cz.martinendler.chess.engine.perft;
+
+import cz.martinendler.chess.engine.board.Board;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Standard perft test positions with the expected node counts
+ * <p>
+ * The positions together cover all the special moves (castling, en passant, promotions)
+ * and the tricky cases (en passant captures that uncover a check, castling rights lost by rook captures,
+ * promotions with captures, checks and pins).
+ *
+ * @see <a href="https://www.chessprogramming.org/Perft_Results">Perft Results on CPW</a>
+ */
+public enum PerftPosition {
+
+	/**
+	 * The standard starting position
+	 */
+	INITIAL(
+		Board.STANDARD_STARTING_POSITION_FEN,
+		5,
+		20L, 400L, 8_902L, 197_281L, 4_865_609L, 119_060_324L, 3_195_901_860L
+	),
+
+	/**
+	 * Kiwipete by Peter McKenzie (castling, en passant, promotions in the subtrees, many pins)
+	 */
+	KIWIPETE(
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		4,
+		48L, 2_039L, 97_862L, 4_085_603L, 193_690_690L
+	),
+
+	/**
+	 * An endgame with en passant captures that uncover a check along the rank (CPW position 3)
+	 */
+	EN_PASSANT(
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		5,
+		14L, 191L, 2_812L, 43_238L, 674_624L, 11_030_083L
+	),
+
+	/**
+	 * Promotions (also with captures), castling rights lost by rook captures, checks (CPW position 4)
+	 */
+	PROMOTION(
+		"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+		4,
+		6L, 264L, 9_467L, 422_333L, 15_833_292L
+	),
+
+	/**
+	 * Promotion with a discovered check and a knight deep in the opponent's camp (CPW position 5)
+	 */
+	PROMOTION_CHECK(
+		"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+		4,
+		44L, 1_486L, 62_379L, 2_103_487L, 89_941_194L
+	),
+
+	/**
+	 * A symmetrical middlegame position (CPW position 6)
+	 */
+	MIDDLEGAME(
+		"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+		4,
+		46L, 2_079L, 89_890L, 3_894_594L, 164_075_551L
+	);
+
+	private final @NotNull String fen;
+	private final int defaultDepth;
+	private final @NotNull long[] expectedNodes;
+
+	PerftPosition(@NotNull String fen, int defaultDepth, long... expectedNodes) {
+		this.fen = fen;
+		this.defaultDepth = defaultDepth;
+		this.expectedNodes = expectedNodes;
+	}
+
+	public @NotNull String getFen() {
+		return fen;
+	}
+
+	/**
+	 * Gets the depth that is used when no depth is given (it takes up to a few seconds)
+	 *
+	 * @return the default depth
+	 */
+	public int getDefaultDepth() {
+		return defaultDepth;
+	}
+
+	/**
+	 * Gets the maximum depth with a known node count
+	 *
+	 * @return the maximum depth
+	 */
+	public int getMaxDepth() {
+		return expectedNodes.length;
+	}
+
+	/**
+	 * Gets the expected number of leaf nodes for the given depth
+	 *
+	 * @param depth the depth (at least 1)
+	 * @return the expected node count or {@code -1} if it is not known
+	 */
+	public long getExpectedNodes(int depth) {
+		return depth >= 1 && depth <= expectedNodes.length ? expectedNodes[depth - 1] : -1L;
+	}
+
+	/**
+	 * Creates a new board with this position
+	 *
+	 * @return the board
+	 */
+	public @NotNull Board createBoard() {
+		Board board = new Board();
+		board.loadFromFen(fen);
+		return board;
+	}
+
+}
@@ -0,0 +1,217 @@
+package cz.martinendler.chess.engine.search;
+
+import cz.martinendler.chess.engine.Side;
+import cz.martinendler.chess.engine.board.Bitboard;
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.pieces.Piece;
+import cz.martinendler.chess.engine.pieces.PieceType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Static evaluation of a position: material plus piece-square tables
+ * <p>
+ * The material values and the tables are the ones of the Simplified Evaluation Function.
+ * The material value of each piece is merged into its table when the class is loaded,
+ * so the evaluation is a single table lookup per piece. Only the king uses two tables
+ * (the middlegame and the endgame one) that are interpolated by the game phase.
+ * <p>
+ * The evaluation does not allocate anything.
+ *
+ * @see <a href="https://www.chessprogramming.org/Simplified_Evaluation_Function">Simplified Evaluation Function on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Piece-Square_Tables">Piece-Square Tables on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Tapered_Eval">Tapered Eval on CPW</a>
+ */
+public class Evaluation {
+
+	/**
+	 * The material values of the piece types (indexed by {@link PieceType#ordinal()}), the king has no material value
+	 */
+	private static final int[] pieceTypeValues = {100, 320, 330, 500, 900, 0};
+
+	/**
+	 * The phase weights of the piece types (indexed by {@link PieceType#ordinal()})
+	 */
+	private static final int[] phaseWeights = {0, 1, 1, 2, 4, 0};
+
+	/**
+	 * The phase of the starting position (all the pieces on the board)
+	 */
+	private static final int MAX_PHASE = 24;
+
+	// The tables are written from the white's point of view, the 8th rank first
+	// (i.e. the table index of a white piece on a square is square.ordinal() ^ 56).
+
+	private static final int[] pawnTable = {
+		0, 0, 0, 0, 0, 0, 0, 0,
+		50, 50, 50, 50, 50, 50, 50, 50,
+		10, 10, 20, 30, 30, 20, 10, 10,
+		5, 5, 10, 25, 25, 10, 5, 5,
+		0, 0, 0, 20, 20, 0, 0, 0,
+		5, -5, -10, 0, 0, -10, -5, 5,
+		5, 10, 10, -20, -20, 10, 10, 5,
+		0, 0, 0, 0, 0, 0, 0, 0,
+	};
+
+	private static final int[] knightTable = {
+		-50, -40, -30, -30, -30, -30, -40, -50,
+		-40, -20, 0, 0, 0, 0, -20, -40,
+		-30, 0, 10, 15, 15, 10, 0, -30,
+		-30, 5, 15, 20, 20, 15, 5, -30,
+		-30, 0, 15, 20, 20, 15, 0, -30,
+		-30, 5, 10, 15, 15, 10, 5, -30,
+		-40, -20, 0, 5, 5, 0, -20, -40,
+		-50, -40, -30, -30, -30, -30, -40, -50,
+	};
+
+	private static final int[] bishopTable = {
+		-20, -10, -10, -10, -10, -10, -10, -20,
+		-10, 0, 0, 0, 0, 0, 0, -10,
+		-10, 0, 5, 10, 10, 5, 0, -10,
+		-10, 5, 5, 10, 10, 5, 5, -10,
+		-10, 0, 10, 10, 10, 10, 0, -10,
+		-10, 10, 10, 10, 10, 10, 10, -10,
+		-10, 5, 0, 0, 0, 0, 5, -10,
+		-20, -10, -10, -10, -10, -10, -10, -20,
+	};
+
+	private static final int[] rookTable = {
+		0, 0, 0, 0, 0, 0, 0, 0,
+		5, 10, 10, 10, 10, 10, 10, 5,
+		-5, 0, 0, 0, 0, 0, 0, -5,
+		-5, 0, 0, 0, 0, 0, 0, -5,
+		-5, 0, 0, 0, 0, 0, 0, -5,
+		-5, 0, 0, 0, 0, 0, 0, -5,
+		-5, 0, 0, 0, 0, 0, 0, -5,
+		0, 0, 0, 5, 5, 0, 0, 0,
+	};
+
+	private static final int[] queenTable = {
+		-20, -10, -10, -5, -5, -10, -10, -20,
+		-10, 0, 0, 0, 0, 0, 0, -10,
+		-10, 0, 5, 5, 5, 5, 0, -10,
+		-5, 0, 5, 5, 5, 5, 0, -5,
+		0, 0, 5, 5, 5, 5, 0, -5,
+		-10, 5, 5, 5, 5, 5, 0, -10,
+		-10, 0, 5, 0, 0, 0, 0, -10,
+		-20, -10, -10, -5, -5, -10, -10, -20,
+	};
+
+	private static final int[] kingMiddlegameTable = {
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-30, -40, -40, -50, -50, -40, -40, -30,
+		-20, -30, -30, -40, -40, -30, -30, -20,
+		-10, -20, -20, -20, -20, -20, -20, -10,
+		20, 20, 0, 0, 0, 0, 20, 20,
+		20, 30, 10, 0, 0, 10, 30, 20,
+	};
+
+	private static final int[] kingEndgameTable = {
+		-50, -40, -30, -20, -20, -30, -40, -50,
+		-30, -20, -10, 0, 0, -10, -20, -30,
+		-30, -10, 20, 30, 30, 20, -10, -30,
+		-30, -10, 30, 40, 40, 30, -10, -30,
+		-30, -10, 30, 40, 40, 30, -10, -30,
+		-30, -10, 20, 30, 30, 20, -10, -30,
+		-30, -30, 0, 0, 0, 0, -30, -30,
+		-50, -30, -30, -30, -30, -30, -30, -50,
+	};
+
+	private static final Piece[] pieces = Piece.values();
+
+	private static final int[][] pieceTypeTables = {
+		pawnTable, knightTable, bishopTable, rookTable, queenTable, kingMiddlegameTable,
+	};
+
+	/**
+	 * The material plus the table value of each piece on each square
+	 * (indexed by {@link Piece#ordinal()} and square index, from the white's point of view,
+	 * i.e. the values of the black pieces are negative)
+	 */
+	private static final int[][] pieceSquareValues = new int[Piece.values().length][64];
+
+	/**
+	 * The endgame table value of the king on each square (indexed by {@link Side#ordinal()} and square index,
+	 * from the white's point of view)
+	 */
+	private static final int[][] kingEndgameValues = new int[Side.values().length][64];
+
+	static {
+		for (Piece piece : pieces) {
+			int type = piece.getPieceType().ordinal();
+			boolean white = piece.getPieceSide() == Side.WHITE;
+			for (int sq = 0; sq < 64; sq++) {
+				int value = pieceTypeValues[type] + pieceTypeTables[type][white ? sq ^ 56 : sq];
+				pieceSquareValues[piece.ordinal()][sq] = white ? value : -value;
+			}
+		}
+		for (int sq = 0; sq < 64; sq++) {
+			kingEndgameValues[Side.WHITE.ordinal()][sq] = kingEndgameTable[sq ^ 56];
+			kingEndgameValues[Side.BLACK.ordinal()][sq] = -kingEndgameTable[sq];
+		}
+	}
+
+	private Evaluation() {
+		// we do not want Evaluation to be instantiable
+	}
+
+	/**
+	 * Gets the material value of the given piece type
+	 *
+	 * @param type the piece type
+	 * @return the value in centipawns ({@code 0} for the king)
+	 */
+	public static int getValue(@NotNull PieceType type) {
+		return pieceTypeValues[type.ordinal()];
+	}
+
+	/**
+	 * Evaluates the given position
+	 *
+	 * @param board the board
+	 * @return the score in centipawns from the side to move's point of view
+	 */
+	public static int evaluate(@NotNull Board board) {
+
+		int score = 0;
+		int phase = 0;
+
+		int middlegameKings = 0;
+		int endgameKings = 0;
+
+		for (Piece piece : pieces) {
+
+			long bb = board.getBitboard(piece);
+
+			if (bb == 0L) {
+				continue;
+			}
+
+			int[] values = pieceSquareValues[piece.ordinal()];
+
+			if (piece.getPieceType() == PieceType.KING) {
+				int sq = Bitboard.bitScanForward(bb);
+				middlegameKings += values[sq];
+				endgameKings += kingEndgameValues[piece.getPieceSide().ordinal()][sq];
+				continue;
+			}
+
+			phase += phaseWeights[piece.getPieceType().ordinal()] * Long.bitCount(bb);
+
+			while (bb != 0L) {
+				score += values[Bitboard.bitScanForward(bb)];
+				bb = Bitboard.removeLSB(bb);
+			}
+
+		}
+
+		phase = Math.min(phase, MAX_PHASE);
+
+		score += (middlegameKings * phase + endgameKings * (MAX_PHASE - phase)) / MAX_PHASE;
+
+		return board.getSideToMove() == Side.WHITE ? score : -score;
+
+	}
+
+}
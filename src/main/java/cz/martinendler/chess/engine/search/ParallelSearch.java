@@ -0,0 +1,196 @@
+package cz.martinendler.chess.engine.search;
+
+import cz.martinendler.chess.engine.board.Board;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Multi-threaded {@link Search} (Lazy SMP)
+ * <p>
+ * All the threads search the same root position at the same time and they share one {@link TranspositionTable}.
+ * They do not communicate otherwise, each thread has its own {@link Search} (with its own copy of the board,
+ * move pickers, killer moves and PV). The helper threads fill the table with the results that the main thread
+ * (the caller's thread) then finds instead of searching the subtrees itself.
+ * To make the threads search different parts of the tree, every other helper skips the first iteration
+ * (so it is always one ply deeper than the main thread).
+ * <p>
+ * Only the main thread respects the {@link SearchLimits limits}. Once it finishes, the helpers are stopped
+ * and the result of the main thread is returned (with the nodes of all the threads).
+ * <p>
+ * The helpers run in a fixed pool of daemon threads that is created with the instance,
+ * call {@link #shutdown()} once the instance is no longer needed. An instance can run only one search at a time
+ * (except for {@link #stop()}, which can be called from any thread).
+ *
+ * @see <a href="https://www.chessprogramming.org/Lazy_SMP">Lazy SMP on CPW</a>
+ */
+public class ParallelSearch {
+
+	private final @NotNull TranspositionTable table;
+
+	/**
+	 * The searches of the threads, {@code searches[0]} is the main one
+	 */
+	private final @NotNull Search[] searches;
+
+	private final @NotNull Future<?>[] helpers;
+
+	private final @Nullable ExecutorService executor;
+
+	/**
+	 * Creates a new search with a transposition table of the {@link Search#DEFAULT_TABLE_SIZE_MB default size}
+	 *
+	 * @param threads the number of threads (including the caller's thread)
+	 */
+	public ParallelSearch(int threads) {
+		this(threads, new TranspositionTable(Search.DEFAULT_TABLE_SIZE_MB));
+	}
+
+	/**
+	 * Creates a new search
+	 *
+	 * @param threads the number of threads (including the caller's thread)
+	 * @param table   the transposition table shared by the threads
+	 */
+	public ParallelSearch(int threads, @NotNull TranspositionTable table) {
+
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1");
+		}
+
+		this.table = table;
+
+		searches = new Search[threads];
+		for (int i = 0; i < threads; i++) {
+			searches[i] = new Search(table);
+		}
+
+		helpers = new Future<?>[threads - 1];
+
+		if (threads > 1) {
+			executor = Executors.newFixedThreadPool(threads - 1, runnable -> {
+				Thread thread = new Thread(runnable, "search-helper");
+				thread.setDaemon(true);
+				return thread;
+			});
+		} else {
+			executor = null;
+		}
+
+	}
+
+	/**
+	 * Gets the number of threads (including the caller's thread)
+	 *
+	 * @return the number of threads
+	 */
+	public int getThreads() {
+		return searches.length;
+	}
+
+	/**
+	 * Gets the transposition table shared by the threads
+	 *
+	 * @return the transposition table
+	 */
+	public @NotNull TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Requests the running search to stop (it can be called from any thread)
+	 * <p>
+	 * The search returns the result of the last iteration completed by the main thread.
+	 * As with {@link Search#stop()}, the first iteration is always completed and a request
+	 * made before a search is started is cleared by the search.
+	 */
+	public void stop() {
+		searches[0].stop();
+	}
+
+	/**
+	 * Stops the helper threads (the instance must not be used afterwards)
+	 */
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Searches the given position
+	 *
+	 * @param position the position (it is copied, it is not modified)
+	 * @param limits   the limits
+	 * @return the result of the last iteration completed by the main thread
+	 * (with the total number of the nodes searched by all the threads)
+	 */
+	public @NotNull SearchResult search(@NotNull Board position, @NotNull SearchLimits limits) {
+		return search(position, Search.NO_HISTORY, limits);
+	}
+
+	/**
+	 * Searches the given position of a game
+	 *
+	 * @param position the position (it is copied, it is not modified)
+	 * @param history  the keys of the game positions before the position
+	 *                 (see {@link Search#search(Board, long[], SearchLimits)}, it is not modified)
+	 * @param limits   the limits
+	 * @return the result of the last iteration completed by the main thread
+	 * (with the total number of the nodes searched by all the threads)
+	 */
+	public @NotNull SearchResult search(@NotNull Board position, @NotNull long[] history, @NotNull SearchLimits limits) {
+
+		for (Search search : searches) {
+			search.prepare();
+		}
+
+		table.newSearch();
+
+		// the helpers are stopped by the main thread, they only must not exceed the maximum depth
+		SearchLimits helperLimits = new SearchLimits();
+
+		for (int i = 1; i < searches.length; i++) {
+			Search helper = searches[i];
+			int depthOffset = i % 2;
+			helpers[i - 1] = Objects.requireNonNull(executor).submit(() -> helper.iterate(position, history, helperLimits, depthOffset));
+		}
+
+		SearchResult result = searches[0].iterate(position, history, limits, 0);
+
+		long nodes = result.getNodes();
+
+		for (int i = 1; i < searches.length; i++) {
+			searches[i].stop();
+		}
+
+		for (int i = 1; i < searches.length; i++) {
+			try {
+				helpers[i - 1].get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("A search helper thread failed", e.getCause());
+			}
+			nodes += searches[i].getNodes();
+		}
+
+		return new SearchResult(
+			result.getBestMove(),
+			result.getScore(),
+			result.getDepth(),
+			nodes,
+			result.getTimeMillis(),
+			result.getPv(),
+			table.getHashfull(),
+			result.getFirstMoveCutoffRate()
+		);
+
+	}
+
+}
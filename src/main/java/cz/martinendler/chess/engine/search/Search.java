@@ -0,0 +1,608 @@
+package cz.martinendler.chess.engine.search;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.move.MoveOrdering;
+import cz.martinendler.chess.engine.move.MovePicker;
+import cz.martinendler.chess.engine.move.PackedMove;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Iterative-deepening principal variation search (PVS)
+ * <p>
+ * The search runs the alpha-beta search with increasing depths (iterative deepening).
+ * The principal variation of the previous iteration is searched first in the next one,
+ * so the cutoffs are found early and the search can be stopped at any time (by the {@link SearchLimits limits}
+ * or by {@link #stop()}) with the result of the last completed iteration.
+ * <p>
+ * In each node, the first move is searched with the full window and the other moves only with a null window
+ * (which proves that they are not better than the first one); a move that turns out to be better
+ * is re-searched with the full window. The moves are ordered by a {@link MovePicker}
+ * (the PV move or the hash move, MVV-LVA captures, promotions, killer moves, the countermove, quiet moves by history)
+ * using the {@link MoveOrdering} tables, which are learned from the cutoffs and aged between the searches.
+ * <p>
+ * At the horizon, the search continues with a quiescence search of the captures only, so that the position
+ * is evaluated only when it is quiet (the side to move can always stand pat on the static evaluation instead of capturing).
+ * The captures that lose material according to the {@link Board#staticExchangeEvaluation(int) static exchange evaluation}
+ * are not searched at all.
+ * <p>
+ * The results of the searched nodes are stored in a {@link TranspositionTable}. A stored entry that is deep enough
+ * cuts off the search of a transposed position (only in the non-PV nodes, so the PV is never truncated)
+ * and its best move is searched first otherwise. The table is kept between the searches.
+ * <p>
+ * The search works on its own copy of the position. All the per-ply state (the move pickers,
+ * the PV table, the killer moves, the position keys) is preallocated, so the search does not allocate
+ * anything per node. An instance is NOT thread-safe (except for {@link #stop()}), use one instance per thread
+ * (the instances can share one transposition table, see {@link ParallelSearch}).
+ *
+ * @see <a href="https://www.chessprogramming.org/Principal_Variation_Search">Principal Variation Search on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Iterative_Deepening">Iterative Deepening on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Triangular_PV-Table">Triangular PV-Table on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Killer_Heuristic">Killer Heuristic on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Transposition_Table">Transposition Table on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Quiescence_Search">Quiescence Search on CPW</a>
+ */
+public class Search {
+
+	/**
+	 * The maximum ply (distance from the root) that the search can reach (including the check extensions)
+	 */
+	public static final int MAX_PLY = 128;
+
+	/**
+	 * A score that is greater than any real score
+	 */
+	public static final int INFINITY = 32_000;
+
+	/**
+	 * The score of a checkmate at the root, a mate in N plies is scored {@code MATE - N}
+	 */
+	public static final int MATE = 31_000;
+
+	/**
+	 * The scores with greater absolute value are mate scores
+	 */
+	private static final int MATE_BOUND = MATE - MAX_PLY;
+
+	/**
+	 * The time limit is checked once per {@code CHECK_INTERVAL} nodes (a power of two)
+	 */
+	private static final int CHECK_INTERVAL = 1024;
+
+	/**
+	 * The default size of the transposition table in megabytes
+	 */
+	public static final int DEFAULT_TABLE_SIZE_MB = 16;
+
+	/**
+	 * The maximum number of the game positions before the root that are used to detect repetitions
+	 * (no position older than 100 plies can repeat, see the fifty-move rule)
+	 */
+	public static final int MAX_HISTORY = 100;
+
+	/**
+	 * An empty game history (see {@link #search(Board, long[], SearchLimits)})
+	 */
+	static final @NotNull long[] NO_HISTORY = new long[0];
+
+	private final @NotNull Board board = new Board();
+
+	private final @NotNull TranspositionTable table;
+
+	private final @NotNull MovePicker[] pickers = new MovePicker[MAX_PLY];
+
+	/**
+	 * Triangular PV table, {@code pvTable[ply]} holds the PV from the ply (its moves at indexes ply, ply + 1, ...)
+	 */
+	private final @NotNull int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+	private final @NotNull int[] pvLength = new int[MAX_PLY + 1];
+
+	/**
+	 * The PV of the previous iteration (searched first)
+	 */
+	private final @NotNull int[] previousPv = new int[MAX_PLY + 1];
+	private int previousPvLength;
+	/**
+	 * {@code true} iff the current node lies on the PV of the previous iteration
+	 */
+	private boolean followingPv;
+
+	/**
+	 * The killer moves, the history and the countermoves
+	 */
+	private final @NotNull MoveOrdering ordering = new MoveOrdering(MAX_PLY);
+
+	/**
+	 * The moves along the searched line, {@code line[ply]} is the move made in the position at the ply
+	 * (used to look up the countermoves)
+	 */
+	private final @NotNull int[] line = new int[MAX_PLY];
+
+	/**
+	 * The position keys of the game before the root followed by the keys along the searched line,
+	 * {@code keys[root + ply]} is the key of the position at the ply (used to detect repetitions)
+	 */
+	private final @NotNull long[] keys = new long[MAX_HISTORY + MAX_PLY + 1];
+	/**
+	 * The index of the root position in the {@link #keys}
+	 */
+	private int root;
+
+	private volatile boolean stopRequested;
+	private boolean stopped;
+	private boolean canStop;
+
+	private long nodes;
+	private long nodeLimit;
+	private long deadline;
+
+	/**
+	 * Creates a new search with its own transposition table of the {@link #DEFAULT_TABLE_SIZE_MB default size}
+	 */
+	public Search() {
+		this(new TranspositionTable(DEFAULT_TABLE_SIZE_MB));
+	}
+
+	/**
+	 * Creates a new search
+	 *
+	 * @param table the transposition table (it may be shared with other searches)
+	 */
+	public Search(@NotNull TranspositionTable table) {
+		this.table = table;
+		for (int i = 0; i < MAX_PLY; i++) {
+			pickers[i] = new MovePicker(board, ordering);
+		}
+	}
+
+	/**
+	 * Checks if the given score is a mate score
+	 *
+	 * @param score the score
+	 * @return {@code true} iff the score means a forced mate (for any side)
+	 */
+	public static boolean isMateScore(int score) {
+		return Math.abs(score) > MATE_BOUND;
+	}
+
+	/**
+	 * Converts a score relative to the root to a score relative to the node at the given ply
+	 * (the mate scores are stored in the transposition table as the distance from the node,
+	 * so they are valid in any transposition)
+	 */
+	private static int scoreToTable(int score, int ply) {
+		if (score > MATE_BOUND) {
+			return score + ply;
+		}
+		if (score < -MATE_BOUND) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	/**
+	 * The inverse of {@link #scoreToTable(int, int)}
+	 */
+	private static int scoreFromTable(int score, int ply) {
+		if (score > MATE_BOUND) {
+			return score - ply;
+		}
+		if (score < -MATE_BOUND) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Gets the transposition table of this search
+	 *
+	 * @return the transposition table
+	 */
+	public @NotNull TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Gets the move ordering tables of this search (including the statistics of the last search)
+	 *
+	 * @return the move ordering
+	 */
+	public @NotNull MoveOrdering getOrdering() {
+		return ordering;
+	}
+
+	/**
+	 * Requests the running search to stop (it can be called from any thread)
+	 * <p>
+	 * The search returns the result of the last completed iteration. The first iteration is always completed,
+	 * so the request takes effect only after that. A request made before a search is started is cleared
+	 * by the search (the caller must not start the search at all if it is no longer needed).
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	/**
+	 * Searches the given position
+	 *
+	 * @param position the position (it is copied, it is not modified)
+	 * @param limits   the limits
+	 * @return the result of the last completed iteration
+	 */
+	public @NotNull SearchResult search(@NotNull Board position, @NotNull SearchLimits limits) {
+		return search(position, NO_HISTORY, limits);
+	}
+
+	/**
+	 * Searches the given position of a game
+	 * <p>
+	 * A line that repeats any position of the searched line or of the given history is scored as a draw.
+	 *
+	 * @param position the position (it is copied, it is not modified)
+	 * @param history  the keys of the game positions before the position (the oldest first, see {@link Board#getZobristKey()}),
+	 *                 the positions before the last irreversible move may be omitted
+	 * @param limits   the limits
+	 * @return the result of the last completed iteration
+	 */
+	public @NotNull SearchResult search(@NotNull Board position, @NotNull long[] history, @NotNull SearchLimits limits) {
+		prepare();
+		table.newSearch();
+		return iterate(position, history, limits, 0);
+	}
+
+	/**
+	 * Clears a pending stop request (before a new search is started)
+	 */
+	void prepare() {
+		stopRequested = false;
+	}
+
+	/**
+	 * Runs the iterative deepening
+	 * <p>
+	 * Unlike {@link #search(Board, long[], SearchLimits)}, it neither clears the stop request
+	 * nor starts a new generation of the transposition table, so that it can be used
+	 * by the threads of a {@link ParallelSearch}.
+	 *
+	 * @param position    the position (it is copied, it is not modified)
+	 * @param history     the keys of the game positions before the position (see {@link #search(Board, long[], SearchLimits)})
+	 * @param limits      the limits
+	 * @param depthOffset the number of the initial iterations to skip (the first iteration has depth {@code 1 + depthOffset})
+	 * @return the result of the last completed iteration
+	 */
+	@NotNull SearchResult iterate(@NotNull Board position, @NotNull long[] history, @NotNull SearchLimits limits, int depthOffset) {
+
+		long start = System.nanoTime();
+
+		board.copyFrom(position);
+
+		stopped = false;
+		canStop = false;
+		nodes = 0L;
+		nodeLimit = limits.getNodes();
+		deadline = limits.getTimeMillis() > 0L ? start + limits.getTimeMillis() * 1_000_000L : 0L;
+
+		ordering.age();
+		ordering.resetStatistics();
+
+		previousPvLength = 0;
+		// only the positions since the last irreversible move can repeat
+		root = Math.min(Math.min(history.length, board.getHalfMoveCounter()), MAX_HISTORY);
+		System.arraycopy(history, history.length - root, keys, 0, root);
+		keys[root] = board.getZobristKey();
+
+		int bestMove = PackedMove.NONE;
+		int bestScore = 0;
+		int completedDepth = 0;
+		int[] pv = new int[0];
+
+		for (int depth = 1 + depthOffset; depth <= limits.getDepth(); depth++) {
+
+			followingPv = true;
+
+			int score = search(depth, -INFINITY, INFINITY, 0);
+
+			if (stopped) {
+				break;
+			}
+
+			completedDepth = depth;
+			bestScore = score;
+
+			// no legal move at the root
+			if (pvLength[0] == 0) {
+				break;
+			}
+
+			previousPvLength = pvLength[0];
+			System.arraycopy(pvTable[0], 0, previousPv, 0, previousPvLength);
+
+			bestMove = previousPv[0];
+			pv = Arrays.copyOf(previousPv, previousPvLength);
+
+			// the first iteration is always completed
+			canStop = true;
+
+			// a forced mate was found within the searched depth (the deeper iterations would find the same)
+			if (isMateScore(score) && MATE - Math.abs(score) <= depth) {
+				break;
+			}
+
+			// the next iteration would not be completed in the remaining time anyway
+			if (deadline != 0L && System.nanoTime() - start > (deadline - start) / 2) {
+				break;
+			}
+
+		}
+
+		return new SearchResult(
+			bestMove,
+			bestScore,
+			completedDepth,
+			nodes,
+			(System.nanoTime() - start) / 1_000_000L,
+			pv,
+			table.getHashfull(),
+			ordering.getFirstMoveCutoffRate()
+		);
+
+	}
+
+	/**
+	 * Gets the number of the nodes searched by the last (or the running) search
+	 *
+	 * @return the number of the nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	private void checkLimits() {
+		if (
+			stopRequested
+				|| (nodeLimit != 0L && nodes >= nodeLimit)
+				|| (deadline != 0L && (nodes & (CHECK_INTERVAL - 1)) == 0 && System.nanoTime() >= deadline)
+		) {
+			stopped = true;
+		}
+	}
+
+	/**
+	 * Checks if the position at the given ply repeats a position of the searched line or of the game before the root
+	 * (only the positions since the last irreversible move are compared)
+	 *
+	 * @param ply the ply
+	 * @return {@code true} iff the position is a repetition
+	 */
+	private boolean isRepetition(int ply) {
+		int index = root + ply;
+		long key = keys[index];
+		int limit = Math.max(0, index - board.getHalfMoveCounter());
+		for (int i = index - 2; i >= limit; i -= 2) {
+			if (keys[i] == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The alpha-beta search of the current position (negamax formulation)
+	 *
+	 * @param depth the remaining depth
+	 * @param alpha the lower bound
+	 * @param beta  the upper bound
+	 * @param ply   the distance from the root
+	 * @return the score from the side to move's point of view
+	 */
+	private int search(int depth, int alpha, int beta, int ply) {
+
+		pvLength[ply] = ply;
+
+		nodes++;
+
+		if (canStop) {
+			checkLimits();
+			if (stopped) {
+				return 0;
+			}
+		}
+
+		if (ply > 0 && (board.getHalfMoveCounter() >= 100 || isRepetition(ply) || board.isInsufficientMaterial())) {
+			return 0;
+		}
+
+		boolean inCheck = board.isKingAttacked();
+
+		// check extension
+		if (inCheck) {
+			depth++;
+		}
+
+		if (ply >= MAX_PLY) {
+			return Evaluation.evaluate(board);
+		}
+
+		if (depth <= 0) {
+			return quiescence(alpha, beta, ply);
+		}
+
+		boolean pvNode = beta - alpha > 1;
+		long key = keys[root + ply];
+
+		long entry = table.probe(key);
+		int hashMove = PackedMove.NONE;
+
+		if (entry != 0L) {
+			hashMove = TranspositionTable.getMove(entry);
+			if (!pvNode && ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+				int score = scoreFromTable(TranspositionTable.getScore(entry), ply);
+				int bound = TranspositionTable.getBound(entry);
+				if (
+					bound == TranspositionTable.BOUND_EXACT
+						|| (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+						|| (bound == TranspositionTable.BOUND_UPPER && score <= alpha)
+				) {
+					return score;
+				}
+			}
+		}
+
+		int pvMove = followingPv && ply < previousPvLength ? previousPv[ply] : PackedMove.NONE;
+		boolean wasFollowingPv = followingPv;
+
+		MovePicker picker = pickers[ply];
+		int previousMove = ply > 0 ? line[ply - 1] : PackedMove.NONE;
+		picker.reset(
+			pvMove != PackedMove.NONE ? pvMove : hashMove,
+			ordering.getKiller(ply, 0),
+			ordering.getKiller(ply, 1),
+			ordering.getCounterMove(board, previousMove)
+		);
+
+		int originalAlpha = alpha;
+		int bestScore = -INFINITY;
+		int bestMove = PackedMove.NONE;
+		int legalMoves = 0;
+		int move;
+
+		while ((move = picker.next()) != PackedMove.NONE) {
+
+			followingPv = wasFollowingPv && move == pvMove;
+
+			long undo = board.makeMove(move);
+			keys[root + ply + 1] = board.getZobristKey();
+			line[ply] = move;
+
+			legalMoves++;
+
+			int score;
+
+			if (legalMoves == 1) {
+				score = -search(depth - 1, -beta, -alpha, ply + 1);
+			} else {
+				score = -search(depth - 1, -alpha - 1, -alpha, ply + 1);
+				if (!stopped && score > alpha && score < beta) {
+					score = -search(depth - 1, -beta, -alpha, ply + 1);
+				}
+			}
+
+			board.unmakeMove(move, undo);
+
+			if (stopped) {
+				return 0;
+			}
+
+			if (score > bestScore) {
+
+				bestScore = score;
+
+				if (score > alpha) {
+
+					alpha = score;
+					bestMove = move;
+
+					// update the PV
+					int[] pvLine = pvTable[ply];
+					pvLine[ply] = move;
+					int childLength = pvLength[ply + 1];
+					System.arraycopy(pvTable[ply + 1], ply + 1, pvLine, ply + 1, childLength - (ply + 1));
+					pvLength[ply] = Math.max(childLength, ply + 1);
+
+					if (alpha >= beta) {
+						ordering.recordCutoff(board, ply, move, previousMove, depth, legalMoves);
+						break;
+					}
+
+				}
+
+			}
+
+		}
+
+		followingPv = false;
+
+		if (legalMoves == 0) {
+			return inCheck ? -MATE + ply : 0;
+		}
+
+		int bound = bestScore >= beta
+			? TranspositionTable.BOUND_LOWER
+			: bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+
+		table.store(key, bestMove, scoreToTable(bestScore, ply), depth, bound);
+
+		return bestScore;
+
+	}
+
+	/**
+	 * The quiescence search of the current position (the captures only)
+	 *
+	 * @param alpha the lower bound
+	 * @param beta  the upper bound
+	 * @param ply   the distance from the root
+	 * @return the score from the side to move's point of view
+	 */
+	private int quiescence(int alpha, int beta, int ply) {
+
+		// the position itself is counted by the caller (the search at the horizon or the previous capture)
+
+		if (canStop) {
+			checkLimits();
+			if (stopped) {
+				return 0;
+			}
+		}
+
+		int standPat = Evaluation.evaluate(board);
+
+		if (ply >= MAX_PLY || standPat >= beta) {
+			return standPat;
+		}
+
+		if (standPat > alpha) {
+			alpha = standPat;
+		}
+
+		int bestScore = standPat;
+
+		MovePicker picker = pickers[ply];
+		picker.resetCaptures();
+
+		int move;
+
+		while ((move = picker.next()) != PackedMove.NONE) {
+
+			// losing captures are not worth searching
+			if (board.staticExchangeEvaluation(move) < 0) {
+				continue;
+			}
+
+			long undo = board.makeMove(move);
+			nodes++;
+			int score = -quiescence(-beta, -alpha, ply + 1);
+			board.unmakeMove(move, undo);
+
+			if (stopped) {
+				return 0;
+			}
+
+			if (score > bestScore) {
+				bestScore = score;
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) {
+						break;
+					}
+				}
+			}
+
+		}
+
+		return bestScore;
+
+	}
+
+}
@@ -0,0 +1,102 @@
+package cz.martinendler.chess.engine.search;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Limits of a {@link Search}
+ * <p>
+ * The search stops as soon as any of the limits is reached. However, the first iteration
+ * (depth 1) is always completed, so that there is always a move to play.
+ * The setters return {@code this}, so the limits can be chained:
+ * <pre>{@code
+ * new SearchLimits().setDepth(8).setTimeMillis(1000)
+ * }</pre>
+ */
+public class SearchLimits {
+
+	/**
+	 * The maximum depth (in plies) that a search can reach
+	 */
+	public static final int MAX_DEPTH = 64;
+
+	private int depth = MAX_DEPTH;
+	private long nodes = 0L;
+	private long timeMillis = 0L;
+
+	/**
+	 * Gets the maximum depth of the iterative deepening
+	 *
+	 * @return the depth in plies
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Sets the maximum depth of the iterative deepening
+	 *
+	 * @param depth the depth in plies in range [1, {@link #MAX_DEPTH}]
+	 * @return this
+	 */
+	public @NotNull SearchLimits setDepth(int depth) {
+		if (depth < 1 || depth > MAX_DEPTH) {
+			throw new IllegalArgumentException("depth must be in range [1, " + MAX_DEPTH + "]");
+		}
+		this.depth = depth;
+		return this;
+	}
+
+	/**
+	 * Gets the maximum number of the searched nodes
+	 *
+	 * @return the number of the nodes, {@code 0} = unlimited
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Sets the maximum number of the searched nodes
+	 * <p>
+	 * The limit is not checked until the first iteration is completed, so a tiny limit may be exceeded.
+	 *
+	 * @param nodes the number of the nodes, {@code 0} = unlimited
+	 * @return this
+	 */
+	public @NotNull SearchLimits setNodes(long nodes) {
+		if (nodes < 0L) {
+			throw new IllegalArgumentException("nodes must be non-negative");
+		}
+		this.nodes = nodes;
+		return this;
+	}
+
+	/**
+	 * Gets the maximum time of the search
+	 *
+	 * @return the time in milliseconds, {@code 0} = unlimited
+	 */
+	public long getTimeMillis() {
+		return timeMillis;
+	}
+
+	/**
+	 * Sets the maximum time of the search
+	 *
+	 * @param timeMillis the time in milliseconds, {@code 0} = unlimited
+	 * @return this
+	 */
+	public @NotNull SearchLimits setTimeMillis(long timeMillis) {
+		if (timeMillis < 0L) {
+			throw new IllegalArgumentException("timeMillis must be non-negative");
+		}
+		this.timeMillis = timeMillis;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchLimits{depth=" + depth + ", nodes=" + nodes + ", timeMillis=" + timeMillis + "}";
+	}
+
+}
@@ -0,0 +1,127 @@
+package cz.martinendler.chess.engine.search;
+
+import cz.martinendler.chess.engine.move.PackedMove;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.StringJoiner;
+
+/**
+ * A result of a {@link Search} (the last completed iteration)
+ */
+public class SearchResult {
+
+	private final int bestMove;
+	private final int score;
+	private final int depth;
+	private final long nodes;
+	private final long timeMillis;
+	private final @NotNull int[] pv;
+	private final int hashfull;
+	private final double firstMoveCutoffRate;
+
+	SearchResult(
+		int bestMove,
+		int score,
+		int depth,
+		long nodes,
+		long timeMillis,
+		@NotNull int[] pv,
+		int hashfull,
+		double firstMoveCutoffRate
+	) {
+		this.bestMove = bestMove;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.timeMillis = timeMillis;
+		this.pv = pv;
+		this.hashfull = hashfull;
+		this.firstMoveCutoffRate = firstMoveCutoffRate;
+	}
+
+	/**
+	 * Gets the best move
+	 *
+	 * @return the packed move or {@link PackedMove#NONE} if there is no legal move in the position
+	 */
+	public int getBestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * Gets the score of the best move
+	 *
+	 * @return the score in centipawns from the side to move's point of view
+	 * (see {@link Search#isMateScore(int)} for the mate scores)
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Gets the depth of the last completed iteration
+	 *
+	 * @return the depth in plies
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Gets the total number of the searched nodes (including the incomplete iteration)
+	 *
+	 * @return the number of the nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Gets the total time of the search
+	 *
+	 * @return the time in milliseconds
+	 */
+	public long getTimeMillis() {
+		return timeMillis;
+	}
+
+	/**
+	 * Gets the principal variation (the best move first)
+	 *
+	 * @return the packed moves (the array must not be modified)
+	 * @see <a href="https://www.chessprogramming.org/Principal_Variation">Principal Variation on CPW</a>
+	 */
+	public @NotNull int[] getPv() {
+		return pv;
+	}
+
+	/**
+	 * Gets the usage of the transposition table at the end of the search
+	 *
+	 * @return the permille of the entries used by the search (see {@link TranspositionTable#getHashfull()})
+	 */
+	public int getHashfull() {
+		return hashfull;
+	}
+
+	/**
+	 * Gets the quality of the move ordering in the search
+	 *
+	 * @return the ratio of the cutoffs caused by the first searched move (see {@link cz.martinendler.chess.engine.move.MoveOrdering#getFirstMoveCutoffRate()})
+	 */
+	public double getFirstMoveCutoffRate() {
+		return firstMoveCutoffRate;
+	}
+
+	@Override
+	public String toString() {
+		StringJoiner moves = new StringJoiner(", ", "[", "]");
+		for (int move : pv) {
+			moves.add(PackedMove.toMove(move).toString());
+		}
+		return "SearchResult{depth=" + depth + ", score=" + score + ", nodes=" + nodes
+			+ ", timeMillis=" + timeMillis + ", hashfull=" + hashfull
+			+ ", firstMoveCutoffRate=" + Math.round(firstMoveCutoffRate * 1000) / 1000.0 + ", pv=" + moves + "}";
+	}
+
+}
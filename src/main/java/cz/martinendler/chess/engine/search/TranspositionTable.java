@@ -0,0 +1,322 @@
+package cz.martinendler.chess.engine.search;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.move.PackedMove;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size transposition table of the {@link Search}
+ * <p>
+ * The whole table is a single preallocated {@code long[]} (no objects per entry), so it does not put
+ * any pressure on the GC. It can be shared by multiple threads without any locking. Each entry consists
+ * of two longs: the data (see below) and the position key XOR-ed with the data. A probe accepts an entry
+ * only if the key computed back from both the longs matches, so an entry that was torn by a concurrent store
+ * is treated as a miss.
+ * <p>
+ * The entries are grouped into buckets of {@link #BUCKET_SIZE} entries (64 bytes, i.e. one cache line).
+ * A key maps to one bucket and it can be stored in any entry of the bucket. A store replaces the entry
+ * of the same position, or an empty one, or the one with the lowest value, where the value is the depth
+ * minus a penalty for each search (generation) since the entry was stored. So the deep entries survive,
+ * but the old ones are eventually replaced.
+ * <p>
+ * The data layout (bits from the least significant):
+ * <ul>
+ *     <li>0 - 19 the best move ({@link PackedMove}, {@link PackedMove#NONE} if unknown)</li>
+ *     <li>20 - 35 the score (signed)</li>
+ *     <li>36 - 43 the depth</li>
+ *     <li>44 - 45 the bound ({@link #BOUND_UPPER}, {@link #BOUND_LOWER} or {@link #BOUND_EXACT}, never 0)</li>
+ *     <li>46 - 53 the generation</li>
+ * </ul>
+ * The probe returns the data as a primitive {@code long} (0 = miss) and the fields are extracted
+ * using the static getters, so probing does not allocate anything either.
+ *
+ * @see <a href="https://www.chessprogramming.org/Transposition_Table">Transposition Table on CPW</a>
+ * @see <a href="https://www.chessprogramming.org/Shared_Hash_Table#Lockless">Lockless Shared Hash Table on CPW</a>
+ */
+public class TranspositionTable {
+
+	/**
+	 * Size of one entry in bytes
+	 */
+	public static final int ENTRY_SIZE = 2 * Long.BYTES;
+
+	/**
+	 * The number of the entries in one bucket
+	 */
+	public static final int BUCKET_SIZE = 4;
+
+	/**
+	 * The score is an upper bound (all the moves failed low)
+	 */
+	public static final int BOUND_UPPER = 1;
+	/**
+	 * The score is a lower bound (a move failed high)
+	 */
+	public static final int BOUND_LOWER = 2;
+	/**
+	 * The score is exact
+	 */
+	public static final int BOUND_EXACT = 3;
+
+	private static final int MOVE_MASK = (1 << 20) - 1;
+	private static final int SCORE_SHIFT = 20;
+	private static final int DEPTH_SHIFT = 36;
+	private static final int BOUND_SHIFT = 44;
+	private static final int GENERATION_SHIFT = 46;
+
+	/**
+	 * The replacement value penalty for each generation of the entry age
+	 */
+	private static final int AGE_PENALTY = 8;
+
+	/**
+	 * Entries, {@code [2 * i]} is the key XOR data, {@code [2 * i + 1]} is the data
+	 */
+	private final long[] entries;
+	private final long bucketMask;
+
+	private volatile int generation;
+
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder stores = new LongAdder();
+
+	/**
+	 * Creates a new table
+	 *
+	 * @param sizeInMb the maximum size of the table in megabytes,
+	 *                 the number of buckets is rounded down to a power of two
+	 */
+	public TranspositionTable(int sizeInMb) {
+
+		if (sizeInMb < 1) {
+			throw new IllegalArgumentException("sizeInMb must be at least 1");
+		}
+
+		long buckets = Long.highestOneBit(((long) sizeInMb << 20) / (ENTRY_SIZE * BUCKET_SIZE));
+
+		// the array must be indexable by int
+		buckets = Math.min(buckets, 1L << 27);
+
+		entries = new long[(int) (2 * BUCKET_SIZE * buckets)];
+		bucketMask = buckets - 1;
+
+	}
+
+	/**
+	 * Gets the number of entries
+	 *
+	 * @return the number of entries
+	 */
+	public int getCapacity() {
+		return entries.length / 2;
+	}
+
+	/**
+	 * Starts a new search (the entries of the previous searches become older)
+	 */
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	/**
+	 * Looks up the given position
+	 *
+	 * @param key the position key (see {@link Board#getZobristKey()})
+	 * @return the entry data or {@code 0} if the position is not stored
+	 */
+	public long probe(long key) {
+
+		probes.increment();
+
+		int base = bucketIndex(key);
+
+		for (int i = base; i < base + 2 * BUCKET_SIZE; i += 2) {
+			long data = entries[i + 1];
+			if (data != 0L && (entries[i] ^ data) == key) {
+				hits.increment();
+				return data;
+			}
+		}
+
+		return 0L;
+
+	}
+
+	/**
+	 * Stores the given position
+	 *
+	 * @param key   the position key (see {@link Board#getZobristKey()})
+	 * @param move  the best move or {@link PackedMove#NONE}
+	 *              (if it is {@link PackedMove#NONE}, the already stored move of the position is kept)
+	 * @param score the score (it must fit into 16 bits)
+	 * @param depth the depth (0 to 255)
+	 * @param bound the bound ({@link #BOUND_UPPER}, {@link #BOUND_LOWER} or {@link #BOUND_EXACT})
+	 */
+	public void store(long key, int move, int score, int depth, int bound) {
+
+		int base = bucketIndex(key);
+		int current = generation;
+
+		int victim = base;
+		int victimValue = Integer.MAX_VALUE;
+
+		for (int i = base; i < base + 2 * BUCKET_SIZE; i += 2) {
+
+			long data = entries[i + 1];
+
+			if (data == 0L) {
+				if (victimValue > Integer.MIN_VALUE) {
+					victim = i;
+					victimValue = Integer.MIN_VALUE;
+				}
+				continue;
+			}
+
+			if ((entries[i] ^ data) == key) {
+				// the same position: keep a deeper exact entry of the current search
+				if (bound != BOUND_EXACT && getBound(data) == BOUND_EXACT
+					&& getGeneration(data) == current && getDepth(data) > depth) {
+					return;
+				}
+				if (move == PackedMove.NONE) {
+					move = getMove(data);
+				}
+				victim = i;
+				break;
+			}
+
+			int age = (current - getGeneration(data)) & 0xFF;
+			int value = getDepth(data) - AGE_PENALTY * age;
+
+			if (value < victimValue) {
+				victim = i;
+				victimValue = value;
+			}
+
+		}
+
+		long data = (move & MOVE_MASK)
+			| ((long) (score & 0xFFFF) << SCORE_SHIFT)
+			| ((long) (depth & 0xFF) << DEPTH_SHIFT)
+			| ((long) bound << BOUND_SHIFT)
+			| ((long) current << GENERATION_SHIFT);
+
+		entries[victim] = key ^ data;
+		entries[victim + 1] = data;
+
+		stores.increment();
+
+	}
+
+	private int bucketIndex(long key) {
+		return (int) (key & bucketMask) * (2 * BUCKET_SIZE);
+	}
+
+	/**
+	 * Gets the best move of the given entry
+	 *
+	 * @param data the entry data (returned by {@link #probe(long)})
+	 * @return the packed move or {@link PackedMove#NONE}
+	 */
+	public static int getMove(long data) {
+		return (int) data & MOVE_MASK;
+	}
+
+	/**
+	 * Gets the score of the given entry
+	 *
+	 * @param data the entry data (returned by {@link #probe(long)})
+	 * @return the score
+	 */
+	public static int getScore(long data) {
+		return (short) (data >>> SCORE_SHIFT);
+	}
+
+	/**
+	 * Gets the depth of the given entry
+	 *
+	 * @param data the entry data (returned by {@link #probe(long)})
+	 * @return the depth
+	 */
+	public static int getDepth(long data) {
+		return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	/**
+	 * Gets the bound of the given entry
+	 *
+	 * @param data the entry data (returned by {@link #probe(long)})
+	 * @return {@link #BOUND_UPPER}, {@link #BOUND_LOWER} or {@link #BOUND_EXACT}
+	 */
+	public static int getBound(long data) {
+		return (int) (data >>> BOUND_SHIFT) & 0x3;
+	}
+
+	/**
+	 * Gets the generation of the given entry
+	 *
+	 * @param data the entry data (returned by {@link #probe(long)})
+	 * @return the generation (0 to 255)
+	 */
+	public static int getGeneration(long data) {
+		return (int) (data >>> GENERATION_SHIFT) & 0xFF;
+	}
+
+	/**
+	 * Removes all the entries and resets the statistics
+	 * <p>
+	 * It must not be called while the table is in use.
+	 */
+	public void clear() {
+		Arrays.fill(entries, 0L);
+		generation = 0;
+		probes.reset();
+		hits.reset();
+		stores.reset();
+	}
+
+	public long getProbes() {
+		return probes.sum();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getStores() {
+		return stores.sum();
+	}
+
+	/**
+	 * Gets the ratio of the probes that found the position
+	 *
+	 * @return the hit rate (from 0 to 1)
+	 */
+	public double getHitRate() {
+		long p = getProbes();
+		return p > 0 ? (double) getHits() / p : 0.0;
+	}
+
+	/**
+	 * Gets the permille of the entries that are used by the current search
+	 * (estimated from the first 1000 entries, the same way as the UCI {@code hashfull} info)
+	 *
+	 * @return the permille of the used entries (from 0 to 1000)
+	 */
+	public int getHashfull() {
+		int sample = Math.min(1000, getCapacity());
+		int current = generation;
+		int used = 0;
+		for (int i = 0; i < sample; i++) {
+			long data = entries[2 * i + 1];
+			if (data != 0L && getGeneration(data) == current) {
+				used++;
+			}
+		}
+		return used * 1000 / sample;
+	}
+
+}
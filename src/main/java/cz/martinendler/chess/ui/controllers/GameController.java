@@ -3,16 +3,19 @@ package cz.martinendler.chess.ui.controllers;
 import cz.martinendler.chess.App;
 import cz.martinendler.chess.engine.Game;
 import cz.martinendler.chess.engine.GameLoadingException;
+import cz.martinendler.chess.engine.GameStatus;
 import cz.martinendler.chess.engine.Player;
 import cz.martinendler.chess.engine.Side;
 import cz.martinendler.chess.engine.move.Move;
 import cz.martinendler.chess.engine.move.MoveConversionException;
 import cz.martinendler.chess.engine.pieces.PieceType;
+import cz.martinendler.chess.engine.search.ParallelSearch;
+import cz.martinendler.chess.engine.search.SearchLimits;
+import cz.martinendler.chess.engine.search.SearchResult;
 import cz.martinendler.chess.pgn.PgnParseException;
 import cz.martinendler.chess.pgn.PgnUtils;
 import cz.martinendler.chess.pgn.entity.PgnDatabase;
 import cz.martinendler.chess.pgn.entity.PgnGame;
-import cz.martinendler.chess.pgn.entity.PgnGameTermination;
 import cz.martinendler.chess.ui.*;
 import cz.martinendler.chess.utils.StringUtils;
 import javafx.application.Platform;
@@ -43,6 +46,8 @@ import java.net.URL;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -50,6 +55,16 @@ public class GameController extends AppAwareController implements Initializable,
 
 	private static final Logger log = LoggerFactory.getLogger(GameController.class);
 
+	/**
+	 * Limits of the computer player's search (one move)
+	 */
+	private static final SearchLimits COMPUTER_SEARCH_LIMITS = new SearchLimits().setTimeMillis(1000L);
+
+	/**
+	 * The number of the computer player's search threads (one core is left for the UI)
+	 */
+	private static final int COMPUTER_SEARCH_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
 	// FXML elements and controllers (injected by FXML loader)
 	@FXML
 	private MenuBar menuBar;
@@ -77,6 +92,16 @@ public class GameController extends AppAwareController implements Initializable,
 	private @Nullable File saveTo;
 	private int moveIndex;
 
+	// computer player
+	private final @NotNull ParallelSearch search;
+	private final @NotNull ExecutorService computerPlayer;
+	/**
+	 * Identifies the latest computer move request (the results of the older requests are discarded)
+	 * <p>
+	 * It is changed only on the JavaFX thread, but it is also read by the queued searches of the {@link #computerPlayer}.
+	 */
+	private volatile int computerMoveRequest;
+
 	public GameController(App app) {
 
 		super(app);
@@ -85,6 +110,13 @@ public class GameController extends AppAwareController implements Initializable,
 
 		clock = new ChessClock(ChessClock.DISABLED, Platform::runLater);
 
+		search = new ParallelSearch(COMPUTER_SEARCH_THREADS);
+		computerPlayer = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "computer-player");
+			thread.setDaemon(true);
+			return thread;
+		});
+
 		reset();
 
 	}
@@ -97,6 +129,11 @@ public class GameController extends AppAwareController implements Initializable,
 		// cleanup chess clock thread
 		clock.destroy();
 
+		// cleanup computer player thread
+		search.stop();
+		computerPlayer.shutdownNow();
+		search.shutdown();
+
 	}
 
 	private void reset() {
@@ -105,6 +142,9 @@ public class GameController extends AppAwareController implements Initializable,
 
 		clock.stop();
 
+		// discard the running computer move search (if any)
+		cancelComputerMove();
+
 		game = null;
 		gameType = null;
 		humanSide = null;
@@ -269,30 +309,82 @@ public class GameController extends AppAwareController implements Initializable,
 
 	}
 
-	private void playRandomMove() {
+	/**
+	 * Starts searching the computer move in the background
+	 * <p>
+	 * The move is played (on the JavaFX thread) once the search is finished,
+	 * unless the game was changed in the meantime.
+	 */
+	private void playComputerMove() {
 
 		if (game == null) {
-			log.info("playRandomMove: game == null");
+			log.info("playComputerMove: game == null");
 			return;
 		}
 
 		if (game.getLastMoveIndex() != moveIndex) {
-			log.info("playRandomMove: game.getLastMoveIndex() != moveIndex");
+			log.info("playComputerMove: game.getLastMoveIndex() != moveIndex");
 			return;
 		}
 
-		log.info("playRandomMove: sideToMove = {}", game.getSideToMove());
+		log.info("playComputerMove: sideToMove = {}", game.getSideToMove());
+
+		final Game searchedGame = game;
+		final int request = ++computerMoveRequest;
+		final cz.martinendler.chess.engine.board.Board position = game.copyBoard();
+		final long[] history = game.getPositionKeys();
+
+		computerPlayer.execute(() -> {
+
+			// the request was cancelled while it was queued
+			// (the stop request is cleared when a search starts, so it would not stop the search)
+			if (request != computerMoveRequest) {
+				log.info("playComputerMove: request {} was cancelled", request);
+				return;
+			}
+
+			SearchResult result = search.search(position, history, COMPUTER_SEARCH_LIMITS);
+
+			log.info("playComputerMove: {}", result);
+
+			Platform.runLater(() -> applyComputerMove(searchedGame, request, result));
 
-		if (game.doRandomMove()) {
+		});
+
+	}
+
+	private void applyComputerMove(@NotNull Game searchedGame, int request, @NotNull SearchResult result) {
+
+		if (game != searchedGame || request != computerMoveRequest) {
+			log.info("applyComputerMove: the game was changed during the search");
+			return;
+		}
+
+		if (game.doMove(result.getBestMove())) {
 			dirty = true;
-			log.info("random move executed");
+			log.info("computer move executed");
 			syncWithGame();
 		} else {
-			log.error("doRandomMove unexpected error");
+			log.error("applyComputerMove: unexpected error, result = {}", result);
 		}
 
 	}
 
+	/**
+	 * Cancels the running and the queued computer move requests
+	 */
+	private void cancelComputerMove() {
+		computerMoveRequest++;
+		search.stop();
+	}
+
+	private boolean isComputerOnMove() {
+		return game != null
+			&& gameType == GameOptions.GameType.HUMAN_COMPUTER
+			&& humanSide != null
+			&& game.getSideToMove() == humanSide.flip();
+	}
+
 	private void doMove(@NotNull Square origin, @NotNull Square target) {
 
 		if (game == null) {
@@ -305,6 +397,16 @@ public class GameController extends AppAwareController implements Initializable,
 			return;
 		}
 
+		if (game.getStatus().isOver()) {
+			log.info("doMove: the game is over");
+			return;
+		}
+
+		if (isComputerOnMove()) {
+			log.info("doMove: the computer is on move");
+			return;
+		}
+
 		PieceType promotion = null;
 
 		if (game.isPromotionMove(origin.getSquare(), target.getSquare())) {
@@ -383,6 +485,9 @@ public class GameController extends AppAwareController implements Initializable,
 			return;
 		}
 
+		// the game state might have been changed (e.g. by an undo), so the running search is outdated
+		cancelComputerMove();
+
 		moveIndex = game.getLastMoveIndex();
 
 		board.setHighlights(0L);
@@ -397,18 +502,19 @@ public class GameController extends AppAwareController implements Initializable,
 		whiteInfoController.setActive(game.getSideToMove() == Side.WHITE);
 		blackInfoController.setActive(game.getSideToMove() == Side.BLACK);
 
-		switch (game.getResult()) {
+		// the status is computed once per ply by the game
+		GameStatus status = game.getStatus();
+
+		switch (status.toTermination(game.getSideToMove())) {
 			case UNKNOWN -> rightViewController.setMessageBubbleText(game.getPlayer(game.getSideToMove()).getName() + " is on move");
-			case DRAWN_GAME -> rightViewController.setMessageBubbleText("Drawn by stalemate");
+			case DRAWN_GAME -> rightViewController.setMessageBubbleText("Drawn by " + status.getDescription());
 			case WHITE_WINS -> rightViewController.setMessageBubbleText(game.getPlayer(Side.WHITE).getName() + " won");
 			case BLACK_WINS -> rightViewController.setMessageBubbleText(game.getPlayer(Side.BLACK).getName() + " won");
 		}
 
 		// if computer player is on move, do its move
-		if (game.getResult() == PgnGameTermination.UNKNOWN && gameType == GameOptions.GameType.HUMAN_COMPUTER) {
-			if (humanSide != null && game.getSideToMove() == humanSide.flip()) {
-				playRandomMove();
-			}
+		if (!status.isOver() && isComputerOnMove()) {
+			playComputerMove();
 		}
 
 		// notify chess clock about side to move change
@@ -16,7 +16,9 @@ module chess {
 	opens cz.martinendler.chess.engine;
 	opens cz.martinendler.chess.engine.board;
 	opens cz.martinendler.chess.engine.move;
+	opens cz.martinendler.chess.engine.perft;
 	opens cz.martinendler.chess.engine.pieces;
+	opens cz.martinendler.chess.engine.search;
 
 	opens cz.martinendler.chess.ui;
 	opens cz.martinendler.chess.ui.controllers;
@@ -34,7 +36,9 @@ module chess {
 	exports cz.martinendler.chess.engine;
 	exports cz.martinendler.chess.engine.board;
 	exports cz.martinendler.chess.engine.move;
+	exports cz.martinendler.chess.engine.perft;
 	exports cz.martinendler.chess.engine.pieces;
+	exports cz.martinendler.chess.engine.search;
 
 	exports cz.martinendler.chess.ui;
 	exports cz.martinendler.chess.ui.controllers;
@@ -0,0 +1,61 @@
+package cz.martinendler.chess.engine;
+
+import cz.martinendler.chess.engine.board.Square;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiagnosticsTest {
+
+	@AfterEach
+	public void tearDown() {
+		Diagnostics.clear();
+	}
+
+	@Test
+	public void testRecordAndDump() {
+
+		Diagnostics.clear();
+
+		assertEquals(0L, Diagnostics.getCount());
+		assertTrue(Diagnostics.dump().isEmpty());
+
+		Diagnostics.record(Diagnostics.Event.NO_PIECE, Square.E2.ordinal(), Square.E4.ordinal());
+		Diagnostics.record(Diagnostics.Event.EN_PASSANT_CAPTURE, Square.E5.ordinal(), Square.D6.ordinal());
+
+		assertEquals(2L, Diagnostics.getCount());
+
+		List<String> lines = Diagnostics.dump();
+
+		assertEquals(2, lines.size());
+		assertEquals("#0 e2 -> e4: " + Diagnostics.Event.NO_PIECE.getDescription(), lines.get(0));
+		assertEquals("#1 e5 -> d6: " + Diagnostics.Event.EN_PASSANT_CAPTURE.getDescription(), lines.get(1));
+
+	}
+
+	@Test
+	public void testRingBufferOverwritesOldestEvents() {
+
+		Diagnostics.clear();
+
+		int total = Diagnostics.CAPACITY + 10;
+
+		for (int i = 0; i < total; i++) {
+			Diagnostics.record(Diagnostics.Event.KING_ATTACKED_BY_PAWN, i % 64, (i + 1) % 64);
+		}
+
+		assertEquals(total, Diagnostics.getCount());
+
+		List<String> lines = Diagnostics.dump();
+
+		// only the newest events are kept (the oldest first)
+		assertEquals(Diagnostics.CAPACITY, lines.size());
+		assertTrue(lines.get(0).startsWith("#10 " + Square.fromIndex(10).getNotation() + " -> "));
+		assertTrue(lines.get(lines.size() - 1).startsWith("#" + (total - 1) + " "));
+
+	}
+
+}
@@ -0,0 +1,119 @@
+package cz.martinendler.chess.engine;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import cz.martinendler.chess.engine.move.Move;
+import cz.martinendler.chess.engine.perft.PerftPosition;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares a simulated UI interaction loop using the from-to index of {@link Game}
+ * with linear scans of the legal move list
+ * <p>
+ * One interaction = highlighting the targets of a square ({@link Game#getLegalMoves(Square)}),
+ * a drop on a square ({@link Game#isPromotionMove(Square, Square)}) and the move validation
+ * ({@link Game#isLegalMove(Square, Square, cz.martinendler.chess.engine.pieces.PieceType)}).
+ * Every pair of squares is tried.
+ * <p>
+ * Run using {@code mvn test -P benchmark -Dtest=GameBenchmark}
+ */
+@Tag("benchmark")
+class GameBenchmark {
+
+	private static final int ROUNDS = 2_000;
+
+	@Test
+	public void benchmarkUiLoop() {
+
+		PerftPosition[] positions = PerftPosition.values();
+
+		Game[] games = new Game[positions.length];
+		@SuppressWarnings("unchecked")
+		List<Move>[] lists = new List[positions.length];
+
+		for (int i = 0; i < positions.length; i++) {
+			games[i] = new Game(positions[i].getFen());
+			Board board = positions[i].createBoard();
+			lists[i] = board.generateLegalMoves();
+		}
+
+		// warm up
+		long indexed = runIndexed(games, ROUNDS / 4);
+		long scanning = runScanning(lists, ROUNDS / 4);
+		assertEquals(indexed, scanning);
+
+		long start = System.nanoTime();
+		indexed = runIndexed(games, ROUNDS);
+		long indexedTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		scanning = runScanning(lists, ROUNDS);
+		long scanningTime = System.nanoTime() - start;
+
+		assertEquals(indexed, scanning);
+
+		double interactions = (double) positions.length * ROUNDS * 64 * 64;
+
+		System.out.printf("scanning %8.2f M interactions/s%n", interactions / scanningTime * 1_000.0);
+		System.out.printf("indexed  %8.2f M interactions/s%n", interactions / indexedTime * 1_000.0);
+		System.out.printf("speedup  %8.2fx%n", (double) scanningTime / indexedTime);
+
+	}
+
+	private static long runIndexed(Game[] games, int rounds) {
+		long count = 0L;
+		for (int r = 0; r < rounds; r++) {
+			for (Game game : games) {
+				for (Square from : Square.values()) {
+					count += Long.bitCount(game.getLegalMoves(from));
+					for (Square to : Square.values()) {
+						// the piece can be dropped on any square
+						if (game.isPromotionMove(from, to)) {
+							count += 2;
+						} else if (game.isLegalMove(from, to, null)) {
+							count++;
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	private static long runScanning(List<Move>[] lists, int rounds) {
+		long count = 0L;
+		for (int r = 0; r < rounds; r++) {
+			for (List<Move> legalMoves : lists) {
+				for (Square from : Square.values()) {
+					long targets = 0L;
+					for (Move move : legalMoves) {
+						if (move.getFrom() == from) {
+							targets |= move.getTo().getBitboard();
+						}
+					}
+					count += Long.bitCount(targets);
+					for (Square to : Square.values()) {
+						// the piece can be dropped on any square
+						boolean promotion = legalMoves.stream()
+							.filter(m -> m.getFrom() == from && m.getTo() == to)
+							.findFirst()
+							.map(Move::hasPromotion)
+							.orElse(false);
+						if (promotion) {
+							count += 2;
+						} else if (legalMoves.contains(new Move(from, to, null))) {
+							count++;
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,114 @@
+package cz.martinendler.chess.engine;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.move.IntMoveList;
+import cz.martinendler.chess.engine.move.MoveGenerator;
+import cz.martinendler.chess.engine.perft.PerftPosition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameHistoryTest {
+
+	/**
+	 * Plays random legal moves and records them in the history
+	 *
+	 * @return the FENs of all the positions (the starting one first)
+	 */
+	private static List<String> play(Board board, GameHistory history, Random random, int plies) {
+
+		List<String> fens = new ArrayList<>();
+		fens.add(board.getFen());
+
+		IntMoveList moves = new IntMoveList();
+
+		for (int i = 0; i < plies; i++) {
+			moves.clear();
+			MoveGenerator.generateLegalMoves(board, moves);
+			if (moves.size() == 0) {
+				break;
+			}
+			int move = moves.get(random.nextInt(moves.size()));
+			long undo = board.makeMove(move);
+			history.push(move, undo, board);
+			fens.add(board.getFen());
+		}
+
+		return fens;
+
+	}
+
+	@Test
+	public void testRebuildAnyPly() {
+
+		for (int interval : new int[]{1, 4, GameHistory.DEFAULT_CHECKPOINT_INTERVAL}) {
+
+			Board board = PerftPosition.KIWIPETE.createBoard();
+			GameHistory history = new GameHistory(board, interval);
+
+			Random random = new Random(interval);
+
+			List<String> fens = play(board, history, random, 150);
+
+			assertEquals(fens.size() - 1, history.size());
+
+			// forward, backward and random access
+			for (int ply = 0; ply <= history.size(); ply++) {
+				assertEquals(fens.get(ply), history.getBoard(ply).getFen(), "ply " + ply);
+			}
+			for (int ply = history.size(); ply >= 0; ply--) {
+				assertEquals(fens.get(ply), history.getBoard(ply).getFen(), "ply " + ply);
+			}
+			for (int i = 0; i < 100; i++) {
+				int ply = random.nextInt(history.size() + 1);
+				assertEquals(fens.get(ply), history.getBoard(ply).getFen(), "ply " + ply);
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testPopAndPushAgain() {
+
+		Board board = new Board();
+		board.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+
+		GameHistory history = new GameHistory(board, 4);
+
+		List<String> fens = play(board, history, new Random(42), 30);
+
+		// view a position that is about to be removed
+		assertEquals(fens.get(25), history.getBoard(25).getFen());
+
+		for (int i = 0; i < 10; i++) {
+			history.pop(board);
+		}
+
+		assertEquals(20, history.size());
+		assertEquals(fens.get(20), board.getFen());
+		assertEquals(fens.get(20), history.getBoard(20).getFen());
+
+		// a different continuation overwrites the checkpoints of the removed plies
+		List<String> continuation = play(board, history, new Random(7), 10);
+
+		for (int ply = 0; ply <= history.size(); ply++) {
+			String expected = ply <= 20 ? fens.get(ply) : continuation.get(ply - 20);
+			assertEquals(expected, history.getBoard(ply).getFen(), "ply " + ply);
+		}
+
+		while (history.size() > 0) {
+			history.pop(board);
+		}
+
+		assertEquals(Board.STANDARD_STARTING_POSITION_FEN, board.getFen());
+		assertThrows(IllegalStateException.class, () -> history.pop(board));
+		assertThrows(IllegalArgumentException.class, () -> history.getBoard(1));
+
+	}
+
+}
@@ -0,0 +1,64 @@
+package cz.martinendler.chess.engine;
+
+import cz.martinendler.chess.pgn.PgnUtils;
+import cz.martinendler.chess.pgn.entity.PgnGame;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares loading PGN games using {@link Game#Game(PgnGame)} and {@link GameReplay}
+ * <p>
+ * Run using {@code mvn test -P benchmark -Dtest=GameReplayBenchmark}
+ */
+@Tag("benchmark")
+class GameReplayBenchmark {
+
+	private static final int ROUNDS = 5_000;
+
+	@Test
+	public void benchmarkReplay() {
+
+		PgnGame pgnGame = assertDoesNotThrow(() -> PgnUtils.parseFile("src/test/resources/example.pgn")).games.get(0);
+
+		GameReplay replay = new GameReplay(true);
+
+		// warm up (let the JIT compile both paths)
+		long full = runGame(pgnGame, ROUNDS / 4);
+		long bulk = runReplay(replay, pgnGame, ROUNDS / 4);
+		assertEquals(full, bulk);
+
+		long start = System.nanoTime();
+		full = runGame(pgnGame, ROUNDS);
+		long fullTime = System.nanoTime() - start;
+
+		replay.resetStatistics();
+		bulk = runReplay(replay, pgnGame, ROUNDS);
+
+		assertEquals(full, bulk);
+
+		System.out.printf("Game      %10.1f games/s%n", ROUNDS / (fullTime / 1_000_000_000.0));
+		System.out.printf("replay    %10.1f games/s%n", replay.getGamesPerSecond());
+		System.out.printf("speedup   %10.2fx%n", (double) fullTime / replay.getNanos());
+
+	}
+
+	private static long runGame(PgnGame pgnGame, int rounds) {
+		long plies = 0L;
+		for (int r = 0; r < rounds; r++) {
+			plies += new Game(pgnGame).getMoveLog().size();
+		}
+		return plies;
+	}
+
+	private static long runReplay(GameReplay replay, PgnGame pgnGame, int rounds) {
+		long plies = 0L;
+		for (int r = 0; r < rounds; r++) {
+			plies += replay.replay(pgnGame).getPlies();
+		}
+		return plies;
+	}
+
+}
@@ -0,0 +1,99 @@
+package cz.martinendler.chess.engine;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.move.MoveLogEntry;
+import cz.martinendler.chess.pgn.PgnUtils;
+import cz.martinendler.chess.pgn.entity.PgnGame;
+import cz.martinendler.chess.pgn.entity.PgnGameTermination;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameReplayTest {
+
+	private static PgnGame loadExampleGame() {
+		return assertDoesNotThrow(() -> PgnUtils.parseFile("src/test/resources/example.pgn")).games.get(0);
+	}
+
+	@Test
+	public void testReplayMatchesGame() {
+
+		PgnGame pgnGame = loadExampleGame();
+
+		Game game = new Game(pgnGame);
+
+		GameReplay replay = new GameReplay(true);
+		GameReplay.Result result = replay.replay(pgnGame);
+
+		List<MoveLogEntry> moveLog = game.getMoveLog();
+
+		assertEquals(moveLog.size(), result.getPlies());
+		assertEquals(game.getFen(), result.getFinalFen());
+		assertEquals(PgnGameTermination.WHITE_WINS, result.getTermination());
+
+		long[] keys = result.getKeys();
+		assertNotNull(keys);
+		assertEquals(result.getPlies() + 1, keys.length);
+
+		Board board = new Board();
+		board.loadFromFen(pgnGame.resolveSetUpFEN());
+		assertEquals(board.getZobristKey(), keys[0]);
+
+		for (int ply = 0; ply < result.getPlies(); ply++) {
+			assertEquals(moveLog.get(ply).getPackedMove(), result.getMoves()[ply], "ply " + ply);
+			board.makeMove(result.getMoves()[ply]);
+			assertEquals(board.getZobristKey(), keys[ply + 1], "ply " + ply);
+		}
+
+		assertEquals(1L, replay.getGames());
+		assertEquals(result.getPlies(), replay.getPlies());
+		assertTrue(replay.getGamesPerSecond() > 0.0);
+
+	}
+
+	@Test
+	public void testReplayWithoutKeysReusesBoard() {
+
+		PgnGame pgnGame = loadExampleGame();
+
+		GameReplay replay = new GameReplay(false);
+
+		GameReplay.Result first = replay.replay(pgnGame);
+		GameReplay.Result second = replay.replay(pgnGame);
+
+		assertNull(first.getKeys());
+		assertArrayEquals(first.getMoves(), second.getMoves());
+		assertEquals(first.getFinalFen(), second.getFinalFen());
+		assertEquals(2L, replay.getGames());
+
+	}
+
+	@Test
+	public void testTerminationFromFinalPosition() {
+
+		PgnGame pgnGame = new PgnGame();
+		pgnGame.moves.addAll(List.of("f3", "e5", "g4", "Qh4#"));
+
+		GameReplay.Result result = new GameReplay(false).replay(pgnGame);
+
+		// the termination is not declared in the PGN game, but it is a checkmate
+		assertEquals(PgnGameTermination.BLACK_WINS, result.getTermination());
+
+	}
+
+	@Test
+	public void testInvalidMove() {
+
+		PgnGame pgnGame = new PgnGame();
+		pgnGame.moves.addAll(List.of("e4", "d6", "Bb5+", "a6"));
+
+		GameReplay replay = new GameReplay(false);
+
+		assertThrows(GameLoadingException.class, () -> replay.replay(pgnGame));
+		assertEquals(0L, replay.getGames());
+
+	}
+
+}
@@ -0,0 +1,171 @@
+package cz.martinendler.chess.engine;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import cz.martinendler.chess.engine.move.Move;
+import cz.martinendler.chess.engine.move.PackedMove;
+import cz.martinendler.chess.engine.perft.PerftPosition;
+import cz.martinendler.chess.engine.pieces.Piece;
+import cz.martinendler.chess.engine.pieces.PieceType;
+import cz.martinendler.chess.pgn.entity.PgnGameTermination;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameTest {
+
+	private static void play(Game game, Square... squares) {
+		for (int i = 0; i < squares.length; i += 2) {
+			assertTrue(game.doMove(squares[i], squares[i + 1], null), squares[i] + " -> " + squares[i + 1]);
+		}
+	}
+
+	@Test
+	public void testCheckmateAndStalemate() {
+
+		Game game = new Game(Board.STANDARD_STARTING_POSITION_FEN);
+		assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+		assertEquals(PgnGameTermination.UNKNOWN, game.getResult());
+
+		// fool's mate
+		play(game, Square.F2, Square.F3, Square.E7, Square.E5, Square.G2, Square.G4, Square.D8, Square.H4);
+
+		assertEquals(GameStatus.CHECKMATE, game.getStatus());
+		assertTrue(game.isCheckMate());
+		assertEquals(PgnGameTermination.BLACK_WINS, game.getResult());
+
+		// the status follows undo
+		assertTrue(game.undoLastMove());
+		assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+
+		Game stalemate = new Game("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+		assertEquals(GameStatus.STALEMATE, stalemate.getStatus());
+		assertTrue(stalemate.isStaleMate());
+		assertEquals(PgnGameTermination.DRAWN_GAME, stalemate.getResult());
+
+	}
+
+	@Test
+	public void testThreefoldRepetition() {
+
+		Game game = new Game(Board.STANDARD_STARTING_POSITION_FEN);
+
+		// the starting position occurs for the second time
+		play(game, Square.G1, Square.F3, Square.G8, Square.F6, Square.F3, Square.G1, Square.F6, Square.G8);
+		assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+
+		// and for the third time
+		play(game, Square.G1, Square.F3, Square.G8, Square.F6, Square.F3, Square.G1, Square.F6, Square.G8);
+		assertEquals(GameStatus.THREEFOLD_REPETITION, game.getStatus());
+		assertEquals(PgnGameTermination.DRAWN_GAME, game.getResult());
+
+		// no move is accepted after the draw (although the side to move has legal moves)
+		String fen = game.getFen();
+		assertTrue(game.isLegalMove(Square.G1, Square.F3, null));
+		assertFalse(game.doMove(Square.G1, Square.F3, null));
+		assertFalse(game.doMove(PackedMove.encode(Square.E2.ordinal(), Square.E4.ordinal(), PackedMove.DOUBLE_PUSH)));
+		assertEquals(8, game.getMoveLog().size());
+		assertEquals(fen, game.getFen());
+		assertEquals(GameStatus.THREEFOLD_REPETITION, game.getStatus());
+
+		assertTrue(game.undoLastMove());
+		assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+
+	}
+
+	@Test
+	public void testFiftyMoveRule() {
+
+		Game game = new Game("8/8/4k3/8/8/3K4/4R3/8 w - - 99 80");
+		assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+
+		play(game, Square.E2, Square.H2);
+
+		assertEquals(GameStatus.FIFTY_MOVE_RULE, game.getStatus());
+		assertEquals(PgnGameTermination.DRAWN_GAME, game.getResult());
+		assertFalse(game.doMove(Square.E6, Square.E5, null));
+
+	}
+
+	@Test
+	public void testInsufficientMaterial() {
+
+		Game game = new Game("8/8/4k3/8/8/3K4/4r3/8 w - - 0 1");
+		assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+
+		// the king captures the last rook
+		play(game, Square.D3, Square.E2);
+
+		assertEquals(GameStatus.INSUFFICIENT_MATERIAL, game.getStatus());
+		assertEquals(PgnGameTermination.DRAWN_GAME, game.getResult());
+
+	}
+
+	@Test
+	public void testSan() {
+
+		Game game = new Game(Board.STANDARD_STARTING_POSITION_FEN);
+
+		// scholar's mate
+		play(
+			game,
+			Square.E2, Square.E4, Square.E7, Square.E5, Square.D1, Square.H5, Square.B8, Square.C6,
+			Square.F1, Square.C4, Square.G8, Square.F6, Square.H5, Square.F7
+		);
+
+		List<String> expected = List.of("e4", "e5", "Qh5", "Nc6", "Bc4", "Nf6", "Qxf7#");
+
+		// the SAN is encoded on the first access from the position before the move (in any order)
+		for (int i = expected.size() - 1; i >= 0; i--) {
+			assertEquals(expected.get(i), game.getMoveLog().get(i).getSan());
+		}
+
+		assertEquals(expected, game.toPgnGame().moves);
+
+	}
+
+	@Test
+	public void testLegalMoveIndex() {
+
+		for (PerftPosition position : PerftPosition.values()) {
+
+			Game game = new Game(position.getFen());
+
+			Board board = position.createBoard();
+			List<Move> legalMoves = board.generateLegalMoves();
+
+			Piece queen = Piece.make(board.getSideToMove(), PieceType.QUEEN);
+
+			for (Square from : Square.values()) {
+
+				long targets = 0L;
+
+				for (Square to : Square.values()) {
+
+					boolean promotion = legalMoves.contains(new Move(from, to, queen));
+					boolean normal = legalMoves.contains(new Move(from, to, null));
+
+					if (promotion || normal) {
+						targets |= to.getBitboard();
+					}
+
+					String message = position.name() + " " + from + " -> " + to;
+
+					assertEquals(promotion, game.isPromotionMove(from, to), message);
+					assertEquals(normal, game.isLegalMove(from, to, null), message);
+					assertEquals(promotion, game.isLegalMove(from, to, PieceType.KNIGHT), message);
+					assertFalse(game.isLegalMove(from, to, PieceType.KING), message);
+
+				}
+
+				assertEquals(targets, game.getLegalMoves(from), position.name() + " " + from);
+
+			}
+
+		}
+
+	}
+
+}
@@ -2,9 +2,14 @@ package cz.martinendler.chess.engine.board;
 
 import cz.martinendler.chess.engine.CastlingRight;
 import cz.martinendler.chess.engine.Side;
+import cz.martinendler.chess.engine.move.IntMoveList;
 import cz.martinendler.chess.engine.move.Move;
+import cz.martinendler.chess.engine.move.MoveGenerator;
 import cz.martinendler.chess.engine.move.MoveGeneratorException;
+import cz.martinendler.chess.engine.move.PackedMove;
+import cz.martinendler.chess.engine.perft.PerftPosition;
 import cz.martinendler.chess.engine.pieces.Piece;
+import cz.martinendler.chess.engine.pieces.PieceType;
 import org.junit.jupiter.api.Test;
 
 import java.util.LinkedList;
@@ -22,12 +27,145 @@ public class BoardTest {
 		Board b2 = new Board(b1);
 
 		assertNotSame(b1, b2); // nothing else is possible
-		assertNotEquals(b1, b2); // because custom equals not implemented (yet)
+		assertEquals(b1, b2); // the same position
+		assertEquals(b1.hashCode(), b2.hashCode());
 
 		// TODO: test that internal array are copied
 
 	}
 
+	@Test
+	public void testZobristKey() {
+
+		Board board = new Board();
+		board.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+
+		long startKey = board.getZobristKey();
+		assertEquals(board.computeZobristKey(), startKey);
+
+		// the knights go out and back, so the position (but not the counters) repeats
+		Move[] moves = {
+			new Move(Square.G1, Square.F3),
+			new Move(Square.G8, Square.F6),
+			new Move(Square.F3, Square.G1),
+			new Move(Square.F6, Square.G8),
+		};
+
+		for (int i = 0; i < moves.length; i++) {
+			assertNotNull(board.doMove(moves[i], true));
+			assertEquals(board.computeZobristKey(), board.getZobristKey());
+			if (i < moves.length - 1) {
+				assertNotEquals(startKey, board.getZobristKey());
+			}
+		}
+
+		assertEquals(startKey, board.getZobristKey());
+
+		Board start = new Board();
+		start.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+		assertEquals(start, board);
+
+	}
+
+	@Test
+	public void testZobristKeyTranspositions() {
+
+		// 1. e4 e5 2. Nf3 and 1. Nf3 e5 2. e4 lead to the same position
+		Board b1 = new Board();
+		b1.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+		assertNotNull(b1.doMove(new Move(Square.E2, Square.E4), true));
+		assertNotNull(b1.doMove(new Move(Square.E7, Square.E5), true));
+		assertNotNull(b1.doMove(new Move(Square.G1, Square.F3), true));
+
+		Board b2 = new Board();
+		b2.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+		assertNotNull(b2.doMove(new Move(Square.G1, Square.F3), true));
+		assertNotNull(b2.doMove(new Move(Square.E7, Square.E5), true));
+		assertNotNull(b2.doMove(new Move(Square.E2, Square.E4), true));
+
+		assertEquals(b1.getZobristKey(), b2.getZobristKey());
+		assertEquals(b1, b2);
+
+		Board b3 = new Board();
+		b3.loadFromFen(b1.getFen());
+		assertEquals(b1.getZobristKey(), b3.getZobristKey());
+		assertEquals(b1, b3);
+
+		// the same pieces but different side to move / castling rights / en passant
+		Board sideToMove = new Board();
+		sideToMove.loadFromFen("rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 1 2");
+		Board castling = new Board();
+		castling.loadFromFen("rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b Qkq - 1 2");
+		assertNotEquals(b1.getZobristKey(), sideToMove.getZobristKey());
+		assertNotEquals(b1.getZobristKey(), castling.getZobristKey());
+		assertNotEquals(b1, sideToMove);
+		assertNotEquals(b1, castling);
+
+		// en passant is part of the key only if the capture is possible
+		Board ep = new Board();
+		ep.loadFromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3");
+		Board noEp = new Board();
+		noEp.loadFromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq - 0 3");
+		assertNotEquals(ep.getZobristKey(), noEp.getZobristKey());
+		Board uselessEp = new Board();
+		uselessEp.loadFromFen("rnbqkbnr/pppp1ppp/8/4p3/8/8/PPPPPPPP/RNBQKBNR w KQkq e6 0 2");
+		Board noUselessEp = new Board();
+		noUselessEp.loadFromFen("rnbqkbnr/pppp1ppp/8/4p3/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 2");
+		assertEquals(uselessEp.getZobristKey(), noUselessEp.getZobristKey());
+
+	}
+
+	@Test
+	public void testMakeUnmakeMove() {
+
+		String[] fens = {
+			Board.STANDARD_STARTING_POSITION_FEN,
+			// Kiwipete (castling, captures of rooks, en passant, promotions in the subtrees)
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			// en passant capture possible
+			"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+			// promotions (also with captures)
+			"n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+		};
+
+		for (String fen : fens) {
+			Board board = new Board();
+			board.loadFromFen(fen);
+			verifyMakeUnmakeMove(board, 3);
+		}
+
+	}
+
+	private static void verifyMakeUnmakeMove(Board board, int depth) {
+
+		if (depth == 0) {
+			return;
+		}
+
+		for (Move move : board.generateLegalMoves()) {
+
+			Board before = new Board(board);
+			String fenBefore = board.getFen();
+
+			// makeMove must lead to the same state as doMove
+			Board expected = new Board(board);
+			assertNotNull(expected.doMove(move, false));
+
+			long undo = board.makeMove(move);
+			assertEquals(expected, board, move.toDebugString());
+			assertEquals(expected.getFen(), board.getFen(), move.toDebugString());
+
+			verifyMakeUnmakeMove(board, depth - 1);
+
+			board.unmakeMove(move, undo);
+			assertEquals(before, board, move.toDebugString());
+			assertEquals(fenBefore, board.getFen(), move.toDebugString());
+			assertEquals(board.computeZobristKey(), board.getZobristKey());
+
+		}
+
+	}
+
 	@Test
 	public void testMoveAndFENParsing() {
 
@@ -292,6 +430,312 @@ public class BoardTest {
 
 	}
 
+	@Test
+	public void testCheckMateStaleMate() {
+
+		Board b = new Board();
+
+		// fool's mate
+		b.loadFromFen("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+		assertTrue(b.isCheckMate());
+		assertFalse(b.isStaleMate());
+		assertFalse(b.hasAnyLegalMove());
+		assertEquals(0, b.countLegalMoves());
+
+		// stalemate
+		b.loadFromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+		assertFalse(b.isCheckMate());
+		assertTrue(b.isStaleMate());
+		assertEquals(0, b.countLegalMoves());
+
+		// check that can be escaped only by the en passant capture of the checking pawn
+		b.loadFromFen("8/8/8/2k5/3Pp3/8/8/4K2R b K d3 0 1");
+		assertFalse(b.isCheckMate());
+		assertTrue(b.hasAnyLegalMove());
+
+		b.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+		assertFalse(b.isCheckMate());
+		assertFalse(b.isStaleMate());
+		assertEquals(20, b.countLegalMoves());
+
+	}
+
+	@Test
+	public void testMobility() {
+
+		Board b = new Board();
+		b.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+
+		assertEquals(16, b.getMobility(Side.WHITE, PieceType.PAWN));
+		assertEquals(4, b.getMobility(Side.WHITE, PieceType.KNIGHT));
+		assertEquals(0, b.getMobility(Side.WHITE, PieceType.BISHOP));
+		assertEquals(0, b.getMobility(Side.WHITE, PieceType.KING));
+		assertEquals(20, b.getMobility(Side.WHITE));
+		assertEquals(20, b.getMobility(Side.BLACK));
+
+		// a rook in the corner of an empty board (the king is not counted as an own piece on its path)
+		b.loadFromFen("7k/8/8/8/8/8/8/R3K3 w - - 0 1");
+		assertEquals(3 + 7, b.getMobility(Side.WHITE, PieceType.ROOK));
+		assertEquals(5, b.getMobility(Side.WHITE, PieceType.KING));
+		assertEquals(3, b.getMobility(Side.BLACK, PieceType.KING));
+
+	}
+
+	@Test
+	public void testInsufficientMaterial() {
+
+		String[] insufficient = {
+			"8/8/4k3/8/8/3K4/8/8 w - - 0 1",
+			"8/8/4k3/8/8/3K4/5N2/8 w - - 0 1",
+			"8/8/4k3/8/8/3K4/5b2/8 w - - 0 1",
+			// all the bishops on the light squares
+			"8/8/4k3/8/2b5/3K4/4B3/8 w - - 0 1",
+		};
+
+		String[] sufficient = {
+			Board.STANDARD_STARTING_POSITION_FEN,
+			"8/8/4k3/8/8/3K4/4P3/8 w - - 0 1",
+			"8/8/4k3/8/8/3K4/4R3/8 w - - 0 1",
+			"8/8/4k3/8/8/3K4/4NN2/8 w - - 0 1",
+			"8/8/4k3/8/8/3K4/4Nb2/8 w - - 0 1",
+			// bishops on the squares of different colors
+			"8/8/4k3/8/8/3K4/4Bb2/8 w - - 0 1",
+		};
+
+		Board board = new Board();
+
+		for (String fen : insufficient) {
+			board.loadFromFen(fen);
+			assertTrue(board.isInsufficientMaterial(), fen);
+		}
+
+		for (String fen : sufficient) {
+			board.loadFromFen(fen);
+			assertFalse(board.isInsufficientMaterial(), fen);
+		}
+
+		board.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+		assertEquals(8, board.getPieceCount(Piece.WHITE_PAWN));
+		assertEquals(1, board.getPieceCount(Piece.BLACK_QUEEN));
+
+	}
+
+	private static int see(String fen, Square from, Square to, PieceType promotion) {
+		Board board = new Board();
+		board.loadFromFen(fen);
+		Piece promotionPiece = promotion != null ? Piece.make(board.getSideToMove(), promotion) : null;
+		int move = PackedMove.fromMove(board, new Move(from, to, promotionPiece));
+		int see = board.staticExchangeEvaluation(move);
+		// the board is not changed
+		assertEquals(fen, board.getFen());
+		return see;
+	}
+
+	@Test
+	public void testStaticExchangeEvaluation() {
+
+		// an undefended pawn
+		assertEquals(100, see("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", Square.E1, Square.E5, null));
+
+		// a pawn defended by a knight, the x-ray attackers (rook, queen and bishop) are counted too
+		assertEquals(100 - 320, see("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", Square.D3, Square.E5, null));
+
+		// a queen takes a pawn defended by a pawn
+		assertEquals(100 - 900, see("k7/8/3p4/4p3/8/8/4Q3/4K3 w - - 0 1", Square.E2, Square.E5, null));
+
+		// the rook is backed by the queen behind it (x-ray), so the rook is exchanged only for the rook
+		assertEquals(500, see("k3r3/4r3/8/8/8/8/4R3/K3Q3 w - - 0 1", Square.E2, Square.E7, null));
+		assertEquals(0, see("k3r3/4r3/8/8/8/8/4R3/K7 w - - 0 1", Square.E2, Square.E7, null));
+
+		// the king cannot recapture a defended piece
+		assertEquals(100, see("8/8/8/4k3/3p4/8/1B6/K2R4 w - - 0 1", Square.D1, Square.D4, null));
+		assertEquals(100 - 500, see("8/8/8/4k3/3p4/8/8/K2R4 w - - 0 1", Square.D1, Square.D4, null));
+
+		// en passant
+		assertEquals(100, see("k7/8/8/3pP3/8/8/8/K7 w - d6 0 1", Square.E5, Square.D6, null));
+
+		// a quiet move to an attacked square
+		assertEquals(-320, see("k7/8/3p4/8/8/2N5/8/K7 w - - 0 1", Square.C3, Square.E5, null));
+
+		// a capture promotion that is recaptured
+		assertEquals(330 + 900 - 100 - 900, see("kr1b4/2P5/8/8/8/8/8/K7 w - - 0 1", Square.C7, Square.D8, PieceType.QUEEN));
+
+	}
+
+	@Test
+	public void testCopyFrom() {
+
+		Board kiwipete = PerftPosition.KIWIPETE.createBoard();
+
+		Board b = new Board();
+		b.loadFromFen("8/8/8/R2pP2k/8/8/8/4K3 w - d6 0 1");
+
+		// the cached check info and attack maps of the overwritten position must not survive
+		assertTrue(b.givesCheck(new Move(Square.E5, Square.D6)));
+		assertTrue(b.isSquareAttackedBy(Square.D5.getBitboard(), Side.WHITE));
+
+		assertSame(b, b.copyFrom(kiwipete));
+
+		assertEquals(kiwipete, b);
+		assertEquals(kiwipete.getFen(), b.getFen());
+		assertEquals(kiwipete.getZobristKey(), b.getZobristKey());
+		assertEquals(CastlingRight.KING_AND_QUEEN_SIDE, b.getCastlingRight(Side.BLACK));
+		assertEquals(0xF, b.getCastlingRights());
+		assertNull(b.getEnPassant());
+		assertEquals(kiwipete.getAttackedSquares(Side.WHITE), b.getAttackedSquares(Side.WHITE));
+		assertEquals(48, b.countLegalMoves());
+
+		// the copy is independent
+		int castling = PackedMove.encode(Square.E1.ordinal(), Square.G1.ordinal(), PackedMove.CASTLING);
+		long undo = b.makeMove(castling);
+		assertNotEquals(kiwipete, b);
+		assertEquals(CastlingRight.KING_AND_QUEEN_SIDE, kiwipete.getCastlingRight(Side.WHITE));
+		assertEquals(CastlingRight.NONE, b.getCastlingRight(Side.WHITE));
+		assertEquals(0xC, b.getCastlingRights());
+		b.unmakeMove(castling, undo);
+		assertEquals(kiwipete, b);
+
+		// the en passant squares are copied too
+		Board ep = new Board();
+		ep.loadFromFen("8/8/8/R2pP2k/8/8/8/4K3 w - d6 0 1");
+		b.copyFrom(ep);
+		assertEquals(Square.D6, b.getEnPassant());
+		assertEquals(Square.D5, b.getEnPassantTarget());
+		assertEquals(ep.getFen(), b.getFen());
+
+	}
+
+	/**
+	 * Compares the cached attack maps with {@link Board#squareAttackedBy(Square, Side)} in the tree of the given depth
+	 */
+	private static void verifyAttackMaps(Board b, int depth) {
+
+		for (Side side : Side.values()) {
+			long attacked = 0L;
+			for (Square sq : Square.values()) {
+				long attackers = b.squareAttackedBy(sq, side);
+				if (attackers != 0L) {
+					attacked |= sq.getBitboard();
+				}
+				assertEquals(Long.bitCount(attackers), b.getAttackCount(sq, side), sq + " " + b.getFen());
+			}
+			assertEquals(attacked, b.getAttackedSquares(side), b.getFen());
+		}
+
+		if (depth <= 1) {
+			return;
+		}
+
+		IntMoveList moves = new IntMoveList();
+		MoveGenerator.generateLegalMoves(b, moves);
+
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			long undo = b.makeMove(move);
+			verifyAttackMaps(b, depth - 1);
+			b.unmakeMove(move, undo);
+			// the maps of the restored position are recomputed
+			assertEquals(b.isKingAttacked(), b.isSquareAttackedBy(
+				b.getBitboard(Piece.make(b.getSideToMove(), PieceType.KING)),
+				b.getSideToMove().flip()
+			));
+		}
+
+	}
+
+	@Test
+	public void testAttackMaps() {
+
+		for (PerftPosition position : PerftPosition.values()) {
+			verifyAttackMaps(position.createBoard(), 2);
+		}
+
+		Board b = new Board();
+		b.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+
+		// the 3rd rank and all the pieces except the rooks in the corners
+		assertEquals(0x0000000000FFFF7EL, b.getAttackedSquares(Side.WHITE));
+		assertEquals(3, b.getAttackCount(Square.F3, Side.WHITE));
+		assertEquals(4, b.getAttackCount(Square.D2, Side.WHITE));
+		assertEquals(0, b.getAttackCount(Square.A1, Side.WHITE));
+
+		// castling through an attacked square
+		b.loadFromFen("4k3/8/8/8/8/8/5r2/R3K2R w KQ - 0 1");
+		assertTrue(b.isSquareAttackedBy(List.of(Square.F1), Side.BLACK));
+		assertFalse(b.isSquareAttackedBy(List.of(Square.D1, Square.C1), Side.BLACK));
+		assertEquals(1, b.generateLegalMoves().stream().filter(Move::isCastling).count());
+
+	}
+
+	/**
+	 * Compares {@link Board#givesCheck(int)} with making the move for every move in the tree of the given depth
+	 *
+	 * @return the number of checking moves
+	 */
+	private static int verifyGivesCheck(Board b, int depth) {
+
+		IntMoveList moves = new IntMoveList();
+		MoveGenerator.generateLegalMoves(b, moves);
+
+		int checks = 0;
+
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			boolean givesCheck = b.givesCheck(move);
+			long undo = b.makeMove(move);
+			assertEquals(b.isKingAttacked(), givesCheck, PackedMove.toDebugString(move) + " " + b.getFen());
+			if (givesCheck) {
+				checks++;
+			}
+			if (depth > 1) {
+				checks += verifyGivesCheck(b, depth - 1);
+			}
+			b.unmakeMove(move, undo);
+		}
+
+		return checks;
+
+	}
+
+	@Test
+	public void testGivesCheck() {
+
+		for (PerftPosition position : PerftPosition.values()) {
+			verifyGivesCheck(position.createBoard(), 3);
+		}
+
+		// Kiwipete has 0, 3 and 993 checks at depths 1, 2 and 3 (see the perft results on CPW)
+		assertEquals(996, verifyGivesCheck(PerftPosition.KIWIPETE.createBoard(), 3));
+
+		Board b = new Board();
+
+		// castling (the rook gives check)
+		b.loadFromFen("5k2/8/8/8/8/8/8/4K2R w K - 0 1");
+		assertTrue(b.givesCheck(new Move(Square.E1, Square.G1)));
+		assertFalse(b.givesCheck(new Move(Square.E1, Square.F1)));
+
+		// en passant (a discovered check along the rank of the two pawns)
+		b.loadFromFen("8/8/8/R2pP2k/8/8/8/4K3 w - d6 0 1");
+		assertTrue(b.givesCheck(new Move(Square.E5, Square.D6)));
+
+		// en passant (a discovered check along the diagonal through the captured pawn)
+		b.loadFromFen("8/1k6/8/3pP3/8/8/6B1/4K3 w - d6 0 1");
+		assertTrue(b.givesCheck(new Move(Square.E5, Square.D6)));
+
+		// promotions (the rook or queen checks along the rank, the knight does not)
+		b.loadFromFen("k7/4P3/8/8/8/8/8/4K3 w - - 0 1");
+		assertTrue(b.givesCheck(new Move(Square.E7, Square.E8, Piece.WHITE_QUEEN)));
+		assertTrue(b.givesCheck(new Move(Square.E7, Square.E8, Piece.WHITE_ROOK)));
+		assertFalse(b.givesCheck(new Move(Square.E7, Square.E8, Piece.WHITE_KNIGHT)));
+		assertFalse(b.givesCheck(new Move(Square.E7, Square.E8, Piece.WHITE_BISHOP)));
+
+		// discovered check by the king
+		b.loadFromFen("7k/8/8/8/8/8/1K6/B7 w - - 0 1");
+		assertTrue(b.givesCheck(new Move(Square.B2, Square.B3)));
+		assertFalse(b.givesCheck(new Move(Square.B2, Square.C3)));
+
+	}
+
 	// @Test
 	// public void testDraws() {
 	//
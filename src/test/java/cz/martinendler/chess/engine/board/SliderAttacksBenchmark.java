@@ -0,0 +1,73 @@
+package cz.martinendler.chess.engine.board;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Compares attack lookups per second of all the slider attacks backends
+ * <p>
+ * Run using {@code mvn test -P benchmark -Dtest=SliderAttacksBenchmark}
+ */
+@Tag("benchmark")
+class SliderAttacksBenchmark {
+
+	private static final int SAMPLES = 1 << 16;
+	private static final int ROUNDS = 200;
+
+	@Test
+	public void benchmarkBackends() {
+
+		Random random = new Random(1);
+
+		long[] occupancies = new long[SAMPLES];
+		int[] squares = new int[SAMPLES];
+
+		for (int i = 0; i < SAMPLES; i++) {
+			// roughly a middlegame density (about 16 - 24 pieces)
+			occupancies[i] = random.nextLong() & random.nextLong();
+			squares[i] = random.nextInt(64);
+		}
+
+		System.out.println("PEXT intrinsic available: " + PextSliderAttacks.isIntrinsicAvailable());
+
+		for (SliderAttacks.Backend backend : SliderAttacks.Backend.values()) {
+
+			SliderAttacks attacks = backend.create();
+
+			// warm up (let the JIT compile the lookups)
+			run(attacks, occupancies, squares, ROUNDS / 4);
+
+			long start = System.nanoTime();
+			long sink = run(attacks, occupancies, squares, ROUNDS);
+			long elapsed = System.nanoTime() - start;
+
+			// each sample does one bishop and one rook lookup
+			double lookups = 2.0 * SAMPLES * ROUNDS;
+
+			System.out.printf(
+				"%-10s %8.1f M lookups/s (sink %x)%n",
+				backend.getName(), lookups / elapsed * 1_000.0, sink
+			);
+
+			assertNotEquals(0L, sink);
+
+		}
+
+	}
+
+	private static long run(SliderAttacks attacks, long[] occupancies, int[] squares, int rounds) {
+		long sink = 0L;
+		for (int r = 0; r < rounds; r++) {
+			for (int i = 0; i < SAMPLES; i++) {
+				sink += attacks.getBishopAttacks(occupancies[i], squares[i]);
+				sink += attacks.getRookAttacks(occupancies[i], squares[i]);
+			}
+		}
+		return sink;
+	}
+
+}
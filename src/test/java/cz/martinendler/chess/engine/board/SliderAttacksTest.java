@@ -0,0 +1,109 @@
+package cz.martinendler.chess.engine.board;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SliderAttacksTest {
+
+	private static final SliderAttacks reference = SliderAttacks.Backend.REFERENCE.create();
+
+	@Test
+	public void testReferenceRookAttacks() {
+		// rook on D4, blockers on D6, B4 and G4 (D1 is not a blocker as there is nothing on D2 and D3)
+		long occupied = Square.D6.getBitboard() | Square.B4.getBitboard() | Square.G4.getBitboard();
+		assertEquals(
+			"""
+				.   A B C D E F G H   .
+				8 | 0 0 0 0 0 0 0 0 | 8
+				7 | 0 0 0 0 0 0 0 0 | 7
+				6 | 0 0 0 1 0 0 0 0 | 6
+				5 | 0 0 0 1 0 0 0 0 | 5
+				4 | 0 1 1 0 1 1 1 0 | 4
+				3 | 0 0 0 1 0 0 0 0 | 3
+				2 | 0 0 0 1 0 0 0 0 | 2
+				1 | 0 0 0 1 0 0 0 0 | 1
+				.   A B C D E F G H   .
+				""",
+			Bitboard.bbToPrettyString(reference.getRookAttacks(occupied, Square.D4.ordinal()), true)
+		);
+	}
+
+	@Test
+	public void testReferenceBishopAttacks() {
+		// bishop on C3, blockers on E5 and B2
+		long occupied = Square.E5.getBitboard() | Square.B2.getBitboard();
+		assertEquals(
+			"""
+				.   A B C D E F G H   .
+				8 | 0 0 0 0 0 0 0 0 | 8
+				7 | 0 0 0 0 0 0 0 0 | 7
+				6 | 0 0 0 0 0 0 0 0 | 6
+				5 | 1 0 0 0 1 0 0 0 | 5
+				4 | 0 1 0 1 0 0 0 0 | 4
+				3 | 0 0 0 0 0 0 0 0 | 3
+				2 | 0 1 0 1 0 0 0 0 | 2
+				1 | 0 0 0 0 1 0 0 0 | 1
+				.   A B C D E F G H   .
+				""",
+			Bitboard.bbToPrettyString(reference.getBishopAttacks(occupied, Square.C3.ordinal()), true)
+		);
+	}
+
+	@Test
+	public void testBackendsMatchReference() {
+
+		Random random = new Random(42);
+
+		for (SliderAttacks.Backend backend : SliderAttacks.Backend.values()) {
+
+			SliderAttacks attacks = backend.create();
+
+			for (int sq = 0; sq < 64; sq++) {
+
+				for (int i = 0; i < 2000; i++) {
+
+					// vary the density of the occupancy (sparse, medium, dense)
+					long occupied = switch (i % 3) {
+						case 0 -> random.nextLong() & random.nextLong() & random.nextLong();
+						case 1 -> random.nextLong() & random.nextLong();
+						default -> random.nextLong();
+					};
+
+					assertEquals(
+						reference.getBishopAttacks(occupied, sq),
+						attacks.getBishopAttacks(occupied, sq),
+						backend.getName() + " bishop attacks differ on square " + Square.fromIndex(sq)
+					);
+					assertEquals(
+						reference.getRookAttacks(occupied, sq),
+						attacks.getRookAttacks(occupied, sq),
+						backend.getName() + " rook attacks differ on square " + Square.fromIndex(sq)
+					);
+
+				}
+
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testPext() {
+		assertEquals(0b1011L, PextSliderAttacks.pext(0b1001_0001L, 0b1011_0001L));
+		assertEquals(0L, PextSliderAttacks.pext(-1L, 0L));
+		assertEquals(-1L, PextSliderAttacks.pext(-1L, -1L));
+	}
+
+	@Test
+	public void testBackendFromName() {
+		assertEquals(SliderAttacks.Backend.MAGIC, SliderAttacks.Backend.fromName("magic"));
+		assertEquals(SliderAttacks.Backend.PEXT, SliderAttacks.Backend.fromName("PEXT"));
+		assertEquals(SliderAttacks.Backend.REFERENCE, SliderAttacks.Backend.fromName("reference"));
+		assertNull(SliderAttacks.Backend.fromName("x"));
+	}
+
+}
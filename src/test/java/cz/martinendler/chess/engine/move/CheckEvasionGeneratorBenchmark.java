@@ -0,0 +1,84 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.board.Board;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares legal move generation by filtering pseudo-legal moves with {@link CheckEvasionGenerator}
+ * in positions where the side to move is in check
+ * <p>
+ * Run using {@code mvn test -P benchmark -Dtest=CheckEvasionGeneratorBenchmark}
+ */
+@Tag("benchmark")
+class CheckEvasionGeneratorBenchmark {
+
+	/**
+	 * Middlegame positions with a check
+	 */
+	private static final String[] fens = {
+		"r1bqkbnr/pppp1Bpp/2n5/4p3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 0 3",
+		"rnbqk1nr/pppp1ppp/8/4p3/1b1PP3/8/PPP2PPP/RNBQKBNR w KQkq - 1 3",
+		"rnbqk2r/pppp1ppp/5n2/4p3/1b2P3/3P4/PPP2PPP/RNBQKBNR w KQkq - 0 1",
+		"r3k2r/p1ppqpb1/bn1Npnp1/3P4/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b KQkq - 0 1",
+		"r4rk1/1pp1qBpp/p1np1n2/2b1p1B1/4P1b1/P1NP1N2/1PP1QPPP/R4RK1 b - - 0 10",
+	};
+
+
+	private static final int ROUNDS = 200_000;
+
+	@Test
+	public void benchmarkEvasions() {
+
+		Board[] boards = new Board[fens.length];
+		for (int i = 0; i < fens.length; i++) {
+			boards[i] = new Board();
+			boards[i].loadFromFen(fens[i]);
+			assertTrue(boards[i].isKingAttacked(), fens[i]);
+		}
+
+		IntMoveList moves = new IntMoveList();
+
+		// warm up (let the JIT compile both generators)
+		long filtering = run(boards, moves, false, ROUNDS / 4);
+		long evasions = run(boards, moves, true, ROUNDS / 4);
+		assertEquals(filtering, evasions);
+
+		long start = System.nanoTime();
+		filtering = run(boards, moves, false, ROUNDS);
+		long filteringTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		evasions = run(boards, moves, true, ROUNDS);
+		long evasionsTime = System.nanoTime() - start;
+
+		assertEquals(filtering, evasions);
+
+		double positions = (double) fens.length * ROUNDS;
+
+		System.out.printf("filtering %8.2f M positions/s%n", positions / filteringTime * 1_000.0);
+		System.out.printf("evasions  %8.2f M positions/s%n", positions / evasionsTime * 1_000.0);
+		System.out.printf("speedup   %8.2fx%n", (double) filteringTime / evasionsTime);
+
+	}
+
+	private static long run(Board[] boards, IntMoveList moves, boolean evasions, int rounds) {
+		long count = 0L;
+		for (int r = 0; r < rounds; r++) {
+			for (Board board : boards) {
+				moves.clear();
+				if (evasions) {
+					CheckEvasionGenerator.generateEvasions(board, moves);
+				} else {
+					MoveGenerator.generateLegalMovesByFiltering(board, moves);
+				}
+				count += moves.size();
+			}
+		}
+		return count;
+	}
+
+}
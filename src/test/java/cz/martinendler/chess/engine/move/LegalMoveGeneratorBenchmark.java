@@ -0,0 +1,80 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.board.Board;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares legal move generation by filtering pseudo-legal moves with {@link LegalMoveGenerator}
+ * <p>
+ * Run using {@code mvn test -P benchmark -Dtest=LegalMoveGeneratorBenchmark}
+ */
+@Tag("benchmark")
+class LegalMoveGeneratorBenchmark {
+
+	/**
+	 * Typical middlegame positions
+	 */
+	private static final String[] fens = {
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 8",
+		"r2q1rk1/1b1nbppp/p2ppn2/1p6/3NPP2/1BN1B3/PPP1Q1PP/R4RK1 b - - 0 11",
+		"2rq1rk1/pp1bppbp/3p1np1/4n3/3NP3/1BN1BP2/PPPQ2PP/2KR3R w - - 5 12",
+		"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+	};
+
+	private static final int ROUNDS = 200_000;
+
+	@Test
+	public void benchmarkGenerators() {
+
+		Board[] boards = new Board[fens.length];
+		for (int i = 0; i < fens.length; i++) {
+			boards[i] = new Board();
+			boards[i].loadFromFen(fens[i]);
+		}
+
+		IntMoveList moves = new IntMoveList();
+
+		// warm up (let the JIT compile both generators)
+		long filtering = run(boards, moves, false, ROUNDS / 4);
+		long direct = run(boards, moves, true, ROUNDS / 4);
+		assertEquals(filtering, direct);
+
+		long start = System.nanoTime();
+		filtering = run(boards, moves, false, ROUNDS);
+		long filteringTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		direct = run(boards, moves, true, ROUNDS);
+		long directTime = System.nanoTime() - start;
+
+		assertEquals(filtering, direct);
+
+		double positions = (double) fens.length * ROUNDS;
+
+		System.out.printf("filtering %8.2f M positions/s%n", positions / filteringTime * 1_000.0);
+		System.out.printf("direct    %8.2f M positions/s%n", positions / directTime * 1_000.0);
+		System.out.printf("speedup   %8.2fx%n", (double) filteringTime / directTime);
+
+	}
+
+	private static long run(Board[] boards, IntMoveList moves, boolean direct, int rounds) {
+		long count = 0L;
+		for (int r = 0; r < rounds; r++) {
+			for (Board board : boards) {
+				moves.clear();
+				if (direct) {
+					LegalMoveGenerator.generateLegalMoves(board, moves);
+				} else {
+					MoveGenerator.generateLegalMovesByFiltering(board, moves);
+				}
+				count += moves.size();
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,178 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegalMoveGeneratorTest {
+
+	/**
+	 * Positions with expected perft node counts
+	 *
+	 * @see <a href="https://www.chessprogramming.org/Perft_Results">Perft Results on CPW</a>
+	 */
+	private static final Object[][] positions = {
+		{Board.STANDARD_STARTING_POSITION_FEN, 4, 197_281L},
+		// Kiwipete
+		{"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 3, 97_862L},
+		// en passant captures that uncover a check along the rank
+		{"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 4, 43_238L},
+		// promotions, castling rights lost by rook captures, checks
+		{"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 3, 9_467L},
+		{"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 3, 62_379L},
+	};
+
+	@Test
+	public void testMatchesFilteringGenerator() {
+		for (Object[] position : positions) {
+			Board board = new Board();
+			board.loadFromFen((String) position[0]);
+			assertEquals(
+				position[2],
+				crossCheck(board, (int) position[1]),
+				(String) position[0]
+			);
+		}
+	}
+
+	@Test
+	public void testChecksAndPins() {
+
+		// double check (knight and rook), only the king can move (f7 is attacked by the knight, e7 by the rook)
+		assertLegalMoves("4k3/8/3N4/8/8/8/8/4R2K b - - 0 1", "e8 -> d7", "e8 -> d8", "e8 -> f8");
+
+		// single check by the rook, the bishop can block on e2 or e3, the pinned knight cannot move at all
+		assertLegalMoves(
+			"4r1k1/8/8/8/7b/8/3B1N2/4K3 w - - 0 1",
+			"d2 -> e3", "e1 -> d1", "e1 -> f1"
+		);
+
+		// en passant that would uncover a check along the rank is not legal
+		Board ep = new Board();
+		ep.loadFromFen("8/8/8/K2pP2r/8/8/8/7k w - d6 0 1");
+		IntMoveList moves = new IntMoveList();
+		LegalMoveGenerator.generateLegalMoves(ep, moves);
+		assertFalse(moves.contains(PackedMove.encode(Square.E5.ordinal(), Square.D6.ordinal(), 0)));
+
+		// the king cannot step back along the line of the checking rook
+		Board back = new Board();
+		back.loadFromFen("4k3/8/8/8/8/8/8/r3K3 w - - 0 1");
+		moves.clear();
+		LegalMoveGenerator.generateLegalMoves(back, moves);
+		assertFalse(moves.contains(PackedMove.encode(Square.E1.ordinal(), Square.F1.ordinal(), 0)));
+		assertEquals(MoveGenerator.generateLegalMoves(back), moves.toMoveList());
+
+	}
+
+	@Test
+	public void testCheckEvasions() {
+
+		// block by a double push (b2-b4) or by a single push (c2-c3), the king cannot move along the diagonal
+		assertLegalMoves(
+			"4k3/8/8/b7/8/8/1PP5/4K3 w - - 0 1",
+			"e1 -> d1", "e1 -> e2", "e1 -> f1", "e1 -> f2", "b2 -> b4", "c2 -> c3"
+		);
+
+		// block by a promotion (b7-b8 with four pieces) or capture the checker by the king
+		assertLegalMoves(
+			"r3K3/1P6/8/8/8/8/8/7k w - - 0 1",
+			"e8 -> d7", "e8 -> e7", "e8 -> f7",
+			"b7 -> b8 WHITE_QUEEN", "b7 -> b8 WHITE_ROOK", "b7 -> b8 WHITE_BISHOP", "b7 -> b8 WHITE_KNIGHT",
+			"b7 -> a8 WHITE_QUEEN", "b7 -> a8 WHITE_ROOK", "b7 -> a8 WHITE_BISHOP", "b7 -> a8 WHITE_KNIGHT"
+		);
+
+		// capture the checking pawn en passant
+		assertLegalMoves(
+			"8/8/8/4k3/3Pp3/8/8/4K3 b - d3 0 1",
+			"e5 -> d4", "e5 -> f4", "e5 -> d5", "e5 -> f5", "e5 -> d6", "e5 -> e6", "e5 -> f6", "e4 -> d3"
+		);
+
+		// the pinned rook cannot block on c1, the knight can block on b1
+		assertLegalMoves(
+			"4k3/8/8/8/b7/8/2RN4/r2K4 w - - 0 1",
+			"d1 -> e2", "d2 -> b1"
+		);
+
+		// not in check, no evasions
+		Board board = new Board();
+		board.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+		IntMoveList moves = new IntMoveList();
+		CheckEvasionGenerator.generateEvasions(board, moves);
+		assertTrue(moves.isEmpty());
+
+	}
+
+	private static void assertLegalMoves(String fen, String... expected) {
+
+		Board board = new Board();
+		board.loadFromFen(fen);
+
+		IntMoveList moves = new IntMoveList();
+		LegalMoveGenerator.generateLegalMoves(board, moves);
+
+		IntMoveList reference = new IntMoveList();
+		MoveGenerator.generateLegalMovesByFiltering(board, reference);
+
+		assertArrayEquals(sorted(reference), sorted(moves), fen);
+
+		assertEquals(expected.length, moves.size(), fen + ": " + moves);
+		for (String move : expected) {
+			assertTrue(moves.toString().contains(move), fen + ": " + move);
+		}
+
+	}
+
+	private static int[] sorted(IntMoveList moves) {
+		int[] array = new int[moves.size()];
+		for (int i = 0; i < moves.size(); i++) {
+			array[i] = moves.get(i);
+		}
+		Arrays.sort(array);
+		return array;
+	}
+
+	/**
+	 * Counts the leaf nodes and compares the generated moves with the reference implementation in every node
+	 */
+	private static long crossCheck(Board board, int depth) {
+
+		IntMoveList moves = new IntMoveList();
+		LegalMoveGenerator.generateLegalMoves(board, moves);
+
+		IntMoveList reference = new IntMoveList();
+		MoveGenerator.generateLegalMovesByFiltering(board, reference);
+
+		assertEquals(reference.size(), moves.size(), board.getFen());
+		if (board.isKingAttacked()) {
+			// the check evasions are generated in a different order
+			assertArrayEquals(sorted(reference), sorted(moves), board.getFen());
+		} else {
+			for (int i = 0; i < moves.size(); i++) {
+				assertEquals(reference.get(i), moves.get(i), board.getFen());
+			}
+		}
+
+		assertEquals(moves.size(), LegalMoveGenerator.countLegalMoves(board), board.getFen());
+		assertEquals(moves.size() > 0, LegalMoveGenerator.hasAnyLegalMove(board), board.getFen());
+
+		if (depth == 1) {
+			return moves.size();
+		}
+
+		long nodes = 0L;
+
+		for (int i = 0; i < moves.size(); i++) {
+			long undo = board.makeMove(moves.get(i));
+			nodes += crossCheck(board, depth - 1);
+			board.unmakeMove(moves.get(i), undo);
+		}
+
+		return nodes;
+
+	}
+
+}
@@ -0,0 +1,85 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.perft.PerftPosition;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveGeneratorTest {
+
+	private static int[] sorted(IntMoveList moves) {
+		int[] array = new int[moves.size()];
+		for (int i = 0; i < moves.size(); i++) {
+			array[i] = moves.get(i);
+		}
+		Arrays.sort(array);
+		return array;
+	}
+
+	/**
+	 * Checks that the set-wise pawn generation produces the same moves as the per-square one
+	 * in all the positions of the tree of the given depth
+	 */
+	private static void verifySetwisePawnMoves(Board board, int depth) {
+
+		IntMoveList setwise = new IntMoveList();
+		IntMoveList perSquare = new IntMoveList();
+
+		MoveGenerator.generatePawnCaptures(board, setwise);
+		MoveGenerator.generatePawnCapturesPerSquare(board, perSquare);
+		assertArrayEquals(sorted(perSquare), sorted(setwise), board.getFen());
+
+		setwise.clear();
+		perSquare.clear();
+
+		MoveGenerator.generatePawnMoves(board, setwise);
+		MoveGenerator.generatePawnMovesPerSquare(board, perSquare);
+		assertArrayEquals(sorted(perSquare), sorted(setwise), board.getFen());
+
+		if (depth == 0) {
+			return;
+		}
+
+		IntMoveList moves = new IntMoveList();
+		MoveGenerator.generateLegalMoves(board, moves);
+
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			long undo = board.makeMove(move);
+			verifySetwisePawnMoves(board, depth - 1);
+			board.unmakeMove(move, undo);
+		}
+
+	}
+
+	@Test
+	public void testSetwisePawnMoves() {
+		for (PerftPosition position : PerftPosition.values()) {
+			verifySetwisePawnMoves(position.createBoard(), 3);
+		}
+	}
+
+	@Test
+	public void testSetwisePawnMovesEdgeCases() {
+		String[] fens = {
+			// pawns on the A and H files (no wrap-around captures), blocked double pushes
+			"4k3/8/8/p6p/P6P/1n4n1/P6P/4K3 w - - 0 1",
+			"4k3/p6p/1N4N1/p6p/P6P/8/8/4K3 b - - 0 1",
+			// promotions with captures on both sides
+			"1n1n2k1/2P5/8/8/8/8/5p2/4KN1N b - - 0 1",
+			"1n1n2k1/2P5/8/8/8/8/5p2/4KN1N w - - 0 1",
+			// en passant on the A and H files
+			"4k3/8/8/Pp4pP/8/8/8/4K3 w - b6 0 1",
+			"4k3/8/8/8/pP4Pp/8/8/4K3 b - g3 0 1",
+		};
+		for (String fen : fens) {
+			Board board = new Board();
+			board.loadFromFen(fen);
+			verifySetwisePawnMoves(board, 1);
+		}
+	}
+
+}
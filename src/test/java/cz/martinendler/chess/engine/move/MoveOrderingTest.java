@@ -0,0 +1,115 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.Side;
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveOrderingTest {
+
+	@Test
+	public void testRecordCutoff() {
+
+		Board board = new Board();
+		board.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+
+		MoveOrdering ordering = new MoveOrdering(8);
+
+		int e4 = PackedMove.encode(Square.E2.ordinal(), Square.E4.ordinal(), PackedMove.DOUBLE_PUSH);
+		int nf3 = PackedMove.encode(Square.G1.ordinal(), Square.F3.ordinal(), 0);
+
+		ordering.recordCutoff(board, 2, e4, PackedMove.NONE, 3, 1);
+		ordering.recordCutoff(board, 2, nf3, PackedMove.NONE, 2, 3);
+		ordering.recordCutoff(board, 2, nf3, PackedMove.NONE, 2, 1);
+
+		// the most recent killer first, no duplicates
+		assertEquals(nf3, ordering.getKiller(2, 0));
+		assertEquals(e4, ordering.getKiller(2, 1));
+		assertEquals(PackedMove.NONE, ordering.getKiller(3, 0));
+
+		// depth squared
+		assertEquals(9, ordering.getHistory(Side.WHITE, e4));
+		assertEquals(8, ordering.getHistory(Side.WHITE, nf3));
+		assertEquals(0, ordering.getHistory(Side.BLACK, e4));
+
+		assertEquals(3, ordering.getCutoffs());
+		assertEquals(2, ordering.getFirstMoveCutoffs());
+		assertEquals(2.0 / 3, ordering.getFirstMoveCutoffRate());
+
+		// the countermove of 1. e4 is ...e5
+		board.makeMove(e4);
+		int e5 = PackedMove.encode(Square.E7.ordinal(), Square.E5.ordinal(), PackedMove.DOUBLE_PUSH);
+		assertEquals(PackedMove.NONE, ordering.getCounterMove(board, e4));
+		ordering.recordCutoff(board, 1, e5, e4, 4, 1);
+		assertEquals(e5, ordering.getCounterMove(board, e4));
+		assertEquals(16, ordering.getHistory(Side.BLACK, e5));
+
+		// a capture updates only the statistics
+		int capture = PackedMove.encode(Square.E7.ordinal(), Square.D6.ordinal(), PackedMove.CAPTURE);
+		ordering.recordCutoff(board, 1, capture, e4, 4, 2);
+		assertEquals(e5, ordering.getKiller(1, 0));
+		assertEquals(e5, ordering.getCounterMove(board, e4));
+		assertEquals(5, ordering.getCutoffs());
+
+		ordering.age();
+		assertEquals(4, ordering.getHistory(Side.WHITE, e4));
+		assertEquals(8, ordering.getHistory(Side.BLACK, e5));
+		assertEquals(PackedMove.NONE, ordering.getKiller(2, 0));
+		assertEquals(e5, ordering.getCounterMove(board, e4));
+
+		ordering.clear();
+		assertEquals(0, ordering.getHistory(Side.BLACK, e5));
+		assertEquals(PackedMove.NONE, ordering.getCounterMove(board, e4));
+		assertEquals(0, ordering.getCutoffs());
+		assertEquals(0.0, ordering.getFirstMoveCutoffRate());
+
+	}
+
+	@Test
+	public void testPickerOrder() {
+
+		Board board = new Board();
+		board.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+
+		MoveOrdering ordering = new MoveOrdering(8);
+
+		int a3 = PackedMove.encode(Square.A2.ordinal(), Square.A3.ordinal(), 0);
+		int h3 = PackedMove.encode(Square.H2.ordinal(), Square.H3.ordinal(), 0);
+		int d4 = PackedMove.encode(Square.D2.ordinal(), Square.D4.ordinal(), PackedMove.DOUBLE_PUSH);
+		int nc3 = PackedMove.encode(Square.B1.ordinal(), Square.C3.ordinal(), 0);
+
+		ordering.recordCutoff(board, 5, a3, PackedMove.NONE, 2, 1);
+		ordering.recordCutoff(board, 5, h3, PackedMove.NONE, 5, 1);
+		ordering.recordCutoff(board, 5, d4, PackedMove.NONE, 3, 1);
+
+		MovePicker picker = new MovePicker(board, ordering);
+		picker.reset(PackedMove.NONE, PackedMove.NONE, PackedMove.NONE, nc3);
+
+		List<Integer> moves = new ArrayList<>();
+		List<MovePicker.Stage> stages = new ArrayList<>();
+		int move;
+		while ((move = picker.next()) != PackedMove.NONE) {
+			moves.add(move);
+			stages.add(picker.getStage());
+		}
+
+		assertEquals(20, moves.size());
+
+		assertEquals(nc3, (int) moves.get(0));
+		assertEquals(MovePicker.Stage.COUNTER_MOVE, stages.get(0));
+
+		// the quiet moves by their history scores
+		assertEquals(List.of(h3, d4, a3), moves.subList(1, 4));
+		assertEquals(MovePicker.Stage.QUIETS, stages.get(1));
+
+		// the countermove is not repeated
+		assertEquals(1, moves.stream().filter(m -> m == nc3).count());
+
+	}
+
+}
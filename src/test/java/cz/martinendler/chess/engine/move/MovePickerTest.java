@@ -0,0 +1,164 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import cz.martinendler.chess.engine.perft.PerftPosition;
+import cz.martinendler.chess.engine.pieces.Piece;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovePickerTest {
+
+	private static List<Integer> pickAll(MovePicker picker, List<MovePicker.Stage> stages) {
+		List<Integer> moves = new ArrayList<>();
+		int move;
+		while ((move = picker.next()) != PackedMove.NONE) {
+			moves.add(move);
+			stages.add(picker.getStage());
+		}
+		assertEquals(MovePicker.Stage.DONE, picker.getStage());
+		assertEquals(PackedMove.NONE, picker.next());
+		return moves;
+	}
+
+	private static Set<Integer> legalMoves(Board board) {
+		IntMoveList moves = new IntMoveList();
+		MoveGenerator.generateLegalMoves(board, moves);
+		Set<Integer> set = new HashSet<>();
+		for (int i = 0; i < moves.size(); i++) {
+			set.add(moves.get(i));
+		}
+		return set;
+	}
+
+	/**
+	 * Checks that the picker returns exactly the legal moves (each once) in the whole tree of the given depth
+	 * and that the stages follow each other in the right order
+	 */
+	private static void verifyPicker(Board board, int depth, int hashMove, int killer1, int killer2) {
+
+		List<MovePicker.Stage> stages = new ArrayList<>();
+		List<Integer> picked = pickAll(new MovePicker(board, hashMove, killer1, killer2), stages);
+
+		Set<Integer> legal = legalMoves(board);
+
+		assertEquals(legal.size(), picked.size(), board.getFen());
+		assertEquals(legal, new HashSet<>(picked), board.getFen());
+
+		for (int i = 1; i < stages.size(); i++) {
+			assertTrue(stages.get(i - 1).compareTo(stages.get(i)) <= 0, board.getFen());
+		}
+
+		for (int i = 0; i < picked.size(); i++) {
+			int move = picked.get(i);
+			switch (stages.get(i)) {
+				case HASH_MOVE -> assertEquals(hashMove, move);
+				case CAPTURES -> assertTrue(PackedMove.isCapture(move));
+				case PROMOTIONS -> assertTrue(PackedMove.hasPromotion(move) && !PackedMove.isCapture(move));
+				case KILLERS -> assertTrue(move == killer1 || move == killer2);
+				case QUIETS -> assertFalse(PackedMove.isCapture(move) || PackedMove.hasPromotion(move));
+			}
+		}
+
+		if (depth <= 1) {
+			return;
+		}
+
+		// use the moves from this position as the suggested moves in the children (many of them stay valid)
+		int childKiller1 = picked.isEmpty() ? PackedMove.NONE : picked.get(picked.size() - 1);
+		int childKiller2 = picked.size() < 2 ? PackedMove.NONE : picked.get(picked.size() / 2);
+
+		for (int move : picked) {
+			long undo = board.makeMove(move);
+			verifyPicker(board, depth - 1, move, childKiller1, childKiller2);
+			board.unmakeMove(move, undo);
+		}
+
+	}
+
+	@Test
+	public void testAllLegalMovesOnce() {
+		for (PerftPosition position : PerftPosition.values()) {
+			verifyPicker(position.createBoard(), 3, PackedMove.NONE, PackedMove.NONE, PackedMove.NONE);
+		}
+	}
+
+	@Test
+	public void testStages() {
+
+		Board board = PerftPosition.KIWIPETE.createBoard();
+
+		int hashMove = PackedMove.encode(Square.E1.ordinal(), Square.G1.ordinal(), PackedMove.CASTLING);
+		int killer = PackedMove.encode(Square.A2.ordinal(), Square.A3.ordinal(), 0);
+
+		List<MovePicker.Stage> stages = new ArrayList<>();
+		List<Integer> moves = pickAll(new MovePicker(board, hashMove, killer, PackedMove.NONE), stages);
+
+		assertEquals(48, moves.size());
+
+		assertEquals(hashMove, (int) moves.get(0));
+		assertEquals(MovePicker.Stage.HASH_MOVE, stages.get(0));
+
+		// the most valuable victim first (Qf3xf6 / Nxf7 / ... take a knight or a pawn, Bxa6 takes a bishop)
+		assertEquals(MovePicker.Stage.CAPTURES, stages.get(1));
+		Piece victim = board.getPiece(PackedMove.getToSquare(moves.get(1)));
+		assertNotNull(victim);
+		assertEquals("BLACK_BISHOP", victim.name());
+
+		// 8 captures in Kiwipete
+		assertEquals(MovePicker.Stage.CAPTURES, stages.get(8));
+		assertEquals(MovePicker.Stage.KILLERS, stages.get(9));
+		assertEquals(killer, (int) moves.get(9));
+		assertEquals(MovePicker.Stage.QUIETS, stages.get(10));
+
+	}
+
+	@Test
+	public void testInvalidSuggestedMoves() {
+
+		Board board = new Board();
+		board.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+
+		// not pseudo-legal, wrong flags, the opponent's piece, a capture as a killer
+		int[] invalid = {
+			PackedMove.encode(Square.E2.ordinal(), Square.E5.ordinal(), 0),
+			PackedMove.encode(Square.E2.ordinal(), Square.E4.ordinal(), 0),
+			PackedMove.encode(Square.E7.ordinal(), Square.E5.ordinal(), PackedMove.DOUBLE_PUSH),
+			PackedMove.encode(Square.G1.ordinal(), Square.F3.ordinal(), PackedMove.CAPTURE),
+		};
+
+		for (int move : invalid) {
+			assertFalse(MoveGenerator.isPseudoLegal(board, move));
+			List<MovePicker.Stage> stages = new ArrayList<>();
+			List<Integer> moves = pickAll(new MovePicker(board, move, move, PackedMove.NONE), stages);
+			assertEquals(20, moves.size());
+			assertEquals(MovePicker.Stage.QUIETS, stages.get(0));
+		}
+
+		assertTrue(MoveGenerator.isPseudoLegal(
+			board,
+			PackedMove.encode(Square.E2.ordinal(), Square.E4.ordinal(), PackedMove.DOUBLE_PUSH)
+		));
+
+	}
+
+	@Test
+	public void testIsPseudoLegal() {
+		// every pseudo-legal move is recognized
+		for (PerftPosition position : PerftPosition.values()) {
+			Board board = position.createBoard();
+			IntMoveList moves = new IntMoveList();
+			MoveGenerator.generatePseudoLegalMoves(board, moves);
+			for (int i = 0; i < moves.size(); i++) {
+				assertTrue(MoveGenerator.isPseudoLegal(board, moves.get(i)), PackedMove.toDebugString(moves.get(i)));
+			}
+		}
+	}
+
+}
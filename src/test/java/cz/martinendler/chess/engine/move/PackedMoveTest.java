@@ -0,0 +1,106 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import cz.martinendler.chess.engine.pieces.Piece;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedMoveTest {
+
+	@Test
+	public void testEncodeDecode() {
+
+		int move = PackedMove.encode(
+			Square.B7.ordinal(), Square.A8.ordinal(), Piece.WHITE_KNIGHT, PackedMove.CAPTURE
+		);
+
+		assertEquals(Square.B7, PackedMove.getFromSquare(move));
+		assertEquals(Square.A8, PackedMove.getToSquare(move));
+		assertEquals(Piece.WHITE_KNIGHT, PackedMove.getPromotion(move));
+		assertTrue(PackedMove.hasPromotion(move));
+		assertTrue(PackedMove.isCapture(move));
+		assertFalse(PackedMove.isCastling(move));
+		assertFalse(PackedMove.isEnPassant(move));
+		assertFalse(PackedMove.isDoublePush(move));
+		assertEquals(new Move(Square.B7, Square.A8, Piece.WHITE_KNIGHT), PackedMove.toMove(move));
+		assertEquals("b7 -> a8 WHITE_KNIGHT", PackedMove.toDebugString(move));
+
+		// the key ignores the flags
+		assertEquals(
+			PackedMove.getKey(move),
+			PackedMove.getKey(PackedMove.encode(Square.B7.ordinal(), Square.A8.ordinal(), Piece.WHITE_KNIGHT, 0))
+		);
+
+		// the first square and no promotion
+		int a1 = PackedMove.encode(Square.A1.ordinal(), Square.H8.ordinal(), 0);
+		assertEquals(Square.A1, PackedMove.getFromSquare(a1));
+		assertEquals(Square.H8, PackedMove.getToSquare(a1));
+		assertNull(PackedMove.getPromotion(a1));
+
+	}
+
+	@Test
+	public void testGeneratedFlags() {
+
+		String[] fens = {
+			Board.STANDARD_STARTING_POSITION_FEN,
+			// Kiwipete
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			// en passant capture possible
+			"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+			// promotions (also with captures)
+			"n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+		};
+
+		for (String fen : fens) {
+
+			Board board = new Board();
+			board.loadFromFen(fen);
+
+			IntMoveList moves = new IntMoveList();
+			MoveGenerator.generatePseudoLegalMoves(board, moves);
+
+			for (int i = 0; i < moves.size(); i++) {
+				int move = moves.get(i);
+				// the flags set by the generator match the flags computed from the board
+				assertEquals(PackedMove.fromMove(board, PackedMove.toMove(move)), move, PackedMove.toDebugString(move));
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testIntMoveList() {
+
+		Board board = new Board();
+		board.loadFromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+
+		// a small capacity to check that the list grows
+		IntMoveList moves = new IntMoveList(4);
+		MoveGenerator.generateLegalMoves(board, moves);
+
+		List<Move> expected = MoveGenerator.generateLegalMoves(board);
+
+		assertEquals(48, moves.size());
+		assertEquals(expected, moves.toMoveList());
+
+		int castling = PackedMove.fromMove(board, new Move(Square.E1, Square.G1));
+		assertTrue(PackedMove.isCastling(castling));
+		assertTrue(moves.contains(castling));
+		assertFalse(moves.contains(PackedMove.encode(Square.E1.ordinal(), Square.E2.ordinal(), 0)));
+
+		// legal moves are appended after the existing ones
+		MoveGenerator.generateLegalMoves(board, moves);
+		assertEquals(96, moves.size());
+
+		moves.clear();
+		assertTrue(moves.isEmpty());
+
+	}
+
+}
@@ -0,0 +1,82 @@
+package cz.martinendler.chess.engine.move;
+
+import cz.martinendler.chess.engine.board.Board;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the per-square pawn move generation with the set-wise one
+ * <p>
+ * Run using {@code mvn test -P benchmark -Dtest=PawnMoveGeneratorBenchmark}
+ */
+@Tag("benchmark")
+class PawnMoveGeneratorBenchmark {
+
+	/**
+	 * Pawn-heavy positions
+	 */
+	private static final String[] fens = {
+		Board.STANDARD_STARTING_POSITION_FEN,
+		"r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 8",
+		"r2q1rk1/1b1nbppp/p2ppn2/1p6/3NPP2/1BN1B3/PPP1Q1PP/R4RK1 b - - 0 11",
+		"4k3/pppppppp/8/8/8/8/PPPPPPPP/4K3 w - - 0 1",
+		"4k3/1p1p1p1p/p1p1p1p1/PpPpPpPp/1P1P1P1P/8/8/4K3 w - b6 0 1",
+	};
+
+	private static final int ROUNDS = 500_000;
+
+	@Test
+	public void benchmarkPawnGeneration() {
+
+		Board[] boards = new Board[fens.length];
+		for (int i = 0; i < fens.length; i++) {
+			boards[i] = new Board();
+			boards[i].loadFromFen(fens[i]);
+		}
+
+		IntMoveList moves = new IntMoveList();
+
+		// warm up (let the JIT compile both generators)
+		long perSquare = run(boards, moves, false, ROUNDS / 4);
+		long setwise = run(boards, moves, true, ROUNDS / 4);
+		assertEquals(perSquare, setwise);
+
+		long start = System.nanoTime();
+		perSquare = run(boards, moves, false, ROUNDS);
+		long perSquareTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		setwise = run(boards, moves, true, ROUNDS);
+		long setwiseTime = System.nanoTime() - start;
+
+		assertEquals(perSquare, setwise);
+
+		double positions = (double) fens.length * ROUNDS;
+
+		System.out.printf("per-square %8.2f M positions/s%n", positions / perSquareTime * 1_000.0);
+		System.out.printf("set-wise   %8.2f M positions/s%n", positions / setwiseTime * 1_000.0);
+		System.out.printf("speedup    %8.2fx%n", (double) perSquareTime / setwiseTime);
+
+	}
+
+	private static long run(Board[] boards, IntMoveList moves, boolean setwise, int rounds) {
+		long count = 0L;
+		for (int r = 0; r < rounds; r++) {
+			for (Board board : boards) {
+				moves.clear();
+				if (setwise) {
+					MoveGenerator.generatePawnCaptures(board, moves);
+					MoveGenerator.generatePawnMoves(board, moves);
+				} else {
+					MoveGenerator.generatePawnCapturesPerSquare(board, moves);
+					MoveGenerator.generatePawnMovesPerSquare(board, moves);
+				}
+				count += moves.size();
+			}
+		}
+		return count;
+	}
+
+}
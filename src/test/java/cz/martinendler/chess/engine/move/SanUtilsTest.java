@@ -1,6 +1,7 @@
 package cz.martinendler.chess.engine.move;
 
 import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
 import cz.martinendler.chess.pgn.PgnUtils;
 import org.junit.jupiter.api.Test;
 
@@ -127,4 +128,35 @@ public class SanUtilsTest {
 
 	}
 
+	@Test
+	public void testEncodeSan() {
+
+		// the moves are in the exact SAN form including the check and mate suffixes
+		String moveText = "1.e4 e5 2.Qh5 Nc6 3.Bc4 Nf6 4.Qxf7# *";
+
+		Board board = new Board();
+		board.loadFromFen(Board.STANDARD_STARTING_POSITION_FEN);
+
+		List<String> moves = assertDoesNotThrow(() -> PgnUtils.parseMoveText(moveText));
+
+		for (String sanMove : moves) {
+			Move move = assertDoesNotThrow(() -> SanUtils.decodeSan(board, sanMove, board.getSideToMove()));
+			assertEquals(sanMove, SanUtils.encodeToSan(board, move));
+			assertNotNull(board.doMove(move, true), sanMove);
+		}
+
+		// castling with check
+		board.loadFromFen("5k2/8/8/8/8/8/8/4K2R w K - 0 1");
+		assertEquals("O-O+", SanUtils.encodeToSan(board, new Move(Square.E1, Square.G1)));
+
+		// a discovered check by the en passant capture
+		board.loadFromFen("8/8/8/R2pP2k/8/8/8/4K3 w - d6 0 1");
+		String fen = board.getFen();
+		assertEquals("exd6+", SanUtils.encodeToSan(board, new Move(Square.E5, Square.D6)));
+
+		// the board is not modified
+		assertEquals(fen, board.getFen());
+
+	}
+
 }
@@ -0,0 +1,57 @@
+package cz.martinendler.chess.engine.perft;
+
+import cz.martinendler.chess.engine.board.Board;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelPerftTest {
+
+	@Test
+	public void testStandardPositions() {
+		for (PerftPosition position : PerftPosition.values()) {
+			Board board = position.createBoard();
+			String fen = board.getFen();
+			for (int splitDepth = 1; splitDepth <= 2; splitDepth++) {
+				ParallelPerft.Result result = ParallelPerft.perft(board, 3, 4, splitDepth);
+				assertEquals(position.getExpectedNodes(3), result.getNodes(), position.name());
+				assertEquals(4, result.getParallelism());
+				// the per-thread counts add up to the total
+				assertEquals(
+					result.getNodes(),
+					result.getThreads().values().stream().mapToLong(ParallelPerft.ThreadStats::getNodes).sum(),
+					position.name()
+				);
+			}
+			// the board is not modified
+			assertEquals(fen, board.getFen());
+		}
+	}
+
+	@Test
+	public void testDeterministic() {
+		Board board = PerftPosition.KIWIPETE.createBoard();
+		for (int i = 0; i < 3; i++) {
+			assertEquals(4_085_603L, ParallelPerft.perft(board, 4, 4, 2).getNodes());
+		}
+	}
+
+	@Test
+	public void testShallowDepths() {
+		Board board = PerftPosition.INITIAL.createBoard();
+		// nothing to split, it is counted sequentially
+		assertEquals(1L, ParallelPerft.perft(board, 0, 4, 2).getNodes());
+		assertEquals(20L, ParallelPerft.perft(board, 1, 4, 2).getNodes());
+		// only the root moves are split
+		assertEquals(400L, ParallelPerft.perft(board, 2, 4, 2).getNodes());
+	}
+
+	@Test
+	public void testInvalidArguments() {
+		Board board = PerftPosition.INITIAL.createBoard();
+		assertThrows(IllegalArgumentException.class, () -> ParallelPerft.perft(board, -1, 4, 1));
+		assertThrows(IllegalArgumentException.class, () -> ParallelPerft.perft(board, 3, 0, 1));
+		assertThrows(IllegalArgumentException.class, () -> ParallelPerft.perft(board, 3, 4, 3));
+	}
+
+}
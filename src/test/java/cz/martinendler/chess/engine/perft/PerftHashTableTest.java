@@ -0,0 +1,83 @@
+package cz.martinendler.chess.engine.perft;
+
+import cz.martinendler.chess.engine.board.Board;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftHashTableTest {
+
+	@Test
+	public void testProbeStore() {
+
+		PerftHashTable table = new PerftHashTable(1);
+
+		assertEquals((1 << 20) / PerftHashTable.ENTRY_SIZE, table.getCapacity());
+
+		long key = 0x1234_5678_9abc_def0L;
+
+		assertEquals(-1L, table.probe(key, 3));
+
+		table.store(key, 3, 97_862L);
+		assertEquals(97_862L, table.probe(key, 3));
+		// the depth must match
+		assertEquals(-1L, table.probe(key, 2));
+		// another key that maps to the same slot
+		assertEquals(-1L, table.probe(key ^ (1L << 62), 3));
+
+		// replace-by-depth: a shallower entry does not replace a deeper one
+		table.store(key ^ (1L << 62), 2, 2_039L);
+		assertEquals(97_862L, table.probe(key, 3));
+		assertEquals(-1L, table.probe(key ^ (1L << 62), 2));
+
+		// a deeper (or equally deep) one does
+		table.store(key ^ (1L << 62), 4, 4_085_603L);
+		assertEquals(4_085_603L, table.probe(key ^ (1L << 62), 4));
+		assertEquals(-1L, table.probe(key, 3));
+
+		assertEquals(8, table.getProbes());
+		assertEquals(3, table.getHits());
+		assertEquals(0.375, table.getHitRate());
+
+		table.clear();
+		assertEquals(-1L, table.probe(key ^ (1L << 62), 4));
+		assertEquals(1, table.getProbes());
+
+	}
+
+	@Test
+	public void testHashedPerft() {
+
+		// a small table forces many replacements
+		PerftHashTable table = new PerftHashTable(1);
+
+		for (PerftPosition position : PerftPosition.values()) {
+			Board board = position.createBoard();
+			String fen = board.getFen();
+			table.clear();
+			assertEquals(position.getExpectedNodes(4), Perft.perft(board, 4, table), position.name());
+			// the board is restored
+			assertEquals(fen, board.getFen());
+		}
+
+		// the first transpositions in the initial position are after 4 plies
+		table.clear();
+		assertEquals(4_865_609L, Perft.perft(PerftPosition.INITIAL.createBoard(), 5, table));
+		assertTrue(table.getHits() > 0);
+
+	}
+
+	@Test
+	public void testSharedTable() {
+
+		PerftHashTable table = new PerftHashTable(4);
+
+		for (PerftPosition position : PerftPosition.values()) {
+			table.clear();
+			ParallelPerft.Result result = ParallelPerft.perft(position.createBoard(), 4, 4, 2, table);
+			assertEquals(position.getExpectedNodes(4), result.getNodes(), position.name());
+		}
+
+	}
+
+}
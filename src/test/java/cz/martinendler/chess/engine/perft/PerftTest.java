@@ -0,0 +1,56 @@
+package cz.martinendler.chess.engine.perft;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import cz.martinendler.chess.engine.move.Move;
+import cz.martinendler.chess.engine.pieces.Piece;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+
+	@Test
+	public void testStandardPositions() {
+		for (PerftPosition position : PerftPosition.values()) {
+			Board board = position.createBoard();
+			String fen = board.getFen();
+			// keep the test fast, the deeper counts are checked using PerftCli
+			for (int depth = 1; depth <= 3; depth++) {
+				assertEquals(position.getExpectedNodes(depth), Perft.perft(board, depth), position.name());
+			}
+			// the board is restored
+			assertEquals(fen, board.getFen());
+		}
+	}
+
+	@Test
+	public void testDivide() {
+
+		Board board = PerftPosition.KIWIPETE.createBoard();
+
+		Map<Move, Long> divide = Perft.divide(board, 2);
+
+		assertEquals(48, divide.size());
+		assertEquals(2_039L, divide.values().stream().mapToLong(Long::longValue).sum());
+		// the values from another engine
+		assertEquals(43L, divide.get(new Move(Square.E1, Square.G1)));
+		assertEquals(36L, divide.get(new Move(Square.E2, Square.A6)));
+
+	}
+
+	@Test
+	public void testToUci() {
+		assertEquals("e2e4", PerftCli.toUci(new Move(Square.E2, Square.E4)));
+		assertEquals("a7a8q", PerftCli.toUci(new Move(Square.A7, Square.A8, Piece.WHITE_QUEEN)));
+		assertEquals("b2b1n", PerftCli.toUci(new Move(Square.B2, Square.B1, Piece.BLACK_KNIGHT)));
+	}
+
+	@Test
+	public void testDepthZero() {
+		assertEquals(1L, Perft.perft(PerftPosition.INITIAL.createBoard(), 0));
+	}
+
+}
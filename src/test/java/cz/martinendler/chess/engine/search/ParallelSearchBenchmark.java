@@ -0,0 +1,90 @@
+package cz.martinendler.chess.engine.search;
+
+import cz.martinendler.chess.engine.perft.PerftPosition;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures the scaling of the {@link ParallelSearch} (Lazy SMP):
+ * the time to reach a fixed depth and the nodes per second for 1, 2, 4, 8 and 16 threads
+ * <p>
+ * Each search starts with an empty transposition table.
+ * Note that the results of the runs with more threads than the available cores are not meaningful.
+ * <p>
+ * Run using {@code mvn test -P benchmark -Dtest=ParallelSearchBenchmark}
+ */
+@Tag("benchmark")
+class ParallelSearchBenchmark {
+
+	private static final int DEPTH = 7;
+
+	private static final int[] THREADS = {1, 2, 4, 8, 16};
+
+	private static final int TABLE_SIZE_MB = 64;
+
+	@Test
+	public void benchmarkScaling() {
+
+		System.out.printf("available processors: %d%n", Runtime.getRuntime().availableProcessors());
+
+		TranspositionTable table = new TranspositionTable(TABLE_SIZE_MB);
+
+		// warm up
+		ParallelSearch warmUp = new ParallelSearch(2, table);
+		for (PerftPosition position : PerftPosition.values()) {
+			warmUp.search(position.createBoard(), new SearchLimits().setDepth(DEPTH - 2));
+		}
+		warmUp.shutdown();
+
+		long baselineNanos = 0L;
+
+		for (int threads : THREADS) {
+
+			ParallelSearch search = new ParallelSearch(threads, table);
+
+			long totalNanos = 0L;
+			long totalNodes = 0L;
+
+			for (PerftPosition position : PerftPosition.values()) {
+
+				table.clear();
+
+				long start = System.nanoTime();
+				SearchResult result = search.search(position.createBoard(), new SearchLimits().setDepth(DEPTH));
+				long nanos = System.nanoTime() - start;
+
+				totalNanos += nanos;
+				totalNodes += result.getNodes();
+
+				System.out.printf(
+					"%2d threads  %-12s %8.0f ms  %10d nodes  %8.0f knodes/s  hashfull %4d%n",
+					threads,
+					position.name(),
+					nanos / 1_000_000.0,
+					result.getNodes(),
+					result.getNodes() * 1_000_000.0 / nanos,
+					result.getHashfull()
+				);
+
+			}
+
+			search.shutdown();
+
+			if (threads == 1) {
+				baselineNanos = totalNanos;
+			}
+
+			System.out.printf(
+				"%2d threads  time to depth %d: %8.0f ms (speedup %.2f)  %8.0f knodes/s%n%n",
+				threads,
+				DEPTH,
+				totalNanos / 1_000_000.0,
+				baselineNanos / (double) totalNanos,
+				totalNodes * 1_000_000.0 / totalNanos
+			);
+
+		}
+
+	}
+
+}
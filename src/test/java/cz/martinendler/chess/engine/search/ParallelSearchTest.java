@@ -0,0 +1,67 @@
+package cz.martinendler.chess.engine.search;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.move.PackedMove;
+import cz.martinendler.chess.engine.perft.PerftPosition;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSearchTest {
+
+	@Test
+	public void testMateInTwo() {
+
+		Board board = new Board();
+		board.loadFromFen("k7/8/2K5/8/8/8/8/7R w - - 0 1");
+
+		ParallelSearch search = new ParallelSearch(4);
+
+		try {
+			SearchResult result = search.search(board, new SearchLimits().setDepth(6));
+			assertEquals(Search.MATE - 3, result.getScore(), result.toString());
+			assertEquals(3, result.getPv().length);
+		} finally {
+			search.shutdown();
+		}
+
+	}
+
+	@Test
+	public void testLimits() {
+
+		ParallelSearch search = new ParallelSearch(4);
+
+		try {
+
+			for (PerftPosition position : PerftPosition.values()) {
+
+				Board board = position.createBoard();
+				String fen = board.getFen();
+
+				SearchResult byDepth = search.search(board, new SearchLimits().setDepth(4));
+				assertEquals(4, byDepth.getDepth(), position.name());
+				assertNotEquals(PackedMove.NONE, byDepth.getBestMove(), position.name());
+
+				SearchResult byTime = search.search(board, new SearchLimits().setTimeMillis(100));
+				assertTrue(byTime.getTimeMillis() < 1_000, byTime.toString());
+				// the nodes of the helpers are counted too
+				assertTrue(byTime.getNodes() > 0);
+
+				for (int move : byTime.getPv()) {
+					assertTrue(board.isMoveLegal(PackedMove.toMove(move), true), PackedMove.toMove(move).toString());
+					board.makeMove(move);
+				}
+
+				board.loadFromFen(fen);
+				assertEquals(fen, board.getFen());
+
+			}
+
+		} finally {
+			search.shutdown();
+		}
+
+	}
+
+}
@@ -0,0 +1,51 @@
+package cz.martinendler.chess.engine.search;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.perft.PerftPosition;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures the search speed (nodes per second) and the depth reached in a blitz-like time limit
+ * <p>
+ * Run using {@code mvn test -P benchmark -Dtest=SearchBenchmark}
+ */
+@Tag("benchmark")
+class SearchBenchmark {
+
+	private static final long TIME_MILLIS = 1_000L;
+
+	@Test
+	public void benchmarkSearch() {
+
+		Search search = new Search();
+
+		// warm up
+		for (PerftPosition position : PerftPosition.values()) {
+			search.search(position.createBoard(), new SearchLimits().setTimeMillis(TIME_MILLIS / 2));
+		}
+
+		for (PerftPosition position : PerftPosition.values()) {
+
+			Board board = position.createBoard();
+
+			SearchResult result = search.search(board, new SearchLimits().setTimeMillis(TIME_MILLIS));
+
+			System.out.printf(
+				"%-12s depth %2d  %9d nodes  %8.0f knodes/s  hashfull %4d  first-move cutoffs %5.1f %%  %s%n",
+				position.name(),
+				result.getDepth(),
+				result.getNodes(),
+				result.getNodes() / (double) Math.max(1L, result.getTimeMillis()),
+				result.getHashfull(),
+				result.getFirstMoveCutoffRate() * 100,
+				result
+			);
+
+		}
+
+		System.out.printf("TT hit rate %.1f %%%n", search.getTable().getHitRate() * 100);
+
+	}
+
+}
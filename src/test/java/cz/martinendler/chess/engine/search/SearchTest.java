@@ -0,0 +1,179 @@
+package cz.martinendler.chess.engine.search;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import cz.martinendler.chess.engine.move.Move;
+import cz.martinendler.chess.engine.move.PackedMove;
+import cz.martinendler.chess.engine.perft.PerftPosition;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTest {
+
+	private static Board createBoard(String fen) {
+		Board board = new Board();
+		board.loadFromFen(fen);
+		return board;
+	}
+
+	private static void assertBestMove(String fen, int depth, Square from, Square to) {
+
+		SearchResult result = new Search().search(createBoard(fen), new SearchLimits().setDepth(depth));
+
+		Move best = PackedMove.toMove(result.getBestMove());
+
+		assertEquals(new Move(from, to, null), best, result.toString());
+
+	}
+
+	@Test
+	public void testMateInOne() {
+
+		// back rank mate
+		String fen = "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1";
+
+		SearchResult result = new Search().search(createBoard(fen), new SearchLimits().setDepth(4));
+
+		assertEquals(new Move(Square.D1, Square.D8, null), PackedMove.toMove(result.getBestMove()));
+		assertTrue(Search.isMateScore(result.getScore()));
+		assertEquals(Search.MATE - 1, result.getScore());
+		// the search stops as soon as the mate is proven
+		assertTrue(result.getDepth() < 4);
+
+	}
+
+	@Test
+	public void testMateInTwo() {
+
+		// e.g. 1. Kb6 Kb8 2. Rh8#
+		String fen = "k7/8/2K5/8/8/8/8/7R w - - 0 1";
+
+		SearchResult result = new Search().search(createBoard(fen), new SearchLimits().setDepth(6));
+
+		assertEquals(Search.MATE - 3, result.getScore(), result.toString());
+		assertEquals(3, result.getPv().length);
+
+	}
+
+	@Test
+	public void testWinsMaterial() {
+		// the knight on d5 is attacked by the pawn and defended by nothing
+		assertBestMove("4k3/8/8/3n4/4P3/8/8/4K3 w - - 0 1", 3, Square.E4, Square.D5);
+	}
+
+	@Test
+	public void testStalemateAndCheckmateAtRoot() {
+
+		SearchResult stalemate = new Search().search(
+			createBoard("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"),
+			new SearchLimits().setDepth(3)
+		);
+
+		assertEquals(PackedMove.NONE, stalemate.getBestMove());
+		assertEquals(0, stalemate.getScore());
+
+		SearchResult checkmate = new Search().search(
+			createBoard("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3"),
+			new SearchLimits().setDepth(3)
+		);
+
+		assertEquals(PackedMove.NONE, checkmate.getBestMove());
+		assertEquals(-Search.MATE, checkmate.getScore());
+
+	}
+
+	@Test
+	public void testQuiescence() {
+
+		// the defended pawn is not worth the queen even at the horizon
+		String fen = "k7/8/3p4/4p3/8/8/4Q3/4K3 w - - 0 1";
+
+		SearchResult result = new Search().search(createBoard(fen), new SearchLimits().setDepth(1));
+
+		assertNotEquals(new Move(Square.E2, Square.E5, null), PackedMove.toMove(result.getBestMove()), result.toString());
+		assertTrue(result.getScore() > 500, result.toString());
+
+	}
+
+	@Test
+	public void testGameRepetition() {
+
+		// black is two queens down, but it has a perpetual check (1... Qe1+ 2. Kh2 Qh4+ 3. Kg1)
+		String fen = "k7/8/3Q4/2Q5/7q/8/6P1/6K1 b - - 10 40";
+
+		Board board = createBoard(fen);
+
+		int[] cycle = {
+			PackedMove.encode(Square.H4.ordinal(), Square.E1.ordinal(), 0),
+			PackedMove.encode(Square.G1.ordinal(), Square.H2.ordinal(), 0),
+			PackedMove.encode(Square.E1.ordinal(), Square.H4.ordinal(), 0),
+			PackedMove.encode(Square.H2.ordinal(), Square.G1.ordinal(), 0),
+		};
+
+		// the root position already occurred twice in the game
+		long[] history = new long[cycle.length];
+		for (int i = 0; i < cycle.length; i++) {
+			history[i] = board.getZobristKey();
+			board.makeMove(cycle[i]);
+		}
+		assertEquals(history[0], board.getZobristKey());
+
+		// too shallow to see the repetition within the searched line (the root recurs after 4 plies)
+		SearchResult withoutHistory = new Search().search(board, new SearchLimits().setDepth(1));
+		assertTrue(withoutHistory.getScore() < -500, withoutHistory.toString());
+
+		// but 1... Qe1+ repeats a position of the game
+		SearchResult withHistory = new Search().search(board, history, new SearchLimits().setDepth(1));
+		assertEquals(0, withHistory.getScore(), withHistory.toString());
+		assertEquals(cycle[0], withHistory.getBestMove(), withHistory.toString());
+
+		// the positions before the last irreversible move cannot repeat
+		board.loadFromFen(fen.replace(" 10 40", " 0 40"));
+		SearchResult afterCapture = new Search().search(board, history, new SearchLimits().setDepth(1));
+		assertTrue(afterCapture.getScore() < -500, afterCapture.toString());
+
+	}
+
+	@Test
+	public void testLimits() {
+
+		Board board = PerftPosition.KIWIPETE.createBoard();
+		String fen = board.getFen();
+
+		Search search = new Search();
+
+		SearchResult byDepth = search.search(board, new SearchLimits().setDepth(3));
+		assertEquals(3, byDepth.getDepth());
+		assertNotEquals(PackedMove.NONE, byDepth.getBestMove());
+		assertEquals(byDepth.getBestMove(), byDepth.getPv()[0]);
+
+		SearchResult byNodes = search.search(board, new SearchLimits().setNodes(20_000));
+		assertTrue(byNodes.getNodes() <= 20_000, byNodes.toString());
+		assertNotEquals(PackedMove.NONE, byNodes.getBestMove());
+
+		SearchResult byTime = search.search(board, new SearchLimits().setTimeMillis(200));
+		assertTrue(byTime.getTimeMillis() < 1_000, byTime.toString());
+		assertTrue(byTime.getDepth() >= 1);
+		assertNotEquals(PackedMove.NONE, byTime.getBestMove());
+
+		// the given position is not modified
+		assertEquals(fen, board.getFen());
+
+	}
+
+	@Test
+	public void testPvIsLegal() {
+
+		Board board = PerftPosition.KIWIPETE.createBoard();
+
+		SearchResult result = new Search().search(board, new SearchLimits().setDepth(4));
+
+		for (int move : result.getPv()) {
+			assertTrue(board.isMoveLegal(PackedMove.toMove(move), true), PackedMove.toMove(move).toString());
+			board.makeMove(move);
+		}
+
+	}
+
+}
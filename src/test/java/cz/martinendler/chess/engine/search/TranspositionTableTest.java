@@ -0,0 +1,122 @@
+package cz.martinendler.chess.engine.search;
+
+import cz.martinendler.chess.engine.board.Board;
+import cz.martinendler.chess.engine.board.Square;
+import cz.martinendler.chess.engine.move.PackedMove;
+import cz.martinendler.chess.engine.perft.PerftPosition;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+	@Test
+	public void testProbeStore() {
+
+		TranspositionTable table = new TranspositionTable(1);
+
+		assertEquals((1 << 20) / TranspositionTable.ENTRY_SIZE, table.getCapacity());
+
+		long key = 0x1234_5678_9abc_def0L;
+		int move = PackedMove.encode(Square.E2.ordinal(), Square.E4.ordinal(), 0);
+
+		assertEquals(0L, table.probe(key));
+
+		table.store(key, move, -Search.MATE + 3, 7, TranspositionTable.BOUND_LOWER);
+
+		long entry = table.probe(key);
+		assertNotEquals(0L, entry);
+		assertEquals(move, TranspositionTable.getMove(entry));
+		assertEquals(-Search.MATE + 3, TranspositionTable.getScore(entry));
+		assertEquals(7, TranspositionTable.getDepth(entry));
+		assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.getBound(entry));
+
+		// another key that maps to the same bucket
+		assertEquals(0L, table.probe(key ^ (1L << 62)));
+
+		// a store without a move keeps the stored move
+		table.store(key, PackedMove.NONE, 25, 8, TranspositionTable.BOUND_UPPER);
+		entry = table.probe(key);
+		assertEquals(move, TranspositionTable.getMove(entry));
+		assertEquals(25, TranspositionTable.getScore(entry));
+		assertEquals(TranspositionTable.BOUND_UPPER, TranspositionTable.getBound(entry));
+
+		assertEquals(4, table.getProbes());
+		assertEquals(2, table.getHits());
+		assertEquals(0.5, table.getHitRate());
+
+		table.clear();
+		assertEquals(0L, table.probe(key));
+		assertEquals(1, table.getProbes());
+
+	}
+
+	@Test
+	public void testReplacement() {
+
+		TranspositionTable table = new TranspositionTable(1);
+
+		long key = 0x0000_0000_0000_0042L;
+
+		// the whole bucket is filled, the shallowest entry (depth 1) is replaced
+		for (int i = 0; i < TranspositionTable.BUCKET_SIZE; i++) {
+			table.store(key ^ ((long) i << 40), PackedMove.NONE, i, i + 1, TranspositionTable.BOUND_EXACT);
+		}
+		table.store(key ^ (7L << 40), PackedMove.NONE, 0, 3, TranspositionTable.BOUND_EXACT);
+
+		assertEquals(0L, table.probe(key));
+		assertNotEquals(0L, table.probe(key ^ (7L << 40)));
+		for (int i = 1; i < TranspositionTable.BUCKET_SIZE; i++) {
+			assertNotEquals(0L, table.probe(key ^ ((long) i << 40)));
+		}
+
+		// the entries of the old searches are replaced even if they are deeper
+		table.newSearch();
+		table.store(key ^ (8L << 40), PackedMove.NONE, 0, 1, TranspositionTable.BOUND_EXACT);
+		assertNotEquals(0L, table.probe(key ^ (8L << 40)));
+		assertEquals(0L, table.probe(key ^ (1L << 40)));
+
+	}
+
+	@Test
+	public void testHashfull() {
+
+		TranspositionTable table = new TranspositionTable(1);
+		assertEquals(0, table.getHashfull());
+
+		for (long key = 0; key < table.getCapacity(); key++) {
+			table.store(key * 0x9E37_79B9_7F4A_7C15L, PackedMove.NONE, 0, 1, TranspositionTable.BOUND_EXACT);
+		}
+		assertTrue(table.getHashfull() > 500, String.valueOf(table.getHashfull()));
+
+		// the entries of the previous searches are not counted
+		table.newSearch();
+		assertEquals(0, table.getHashfull());
+
+	}
+
+	@Test
+	public void testSearchWithTable() {
+
+		TranspositionTable table = new TranspositionTable(1);
+		Search search = new Search(table);
+
+		Board board = PerftPosition.KIWIPETE.createBoard();
+
+		SearchResult first = search.search(board, new SearchLimits().setDepth(5));
+		assertTrue(table.getHits() > 0);
+		assertTrue(first.getHashfull() > 0);
+
+		// the same search with the filled table finds the same move with fewer nodes
+		SearchResult second = search.search(board, new SearchLimits().setDepth(5));
+		assertEquals(first.getBestMove(), second.getBestMove());
+		assertTrue(second.getNodes() < first.getNodes(), first + " " + second);
+
+		for (int move : second.getPv()) {
+			assertTrue(board.isMoveLegal(PackedMove.toMove(move), true), PackedMove.toMove(move).toString());
+			board.makeMove(move);
+		}
+
+	}
+
+}